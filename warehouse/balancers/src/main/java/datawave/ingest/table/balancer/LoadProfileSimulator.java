@@ -0,0 +1,138 @@
+package datawave.ingest.table.balancer;
+
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Replays a recorded load profile (see {@link TabletLoad}) against a {@link ShardLoadBalancingPolicy}, so that a policy and its settings can be evaluated
+ * offline. The first round of the profile gives the initial location of each tablet; after that the recorded loads of each tablet are applied wherever the
+ * simulation has moved it, and the policy is run once per round. The spread of the load (the highest server load over the mean) is reported before and after
+ * the migrations of each round.
+ */
+public class LoadProfileSimulator {
+    
+    private final ShardLoadBalancingPolicy policy;
+    private final int maxMigrations;
+    
+    public LoadProfileSimulator(ShardLoadBalancingPolicy policy, int maxMigrations) {
+        this.policy = policy;
+        this.maxMigrations = maxMigrations;
+    }
+    
+    public List<RoundResult> replay(String tableId, Reader profile) throws IOException {
+        SortedMap<Long,List<TabletLoad>> rounds = new TreeMap<>();
+        try (BufferedReader reader = new BufferedReader(profile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                Pair<Long,TabletLoad> entry = TabletLoad.parseProfileLine(tableId, line);
+                rounds.computeIfAbsent(entry.getFirst(), r -> new ArrayList<>()).add(entry.getSecond());
+            }
+        }
+        
+        List<RoundResult> results = new ArrayList<>();
+        Map<KeyExtent,TServerInstance> locations = new HashMap<>();
+        Set<TServerInstance> tservers = new LinkedHashSet<>();
+        for (Map.Entry<Long,List<TabletLoad>> round : rounds.entrySet()) {
+            List<TabletLoad> loads = new ArrayList<>(round.getValue().size());
+            for (TabletLoad recorded : round.getValue()) {
+                tservers.add(recorded.getTserver());
+                TServerInstance location = locations.computeIfAbsent(recorded.getExtent(), e -> recorded.getTserver());
+                loads.add(recorded.movedTo(location));
+            }
+            
+            double before = ShardLoadBalancingPolicy.maxToMeanRatio(policy.serverLoads(loads, tservers));
+            List<TabletMigration> migrations = policy.balance(loads, tservers, maxMigrations);
+            for (TabletMigration migration : migrations) {
+                locations.put(migration.tablet, migration.newServer);
+            }
+            
+            List<TabletLoad> moved = new ArrayList<>(loads.size());
+            for (TabletLoad load : loads) {
+                moved.add(load.movedTo(locations.get(load.getExtent())));
+            }
+            double after = ShardLoadBalancingPolicy.maxToMeanRatio(policy.serverLoads(moved, tservers));
+            results.add(new RoundResult(round.getKey(), before, after, migrations.size()));
+        }
+        return results;
+    }
+    
+    /**
+     * The spread of the load before and after the migrations of a round
+     */
+    public static class RoundResult {
+        private final long round;
+        private final double ratioBefore;
+        private final double ratioAfter;
+        private final int migrations;
+        
+        public RoundResult(long round, double ratioBefore, double ratioAfter, int migrations) {
+            this.round = round;
+            this.ratioBefore = ratioBefore;
+            this.ratioAfter = ratioAfter;
+            this.migrations = migrations;
+        }
+        
+        public long getRound() {
+            return round;
+        }
+        
+        public double getRatioBefore() {
+            return ratioBefore;
+        }
+        
+        public double getRatioAfter() {
+            return ratioAfter;
+        }
+        
+        public int getMigrations() {
+            return migrations;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d\t%.3f\t%.3f\t%d", round, ratioBefore, ratioAfter, migrations);
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: " + LoadProfileSimulator.class.getSimpleName()
+                            + " <profile file> <table id> [max migrations] [query weight] [ingest weight] [entries weight] [tolerance]");
+            System.exit(1);
+        }
+        
+        ShardLoadBalancingPolicy policy = new ShardLoadBalancingPolicy();
+        int maxMigrations = args.length > 2 ? Integer.parseInt(args[2]) : ShardedTableTabletBalancer.DEFAULT_LOAD_MAX_MIGRATIONS;
+        if (args.length > 3)
+            policy.setQueryWeight(Double.parseDouble(args[3]));
+        if (args.length > 4)
+            policy.setIngestWeight(Double.parseDouble(args[4]));
+        if (args.length > 5)
+            policy.setEntriesWeight(Double.parseDouble(args[5]));
+        if (args.length > 6)
+            policy.setTolerance(Double.parseDouble(args[6]));
+        
+        System.out.println("round\tmax/mean before\tmax/mean after\tmigrations");
+        for (RoundResult result : new LoadProfileSimulator(policy, maxMigrations).replay(args[1], new FileReader(args[0]))) {
+            System.out.println(result);
+        }
+    }
+}
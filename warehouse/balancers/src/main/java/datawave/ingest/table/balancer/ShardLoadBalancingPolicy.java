@@ -0,0 +1,267 @@
+package datawave.ingest.table.balancer;
+
+import com.google.common.base.Function;
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spreads the load of a sharded table across tablet servers by swapping tablets of the same day between hot and cool servers. The load of a tablet combines
+ * its scan rate, ingest rate and entry count, each normalized by its mean over all of the tablets so that the weights are unit-less. Since tablets are only
+ * ever swapped with another tablet of the same day, the number of tablets of each day (and so of each balancer group) on every server is left unchanged, which
+ * keeps the day-striping of the {@link ShardedTableTabletBalancer} intact and means the count based balancing never undoes a swap.
+ */
+public class ShardLoadBalancingPolicy {
+    
+    // the number of coolest servers considered as swap partners for each hot server
+    private static final int SWAP_CANDIDATES = 10;
+    
+    private final Function<KeyExtent,String> dayPartitioner = new ShardedTableTabletBalancer.ShardDayPartitioner();
+    
+    private double queryWeight = 1.0d;
+    private double ingestWeight = 1.0d;
+    private double entriesWeight = 0.5d;
+    private double tolerance = 0.1d;
+    
+    public double getQueryWeight() {
+        return queryWeight;
+    }
+    
+    public void setQueryWeight(double queryWeight) {
+        this.queryWeight = queryWeight;
+    }
+    
+    public double getIngestWeight() {
+        return ingestWeight;
+    }
+    
+    public void setIngestWeight(double ingestWeight) {
+        this.ingestWeight = ingestWeight;
+    }
+    
+    public double getEntriesWeight() {
+        return entriesWeight;
+    }
+    
+    public void setEntriesWeight(double entriesWeight) {
+        this.entriesWeight = entriesWeight;
+    }
+    
+    public double getTolerance() {
+        return tolerance;
+    }
+    
+    /**
+     * @param tolerance
+     *            how far above the mean load, as a fraction of the mean, a server may be before tablets are swapped off of it
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+    
+    /**
+     * @return the weighted and normalized load of each tablet
+     */
+    public Map<KeyExtent,Double> tabletLoads(Collection<TabletLoad> tablets) {
+        double queryTotal = 0, ingestTotal = 0, entriesTotal = 0;
+        for (TabletLoad tablet : tablets) {
+            queryTotal += tablet.getQueryRate();
+            ingestTotal += tablet.getIngestRate();
+            entriesTotal += tablet.getNumEntries();
+        }
+        int n = Math.max(1, tablets.size());
+        double queryMean = queryTotal / n, ingestMean = ingestTotal / n, entriesMean = entriesTotal / n;
+        
+        Map<KeyExtent,Double> loads = new HashMap<>(tablets.size());
+        for (TabletLoad tablet : tablets) {
+            double load = 0;
+            if (queryMean > 0) {
+                load += queryWeight * tablet.getQueryRate() / queryMean;
+            }
+            if (ingestMean > 0) {
+                load += ingestWeight * tablet.getIngestRate() / ingestMean;
+            }
+            if (entriesMean > 0) {
+                load += entriesWeight * tablet.getNumEntries() / entriesMean;
+            }
+            loads.put(tablet.getExtent(), load);
+        }
+        return loads;
+    }
+    
+    /**
+     * @return the total load on each tablet server, including those with no tablets
+     */
+    public Map<TServerInstance,Double> serverLoads(Collection<TabletLoad> tablets, Collection<TServerInstance> tservers) {
+        Map<KeyExtent,Double> loads = tabletLoads(tablets);
+        Map<TServerInstance,Double> serverLoads = new HashMap<>();
+        for (TServerInstance tserver : tservers) {
+            serverLoads.put(tserver, 0.0d);
+        }
+        for (TabletLoad tablet : tablets) {
+            serverLoads.merge(tablet.getTserver(), loads.get(tablet.getExtent()), Double::sum);
+        }
+        return serverLoads;
+    }
+    
+    /**
+     * @return the ratio of the highest server load to the mean server load, which is 1 when the load is perfectly spread
+     */
+    public static double maxToMeanRatio(Map<TServerInstance,Double> serverLoads) {
+        double total = 0, max = 0;
+        for (double load : serverLoads.values()) {
+            total += load;
+            max = Math.max(max, load);
+        }
+        return total <= 0 ? 1.0d : max / (total / serverLoads.size());
+    }
+    
+    /**
+     * Compute swaps that spread the load across the tablet servers. Each swap moves a tablet from a server above the tolerance to one of the coolest servers,
+     * and a tablet of the same day but with less load back, choosing the pair that gets closest to evening out the two servers. No tablet is moved twice.
+     * 
+     * @param tablets
+     *            the tablets of the table and their loads
+     * @param tservers
+     *            the tablet servers available
+     * @param maxMigrations
+     *            the most migrations to return (two per swap)
+     * @return the migrations to make
+     */
+    public List<TabletMigration> balance(Collection<TabletLoad> tablets, Collection<TServerInstance> tservers, int maxMigrations) {
+        return balance(tablets, tservers, maxMigrations, Collections.emptySet());
+    }
+    
+    /**
+     * Compute swaps that spread the load across the tablet servers, leaving some tablets where they are.
+     * 
+     * @param tablets
+     *            the tablets of the table and their loads
+     * @param tservers
+     *            the tablet servers available
+     * @param maxMigrations
+     *            the most migrations to return (two per swap)
+     * @param pinned
+     *            tablets which must not be moved, such as those moved recently whose loads have not settled yet
+     * @return the migrations to make
+     */
+    public List<TabletMigration> balance(Collection<TabletLoad> tablets, Collection<TServerInstance> tservers, int maxMigrations, Set<KeyExtent> pinned) {
+        List<TabletMigration> migrations = new ArrayList<>();
+        Map<KeyExtent,Double> loads = tabletLoads(tablets);
+        Map<TServerInstance,Double> serverLoads = serverLoads(tablets, tservers);
+        if (serverLoads.isEmpty()) {
+            return migrations;
+        }
+        
+        Map<TServerInstance,Map<String,List<KeyExtent>>> serverDays = new HashMap<>();
+        for (TabletLoad tablet : tablets) {
+            serverDays.computeIfAbsent(tablet.getTserver(), t -> new HashMap<>())
+                            .computeIfAbsent(dayPartitioner.apply(tablet.getExtent()), d -> new ArrayList<>()).add(tablet.getExtent());
+        }
+        
+        double total = 0;
+        for (double load : serverLoads.values()) {
+            total += load;
+        }
+        double limit = (total / serverLoads.size()) * (1.0d + tolerance);
+        
+        Set<KeyExtent> moved = new HashSet<>(pinned);
+        Comparator<TServerInstance> byLoad = Comparator.comparingDouble(serverLoads::get);
+        while (migrations.size() + 2 <= maxMigrations) {
+            List<TServerInstance> sorted = new ArrayList<>(serverLoads.keySet());
+            sorted.sort(byLoad.reversed());
+            
+            Swap swap = null;
+            for (int h = 0; h < Math.min(SWAP_CANDIDATES, sorted.size()) && swap == null; h++) {
+                TServerInstance hot = sorted.get(h);
+                if (serverLoads.get(hot) <= limit) {
+                    break;
+                }
+                for (int c = sorted.size() - 1; c > h && c >= sorted.size() - SWAP_CANDIDATES && swap == null; c--) {
+                    swap = findSwap(hot, sorted.get(c), serverDays, serverLoads, loads, moved);
+                }
+            }
+            if (swap == null) {
+                break;
+            }
+            
+            serverDays.get(swap.hot).get(swap.day).remove(swap.hotTablet);
+            serverDays.get(swap.cool).get(swap.day).remove(swap.coolTablet);
+            serverDays.get(swap.cool).get(swap.day).add(swap.hotTablet);
+            serverDays.get(swap.hot).get(swap.day).add(swap.coolTablet);
+            serverLoads.put(swap.hot, serverLoads.get(swap.hot) - swap.delta);
+            serverLoads.put(swap.cool, serverLoads.get(swap.cool) + swap.delta);
+            moved.add(swap.hotTablet);
+            moved.add(swap.coolTablet);
+            migrations.add(new TabletMigration(swap.hotTablet, swap.hot, swap.cool));
+            migrations.add(new TabletMigration(swap.coolTablet, swap.cool, swap.hot));
+        }
+        return migrations;
+    }
+    
+    private Swap findSwap(TServerInstance hot, TServerInstance cool, Map<TServerInstance,Map<String,List<KeyExtent>>> serverDays,
+                    Map<TServerInstance,Double> serverLoads, Map<KeyExtent,Double> loads, Set<KeyExtent> moved) {
+        Map<String,List<KeyExtent>> hotDays = serverDays.get(hot);
+        Map<String,List<KeyExtent>> coolDays = serverDays.get(cool);
+        if (hotDays == null || coolDays == null) {
+            return null;
+        }
+        double gap = serverLoads.get(hot) - serverLoads.get(cool);
+        Swap best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Map.Entry<String,List<KeyExtent>> day : hotDays.entrySet()) {
+            List<KeyExtent> coolTablets = coolDays.get(day.getKey());
+            if (coolTablets == null) {
+                continue;
+            }
+            for (KeyExtent hotTablet : day.getValue()) {
+                if (moved.contains(hotTablet)) {
+                    continue;
+                }
+                for (KeyExtent coolTablet : coolTablets) {
+                    if (moved.contains(coolTablet)) {
+                        continue;
+                    }
+                    // the swap must move load toward the cool server without making it the hotter of the two
+                    double delta = loads.get(hotTablet) - loads.get(coolTablet);
+                    if (delta > 0 && delta < gap) {
+                        double score = Math.abs(gap / 2 - delta);
+                        if (score < bestScore) {
+                            bestScore = score;
+                            best = new Swap(hot, cool, day.getKey(), hotTablet, coolTablet, delta);
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+    
+    private static class Swap {
+        private final TServerInstance hot;
+        private final TServerInstance cool;
+        private final String day;
+        private final KeyExtent hotTablet;
+        private final KeyExtent coolTablet;
+        private final double delta;
+        
+        private Swap(TServerInstance hot, TServerInstance cool, String day, KeyExtent hotTablet, KeyExtent coolTablet, double delta) {
+            this.hot = hot;
+            this.cool = cool;
+            this.day = day;
+            this.hotTablet = hotTablet;
+            this.coolTablet = coolTablet;
+            this.delta = delta;
+        }
+    }
+}
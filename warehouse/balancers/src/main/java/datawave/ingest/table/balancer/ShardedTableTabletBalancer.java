@@ -2,8 +2,10 @@ package datawave.ingest.table.balancer;
 
 import com.google.common.base.Function;
 import com.google.common.collect.Iterables;
+import org.apache.accumulo.core.conf.Property;
 import org.apache.accumulo.core.data.impl.KeyExtent;
 import org.apache.accumulo.core.master.thrift.TabletServerStatus;
+import org.apache.accumulo.core.tabletserver.thrift.TabletStats;
 import org.apache.accumulo.core.util.Pair;
 import org.apache.accumulo.server.master.balancer.GroupBalancer;
 import org.apache.accumulo.server.master.state.TServerInstance;
@@ -11,10 +13,13 @@ import org.apache.accumulo.server.master.state.TabletMigration;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparator;
 import org.apache.log4j.Logger;
+import org.apache.thrift.TException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +27,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A custom tablet balancer designed to work with a date-partitioned (sharded) table. This balancer is based on the {@link GroupBalancer}, which spreads tablets
@@ -33,14 +39,46 @@ import java.util.TreeMap;
  * Therefore, a legal balance could have successive days on the same tablet servers. For example, if a day were partitioned into 100 pieces and the cluster had
  * 500 tablet servers, a legal balance of 20 days of data could have days 1-5 all on the first 100 tablet servers, days 6-10 on the second 100 tablet servers,
  * and so on. This is not ideal, since the real goal is to spread data out across the cluster as much as possible.
+ * <p>
+ * Balancing by tablet counts alone piles the load of recent, heavily queried days onto whichever servers hold them. When {@link #LOAD_ENABLED} is set on the
+ * table, a balancer pass which finds the tablet counts already balanced goes on to swap tablets of the same day between hot and cool servers, using the scan
+ * rates, ingest rates and entry counts reported by the tablet servers (see {@link ShardLoadBalancingPolicy}). The loads seen in each pass are logged at debug
+ * to the {@link #LOAD_PROFILE_LOGGER} logger, in the format replayed by the {@link LoadProfileSimulator}.
+ * <p>
+ * The tablet stats are only fetched every {@link #LOAD_INTERVAL} milliseconds (10 minutes by default, and never more often than the {@link GroupBalancer}
+ * wait time), since the rates they report need time to reflect earlier swaps. For the same reason a tablet that was swapped is not swapped again for the next
+ * {@link #LOAD_SETTLE_ROUNDS} load passes (3 by default).
  */
 public class ShardedTableTabletBalancer extends GroupBalancer {
     private static final Logger log = Logger.getLogger(ShardedTableTabletBalancer.class);
+    
+    public static final String LOAD_PROPERTY_PREFIX = Property.TABLE_ARBITRARY_PROP_PREFIX.getKey() + "sharded.balancer.load.";
+    public static final String LOAD_ENABLED = LOAD_PROPERTY_PREFIX + "enabled";
+    public static final String LOAD_QUERY_WEIGHT = LOAD_PROPERTY_PREFIX + "query.weight";
+    public static final String LOAD_INGEST_WEIGHT = LOAD_PROPERTY_PREFIX + "ingest.weight";
+    public static final String LOAD_ENTRIES_WEIGHT = LOAD_PROPERTY_PREFIX + "entries.weight";
+    public static final String LOAD_TOLERANCE = LOAD_PROPERTY_PREFIX + "tolerance";
+    public static final String LOAD_MAX_MIGRATIONS = LOAD_PROPERTY_PREFIX + "max.migrations";
+    public static final int DEFAULT_LOAD_MAX_MIGRATIONS = 100;
+    public static final String LOAD_INTERVAL = LOAD_PROPERTY_PREFIX + "interval";
+    public static final long DEFAULT_LOAD_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+    public static final String LOAD_SETTLE_ROUNDS = LOAD_PROPERTY_PREFIX + "settle.rounds";
+    public static final int DEFAULT_LOAD_SETTLE_ROUNDS = 3;
+    
+    public static final String LOAD_PROFILE_LOGGER = "datawave.ingest.table.balancer.LoadProfile";
+    private static final Logger profileLog = Logger.getLogger(LOAD_PROFILE_LOGGER);
+    
+    private final String tableId;
     private Collection<Pair<KeyExtent,Location>> tabletLocationCache;
     private Function<KeyExtent,String> partitioner;
+    private long loadRound = 0;
+    private long lastLoadPass = 0;
+    // the load pass in which each tablet was last swapped, so that it is left alone until its load settles on the new server
+    private final Map<KeyExtent,Long> loadMoves = new HashMap<>();
     
     public ShardedTableTabletBalancer(String tableId) {
         super(tableId);
+        this.tableId = tableId;
     }
     
     // synchronized to ensure exclusivity between getAssignments and balance calls
@@ -64,7 +102,133 @@ public class ShardedTableTabletBalancer extends GroupBalancer {
         final int numTservers = current.size();
         partitioner = new ShardGroupPartitioner(numTservers, getLocationProvider());
         
-        return super.balance(current, migrations, migrationsOut);
+        long waitTime = super.balance(current, migrations, migrationsOut);
+        
+        // Only move tablets by load once their counts are balanced and nothing of ours is still moving
+        if (migrationsOut.isEmpty() && !hasPendingMigrations(migrations)) {
+            balanceByLoad(current, migrationsOut);
+        }
+        
+        return waitTime;
+    }
+    
+    private boolean hasPendingMigrations(Set<KeyExtent> migrations) {
+        for (KeyExtent extent : migrations) {
+            if (tableId.equals(extent.getTableId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Swaps tablets of the same day between servers to spread the load, if enabled for the table.
+     */
+    protected void balanceByLoad(SortedMap<TServerInstance,TabletServerStatus> current, List<TabletMigration> migrationsOut) {
+        Map<String,String> properties = getTableProperties();
+        if (!Boolean.parseBoolean(properties.get(LOAD_ENABLED))) {
+            return;
+        }
+        
+        ShardLoadBalancingPolicy policy = new ShardLoadBalancingPolicy();
+        int maxMigrations = DEFAULT_LOAD_MAX_MIGRATIONS;
+        long interval = DEFAULT_LOAD_INTERVAL;
+        int settleRounds = DEFAULT_LOAD_SETTLE_ROUNDS;
+        try {
+            if (properties.containsKey(LOAD_QUERY_WEIGHT))
+                policy.setQueryWeight(Double.parseDouble(properties.get(LOAD_QUERY_WEIGHT)));
+            if (properties.containsKey(LOAD_INGEST_WEIGHT))
+                policy.setIngestWeight(Double.parseDouble(properties.get(LOAD_INGEST_WEIGHT)));
+            if (properties.containsKey(LOAD_ENTRIES_WEIGHT))
+                policy.setEntriesWeight(Double.parseDouble(properties.get(LOAD_ENTRIES_WEIGHT)));
+            if (properties.containsKey(LOAD_TOLERANCE))
+                policy.setTolerance(Double.parseDouble(properties.get(LOAD_TOLERANCE)));
+            if (properties.containsKey(LOAD_MAX_MIGRATIONS))
+                maxMigrations = Integer.parseInt(properties.get(LOAD_MAX_MIGRATIONS));
+            if (properties.containsKey(LOAD_INTERVAL))
+                interval = Long.parseLong(properties.get(LOAD_INTERVAL));
+            if (properties.containsKey(LOAD_SETTLE_ROUNDS))
+                settleRounds = Integer.parseInt(properties.get(LOAD_SETTLE_ROUNDS));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid load balancing property for table " + tableId + ", skipping load balancing", e);
+            return;
+        }
+        
+        long now = currentTimeMillis();
+        if (now - lastLoadPass < Math.max(interval, getWaitTime())) {
+            return;
+        }
+        lastLoadPass = now;
+        
+        List<TabletLoad> loads = getTabletLoads(current);
+        if (loads.isEmpty()) {
+            return;
+        }
+        
+        ++loadRound;
+        if (profileLog.isDebugEnabled()) {
+            for (TabletLoad load : loads) {
+                profileLog.debug(load.toProfileLine(loadRound));
+            }
+        }
+        
+        loadMoves.values().removeIf(round -> loadRound - round > settleRounds);
+        double ratio = ShardLoadBalancingPolicy.maxToMeanRatio(policy.serverLoads(loads, current.keySet()));
+        List<TabletMigration> swaps = policy.balance(loads, current.keySet(), maxMigrations, loadMoves.keySet());
+        if (swaps.isEmpty()) {
+            if (log.isDebugEnabled()) {
+                log.debug("Load balancing table " + tableId + ": max/mean server load " + String.format("%.2f", ratio) + ", no swaps needed ("
+                                + loadMoves.size() + " tablets still settling)");
+            }
+            return;
+        }
+        
+        log.info("Load balancing table " + tableId + ": max/mean server load " + String.format("%.2f", ratio) + ", swapping " + (swaps.size() / 2)
+                        + " pairs of tablets");
+        for (TabletMigration swap : swaps) {
+            loadMoves.put(swap.tablet, loadRound);
+        }
+        migrationsOut.addAll(swaps);
+    }
+    
+    /**
+     * Gets the current time, which test cases may override to control when load passes run.
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+    
+    /**
+     * Gets the load of every tablet of the table from the tablet servers. If any server cannot be reached, no loads are returned, as a partial view would
+     * make the servers that could not be reached look idle.
+     */
+    protected List<TabletLoad> getTabletLoads(SortedMap<TServerInstance,TabletServerStatus> current) {
+        List<TabletLoad> loads = new ArrayList<>();
+        for (Entry<TServerInstance,TabletServerStatus> entry : current.entrySet()) {
+            Map<String,?> tableMap = entry.getValue().getTableMap();
+            if (tableMap != null && !tableMap.containsKey(tableId)) {
+                continue;
+            }
+            try {
+                for (TabletStats stats : getOnlineTabletsForTable(entry.getKey(), tableId)) {
+                    loads.add(new TabletLoad(entry.getKey(), stats));
+                }
+            } catch (TException e) {
+                log.warn("Unable to get tablet stats for " + tableId + " from " + entry.getKey() + ", skipping load balancing", e);
+                return Collections.emptyList();
+            }
+        }
+        return loads;
+    }
+    
+    /**
+     * Gets the custom ({@code table.custom.*}) properties of the table.
+     */
+    protected Map<String,String> getTableProperties() {
+        if (context == null) {
+            return Collections.emptyMap();
+        }
+        return context.getServerConfigurationFactory().getTableConfiguration(tableId).getAllPropertiesWithPrefix(Property.TABLE_ARBITRARY_PROP_PREFIX);
     }
     
     @Override
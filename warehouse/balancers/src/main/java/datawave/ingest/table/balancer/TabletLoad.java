@@ -0,0 +1,108 @@
+package datawave.ingest.table.balancer;
+
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.tabletserver.thrift.TabletStats;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.hadoop.io.Text;
+
+/**
+ * The load on a single tablet, as reported by the tablet server hosting it. Loads are recorded as load profile lines, one per tablet per balancer round, so
+ * that they can be replayed offline by the {@link LoadProfileSimulator}:
+ * 
+ * <pre>
+ * round tserver:port[sessionId] endRow queryRate ingestRate numEntries
+ * </pre>
+ */
+public class TabletLoad {
+    
+    private final KeyExtent extent;
+    private final TServerInstance tserver;
+    private final double queryRate;
+    private final double ingestRate;
+    private final long numEntries;
+    
+    public TabletLoad(KeyExtent extent, TServerInstance tserver, double queryRate, double ingestRate, long numEntries) {
+        this.extent = extent;
+        this.tserver = tserver;
+        this.queryRate = queryRate;
+        this.ingestRate = ingestRate;
+        this.numEntries = numEntries;
+    }
+    
+    public TabletLoad(TServerInstance tserver, TabletStats stats) {
+        this(new KeyExtent(stats.getExtent()), tserver, stats.getQueryRate(), stats.getIngestRate(), stats.getNumEntries());
+    }
+    
+    public KeyExtent getExtent() {
+        return extent;
+    }
+    
+    public TServerInstance getTserver() {
+        return tserver;
+    }
+    
+    /**
+     * @return the entries scanned per second
+     */
+    public double getQueryRate() {
+        return queryRate;
+    }
+    
+    /**
+     * @return the entries ingested per second
+     */
+    public double getIngestRate() {
+        return ingestRate;
+    }
+    
+    public long getNumEntries() {
+        return numEntries;
+    }
+    
+    /**
+     * @return this load on another tablet server, e.g. after a migration
+     */
+    public TabletLoad movedTo(TServerInstance newServer) {
+        return new TabletLoad(extent, newServer, queryRate, ingestRate, numEntries);
+    }
+    
+    public String toProfileLine(long round) {
+        return round + " " + tserver.hostPort() + "[" + tserver.getSession() + "] " + extent.getEndRow() + " " + queryRate + " " + ingestRate + " "
+                        + numEntries;
+    }
+    
+    /**
+     * Parse a load profile line
+     * 
+     * @param tableId
+     *            the table the profile was recorded for
+     * @param line
+     *            the profile line
+     * @return the round of the line and the load it records
+     */
+    public static Pair<Long,TabletLoad> parseProfileLine(String tableId, String line) {
+        String[] parts = line.trim().split("\\s+");
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Expected 6 fields in load profile line: " + line);
+        }
+        long round = Long.parseLong(parts[0]);
+        String server = parts[1];
+        int sessionStart = server.indexOf('[');
+        TServerInstance tserver;
+        if (sessionStart < 0) {
+            tserver = new TServerInstance(server, 0L);
+        } else {
+            // sessions are written in hex
+            tserver = new TServerInstance(server.substring(0, sessionStart), Long.parseLong(server.substring(sessionStart + 1, server.length() - 1), 16));
+        }
+        KeyExtent extent = new KeyExtent(tableId, new Text(parts[2]), null);
+        return new Pair<>(round, new TabletLoad(extent, tserver, Double.parseDouble(parts[3]), Double.parseDouble(parts[4]),
+                        Long.parseLong(parts[5])));
+    }
+    
+    @Override
+    public String toString() {
+        return "TabletLoad{" + extent + " on " + tserver + ", queryRate=" + queryRate + ", ingestRate=" + ingestRate + ", numEntries=" + numEntries + "}";
+    }
+}
@@ -0,0 +1,181 @@
+package datawave.ingest.table.balancer;
+
+import org.apache.accumulo.core.data.impl.KeyExtent;
+import org.apache.accumulo.core.util.Pair;
+import org.apache.accumulo.server.master.state.TServerInstance;
+import org.apache.accumulo.server.master.state.TabletMigration;
+import org.apache.hadoop.io.Text;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ShardLoadBalancingPolicyTest {
+    private static final String TNAME = "s";
+    
+    private final TServerInstance server1 = new TServerInstance("127.0.0.1:1000", 6);
+    private final TServerInstance server2 = new TServerInstance("127.0.0.1:1001", 6);
+    private final TServerInstance server3 = new TServerInstance("127.0.0.1:1002", 6);
+    private final List<TServerInstance> tservers = Arrays.asList(server1, server2, server3);
+    
+    private ShardLoadBalancingPolicy policy;
+    
+    @Before
+    public void setUp() {
+        policy = new ShardLoadBalancingPolicy();
+        policy.setIngestWeight(0);
+        policy.setEntriesWeight(0);
+    }
+    
+    @Test
+    public void testHotDaySpread() {
+        // one shard of each day on each server, but all of the hot shards on the first server: two swaps put one hot shard on each server
+        List<TabletLoad> tablets = new ArrayList<>();
+        tablets.add(load("20100123_1", server1, 100));
+        tablets.add(load("20100123_2", server2, 1));
+        tablets.add(load("20100123_3", server3, 1));
+        tablets.add(load("20100124_1", server1, 100));
+        tablets.add(load("20100124_2", server2, 1));
+        tablets.add(load("20100124_3", server3, 1));
+        tablets.add(load("20100125_1", server1, 100));
+        tablets.add(load("20100125_2", server2, 1));
+        tablets.add(load("20100125_3", server3, 1));
+        
+        double before = ShardLoadBalancingPolicy.maxToMeanRatio(policy.serverLoads(tablets, tservers));
+        List<TabletMigration> migrations = policy.balance(tablets, tservers, 100);
+        List<TabletLoad> moved = apply(tablets, migrations);
+        double after = ShardLoadBalancingPolicy.maxToMeanRatio(policy.serverLoads(moved, tservers));
+        
+        assertEquals(4, migrations.size());
+        assertTrue("Expected " + after + " to be less than " + before, after < before);
+        checkDayCounts(tablets, moved);
+    }
+    
+    @Test
+    public void testMaxMigrations() {
+        List<TabletLoad> tablets = new ArrayList<>();
+        tablets.add(load("20100123_1", server1, 100));
+        tablets.add(load("20100123_2", server2, 1));
+        tablets.add(load("20100123_3", server3, 1));
+        tablets.add(load("20100124_1", server1, 100));
+        tablets.add(load("20100124_2", server2, 1));
+        tablets.add(load("20100124_3", server3, 1));
+        tablets.add(load("20100125_1", server1, 100));
+        tablets.add(load("20100125_2", server2, 1));
+        tablets.add(load("20100125_3", server3, 1));
+        
+        List<TabletMigration> migrations = policy.balance(tablets, tservers, 3);
+        assertEquals(2, migrations.size());
+        checkDayCounts(tablets, apply(tablets, migrations));
+    }
+    
+    @Test
+    public void testBalancedLoadIsLeftAlone() {
+        List<TabletLoad> tablets = new ArrayList<>();
+        tablets.add(load("20100123_1", server1, 10));
+        tablets.add(load("20100123_2", server2, 10));
+        tablets.add(load("20100123_3", server3, 11));
+        
+        assertTrue(policy.balance(tablets, tservers, 100).isEmpty());
+    }
+    
+    @Test
+    public void testNoSwapAcrossDays() {
+        // the only hot tablet's day has no other tablets to swap with
+        List<TabletLoad> tablets = new ArrayList<>();
+        tablets.add(load("20100123_1", server1, 100));
+        tablets.add(load("20100124_1", server2, 1));
+        tablets.add(load("20100125_1", server3, 1));
+        
+        assertTrue(policy.balance(tablets, tservers, 100).isEmpty());
+    }
+    
+    @Test
+    public void testProfileLine() {
+        TabletLoad load = new TabletLoad(makeExtent("20100123_1"), server2, 1.5, 2.5, 300);
+        Pair<Long,TabletLoad> parsed = TabletLoad.parseProfileLine(TNAME, load.toProfileLine(7));
+        
+        assertEquals(7L, (long) parsed.getFirst());
+        assertEquals(load.getExtent(), parsed.getSecond().getExtent());
+        assertEquals(server2, parsed.getSecond().getTserver());
+        assertEquals(1.5, parsed.getSecond().getQueryRate(), 0.0);
+        assertEquals(2.5, parsed.getSecond().getIngestRate(), 0.0);
+        assertEquals(300, parsed.getSecond().getNumEntries());
+    }
+    
+    @Test
+    public void testReplayProfile() throws Exception {
+        // the same hot shards for three rounds: once spread, the load should stay spread
+        StringBuilder profile = new StringBuilder();
+        for (int round = 1; round <= 3; round++) {
+            List<TabletLoad> tablets = new ArrayList<>();
+            for (String day : Arrays.asList("20100123", "20100124", "20100125")) {
+                tablets.add(load(day + "_1", server1, 100));
+                tablets.add(load(day + "_2", server2, 1));
+                tablets.add(load(day + "_3", server3, 1));
+            }
+            for (TabletLoad tablet : tablets) {
+                profile.append(tablet.toProfileLine(round)).append('\n');
+            }
+        }
+        
+        List<LoadProfileSimulator.RoundResult> results = new LoadProfileSimulator(policy, 100).replay(TNAME, new StringReader(profile.toString()));
+        assertEquals(3, results.size());
+        LoadProfileSimulator.RoundResult first = results.get(0);
+        assertTrue(first.getMigrations() > 0);
+        assertTrue(first.getRatioAfter() < first.getRatioBefore());
+        for (LoadProfileSimulator.RoundResult result : results.subList(1, results.size())) {
+            assertEquals(first.getRatioAfter(), result.getRatioBefore(), 0.0001);
+            assertTrue(result.getRatioAfter() <= result.getRatioBefore());
+        }
+    }
+    
+    private static TabletLoad load(String endRow, TServerInstance tserver, double queryRate) {
+        return new TabletLoad(makeExtent(endRow), tserver, queryRate, 0, 0);
+    }
+    
+    private static KeyExtent makeExtent(String endRow) {
+        return new KeyExtent(TNAME, new Text(endRow), null);
+    }
+    
+    private static List<TabletLoad> apply(List<TabletLoad> tablets, List<TabletMigration> migrations) {
+        Set<KeyExtent> migrated = new HashSet<>();
+        Map<KeyExtent,TServerInstance> locations = new HashMap<>();
+        for (TabletLoad tablet : tablets) {
+            locations.put(tablet.getExtent(), tablet.getTserver());
+        }
+        for (TabletMigration migration : migrations) {
+            assertTrue("Tablet " + migration.tablet + " migrated twice", migrated.add(migration.tablet));
+            assertEquals(locations.get(migration.tablet), migration.oldServer);
+            locations.put(migration.tablet, migration.newServer);
+        }
+        List<TabletLoad> moved = new ArrayList<>();
+        for (TabletLoad tablet : tablets) {
+            moved.add(tablet.movedTo(locations.get(tablet.getExtent())));
+        }
+        return moved;
+    }
+    
+    private static void checkDayCounts(List<TabletLoad> before, List<TabletLoad> after) {
+        assertEquals(dayCounts(before), dayCounts(after));
+    }
+    
+    private static Map<String,Integer> dayCounts(List<TabletLoad> tablets) {
+        Map<String,Integer> counts = new HashMap<>();
+        for (TabletLoad tablet : tablets) {
+            String day = tablet.getExtent().getEndRow().toString().substring(0, 8);
+            counts.merge(tablet.getTserver() + "/" + day, 1, Integer::sum);
+        }
+        return counts;
+    }
+}
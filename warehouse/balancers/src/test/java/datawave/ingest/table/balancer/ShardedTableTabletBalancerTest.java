@@ -520,6 +520,64 @@ public class ShardedTableTabletBalancerTest {
         runAndCheckBalance(1);
     }
     
+    @Test
+    public void testLoadBalancingIntervalAndSettling() {
+        testTServers.addTServers("127.0.0.1", "127.0.0.1", "127.0.0.1");
+        List<TServerInstance> servers = new ArrayList<>(testTServers.getCurrent().keySet());
+        
+        // one shard of each day on each server, so the counts are balanced, but all of the hot shards are on the first server
+        Map<KeyExtent,Double> queryRates = new HashMap<>();
+        String prev = null;
+        for (String day : Arrays.asList("20100123", "20100124", "20100125")) {
+            for (int i = 0; i < 3; i++) {
+                String end = day + "_" + (i + 1);
+                KeyExtent extent = makeExtent(TNAME, end, prev);
+                testTServers.addTablet(extent, servers.get(i));
+                queryRates.put(extent, i == 0 ? 100.0 : 1.0);
+                prev = end;
+            }
+        }
+        
+        LoadTestShardedTableTabletBalancer balancer = new LoadTestShardedTableTabletBalancer(testTServers, queryRates);
+        balancer.properties.put(ShardedTableTabletBalancer.LOAD_ENABLED, "true");
+        balancer.properties.put(ShardedTableTabletBalancer.LOAD_INGEST_WEIGHT, "0");
+        balancer.properties.put(ShardedTableTabletBalancer.LOAD_ENTRIES_WEIGHT, "0");
+        balancer.properties.put(ShardedTableTabletBalancer.LOAD_INTERVAL, "60000");
+        balancer.now = 100000;
+        
+        // the hot shards are swapped onto the other servers
+        ArrayList<TabletMigration> migrationsOut = new ArrayList<>();
+        balancer.balance(testTServers.getCurrent(), new HashSet<>(), migrationsOut);
+        assertEquals(4, migrationsOut.size());
+        assertEquals(1, balancer.loadFetches);
+        ensureUniqueMigrations(migrationsOut);
+        testTServers.applyMigrations(migrationsOut);
+        Set<KeyExtent> swapped = new HashSet<>();
+        for (TabletMigration migration : migrationsOut) {
+            swapped.add(migration.tablet);
+        }
+        
+        // the next pass is within the interval, so the tablet stats aren't even fetched
+        balancer.now += 1000;
+        migrationsOut.clear();
+        balancer.balance(testTServers.getCurrent(), new HashSet<>(), migrationsOut);
+        assertTrue(migrationsOut.isEmpty());
+        assertEquals(1, balancer.loadFetches);
+        
+        // make everything on the first server hot again: only the day which was not swapped may move, since the swapped tablets are still settling
+        for (Entry<KeyExtent,Double> entry : queryRates.entrySet()) {
+            entry.setValue(servers.get(0).equals(testTServers.tabletLocs.get(entry.getKey())) ? 100.0 : 1.0);
+        }
+        balancer.now += 60000;
+        migrationsOut.clear();
+        balancer.balance(testTServers.getCurrent(), new HashSet<>(), migrationsOut);
+        assertEquals(2, balancer.loadFetches);
+        assertEquals(2, migrationsOut.size());
+        for (TabletMigration migration : migrationsOut) {
+            assertFalse("Swapped settling tablet " + migration.tablet, swapped.contains(migration.tablet));
+        }
+    }
+    
     private void runAndCheckBalance(int numPasses) {
         
         // Balance the number of times we're told to
@@ -850,4 +908,36 @@ public class ShardedTableTabletBalancerTest {
             return 30000;
         }
     }
+    
+    private class LoadTestShardedTableTabletBalancer extends TestShardedTableTabletBalancer {
+        private final Map<String,String> properties = new HashMap<>();
+        private final Map<KeyExtent,Double> queryRates;
+        private long now;
+        private int loadFetches;
+        
+        public LoadTestShardedTableTabletBalancer(TestTServers testTServers, Map<KeyExtent,Double> queryRates) {
+            super(testTServers);
+            this.queryRates = queryRates;
+        }
+        
+        @Override
+        protected Map<String,String> getTableProperties() {
+            return properties;
+        }
+        
+        @Override
+        protected List<TabletLoad> getTabletLoads(SortedMap<TServerInstance,TabletServerStatus> current) {
+            ++loadFetches;
+            List<TabletLoad> loads = new ArrayList<>();
+            for (Entry<KeyExtent,TServerInstance> entry : testTServers.tabletLocs.entrySet()) {
+                loads.add(new TabletLoad(entry.getKey(), entry.getValue(), queryRates.get(entry.getKey()), 0, 0));
+            }
+            return loads;
+        }
+        
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
 }
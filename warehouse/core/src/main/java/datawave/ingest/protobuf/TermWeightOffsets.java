@@ -0,0 +1,138 @@
+package datawave.ingest.protobuf;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+/**
+ * A decoder for serialized {@link TermWeight.Info} values which reads the offsets, skips and scores straight into primitive arrays instead of building a
+ * {@link TermWeight.Info} with boxed lists. An instance may be reused for many values, growing its arrays as needed, which avoids allocating per term frequency
+ * entry when offsets are read for many documents.
+ * <p>
+ * The positions produced by {@link #getPosition(int, TermWeightPosition.Builder)} are the same as those produced by
+ * {@link TermWeightPosition.Builder#setTermWeightOffsetInfo(TermWeight.Info, int)} for the parsed {@link TermWeight.Info}.
+ */
+public class TermWeightOffsets {
+    
+    // indexes into the values and counts
+    private static final int OFFSETS = 0;
+    private static final int PREV_SKIPS = 1;
+    private static final int SCORES = 2;
+    
+    private final int[][] values = new int[3][16];
+    private final int[] counts = new int[3];
+    private boolean zeroOffsetMatch = TermWeightPosition.DEFAULT_ZERO_OFFSET_MATCH;
+    
+    /**
+     * Decode a serialized TermWeight.Info, replacing anything previously decoded by this instance
+     * 
+     * @param bytes
+     *            the serialized TermWeight.Info
+     * @return this
+     * @throws InvalidProtocolBufferException
+     *             if the bytes are not a valid TermWeight.Info
+     */
+    public TermWeightOffsets decode(byte[] bytes) throws InvalidProtocolBufferException {
+        Arrays.fill(counts, 0);
+        zeroOffsetMatch = TermWeightPosition.DEFAULT_ZERO_OFFSET_MATCH;
+        
+        CodedInputStream input = CodedInputStream.newInstance(bytes);
+        try {
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                boolean packed = WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case TermWeight.Info.TERMOFFSET_FIELD_NUMBER:
+                        readUInt32s(input, packed, OFFSETS);
+                        break;
+                    case TermWeight.Info.PREVSKIPS_FIELD_NUMBER:
+                        readUInt32s(input, packed, PREV_SKIPS);
+                        break;
+                    case TermWeight.Info.SCORE_FIELD_NUMBER:
+                        readUInt32s(input, packed, SCORES);
+                        break;
+                    case TermWeight.Info.ZEROOFFSETMATCH_FIELD_NUMBER:
+                        zeroOffsetMatch = input.readBool();
+                        break;
+                    default:
+                        if (!input.skipField(tag)) {
+                            return this;
+                        }
+                }
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e.getMessage());
+        }
+        return this;
+    }
+    
+    private void readUInt32s(CodedInputStream input, boolean packed, int field) throws IOException {
+        if (packed) {
+            int limit = input.pushLimit(input.readRawVarint32());
+            while (input.getBytesUntilLimit() > 0) {
+                append(field, input.readUInt32());
+            }
+            input.popLimit(limit);
+        } else {
+            append(field, input.readUInt32());
+        }
+    }
+    
+    private void append(int field, int value) {
+        int count = counts[field];
+        if (values[field].length == count) {
+            values[field] = Arrays.copyOf(values[field], count * 2);
+        }
+        values[field][count] = value;
+        counts[field] = count + 1;
+    }
+    
+    /**
+     * @return the number of offsets decoded
+     */
+    public int size() {
+        return counts[OFFSETS];
+    }
+    
+    public int getOffset(int i) {
+        return values[OFFSETS][i];
+    }
+    
+    /**
+     * @return the previous skips for an offset, or {@link TermWeightPosition#DEFAULT_PREV_SKIPS} if the skips do not line up with the offsets
+     */
+    public int getPrevSkips(int i) {
+        return (counts[PREV_SKIPS] == counts[OFFSETS]) ? values[PREV_SKIPS][i] : TermWeightPosition.DEFAULT_PREV_SKIPS;
+    }
+    
+    /**
+     * @return the score for an offset, or {@link TermWeightPosition#DEFAULT_SCORE} if the scores do not line up with the offsets
+     */
+    public int getScore(int i) {
+        return (counts[SCORES] == counts[OFFSETS]) ? values[SCORES][i] : TermWeightPosition.DEFAULT_SCORE;
+    }
+    
+    public boolean getZeroOffsetMatch() {
+        return zeroOffsetMatch;
+    }
+    
+    /**
+     * Build the position for an offset
+     * 
+     * @param i
+     *            the index of the offset
+     * @param builder
+     *            a builder to use, which will be reset
+     * @return the position
+     */
+    public TermWeightPosition getPosition(int i, TermWeightPosition.Builder builder) {
+        builder.reset();
+        builder.setOffset(getOffset(i)).setPrevSkips(getPrevSkips(i)).setScore(getScore(i)).setZeroOffsetMatch(zeroOffsetMatch);
+        return builder.build();
+    }
+}
@@ -0,0 +1,117 @@
+package datawave.ingest.protobuf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+
+/**
+ * This is a utility class for the compressed set of UIDs carried in the UIDSET field of a {@link Uid.List}, which holds the complete set of UIDs of a term in
+ * a shard when there are more than the UID list is allowed to hold.
+ * <p>
+ * The UIDs are sorted and front coded, so that each UID is written as the length of the prefix it shares with the previous one and the remainder, and the
+ * result is deflated.
+ */
+public class UidSet {
+    
+    private UidSet() {}
+    
+    /**
+     * Encode a set of UIDs
+     * 
+     * @param uids
+     *            the UIDs, in any order
+     * @return the compressed set
+     */
+    public static ByteString encode(Collection<String> uids) {
+        SortedSet<String> sorted = new TreeSet<>(uids);
+        ByteString.Output bytes = ByteString.newOutput();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(bytes)) {
+            CodedOutputStream output = CodedOutputStream.newInstance(deflater);
+            output.writeRawVarint32(sorted.size());
+            String previous = "";
+            for (String uid : sorted) {
+                int shared = sharedPrefix(previous, uid);
+                output.writeRawVarint32(shared);
+                output.writeStringNoTag(uid.substring(shared));
+                previous = uid;
+            }
+            output.flush();
+        } catch (IOException e) {
+            // the output is in memory
+            throw new IllegalStateException("Unable to encode the set of UIDs", e);
+        }
+        return bytes.toByteString();
+    }
+    
+    /**
+     * Decode a set of UIDs
+     * 
+     * @param set
+     *            the compressed set
+     * @return the UIDs, in sorted order
+     * @throws InvalidProtocolBufferException
+     *             if the set could not be decoded
+     */
+    public static List<String> decode(ByteString set) throws InvalidProtocolBufferException {
+        try (InflaterInputStream inflater = new InflaterInputStream(set.newInput())) {
+            CodedInputStream input = CodedInputStream.newInstance(inflater);
+            int size = input.readRawVarint32();
+            List<String> uids = new ArrayList<>(size);
+            String previous = "";
+            for (int i = 0; i < size; i++) {
+                int shared = input.readRawVarint32();
+                if (shared < 0 || shared > previous.length()) {
+                    throw new InvalidProtocolBufferException("Invalid shared prefix length " + shared + " in the set of UIDs");
+                }
+                previous = previous.substring(0, shared) + input.readString();
+                uids.add(previous);
+            }
+            return uids;
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException("Unable to decode the set of UIDs: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * @param list
+     *            a UID list
+     * @return true if the list has the UIDs of its count, either in the UID list or the UID set
+     */
+    public static boolean hasUids(Uid.List list) {
+        return !list.getIGNORE() || list.hasUIDSET();
+    }
+    
+    /**
+     * Get the UIDs of a UID list, from the UID set if it has one
+     * 
+     * @param list
+     *            a UID list
+     * @return the UIDs
+     * @throws InvalidProtocolBufferException
+     *             if the UID set could not be decoded
+     */
+    public static List<String> getUids(Uid.List list) throws InvalidProtocolBufferException {
+        return list.hasUIDSET() ? decode(list.getUIDSET()) : list.getUIDList();
+    }
+    
+    private static int sharedPrefix(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
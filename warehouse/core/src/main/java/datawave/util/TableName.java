@@ -12,6 +12,7 @@ public final class TableName {
     public static final String ERROR_SHARD = "errorShard";
     
     public static final String INDEX_STATS = "shardIndexStats";
+    public static final String INDEX_STATS_SKETCH = "shardIndexStatsSketch";
     
     public static final String LOAD_DATES = "LoadDates";
     
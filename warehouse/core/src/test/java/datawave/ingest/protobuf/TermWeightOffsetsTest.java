@@ -0,0 +1,60 @@
+package datawave.ingest.protobuf;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TermWeightOffsetsTest {
+    
+    private void assertDecodesLikeInfo(TermWeight.Info info, TermWeightOffsets offsets) throws Exception {
+        offsets.decode(info.toByteArray());
+        
+        Assert.assertEquals(info.getTermOffsetCount(), offsets.size());
+        Assert.assertEquals(info.getZeroOffsetMatch(), offsets.getZeroOffsetMatch());
+        
+        TermWeightPosition.Builder expectedBuilder = new TermWeightPosition.Builder();
+        TermWeightPosition.Builder actualBuilder = new TermWeightPosition.Builder();
+        for (int i = 0; i < info.getTermOffsetCount(); i++) {
+            expectedBuilder.reset();
+            TermWeightPosition expected = expectedBuilder.setTermWeightOffsetInfo(info, i).build();
+            TermWeightPosition actual = offsets.getPosition(i, actualBuilder);
+            
+            Assert.assertEquals(expected.getOffset(), actual.getOffset());
+            Assert.assertEquals(expected.getPrevSkips(), actual.getPrevSkips());
+            Assert.assertEquals(expected.getScore(), actual.getScore());
+            Assert.assertEquals(expected.getZeroOffsetMatch(), actual.getZeroOffsetMatch());
+        }
+    }
+    
+    @Test
+    public void testDecode() throws Exception {
+        TermWeight.Info info = TermWeight.Info.newBuilder().addTermOffset(1).addTermOffset(5).addTermOffset(300).addPrevSkips(0).addPrevSkips(2)
+                        .addPrevSkips(0).addScore(10).addScore(20).addScore(30).setZeroOffsetMatch(false).build();
+        assertDecodesLikeInfo(info, new TermWeightOffsets());
+    }
+    
+    @Test
+    public void testMismatchedCountsUseDefaults() throws Exception {
+        TermWeight.Info info = TermWeight.Info.newBuilder().addTermOffset(1).addTermOffset(5).addPrevSkips(3).addScore(7).build();
+        TermWeightOffsets offsets = new TermWeightOffsets();
+        assertDecodesLikeInfo(info, offsets);
+        
+        Assert.assertEquals(TermWeightPosition.DEFAULT_PREV_SKIPS, offsets.getPrevSkips(0));
+        Assert.assertEquals(TermWeightPosition.DEFAULT_SCORE, offsets.getScore(1));
+    }
+    
+    @Test
+    public void testReuse() throws Exception {
+        TermWeightOffsets offsets = new TermWeightOffsets();
+        
+        // more offsets than the initial capacity
+        TermWeight.Info.Builder builder = TermWeight.Info.newBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.addTermOffset(i * 3).addPrevSkips(i % 2).addScore(i);
+        }
+        assertDecodesLikeInfo(builder.build(), offsets);
+        
+        // a smaller value decoded afterwards must not see anything from the previous one
+        assertDecodesLikeInfo(TermWeight.Info.newBuilder().addTermOffset(42).build(), offsets);
+        assertDecodesLikeInfo(TermWeight.Info.newBuilder().build(), offsets);
+    }
+}
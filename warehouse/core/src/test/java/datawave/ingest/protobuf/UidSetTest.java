@@ -0,0 +1,63 @@
+package datawave.ingest.protobuf;
+
+import com.google.common.collect.Lists;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+public class UidSetTest {
+    
+    @Test
+    public void testRoundTrip() throws InvalidProtocolBufferException {
+        List<String> uids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            uids.add(UUID.randomUUID().toString());
+        }
+        // child documents share the prefix of their parent
+        uids.add(uids.get(0) + ".1");
+        uids.add(uids.get(0) + ".1.1");
+        uids.add(uids.get(0));
+        
+        List<String> expected = Lists.newArrayList(new TreeSet<>(uids));
+        ByteString set = UidSet.encode(uids);
+        Assert.assertEquals(expected, UidSet.decode(set));
+        
+        int listSize = 0;
+        for (String uid : expected) {
+            listSize += uid.length() + 2;
+        }
+        Assert.assertTrue(set.size() < listSize);
+    }
+    
+    @Test
+    public void testEmpty() throws InvalidProtocolBufferException {
+        Assert.assertEquals(Collections.emptyList(), UidSet.decode(UidSet.encode(Collections.emptyList())));
+    }
+    
+    @Test
+    public void testUidList() throws InvalidProtocolBufferException {
+        Uid.List list = Uid.List.newBuilder().setIGNORE(false).setCOUNT(1).addUID("a").build();
+        Assert.assertTrue(UidSet.hasUids(list));
+        Assert.assertEquals(Collections.singletonList("a"), UidSet.getUids(list));
+        
+        list = Uid.List.newBuilder().setIGNORE(true).setCOUNT(2).build();
+        Assert.assertFalse(UidSet.hasUids(list));
+        
+        list = Uid.List.parseFrom(Uid.List.newBuilder().setIGNORE(true).setCOUNT(2).setUIDSET(UidSet.encode(Lists.newArrayList("b", "a"))).build()
+                        .toByteArray());
+        Assert.assertTrue(UidSet.hasUids(list));
+        Assert.assertEquals(Lists.newArrayList("a", "b"), UidSet.getUids(list));
+    }
+    
+    @Test(expected = InvalidProtocolBufferException.class)
+    public void testCorrupt() throws InvalidProtocolBufferException {
+        UidSet.decode(ByteString.copyFromUtf8("not a set"));
+    }
+}
@@ -2,6 +2,7 @@ package datawave.mapreduce.shardStats;
 
 import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
 import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import datawave.query.index.stats.FieldSketch;
 import org.apache.accumulo.core.data.Value;
 
 import java.io.IOException;
@@ -42,6 +43,15 @@ class HyperLogFieldSummary implements FieldSummary {
         return new StatsCounters(this.count, this.logPlus.cardinality());
     }
     
+    /**
+     * Converts the contents to a mergeable {@link FieldSketch}.
+     * 
+     * @return populated {@link FieldSketch}
+     */
+    FieldSketch toFieldSketch() {
+        return new FieldSketch(this.count, this.logPlus);
+    }
+    
     @Override
     public boolean equals(Object o) {
         if (this == o)
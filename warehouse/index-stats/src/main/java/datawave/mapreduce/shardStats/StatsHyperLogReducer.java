@@ -3,9 +3,11 @@ package datawave.mapreduce.shardStats;
 import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
 import datawave.ingest.mapreduce.job.reduce.BulkIngestKeyAggregatingReducer;
+import datawave.query.index.stats.FieldSketch;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -23,6 +25,7 @@ public class StatsHyperLogReducer extends BulkIngestKeyAggregatingReducer<BulkIn
     static final String STATS_REDUCER_COUNTS = "stats.reducer.counts";
     static final String STATS_REDUCER_LOG_LEVEL = "stats.reducer.log.level";
     static final String STATS_REDUCER_VALUE_INTERVAL = "stats.reducer.value.interval";
+    static final String STATS_SKETCH_TABLE_NAME = "shardStats.sketch.table.name";
     
     // default values
     static final int DEFAULT_MIN_COUNT = 0;
@@ -37,6 +40,8 @@ public class StatsHyperLogReducer extends BulkIngestKeyAggregatingReducer<BulkIn
     private int minCount;
     // produce counts only - do not write to table
     private boolean countsOnly;
+    // table for the mergeable sketches, or null when they are not written
+    private Text sketchTable;
     
     // hyperlog properties
     private int normalPrecision;
@@ -63,6 +68,10 @@ public class StatsHyperLogReducer extends BulkIngestKeyAggregatingReducer<BulkIn
         this.countsOnly = conf.getBoolean(STATS_REDUCER_COUNTS, false);
         log.info("counts only(" + this.countsOnly + ")");
         
+        String sketchTableName = conf.get(STATS_SKETCH_TABLE_NAME);
+        this.sketchTable = (null == sketchTableName || sketchTableName.isEmpty()) ? null : new Text(sketchTableName);
+        log.info("sketch table(" + sketchTableName + ")");
+        
         // hyperlog precision
         this.normalPrecision = conf.getInt(StatsJob.HYPERLOG_NORMAL_OPTION, StatsJob.HYPERLOG_NORMAL_DEFAULT_VALUE);
         log.info("hyperlog normal precision(" + this.normalPrecision + ')');
@@ -107,6 +116,12 @@ public class StatsHyperLogReducer extends BulkIngestKeyAggregatingReducer<BulkIn
                 Key k = key.getKey();
                 k.setTimestamp(this.timestamp);
                 writeBulkIngestKey(key, counters.getValue(), context);
+                
+                if (null != this.sketchTable) {
+                    // same field name/date/datatype key, so sketches can be merged over any dates and datatypes at query time
+                    FieldSketch sketch = stats.toFieldSketch();
+                    writeBulkIngestKey(new BulkIngestKey(this.sketchTable, new Key(k)), sketch.toValue(), context);
+                }
             } else {
                 log.debug("count is less than minimum: " + key.getKey().toString() + ") count(" + stats.getCount() + ")");
             }
@@ -37,6 +37,10 @@ import java.util.Set;
  * Alexander Hall.</li>
  * </ul>
  * <p>
+ * When a sketch table is set ({@code shardStats.sketch.table.name}), the reducer also writes the count and the serialized sketch of each field name/datatype
+ * pair to that table as a {@link datawave.query.index.stats.FieldSketch}. Unlike the counters, sketches can be merged, which lets the query planner estimate
+ * the distinct values of a field over any date range and set of datatypes.
+ * <p>
  * HyperLogLogPlus Notes
  * <p>
  * There are two parameters that are used to control how the hyper log class functions:
@@ -107,7 +111,12 @@ public class StatsJob extends IngestJob {
         if (null != parseConf) {
             parseStatsOptions(args, parseConf);
             
-            parseConf.setStrings(MultiRFileOutputFormatter.CONFIGURED_TABLE_NAMES, this.outputTableName);
+            String sketchTableName = parseConf.get(StatsHyperLogReducer.STATS_SKETCH_TABLE_NAME);
+            if (null == sketchTableName || sketchTableName.isEmpty()) {
+                parseConf.setStrings(MultiRFileOutputFormatter.CONFIGURED_TABLE_NAMES, this.outputTableName);
+            } else {
+                parseConf.setStrings(MultiRFileOutputFormatter.CONFIGURED_TABLE_NAMES, this.outputTableName, sketchTableName);
+            }
             
             this.mapper = StatsHyperLogMapper.class;
             this.inputFormat = MultiRfileInputformat.class;
@@ -251,7 +260,8 @@ public class StatsJob extends IngestJob {
         MIN_COUNT(StatsHyperLogReducer.STATS_MIN_COUNT, StatsHyperLogReducer.DEFAULT_MIN_COUNT),
         REDUCER_COUNTS(StatsHyperLogReducer.STATS_REDUCER_COUNTS, false),
         REDUCER_VALUE_INTERVAL(StatsHyperLogReducer.STATS_REDUCER_VALUE_INTERVAL, StatsHyperLogReducer.DEFAULT_VALUE_INTERVAL),
-        REDUCER_LOG_LEVEL(StatsHyperLogReducer.STATS_REDUCER_LOG_LEVEL, DEFAULT_LOG_LEVEL), ;
+        REDUCER_LOG_LEVEL(StatsHyperLogReducer.STATS_REDUCER_LOG_LEVEL, DEFAULT_LOG_LEVEL),
+        SKETCH_TABLE(StatsHyperLogReducer.STATS_SKETCH_TABLE_NAME, ""), ;
         
         static JobArg getOption(String option) {
             while (option.startsWith("-")) {
@@ -2,6 +2,7 @@ package datawave.mapreduce.shardStats;
 
 import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
 import datawave.ingest.mapreduce.job.BulkIngestKey;
+import datawave.query.index.stats.FieldSketch;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
 import org.apache.hadoop.conf.Configuration;
@@ -26,6 +27,8 @@ public class StatsHyperLogReducerTest {
     
     private static final Logger log = Logger.getLogger(StatsHyperLogReducerTest.class);
     
+    private static final String SKETCH_TABLE = "sketchTable";
+    
     static {
         Logger.getLogger(StatsHyperLogReducer.class).setLevel(Level.DEBUG);
         Logger.getLogger(StatsHyperLogSummary.class).setLevel(Level.DEBUG);
@@ -68,6 +71,47 @@ public class StatsHyperLogReducerTest {
         runDriver(testEntries, 2);
     }
     
+    @Test
+    public void testSketches() throws IOException, InterruptedException {
+        log.info("-----  testSketches  ------");
+        final Reducer<BulkIngestKey,Value,BulkIngestKey,Value> reducer = new StatsHyperLogReducer();
+        final MockReduceDriver<BulkIngestKey,Value,BulkIngestKey,Value> driver = new MockReduceDriver(reducer);
+        
+        Configuration conf = driver.getConfiguration();
+        conf.set(StatsJob.OUTPUT_TABLE_NAME, StatsInit.TEST_TABLE);
+        conf.set(StatsHyperLogReducer.STATS_SKETCH_TABLE_NAME, SKETCH_TABLE);
+        
+        Map<BulkIngestKey,Value> input = StatsTestData.generateMapOutput(Arrays.asList(StatsTestData.values()));
+        Map<Key,StatsCounters> output = new HashMap<>();
+        for (Map.Entry<BulkIngestKey,Value> entry : input.entrySet()) {
+            HyperLogLogPlus hllp = new HyperLogLogPlus(StatsJob.HYPERLOG_NORMAL_DEFAULT_VALUE, StatsJob.HYPERLOG_SPARSE_DEFAULT_VALUE);
+            FieldSummary summary = new HyperLogFieldSummary(hllp);
+            summary.add(entry.getValue());
+            summary.add(entry.getValue());
+            driver.addInput(entry.getKey(), Arrays.asList(entry.getValue(), entry.getValue()));
+            output.put(new Key(entry.getKey().getKey().getRow(), entry.getKey().getKey().getColumnFamily(), entry.getKey().getKey().getColumnQualifier()),
+                            summary.toStatsCounters());
+        }
+        
+        List<MRPair<BulkIngestKey,Value>> fullResults = driver.run();
+        // a stats entry and a sketch entry for each key
+        Assert.assertEquals(2 * output.size(), fullResults.size());
+        int sketches = 0;
+        for (MRPair<BulkIngestKey,Value> result : fullResults) {
+            if (SKETCH_TABLE.equals(result.key.getTableName().toString())) {
+                sketches++;
+                Key key = result.key.getKey();
+                StatsCounters expected = output.get(new Key(key.getRow(), key.getColumnFamily(), key.getColumnQualifier()));
+                Assert.assertNotNull("unexpected sketch key " + key, expected);
+                
+                FieldSketch sketch = FieldSketch.fromValue(result.value);
+                Assert.assertEquals(expected.getCount(), sketch.getCount());
+                Assert.assertEquals(expected.getUniqueCount(), sketch.getCardinality());
+            }
+        }
+        Assert.assertEquals(output.size(), sketches);
+    }
+    
     // =====================================
     // private methods
     private void runDriver(List<StatsTestData> entries, int dupCount) throws IOException, InterruptedException {
@@ -10,10 +10,14 @@ import org.apache.log4j.Logger;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 import datawave.ingest.protobuf.Uid;
+import datawave.ingest.protobuf.UidSet;
 
 /**
  * Implementation of an Aggregator that aggregates objects of the type Uid.List. This is an optimization for the shardIndex and shardReverseIndex, where the
  * list of UIDs for events will be maintained in the global index for low cardinality terms.
+ * <p>
+ * When a maximum UID set size is given, terms with more UIDs than the list may hold but no more than that size keep their complete set of UIDs in the compressed
+ * UID set, with IGNORE set so that readers which only understand the list treat them as they would any other high cardinality term.
  * 
  * 
  * 
@@ -32,6 +36,11 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         this.maxUids = max;
     }
     
+    public GlobalIndexUidAggregator(int max, int maxUidSet) {
+        this.maxUids = max;
+        this.maxUidSet = maxUidSet;
+    }
+    
     public GlobalIndexUidAggregator() {
         this.maxUids = MAX;
     }
@@ -66,6 +75,11 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
      */
     public int maxUids = MAX;
     
+    /**
+     * Maximum number of UIDs kept in the compressed UID set, or 0 to never write one.
+     */
+    public int maxUidSet = 0;
+    
     /**
      * representative count.
      */
@@ -82,15 +96,14 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         
         builder.setCOUNT(count);
         
-        if (seenIgnore || count > maxUids) {
+        if (seenIgnore || count > getMaxUidsKept()) {
             builder.setIGNORE(true);
             builder.clearUID();
+            builder.clearUIDSET();
             // if we catch seenIgnore, then there is
             // no need to propogate removals.
             propogate = false;
         } else {
-            builder.setIGNORE(false);
-            
             uidsToRemove.removeAll(quarantinedIds);
             uidsToRemove.removeAll(releasedUids);
             quarantinedIds.removeAll(releasedUids);
@@ -104,7 +117,13 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                 uids.addAll(releasedUids);
             }
             
-            builder.addAllUID(uids);
+            if (count > maxUids) {
+                builder.setIGNORE(true);
+                builder.setUIDSET(UidSet.encode(uids));
+            } else {
+                builder.setIGNORE(false);
+                builder.addAllUID(uids);
+            }
         }
         
         if (log.isDebugEnabled())
@@ -153,7 +172,7 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                 /**
                  * Fail fast approach.
                  */
-                if (v.getIGNORE()) {
+                if (!UidSet.hasUids(v)) {
                     seenIgnore = true;
                     if (log.isDebugEnabled())
                         log.debug("SeenIgnore is true. Skipping collections");
@@ -169,14 +188,14 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
                         releasedUids.add(uid);
                     }
                     
-                    for (String uid : v.getUIDList()) {
+                    for (String uid : UidSet.getUids(v)) {
                         
                         // check that a removal has not occurred
                         // if it has, we decrement the count, from above.
                         if (!uidsToRemove.contains(uid) && !quarantinedIds.contains(uid)) {
                             
                             // add the UID iff we are under our MAX
-                            if (uids.size() < maxUids)
+                            if (uids.size() < getMaxUidsKept())
                                 uids.add(uid);
                             
                         }
@@ -228,6 +247,13 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         return aggregate();
     }
     
+    /**
+     * @return the maximum number of UIDs kept, in either the UID list or the UID set
+     */
+    protected int getMaxUidsKept() {
+        return Math.max(maxUids, maxUidSet);
+    }
+    
     public void reset() {
         if (log.isDebugEnabled())
             log.debug("Resetting GlobalIndexUidAggregator");
@@ -251,7 +277,7 @@ public class GlobalIndexUidAggregator extends PropogatingCombiner {
         /**
          * Changed logic so that if seenIgnore is true and count > MAX, we keep propogate the key
          */
-        if ((seenIgnore && count > maxUids) || !quarantinedIds.isEmpty())
+        if ((seenIgnore && count > getMaxUidsKept()) || !quarantinedIds.isEmpty())
             return true;
         
         HashSet<String> uidsCopy = new HashSet<>(uids);
@@ -0,0 +1,19 @@
+package datawave.ingest.table.aggregator;
+
+/**
+ * A {@link GlobalIndexUidAggregator} which keeps the complete set of UIDs, compressed, for terms with up to {@link #MAX_UID_SET} UIDs in a shard, so that far
+ * more terms can be looked up to document specific ranges rather than whole shards.
+ * <p>
+ * The aggregators are configured by class name, so this is the class to configure on the global index tables to enable the UID sets.
+ */
+public class GlobalIndexUidSetAggregator extends GlobalIndexUidAggregator {
+    
+    /**
+     * Maximum number of UIDs kept in the UID set.
+     */
+    public static final int MAX_UID_SET = 1000;
+    
+    public GlobalIndexUidSetAggregator() {
+        super(MAX, MAX_UID_SET);
+    }
+}
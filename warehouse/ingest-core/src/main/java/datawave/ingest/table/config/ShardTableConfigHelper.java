@@ -8,6 +8,7 @@ import java.util.Set;
 import datawave.ingest.mapreduce.handler.ExtendedDataTypeHandler;
 import datawave.ingest.mapreduce.handler.shard.ShardedDataTypeHandler;
 import datawave.ingest.table.aggregator.CombinerConfiguration;
+import datawave.ingest.table.aggregator.GlobalIndexUidAggregator;
 import datawave.ingest.table.balancer.ShardedTableTabletBalancer;
 import datawave.ingest.table.bloomfilter.ShardKeyFunctor;
 import datawave.ingest.table.bloomfilter.ShardIndexKeyFunctor;
@@ -32,6 +33,9 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
     public static final String SHARD_TABLE_BALANCER_CONFIG = "shard.table.balancer.class";
     protected String shardTableBalancerClass = SHARDED_TABLET_BALANCER_CLASS;
     
+    public static final String GLOBAL_INDEX_AGGREGATOR_CONFIG = "shard.global.index.aggregator.class";
+    protected String globalIndexAggregatorClass = GlobalIndexUidAggregator.class.getName();
+    
     public static final String ENABLE_BLOOM_FILTERS = "shard.enable.bloom.filters";
     protected boolean enableBloomFilters = false;
     
@@ -78,6 +82,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
         }
         
         shardTableBalancerClass = conf.get(SHARD_TABLE_BALANCER_CONFIG, SHARDED_TABLET_BALANCER_CLASS);
+        globalIndexAggregatorClass = conf.get(GLOBAL_INDEX_AGGREGATOR_CONFIG, globalIndexAggregatorClass);
         
         if (markingsSetupIteratorEnabled) {
             if (null == markingsSetupIteratorConfig || markingsSetupIteratorConfig.equals("")) {
@@ -193,7 +198,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
             String stem = String.format("%s%s.%s", Property.TABLE_ITERATOR_PREFIX, scope.name(), "UIDAggregator");
             setPropertyIfNecessary(tableName, stem, "19,datawave.iterators.TotalAggregatingIterator", tops, log);
             stem += ".opt.";
-            setPropertyIfNecessary(tableName, stem + "*", "datawave.ingest.table.aggregator.GlobalIndexUidAggregator", tops, log);
+            setPropertyIfNecessary(tableName, stem + "*", globalIndexAggregatorClass, tops, log);
             
             if (markingsSetupIteratorEnabled) {
                 // we want the markings setup iterator init method to be called up front
@@ -216,7 +221,7 @@ public class ShardTableConfigHelper extends AbstractTableConfigHelper {
             String stem = String.format("%s%s.%s", Property.TABLE_ITERATOR_PREFIX, scope.name(), "UIDAggregator");
             setPropertyIfNecessary(tableName, stem, "19,datawave.iterators.TotalAggregatingIterator", tops, log);
             stem += ".opt.";
-            setPropertyIfNecessary(tableName, stem + "*", "datawave.ingest.table.aggregator.GlobalIndexUidAggregator", tops, log);
+            setPropertyIfNecessary(tableName, stem + "*", globalIndexAggregatorClass, tops, log);
             
             if (markingsSetupIteratorEnabled) {
                 // we want the markings setup iterator init method to be called up front
@@ -1,6 +1,7 @@
 package datawave.ingest.table.aggregator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -11,6 +12,7 @@ import java.util.UUID;
 
 import datawave.ingest.protobuf.Uid;
 import datawave.ingest.protobuf.Uid.List.Builder;
+import datawave.ingest.protobuf.UidSet;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
@@ -228,4 +230,75 @@ public class GlobalIndexUidAggregatorTest {
         assertEquals(1, resultList.getUIDCount());
         
     }
+    
+    @Test
+    public void testUidSet() throws Exception {
+        PropogatingCombiner setAgg = new GlobalIndexUidSetAggregator();
+        setAgg.reset();
+        List<String> savedUUIDs = new ArrayList<>();
+        Collection<Value> values = Lists.newArrayList();
+        for (int i = 0; i < GlobalIndexUidAggregator.MAX * 5; i++) {
+            Builder b = createNewUidList();
+            b.setIGNORE(false);
+            String uuid = UUID.randomUUID().toString();
+            savedUUIDs.add(uuid);
+            b.setCOUNT(1);
+            b.addUID(uuid);
+            values.add(new Value(b.build().toByteArray()));
+        }
+        Value result = setAgg.reduce(new Key("key"), values.iterator());
+        Uid.List resultList = Uid.List.parseFrom(result.get());
+        
+        // readers which do not know of the set see a list that is too large to hold its UIDs
+        assertEquals(true, resultList.getIGNORE());
+        assertEquals(0, resultList.getUIDCount());
+        assertEquals(GlobalIndexUidAggregator.MAX * 5, resultList.getCOUNT());
+        assertTrue(UidSet.hasUids(resultList));
+        assertEquals(savedUUIDs.size(), UidSet.getUids(resultList).size());
+        assertTrue(UidSet.getUids(resultList).containsAll(savedUUIDs));
+        
+        // the set merges with further UIDs and removals
+        setAgg.reset();
+        Builder b = createNewUidList();
+        b.setIGNORE(false);
+        b.setCOUNT(-1);
+        b.addREMOVEDUID(savedUUIDs.get(0));
+        Builder added = createNewUidList();
+        added.setIGNORE(false);
+        added.setCOUNT(1);
+        added.addUID("added");
+        result = setAgg.reduce(new Key("key"), Lists.newArrayList(result, new Value(b.build().toByteArray()), new Value(added.build().toByteArray()))
+                        .iterator());
+        resultList = Uid.List.parseFrom(result.get());
+        assertEquals(GlobalIndexUidAggregator.MAX * 5, resultList.getCOUNT());
+        List<String> uids = UidSet.getUids(resultList);
+        assertEquals(savedUUIDs.size(), uids.size());
+        assertFalse(uids.contains(savedUUIDs.get(0)));
+        assertTrue(uids.contains("added"));
+        
+        // the plain aggregator reads the set, but can only keep the count
+        agg.reset();
+        resultList = Uid.List.parseFrom(agg.reduce(new Key("key"), Iterators.singletonIterator(result)).get());
+        assertEquals(true, resultList.getIGNORE());
+        assertFalse(UidSet.hasUids(resultList));
+        assertEquals(GlobalIndexUidAggregator.MAX * 5, resultList.getCOUNT());
+    }
+    
+    @Test
+    public void testUidSetExceeded() throws Exception {
+        PropogatingCombiner setAgg = new GlobalIndexUidAggregator(2, 3);
+        setAgg.reset();
+        Collection<Value> values = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            Builder b = createNewUidList();
+            b.setIGNORE(false);
+            b.setCOUNT(1);
+            b.addUID(UUID.randomUUID().toString());
+            values.add(new Value(b.build().toByteArray()));
+        }
+        Uid.List resultList = Uid.List.parseFrom(setAgg.reduce(new Key("key"), values.iterator()).get());
+        assertEquals(true, resultList.getIGNORE());
+        assertFalse(UidSet.hasUids(resultList));
+        assertEquals(4, resultList.getCOUNT());
+    }
 }
@@ -2,6 +2,7 @@ package datawave.core.iterators;
 
 import datawave.query.composite.CompositeSeeker.ShardIndexCompositeSeeker;
 import datawave.data.type.DiscreteIndexType;
+import datawave.query.iterator.SeekController;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -21,8 +22,9 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Skips rows whose composite terms are outside of the range defined by the upper and lower composite bounds.
- *
+ * Skips rows whose composite terms are outside of the range defined by the upper and lower composite bounds. Whether a skip steps over the rows or seeks past
+ * them is left to a {@link SeekController}, which starts from the seek threshold and adapts it to the costs seen during the scan.
+ * 
  */
 public class CompositeSeekingIterator extends WrappingIterator {
     
@@ -44,6 +46,7 @@ public class CompositeSeekingIterator extends WrappingIterator {
     private Boolean inclusive;
     private Key nextSeekKey = null;
     private int nextCount = 0;
+    private SeekController seekController;
     
     @Override
     public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
@@ -55,6 +58,7 @@ public class CompositeSeekingIterator extends WrappingIterator {
         to.separator = separator;
         to.seekThreshold = seekThreshold;
         to.compositeSeeker = new ShardIndexCompositeSeeker(to.fieldNames, to.separator, to.fieldToDiscreteIndexType);
+        to.seekController = new SeekController(to.seekThreshold);
         
         return to;
     }
@@ -85,6 +89,7 @@ public class CompositeSeekingIterator extends WrappingIterator {
         this.separator = options.get(SEPARATOR);
         
         this.seekThreshold = Integer.parseInt(options.getOrDefault(SEEK_THRESHOLD, "10"));
+        this.seekController = new SeekController(seekThreshold);
         
         compositeSeeker = new ShardIndexCompositeSeeker(fieldNames, separator, fieldToDiscreteIndexType);
     }
@@ -99,12 +104,15 @@ public class CompositeSeekingIterator extends WrappingIterator {
             
             // top key precedes nextSeekKey
             if (nextSeekKey != null && getTopKey().compareTo(nextSeekKey) < 0) {
-                // if we hit the seek threshold, seek
-                if (nextCount >= seekThreshold)
-                    shouldSeek = true;
+                // if the skip has run past the break even point, seek
+                shouldSeek = seekController.shouldSeek(nextCount);
             }
             // top key exceeds nextSeekKey, or nextSeekKey unset
             else {
+                if (nextSeekKey != null) {
+                    // the last skip was finished by stepping over the keys
+                    seekController.skipped(nextCount, false);
+                }
                 nextCount = 0;
                 nextSeekKey = null;
                 
@@ -113,22 +121,22 @@ public class CompositeSeekingIterator extends WrappingIterator {
                 if (newStartKey != currentRange.getStartKey()) {
                     nextSeekKey = newStartKey;
                     
-                    // if we hit the seek threshold (i.e. if it is set to 0), seek
-                    if (nextCount >= seekThreshold)
-                        shouldSeek = true;
+                    // seek straight away if skips are usually long (or if the threshold is set to 0)
+                    shouldSeek = seekController.shouldSeek(nextCount);
                 }
             }
             
             if (shouldSeek) {
                 currentRange = new Range(nextSeekKey, currentRange.isStartKeyInclusive(), currentRange.getEndKey(), currentRange.isEndKeyInclusive());
-                super.seek(currentRange, columnFamilies, inclusive);
+                seekController.seek(getSource(), currentRange, columnFamilies, inclusive);
+                seekController.skipped(nextCount, true);
                 
                 // reset next count and seek key
                 nextSeekKey = null;
                 nextCount = 0;
             } else {
                 nextCount++;
-                super.next();
+                seekController.next(getSource());
             }
         }
     }
@@ -4,6 +4,7 @@ import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.PeekingIterator;
+import datawave.core.iterators.filesystem.IvaratorBufferCache;
 import datawave.core.iterators.querylock.QueryLock;
 import datawave.query.Constants;
 import datawave.query.composite.CompositeMetadata;
@@ -11,6 +12,7 @@ import datawave.query.composite.CompositeSeeker.FieldIndexCompositeSeeker;
 import datawave.query.iterator.CachingIterator;
 import datawave.query.exceptions.DatawaveIvaratorMaxResultsException;
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.SeekController;
 import datawave.query.iterator.profile.QuerySpan;
 import datawave.query.iterator.profile.QuerySpanCollector;
 import datawave.query.iterator.profile.SourceTrackingIterator;
@@ -1072,6 +1074,7 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
             QuerySpan querySpan = null;
             Key nextSeekKey = null;
             int nextCount = 0;
+            SeekController seekController = new SeekController(compositeSeekThreshold);
             try {
                 if (collectTimingDetails && source instanceof SourceTrackingIterator) {
                     querySpan = ((SourceTrackingIterator) source).getQuerySpan();
@@ -1112,12 +1115,15 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                             
                             // top key precedes nextSeekKey
                             if (nextSeekKey != null && top.compareTo(nextSeekKey) < 0) {
-                                // if we hit the seek threshold, seek
-                                if (nextCount >= compositeSeekThreshold)
-                                    shouldSeek = true;
+                                // if the skip has run past the break even point, seek
+                                shouldSeek = seekController.shouldSeek(nextCount);
                             }
                             // top key exceeds nextSeekKey, or nextSeekKey unset
                             else {
+                                if (nextSeekKey != null) {
+                                    // the last skip was finished by stepping over the keys
+                                    seekController.skipped(nextCount, false);
+                                }
                                 nextCount = 0;
                                 nextSeekKey = null;
                                 
@@ -1127,22 +1133,22 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                                                 && newStartKey.compareTo(boundingFiRange.getEndKey()) <= 0) {
                                     nextSeekKey = newStartKey;
                                     
-                                    // if we hit the seek threshold (i.e. if it is set to 0), seek
-                                    if (nextCount >= compositeSeekThreshold)
-                                        shouldSeek = true;
+                                    // seek straight away if skips are usually long (or if the threshold is set to 0)
+                                    shouldSeek = seekController.shouldSeek(nextCount);
                                 }
                             }
                             
                             if (shouldSeek) {
-                                source.seek(new Range(nextSeekKey, boundingFiRange.isStartKeyInclusive(), boundingFiRange.getEndKey(), boundingFiRange
-                                                .isEndKeyInclusive()), EMPTY_CFS, false);
+                                seekController.seek(source, new Range(nextSeekKey, boundingFiRange.isStartKeyInclusive(), boundingFiRange.getEndKey(),
+                                                boundingFiRange.isEndKeyInclusive()), EMPTY_CFS, false);
+                                seekController.skipped(nextCount, true);
                                 
                                 // reset next count and seek key
                                 nextSeekKey = null;
                                 nextCount = 0;
                             } else {
                                 nextCount++;
-                                source.next();
+                                seekController.next(source);
                             }
                             
                             scanned++;
@@ -1177,6 +1183,9 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                     StringBuilder builder = new StringBuilder();
                     builder.append("Matched ").append(matched).append(" out of ").append(scanned).append(" for ").append(boundingFiRange).append(": ")
                                     .append(DatawaveFieldIndexCachingIteratorJexl.this);
+                    if (compositeSeeker != null) {
+                        builder.append(", ").append(seekController);
+                    }
                     log.debug(builder.toString());
                 }
                 if (collectTimingDetails && querySpanCollector != null && querySpan != null) {
@@ -1246,6 +1255,8 @@ public abstract class DatawaveFieldIndexCachingIteratorJexl extends WrappingIter
                 this.createdRowDir = false;
             }
             
+            // make sure the tserver wide buffer cache for the set files is configured from the tserver
+            IvaratorBufferCache.getInstance(initEnv);
             this.set = new HdfsBackedSortedSet<>(null, hdfsBackedSetBufferSize, ivaratorCacheDirs, row, maxOpenFiles, numRetries,
                             new FileKeySortedSet.Factory());
             this.threadSafeSet = Collections.synchronizedSortedSet(this.set);
@@ -2,6 +2,7 @@ package datawave.core.iterators;
 
 import datawave.data.ColumnFamilyConstants;
 import datawave.query.Constants;
+import datawave.query.jexl.JexlPatternMatcher;
 import datawave.query.parser.JavaRegexAnalyzer;
 import datawave.query.parser.JavaRegexAnalyzer.JavaRegexParseException;
 import org.apache.accumulo.core.data.Column;
@@ -14,7 +15,6 @@ import org.apache.hadoop.io.Text;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.regex.Pattern;
 
 /**
  * 
@@ -59,7 +59,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     }
     
     private String regex = null;
-    private ThreadLocal<Pattern> pattern = ThreadLocal.withInitial(() -> Pattern.compile(regex));
+    private volatile JexlPatternMatcher matcher = null;
     
     // -------------------------------------------------------------------------
     // ------------- Constructors
@@ -114,6 +114,20 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
     // -------------------------------------------------------------------------
     // ------------- Other stuff
     
+    /**
+     * Get the matcher for our regex, specialized for literal, prefix, suffix and contains regexes. The matcher is immutable and thread safe.
+     *
+     * @return the matcher
+     */
+    private JexlPatternMatcher getMatcher() {
+        JexlPatternMatcher m = matcher;
+        if (m == null) {
+            m = JexlPatternMatcher.compile(regex, 0);
+            matcher = m;
+        }
+        return m;
+    }
+    
     /**
      * Does this key match our regex. Note we are not overriding the super.isMatchingKey() as we need that to work as is NOTE: This method must be thread safe
      * NOTE: The caller takes care of the negation
@@ -129,7 +143,7 @@ public class DatawaveFieldIndexRegexIteratorJexl extends DatawaveFieldIndexCachi
         // search backwards for the null bytes to expose the value in value\0datatype\0UID
         int index = colq.lastIndexOf('\0');
         index = colq.lastIndexOf('\0', index - 1);
-        matches = (pattern.get().matcher(colq.substring(0, index)).matches());
+        matches = getMatcher().matches(colq.substring(0, index));
         
         return matches;
     }
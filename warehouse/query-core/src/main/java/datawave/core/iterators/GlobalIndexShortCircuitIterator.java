@@ -13,6 +13,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import datawave.ingest.protobuf.Uid;
+import datawave.ingest.protobuf.UidSet;
 import datawave.query.Constants;
 import datawave.util.TextUtil;
 
@@ -329,7 +330,7 @@ public class GlobalIndexShortCircuitIterator implements SortedKeyValueIterator<K
                 }
                 
                 Text shard = new Text(shardId);
-                if (uidList.getIGNORE()) {
+                if (!UidSet.hasUids(uidList)) {
                     if (log.isDebugEnabled()) {
                         log.debug("Adding range for the shard & datatype");
                     }
@@ -364,7 +365,7 @@ public class GlobalIndexShortCircuitIterator implements SortedKeyValueIterator<K
                         }
                         
                         // Add Event specific ranges
-                        for (String uuid : uidList.getUIDList()) {
+                        for (String uuid : UidSet.getUids(uidList)) {
                             Text cf = new Text(datatype);
                             TextUtil.textAppend(cf, uuid);
                             Key startKey = new Key(shard, cf);
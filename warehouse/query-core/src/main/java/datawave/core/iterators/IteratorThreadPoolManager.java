@@ -3,6 +3,7 @@ package datawave.core.iterators;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -25,6 +26,8 @@ public class IteratorThreadPoolManager {
     private static final String IVARATOR_THREAD_NAME = "DATAWAVE Ivarator";
     private static final String EVALUATOR_THREAD_PROP = "tserver.datawave.evaluation.threads";
     private static final String EVALUATOR_THREAD_NAME = "DATAWAVE Evaluation";
+    private static final String TLD_ASSEMBLY_THREAD_PROP = "tserver.datawave.tld.assembly.threads";
+    private static final String TLD_ASSEMBLY_THREAD_NAME = "DATAWAVE TLD Assembly";
     private static final int DEFAULT_THREAD_POOL_SIZE = 100;
     
     private Map<String,ExecutorService> threadPools = new TreeMap<>();
@@ -37,6 +40,8 @@ public class IteratorThreadPoolManager {
         // create the thread pools
         createExecutorService(IVARATOR_THREAD_PROP, IVARATOR_THREAD_NAME, env);
         createExecutorService(EVALUATOR_THREAD_PROP, EVALUATOR_THREAD_NAME, env);
+        // separate from the evaluation pool as the evaluation threads block waiting on these tasks
+        createExecutorService(TLD_ASSEMBLY_THREAD_PROP, TLD_ASSEMBLY_THREAD_NAME, env);
     }
     
     private ThreadPoolExecutor createExecutorService(final String prop, final String name, IteratorEnvironment env) {
@@ -105,6 +110,18 @@ public class IteratorThreadPoolManager {
         });
     }
     
+    private <T> Future<T> execute(String name, final Callable<T> task, final String taskName) {
+        return threadPools.get(name).submit(() -> {
+            String oldName = Thread.currentThread().getName();
+            Thread.currentThread().setName(oldName + " -> " + taskName);
+            try {
+                return task.call();
+            } finally {
+                Thread.currentThread().setName(oldName);
+            }
+        });
+    }
+    
     public static Future<?> executeIvarator(Runnable task, String taskName, IteratorEnvironment env) {
         return instance(env).execute(IVARATOR_THREAD_NAME, task, taskName);
     }
@@ -113,4 +130,8 @@ public class IteratorThreadPoolManager {
         return instance(env).execute(EVALUATOR_THREAD_NAME, task, taskName);
     }
     
+    public static <T> Future<T> executeTLDAssembly(Callable<T> task, String taskName, IteratorEnvironment env) {
+        return instance(env).execute(TLD_ASSEMBLY_THREAD_NAME, task, taskName);
+    }
+    
 }
@@ -0,0 +1,398 @@
+package datawave.core.iterators.filesystem;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.server.util.time.SimpleTimer;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+/**
+ * A tserver wide cache of the pages of persisted ivarator files, shared by all of the ivarators on the tserver. Ivarator files are written once and then read
+ * back, often by more than one ivarator over the same row, so their pages are kept off heap in fixed size direct buffers and handed out in least recently used
+ * order. When a page has to be evicted the few least recently used pages are considered and the one from the least preferred cache dir goes first: the
+ * highest priority number, and a remote filesystem before a local one.
+ * <p>
+ * The cache is sized by the {@value #CACHE_SIZE_PROP} property (for example 1G), which is checked periodically like the thread pool sizes of the
+ * {@link datawave.core.iterators.IteratorThreadPoolManager}. It is disabled with a size of 0, the default, in which case files are streamed as before.
+ */
+public class IvaratorBufferCache {
+    private static final Logger log = Logger.getLogger(IvaratorBufferCache.class);
+    public static final String CACHE_SIZE_PROP = "tserver.datawave.ivarator.cache.size";
+    public static final String PAGE_SIZE_PROP = "tserver.datawave.ivarator.cache.page.size";
+    public static final long DEFAULT_CACHE_SIZE = 0;
+    public static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+    
+    // the number of least recently used pages considered for each eviction
+    private static final int EVICTION_WINDOW = 8;
+    
+    private static final Object instanceSemaphore = new Object();
+    private static volatile IvaratorBufferCache instance;
+    
+    private final int pageSize;
+    private volatile long maxPages;
+    
+    // in access order, so that iteration starts with the least recently used page
+    private final LinkedHashMap<PageKey,Page> pages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    IvaratorBufferCache(long maxSize, int pageSize) {
+        this.pageSize = pageSize;
+        this.maxPages = maxSize / pageSize;
+    }
+    
+    private IvaratorBufferCache(final AccumuloConfiguration conf) {
+        this(getCacheSize(conf), getPageSize(conf));
+        SimpleTimer.getInstance(conf).schedule(() -> {
+            try {
+                long max = getCacheSize(conf) / pageSize;
+                if (max != maxPages) {
+                    log.info("Changing " + CACHE_SIZE_PROP + " to " + (max * pageSize));
+                    setMaxPages(max);
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug(this);
+                }
+            } catch (Throwable t) {
+                log.error(t, t);
+            }
+        }, 1000, 10 * 1000);
+    }
+    
+    /**
+     * Get the cache for this tserver, creating it from the configuration of the environment if it does not exist yet
+     * 
+     * @param env
+     *            the iterator environment, or null to use the default configuration
+     * @return the cache
+     */
+    public static IvaratorBufferCache getInstance(IteratorEnvironment env) {
+        if (instance == null) {
+            synchronized (instanceSemaphore) {
+                if (instance == null) {
+                    instance = new IvaratorBufferCache(env != null ? env.getConfig() : DefaultConfiguration.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static String getProperty(AccumuloConfiguration conf, final String prop) {
+        if (conf != null) {
+            Map<String,String> properties = new TreeMap<>();
+            conf.getProperties(properties, k -> Objects.equals(k, prop));
+            return properties.get(prop);
+        }
+        return null;
+    }
+    
+    private static long getCacheSize(AccumuloConfiguration conf) {
+        String size = getProperty(conf, CACHE_SIZE_PROP);
+        return size == null ? DEFAULT_CACHE_SIZE : AccumuloConfiguration.getMemoryInBytes(size);
+    }
+    
+    private static int getPageSize(AccumuloConfiguration conf) {
+        String size = getProperty(conf, PAGE_SIZE_PROP);
+        return size == null ? DEFAULT_PAGE_SIZE : (int) AccumuloConfiguration.getMemoryInBytes(size);
+    }
+    
+    /**
+     * Open a persisted ivarator file, reading it through the cache if the cache is enabled
+     * 
+     * @param fs
+     *            the filesystem of the file
+     * @param file
+     *            the file
+     * @param config
+     *            the config of the cache dir holding the file, or null if not known
+     * @return the input stream
+     * @throws IOException
+     */
+    public InputStream open(FileSystem fs, Path file, IvaratorCacheDirConfig config) throws IOException {
+        if (maxPages <= 0) {
+            return new BufferedInputStream(fs.open(file));
+        }
+        int priority = config == null ? IvaratorCacheDirConfig.DEFAULT_PRIORITY : config.getPriority();
+        boolean local = "file".equals(file.toUri().getScheme() != null ? file.toUri().getScheme() : fs.getScheme());
+        return new PagedInputStream(fs, file, fs.getFileStatus(file).getLen(), priority, local);
+    }
+    
+    /**
+     * Drop the pages of a file which is being rewritten or deleted
+     * 
+     * @param file
+     *            the file
+     */
+    public synchronized void invalidate(Path file) {
+        String name = file.toString();
+        Iterator<Map.Entry<PageKey,Page>> it = pages.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<PageKey,Page> entry = it.next();
+            if (entry.getKey().file.equals(name)) {
+                freeBuffers.push(entry.getValue().buffer);
+                it.remove();
+            }
+        }
+    }
+    
+    /**
+     * Copy a cached page into the buffer
+     * 
+     * @return the length of the page, or -1 if it is not cached
+     */
+    synchronized int readPage(PageKey key, byte[] dest) {
+        Page page = pages.get(key);
+        if (page == null) {
+            misses.incrementAndGet();
+            return -1;
+        }
+        hits.incrementAndGet();
+        ByteBuffer buffer = page.buffer.duplicate();
+        buffer.position(0);
+        buffer.get(dest, 0, page.length);
+        return page.length;
+    }
+    
+    /**
+     * Cache a page which was read from the file, evicting another if the cache is full
+     */
+    synchronized void putPage(PageKey key, byte[] src, int length, int priority, boolean local) {
+        if (pages.containsKey(key)) {
+            return;
+        }
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            if (pages.size() < maxPages) {
+                buffer = ByteBuffer.allocateDirect(pageSize);
+            } else if (!pages.isEmpty()) {
+                buffer = evict();
+            } else {
+                return;
+            }
+        }
+        buffer.clear();
+        buffer.put(src, 0, length);
+        pages.put(key, new Page(buffer, length, priority, local));
+    }
+    
+    private ByteBuffer evict() {
+        Map.Entry<PageKey,Page> victim = null;
+        Iterator<Map.Entry<PageKey,Page>> it = pages.entrySet().iterator();
+        for (int i = 0; i < EVICTION_WINDOW && it.hasNext(); i++) {
+            Map.Entry<PageKey,Page> entry = it.next();
+            if (victim == null || entry.getValue().isLessPreferredThan(victim.getValue())) {
+                victim = entry;
+            }
+        }
+        pages.remove(victim.getKey());
+        evictions.incrementAndGet();
+        return victim.getValue().buffer;
+    }
+    
+    synchronized void setMaxPages(long maxPages) {
+        this.maxPages = maxPages;
+        while (pages.size() > maxPages) {
+            evict();
+        }
+        // let the direct buffers beyond the new size be collected
+        while (!freeBuffers.isEmpty() && pages.size() + freeBuffers.size() > maxPages) {
+            freeBuffers.pop();
+        }
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+    
+    public synchronized long getSizeInBytes() {
+        return (long) pages.size() * pageSize;
+    }
+    
+    public long getMaxSizeInBytes() {
+        return maxPages * pageSize;
+    }
+    
+    @Override
+    public String toString() {
+        return "IvaratorBufferCache size:" + getSizeInBytes() + " max:" + getMaxSizeInBytes() + " hits:" + getHits() + " misses:" + getMisses() + " evictions:"
+                        + getEvictions() + " hitRate:" + getHitRate();
+    }
+    
+    static class PageKey {
+        final String file;
+        final long index;
+        
+        PageKey(String file, long index) {
+            this.file = file;
+            this.index = index;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) o;
+            return index == other.index && file.equals(other.file);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * file.hashCode() + Long.hashCode(index);
+        }
+    }
+    
+    private static class Page {
+        final ByteBuffer buffer;
+        final int length;
+        final int priority;
+        final boolean local;
+        
+        Page(ByteBuffer buffer, int length, int priority, boolean local) {
+            this.buffer = buffer;
+            this.length = length;
+            this.priority = priority;
+            this.local = local;
+        }
+        
+        boolean isLessPreferredThan(Page other) {
+            if (priority != other.priority) {
+                return priority > other.priority;
+            }
+            return !local && other.local;
+        }
+    }
+    
+    /**
+     * Reads a file a page at a time, from the cache when it can and from the file otherwise. Each stream copies the page it is on out of the cache, so that
+     * the cache is free to reuse the buffer.
+     */
+    private class PagedInputStream extends InputStream {
+        private final FileSystem fs;
+        private final Path file;
+        private final String name;
+        private final long length;
+        private final int priority;
+        private final boolean local;
+        private final byte[] page = new byte[pageSize];
+        private long pageStart = -1;
+        private int pageLength = 0;
+        private long position = 0;
+        // only opened on the first page which is not cached
+        private FSDataInputStream in;
+        
+        PagedInputStream(FileSystem fs, Path file, long length, int priority, boolean local) {
+            this.fs = fs;
+            this.file = file;
+            this.name = file.toString();
+            this.length = length;
+            this.priority = priority;
+            this.local = local;
+        }
+        
+        private boolean fillPage() throws IOException {
+            if (position >= length) {
+                return false;
+            }
+            long index = position / pageSize;
+            long start = index * pageSize;
+            if (start != pageStart) {
+                PageKey key = new PageKey(name, index);
+                int read = readPage(key, page);
+                if (read < 0) {
+                    read = (int) Math.min(pageSize, length - start);
+                    if (in == null) {
+                        in = fs.open(file);
+                    }
+                    try {
+                        in.readFully(start, page, 0, read);
+                    } catch (EOFException e) {
+                        throw new IOException("Failed to read page " + index + " of " + file, e);
+                    }
+                    putPage(key, page, read, priority, local);
+                }
+                pageStart = start;
+                pageLength = read;
+            }
+            return true;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if (!fillPage()) {
+                return -1;
+            }
+            return page[(int) (position++ - pageStart)] & 0xff;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fillPage()) {
+                return -1;
+            }
+            int offset = (int) (position - pageStart);
+            int count = Math.min(len, pageLength - offset);
+            System.arraycopy(page, offset, b, off, count);
+            position += count;
+            return count;
+        }
+        
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, length - position));
+            position += skipped;
+            return skipped;
+        }
+        
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, length - position);
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+                in = null;
+            }
+        }
+    }
+}
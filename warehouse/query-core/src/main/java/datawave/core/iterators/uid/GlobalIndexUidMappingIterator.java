@@ -1,6 +1,10 @@
 package datawave.core.iterators.uid;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import datawave.ingest.protobuf.Uid;
+import datawave.ingest.protobuf.UidSet;
 
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.KeyValue;
@@ -40,22 +44,25 @@ public class GlobalIndexUidMappingIterator extends UidMappingIterator {
                 Uid.List.Builder uidList = Uid.List.parseFrom(keyValue.getValue().get()).toBuilder();
                 boolean changed = false;
                 for (int i = 0; i < uidList.getUIDList().size(); i++) {
-                    String uid = uidList.getUID(i);
-                    String newUid = null;
-                    if (startKey) {
-                        // if we had extra characters, or not startKeyInclusive, then we do not want an inclusive start key
-                        newUid = uidMapper.getStartKeyUidMapping(uid, startKeyInclusive);
-                    } else if (endKey) {
-                        // if we had extra characters, or not endKeyInclusive, then we do not want an inclusive end key
-                        newUid = uidMapper.getEndKeyUidMapping(uid, endKeyInclusive);
-                    } else {
-                        newUid = uidMapper.getUidMapping(uid);
-                    }
+                    String newUid = mapUid(uidList.getUID(i), startKey, startKeyInclusive, endKey, endKeyInclusive);
                     if (newUid != null) {
                         uidList.setUID(i, newUid);
                         changed = true;
                     }
                 }
+                if (uidList.hasUIDSET()) {
+                    List<String> uids = new ArrayList<>();
+                    boolean setChanged = false;
+                    for (String uid : UidSet.decode(uidList.getUIDSET())) {
+                        String newUid = mapUid(uid, startKey, startKeyInclusive, endKey, endKeyInclusive);
+                        uids.add(newUid == null ? uid : newUid);
+                        setChanged |= (newUid != null);
+                    }
+                    if (setChanged) {
+                        uidList.setUIDSET(UidSet.encode(uids));
+                        changed = true;
+                    }
+                }
                 if (changed) {
                     keyValue = new KeyValue(keyValue.getKey(), uidList.build().toByteArray());
                 }
@@ -66,6 +73,18 @@ public class GlobalIndexUidMappingIterator extends UidMappingIterator {
         return keyValue;
     }
     
+    private String mapUid(String uid, boolean startKey, boolean startKeyInclusive, boolean endKey, boolean endKeyInclusive) {
+        if (startKey) {
+            // if we had extra characters, or not startKeyInclusive, then we do not want an inclusive start key
+            return uidMapper.getStartKeyUidMapping(uid, startKeyInclusive);
+        } else if (endKey) {
+            // if we had extra characters, or not endKeyInclusive, then we do not want an inclusive end key
+            return uidMapper.getEndKeyUidMapping(uid, endKeyInclusive);
+        } else {
+            return uidMapper.getUidMapping(uid);
+        }
+    }
+    
     @Override
     public SortedKeyValueIterator<Key,Value> deepCopy(IteratorEnvironment env) {
         return new GlobalIndexUidMappingIterator(this, env);
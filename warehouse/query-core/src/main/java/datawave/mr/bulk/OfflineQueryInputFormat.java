@@ -0,0 +1,241 @@
+package datawave.mr.bulk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import datawave.common.util.ArgumentChecker;
+import datawave.mr.bulk.split.OfflineQuerySplit;
+import datawave.mr.bulk.split.TabletSplitSplit;
+import datawave.webservice.query.configuration.QueryData;
+
+import org.apache.accumulo.core.client.AccumuloException;
+import org.apache.accumulo.core.client.AccumuloSecurityException;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.conf.Property;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.log4j.Logger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs a query plan against the rfiles of the shard table rather than through the tablet servers. Each {@link QueryData} of the plan (typically the ranges and
+ * query iterator settings produced for a set of shards by the range stream) is planned in parallel against the accumulo metadata, giving one split per shard
+ * over all of the files of that shard. Shard splits are then grouped by location into {@link OfflineQuerySplit}s, which are read one shard after another by
+ * {@link OfflineQueryRecordReader} with the scan iterators of the table and the full iterator stack of their plan, sharing a {@link SharedBlockCache} between
+ * them.
+ * <p>
+ * Only data which has been written to rfiles is read, so data still held in memory by the tablet servers is not seen. Set {@link #FLUSH} to flush the table
+ * before the splits are planned when recently written data must be included. Metadata lookups are not cached unless
+ * {@link MultiRfileInputformat#CACHE_METADATA} is set, since the cached file lists go stale as soon as the table is compacted or bulk imported into.
+ */
+public class OfflineQueryInputFormat extends MultiRfileInputformat {
+    
+    private static final Logger log = Logger.getLogger(OfflineQueryInputFormat.class);
+    
+    public static final String QUERY_PLANS = "offline.query.plans";
+    public static final String PLANNING_THREADS = "offline.query.planning.threads";
+    public static final String SHARDS_PER_SPLIT = "offline.query.shards.per.split";
+    public static final String FLUSH = "offline.query.flush";
+    
+    public static final int DEFAULT_PLANNING_THREADS = 8;
+    public static final int DEFAULT_SHARDS_PER_SPLIT = 10;
+    
+    private static final String UNKNOWN_LOCATION = "";
+    
+    @Override
+    public RecordReader<Key,Value> createRecordReader(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+        return new OfflineQueryRecordReader();
+    }
+    
+    /**
+     * Store the query plans with the job. Like the ranges of {@link BulkInputFormat#setRanges(Job, Collection)}, the plans are written to a file in the working
+     * directory, as they can be too large for the configuration.
+     * 
+     * @param job
+     *            the Hadoop job
+     * @param plans
+     *            the ranges and iterator settings to run
+     */
+    public static void setQueryPlans(Job job, Collection<QueryData> plans) {
+        ArgumentChecker.notNull(job, plans);
+        
+        Configuration conf = job.getConfiguration();
+        try {
+            FileSystem fs = FileSystem.get(conf);
+            String workingDirectory = conf.get(BulkInputFormat.WORKING_DIRECTORY, fs.getWorkingDirectory().toString());
+            Path plansPath = new Path(new Path(workingDirectory), UUID.randomUUID() + ".plans");
+            fs = FileSystem.get(plansPath.toUri(), conf);
+            try (FSDataOutputStream out = fs.create(plansPath)) {
+                out.writeInt(plans.size());
+                for (QueryData plan : plans) {
+                    out.writeInt(plan.getRanges().size());
+                    for (Range range : plan.getRanges()) {
+                        range.write(out);
+                    }
+                    out.writeInt(plan.getSettings().size());
+                    for (IteratorSetting setting : plan.getSettings()) {
+                        setting.write(out);
+                    }
+                }
+            }
+            job.addCacheFile(plansPath.toUri());
+            conf.set(QUERY_PLANS, plansPath.toString());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Unable to write query plans", e);
+        }
+    }
+    
+    public static List<QueryData> getQueryPlans(Configuration conf) throws IOException {
+        String plansFile = conf.get(QUERY_PLANS);
+        if (null == plansFile) {
+            throw new IOException("No query plans set");
+        }
+        Path plansPath = new Path(plansFile);
+        FileSystem fs = FileSystem.get(plansPath.toUri(), conf);
+        
+        List<QueryData> plans = new ArrayList<>();
+        try (FSDataInputStream in = fs.open(plansPath)) {
+            int planCount = in.readInt();
+            for (int i = 0; i < planCount; i++) {
+                int rangeCount = in.readInt();
+                List<Range> ranges = new ArrayList<>(rangeCount);
+                for (int j = 0; j < rangeCount; j++) {
+                    Range range = new Range();
+                    range.readFields(in);
+                    ranges.add(range);
+                }
+                int settingCount = in.readInt();
+                List<IteratorSetting> settings = new ArrayList<>(settingCount);
+                for (int j = 0; j < settingCount; j++) {
+                    IteratorSetting setting = new IteratorSetting(1, "name", "class");
+                    setting.readFields(in);
+                    settings.add(setting);
+                }
+                plans.add(new QueryData(null, ranges, settings));
+            }
+        }
+        return plans;
+    }
+    
+    /**
+     * Get the properties of the table that a tablet server applies at scan time: the scan iterators and the default visibility
+     * 
+     * @param connector
+     *            the accumulo connector
+     * @param tableName
+     *            the table
+     * @return the scan time properties
+     */
+    protected static Map<String,String> getScanProperties(Connector connector, String tableName) throws AccumuloException, TableNotFoundException {
+        Map<String,String> properties = new TreeMap<>();
+        for (Map.Entry<String,String> property : connector.tableOperations().getProperties(tableName)) {
+            if (property.getKey().startsWith(Property.TABLE_ITERATOR_SCAN_PREFIX.getKey())
+                            || property.getKey().equals(Property.TABLE_DEFAULT_SCANTIME_VISIBILITY.getKey())) {
+                properties.put(property.getKey(), property.getValue());
+            }
+        }
+        return properties;
+    }
+    
+    @Override
+    public List<InputSplit> getSplits(JobContext job) throws IOException {
+        final Configuration conf = new Configuration(job.getConfiguration());
+        // the ranges of a shard are merged into one split
+        conf.setBoolean(MERGE_RANGE, true);
+        
+        final String tableName = BulkInputFormat.getTablename(conf);
+        final List<QueryData> plans = getQueryPlans(conf);
+        
+        final Connector connector;
+        try {
+            connector = BulkInputFormat.getInstance(conf).getConnector(BulkInputFormat.getUsername(conf),
+                            new PasswordToken(BulkInputFormat.getPassword(conf)));
+        } catch (Exception e) {
+            throw new IOException("Unable to connect to accumulo", e);
+        }
+        
+        final Map<String,String> tableProperties;
+        try {
+            if (conf.getBoolean(FLUSH, false)) {
+                log.info("Flushing " + tableName + " before planning the offline query");
+                connector.tableOperations().flush(tableName, null, null, true);
+            }
+            tableProperties = getScanProperties(connector, tableName);
+        } catch (AccumuloException | AccumuloSecurityException | TableNotFoundException e) {
+            throw new IOException("Unable to read the configuration of " + tableName, e);
+        }
+        
+        // plan each query against the metadata in parallel
+        int threads = Math.max(1, Math.min(plans.size(), conf.getInt(PLANNING_THREADS, DEFAULT_PLANNING_THREADS)));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("OfflineQuery planner %d").setDaemon(true)
+                        .build());
+        List<Future<List<InputSplit>>> futures = Lists.newArrayListWithCapacity(plans.size());
+        try {
+            for (final QueryData plan : plans) {
+                final List<Range> ranges = Lists.newArrayList(plan.getRanges());
+                futures.add(executor.submit(() -> computeSplitPoints(connector, conf, tableName, ranges)));
+            }
+            
+            // group the shards by location, keeping the shards of each location in plan order
+            Map<String,List<OfflineQuerySplit>> byLocation = new LinkedHashMap<>();
+            int shardsPerSplit = Math.max(1, conf.getInt(SHARDS_PER_SPLIT, DEFAULT_SHARDS_PER_SPLIT));
+            int shards = 0;
+            for (int i = 0; i < plans.size(); i++) {
+                List<IteratorSetting> settings = plans.get(i).getSettings();
+                for (InputSplit split : futures.get(i).get()) {
+                    TabletSplitSplit shard = (TabletSplitSplit) split;
+                    String[] locations = shard.getLocations();
+                    String location = (locations.length > 0 && locations[0] != null) ? locations[0] : UNKNOWN_LOCATION;
+                    
+                    List<OfflineQuerySplit> splits = byLocation.computeIfAbsent(location, l -> new ArrayList<>());
+                    if (splits.isEmpty() || splits.get(splits.size() - 1).getShardCount() >= shardsPerSplit) {
+                        splits.add(new OfflineQuerySplit(tableProperties));
+                    }
+                    splits.get(splits.size() - 1).add(shard, settings);
+                    shards++;
+                }
+            }
+            
+            List<InputSplit> inputSplits = new ArrayList<>();
+            for (List<OfflineQuerySplit> splits : byLocation.values()) {
+                inputSplits.addAll(splits);
+            }
+            log.info("Planned " + shards + " shards from " + plans.size() + " query plans into " + inputSplits.size() + " splits over "
+                            + byLocation.size() + " locations");
+            return inputSplits;
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to compute split points", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted computing split points", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package datawave.mr.bulk;
+
+import java.io.IOException;
+import java.util.Map;
+
+import datawave.mr.bulk.split.OfflineQuerySplit;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.ConfigurationCopy;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.apache.log4j.Logger;
+
+/**
+ * Reads the shards of an {@link OfflineQuerySplit} one after another. Each shard is read by a {@link RangeRecordReader} over the rfiles of the shard. The scan
+ * iterators of the table (e.g. age off filters, versioning and combiners) are applied to the rfiles as a tablet server would, with the iterators of the job
+ * (e.g. visibility filters) and those of the shard's query plan applied on top. The shared block cache is enabled unless the job turns it
+ * off, so that index and data blocks read for one shard are reused by the next, and by iterators re-opened after a failure.
+ */
+public class OfflineQueryRecordReader extends RecordReader<Key,Value> {
+    
+    private static final Logger log = Logger.getLogger(OfflineQueryRecordReader.class);
+    
+    protected OfflineQuerySplit split;
+    protected TaskAttemptContext context;
+    protected int shard = -1;
+    protected RangeRecordReader current = null;
+    protected AccumuloConfiguration tableConf = null;
+    
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
+        this.split = (OfflineQuerySplit) split;
+        this.context = context;
+        
+        ConfigurationCopy tableConf = new ConfigurationCopy(AccumuloConfiguration.getDefaultConfiguration());
+        for (Map.Entry<String,String> property : this.split.getTableProperties().entrySet()) {
+            tableConf.set(property.getKey(), property.getValue());
+        }
+        this.tableConf = tableConf;
+    }
+    
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+        while (current == null || !current.nextKeyValue()) {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (++shard >= split.getShardCount()) {
+                return false;
+            }
+            current = openShard(shard);
+        }
+        return true;
+    }
+    
+    protected RangeRecordReader openShard(int i) throws IOException, InterruptedException {
+        Configuration conf = new Configuration(context.getConfiguration());
+        conf.setBoolean(SharedBlockCache.ENABLED, conf.getBoolean(SharedBlockCache.ENABLED, true));
+        // the table iterators are applied under a visibility filter for the scan authorizations
+        if (conf.get(RecordIterator.AUTH_STRING) == null) {
+            conf.set(RecordIterator.AUTH_STRING, BulkInputFormat.getAuthorizations(conf).toString());
+        }
+        for (IteratorSetting setting : split.getSettings(i)) {
+            BulkInputFormat.addIterator(conf, setting);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Opening shard " + (i + 1) + " of " + split.getShardCount() + ": " + split.getShard(i));
+        }
+        
+        RangeRecordReader reader = new RangeRecordReader();
+        reader.setTableConfiguration(tableConf);
+        reader.initialize(split.getShard(i), new TaskAttemptContextImpl(conf, context.getTaskAttemptID()));
+        return reader;
+    }
+    
+    @Override
+    public Key getCurrentKey() throws IOException, InterruptedException {
+        return current.getCurrentKey();
+    }
+    
+    @Override
+    public Value getCurrentValue() throws IOException, InterruptedException {
+        return current.getCurrentValue();
+    }
+    
+    @Override
+    public float getProgress() throws IOException, InterruptedException {
+        if (split.getShardCount() == 0 || shard >= split.getShardCount()) {
+            return 1.0f;
+        }
+        float shardProgress = current == null ? 0.0f : current.getProgress();
+        return (Math.max(shard, 0) + shardProgress) / split.getShardCount();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
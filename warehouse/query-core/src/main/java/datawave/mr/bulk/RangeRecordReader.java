@@ -8,6 +8,7 @@ import datawave.mr.bulk.split.TabletSplitSplit;
 import org.apache.accumulo.core.client.AccumuloException;
 import org.apache.accumulo.core.client.AccumuloSecurityException;
 import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.accumulo.core.data.Value;
@@ -34,6 +35,8 @@ public class RangeRecordReader extends RFileRecordReader {
     
     protected RecordIterator splitReference = null;
     
+    protected AccumuloConfiguration tableConf = null;
+    
     private static final Logger log = Logger.getLogger(RangeRecordReader.class);
     
     protected static final String PREFIX = BulkInputFormat.class.getSimpleName();
@@ -41,6 +44,16 @@ public class RangeRecordReader extends RFileRecordReader {
     protected static final String ITERATORS_OPTIONS = PREFIX + ".iterators.options";
     protected static final String ITERATORS_DELIM = ",";
     
+    /**
+     * Set the configuration of the table being read, so that its scan iterators are applied to the rfiles. This must be set before the reader is initialized.
+     * 
+     * @param tableConf
+     *            the table configuration, or null to read the rfiles as they are
+     */
+    public void setTableConfiguration(AccumuloConfiguration tableConf) {
+        this.tableConf = tableConf;
+    }
+    
     @Override
     public void initialize(InputSplit split, TaskAttemptContext context) throws IOException, InterruptedException {
         
@@ -50,7 +63,7 @@ public class RangeRecordReader extends RFileRecordReader {
         TabletSplitSplit tabletSplit = (TabletSplitSplit) split;
         do {
             try {
-                splitReference = new RecordIterator(tabletSplit, context.getConfiguration());
+                splitReference = new RecordIterator(tabletSplit, tableConf, context.getConfiguration());
             } catch (RuntimeException e) {
                 
                 log.info(e);
@@ -33,6 +33,7 @@ import org.apache.accumulo.core.data.thrift.IterInfo;
 import org.apache.accumulo.core.file.FileOperations;
 import org.apache.accumulo.core.file.FileSKVIterator;
 import org.apache.accumulo.core.file.blockfile.BlockFileReader;
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
 import org.apache.accumulo.core.file.blockfile.impl.CachableBlockFile.Reader;
 import org.apache.accumulo.core.file.rfile.RFile;
 import org.apache.accumulo.core.file.rfile.RFileOperations;
@@ -76,6 +77,8 @@ public class RecordIterator extends RangeSplit implements SortedKeyValueIterator
     
     public static final String RECORDITER_FAILURE_SLEEP_INTERVAL = "recorditer.failure.sleep.interval";
     
+    public static final String AUTH_STRING = "recorditer.auth.string";
+    
     protected TabletSplitSplit fileSplit;
     
     protected Deque<Range> rangeQueue;
@@ -225,7 +228,7 @@ public class RecordIterator extends RangeSplit implements SortedKeyValueIterator
         
         failureSleep = conf.getLong(RECORDITER_FAILURE_SLEEP_INTERVAL, DEFAULT_FAILURE_SLEEP);
         
-        String[] authStrings = conf.getStrings("recorditer.auth.string");
+        String[] authStrings = conf.getStrings(AUTH_STRING);
         
         List<ByteBuffer> authBuffer = Lists.newArrayList();
         if (null != authStrings) {
@@ -479,7 +482,17 @@ public class RecordIterator extends RangeSplit implements SortedKeyValueIterator
                 
                 long length = fs.getFileStatus(path).getLen();
                 
-                closeable.setBlockFile(new Reader(path.getName(), closeable.getInputStream(), length, conf, null, null, acuTableConf));
+                // blocks are cached by file, so use the full path when sharing the cache with other iterators
+                BlockCache dataCache = null;
+                BlockCache indexCache = null;
+                String cacheId = path.getName();
+                if (SharedBlockCache.isEnabled(conf)) {
+                    dataCache = SharedBlockCache.getDataCache(conf);
+                    indexCache = SharedBlockCache.getIndexCache(conf);
+                    cacheId = path.toString();
+                }
+                
+                closeable.setBlockFile(new Reader(cacheId, closeable.getInputStream(), length, conf, dataCache, indexCache, acuTableConf));
                 
                 fileIterator = new RFile.Reader(closeable.getReader());
                 
@@ -81,7 +81,7 @@ public class RfileScanner extends SessionOptions implements BatchScanner, Closea
         this.conf = new Configuration(conf);
         
         this.conf.setBoolean(MultiRfileInputformat.CACHE_METADATA, true);
-        this.conf.set("recorditer.auth.string", recordIterAuthString);
+        this.conf.set(RecordIterator.AUTH_STRING, recordIterAuthString);
     }
     
     @Override
@@ -0,0 +1,51 @@
+package datawave.mr.bulk;
+
+import org.apache.accumulo.core.file.blockfile.cache.BlockCache;
+import org.apache.accumulo.core.file.blockfile.cache.LruBlockCache;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.log4j.Logger;
+
+/**
+ * Data and index block caches shared by every {@link RecordIterator} in the JVM, so that splits over the same rfiles, and iterators re-opened after a failure,
+ * read blocks from memory rather than going back to HDFS. The caches are created with the sizes of the first configuration that asks for them.
+ */
+public class SharedBlockCache {
+    
+    private static final Logger log = Logger.getLogger(SharedBlockCache.class);
+    
+    public static final String ENABLED = "recorditer.block.cache.enabled";
+    public static final String DATA_CACHE_SIZE = "recorditer.block.cache.data.size";
+    public static final String INDEX_CACHE_SIZE = "recorditer.block.cache.index.size";
+    public static final String BLOCK_SIZE = "recorditer.block.cache.block.size";
+    
+    public static final long DEFAULT_DATA_CACHE_SIZE = 128L * 1024 * 1024;
+    public static final long DEFAULT_INDEX_CACHE_SIZE = 32L * 1024 * 1024;
+    public static final long DEFAULT_BLOCK_SIZE = 100L * 1024;
+    
+    private static BlockCache dataCache = null;
+    private static BlockCache indexCache = null;
+    
+    private SharedBlockCache() {}
+    
+    public static boolean isEnabled(Configuration conf) {
+        return conf.getBoolean(ENABLED, false);
+    }
+    
+    public static synchronized BlockCache getDataCache(Configuration conf) {
+        if (null == dataCache) {
+            long size = conf.getLong(DATA_CACHE_SIZE, DEFAULT_DATA_CACHE_SIZE);
+            log.info("Creating a shared rfile data block cache of " + size + " bytes");
+            dataCache = new LruBlockCache(size, conf.getLong(BLOCK_SIZE, DEFAULT_BLOCK_SIZE));
+        }
+        return dataCache;
+    }
+    
+    public static synchronized BlockCache getIndexCache(Configuration conf) {
+        if (null == indexCache) {
+            long size = conf.getLong(INDEX_CACHE_SIZE, DEFAULT_INDEX_CACHE_SIZE);
+            log.info("Creating a shared rfile index block cache of " + size + " bytes");
+            indexCache = new LruBlockCache(size, conf.getLong(BLOCK_SIZE, DEFAULT_BLOCK_SIZE));
+        }
+        return indexCache;
+    }
+}
@@ -0,0 +1,150 @@
+package datawave.mr.bulk.split;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.mapreduce.InputSplit;
+
+/**
+ * A group of shard splits that are read one after another by a single task, each with the iterator settings of the query plan it was planned from. The
+ * settings are held once per plan, since many shards share the same plan. The scan time properties of the table (its scan iterators and default visibility) are
+ * carried along, as there is no tablet server to apply them.
+ */
+public class OfflineQuerySplit extends InputSplit implements Writable {
+    
+    protected List<List<IteratorSetting>> plans = new ArrayList<>();
+    protected List<TabletSplitSplit> shards = new ArrayList<>();
+    protected List<Integer> shardPlans = new ArrayList<>();
+    protected Map<String,String> tableProperties = new TreeMap<>();
+    
+    public OfflineQuerySplit() {}
+    
+    public OfflineQuerySplit(Map<String,String> tableProperties) {
+        this.tableProperties.putAll(tableProperties);
+    }
+    
+    /**
+     * Add a shard split to this group
+     * 
+     * @param shard
+     *            the splits over the files of the shard
+     * @param settings
+     *            the iterator settings of the plan the shard belongs to
+     */
+    public void add(TabletSplitSplit shard, List<IteratorSetting> settings) {
+        int plan = plans.indexOf(settings);
+        if (plan < 0) {
+            plan = plans.size();
+            plans.add(settings);
+        }
+        shards.add(shard);
+        shardPlans.add(plan);
+    }
+    
+    public int getShardCount() {
+        return shards.size();
+    }
+    
+    public TabletSplitSplit getShard(int i) {
+        return shards.get(i);
+    }
+    
+    public List<IteratorSetting> getSettings(int i) {
+        return plans.get(shardPlans.get(i));
+    }
+    
+    public Map<String,String> getTableProperties() {
+        return tableProperties;
+    }
+    
+    @Override
+    public long getLength() throws IOException, InterruptedException {
+        long length = 0;
+        for (TabletSplitSplit shard : shards) {
+            for (int i = 0; i < shard.getLength(); i++) {
+                // file lengths are Long.MAX_VALUE when they were not looked up
+                length += Math.min(shard.getLength(i), Long.MAX_VALUE - length);
+            }
+        }
+        return length;
+    }
+    
+    @Override
+    public String[] getLocations() throws IOException, InterruptedException {
+        Set<String> hosts = new LinkedHashSet<>();
+        for (TabletSplitSplit shard : shards) {
+            for (String host : shard.getLocations()) {
+                if (host != null && !host.isEmpty()) {
+                    hosts.add(host);
+                }
+            }
+        }
+        return hosts.toArray(new String[hosts.size()]);
+    }
+    
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, plans.size());
+        for (List<IteratorSetting> settings : plans) {
+            WritableUtils.writeVInt(out, settings.size());
+            for (IteratorSetting setting : settings) {
+                setting.write(out);
+            }
+        }
+        WritableUtils.writeVInt(out, shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            WritableUtils.writeVInt(out, shardPlans.get(i));
+            shards.get(i).write(out);
+        }
+        WritableUtils.writeVInt(out, tableProperties.size());
+        for (Map.Entry<String,String> property : tableProperties.entrySet()) {
+            WritableUtils.writeString(out, property.getKey());
+            WritableUtils.writeString(out, property.getValue());
+        }
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        plans.clear();
+        shards.clear();
+        shardPlans.clear();
+        tableProperties.clear();
+        int planCount = WritableUtils.readVInt(in);
+        for (int i = 0; i < planCount; i++) {
+            int settingCount = WritableUtils.readVInt(in);
+            List<IteratorSetting> settings = new ArrayList<>(settingCount);
+            for (int j = 0; j < settingCount; j++) {
+                IteratorSetting setting = new IteratorSetting(1, "name", "class");
+                setting.readFields(in);
+                settings.add(setting);
+            }
+            plans.add(settings);
+        }
+        int shardCount = WritableUtils.readVInt(in);
+        for (int i = 0; i < shardCount; i++) {
+            shardPlans.add(WritableUtils.readVInt(in));
+            TabletSplitSplit shard = new TabletSplitSplit();
+            shard.readFields(in);
+            shards.add(shard);
+        }
+        int propertyCount = WritableUtils.readVInt(in);
+        for (int i = 0; i < propertyCount; i++) {
+            tableProperties.put(WritableUtils.readString(in), WritableUtils.readString(in));
+        }
+    }
+    
+    @Override
+    public String toString() {
+        return "OfflineQuerySplit{shards=" + shards + ", plans=" + plans.size() + "}";
+    }
+}
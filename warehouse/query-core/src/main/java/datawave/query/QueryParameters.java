@@ -157,4 +157,14 @@ public class QueryParameters {
     
     public static final String DATE_INDEX_TIME_TRAVEL = "date.index.time.travel";
     
+    /**
+     * The fraction of the shards of each day to sample when estimating a count. Leaving blank will count every result.
+     */
+    public static final String COUNT_ESTIMATE_SAMPLE_RATE = "count.estimate.sample.rate";
+    
+    /**
+     * The relative error to keep sampling until when estimating a count, e.g. 0.05 for within 5%
+     */
+    public static final String COUNT_ESTIMATE_TARGET_ERROR = "count.estimate.target.error";
+    
 }
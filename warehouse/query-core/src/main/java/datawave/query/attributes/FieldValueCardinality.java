@@ -11,6 +11,10 @@ import com.google.common.base.Preconditions;
 
 public class FieldValueCardinality implements Comparable<FieldValueCardinality> {
     
+    // the precision of the HyperLogLog estimates, and their relative standard error of 1.04 / sqrt(2^precision)
+    public static final int PRECISION = 10;
+    public static final double RELATIVE_STANDARD_ERROR = 1.04 / Math.sqrt(1 << PRECISION);
+    
     protected String lower;
     
     protected String upper;
@@ -22,7 +26,7 @@ public class FieldValueCardinality implements Comparable<FieldValueCardinality>
     protected String myValue = null;
     
     public FieldValueCardinality() {
-        estimate = new HyperLogLogPlus(10);
+        estimate = new HyperLogLogPlus(PRECISION);
     }
     
     public FieldValueCardinality(ICardinality otherEstimate) {
@@ -123,6 +127,16 @@ public class FieldValueCardinality implements Comparable<FieldValueCardinality>
         return estimate;
     }
     
+    /**
+     * Return the error bound of the estimate, two standard errors either side of it, which covers the true cardinality about 95% of the time. The estimates
+     * are merged as partial results arrive, so the bound is relative to the current estimate.
+     * 
+     * @return the error bound
+     */
+    public long getErrorBound() {
+        return (long) Math.ceil(2 * RELATIVE_STANDARD_ERROR * estimate.cardinality());
+    }
+    
     @Override
     public String toString() {
         if (null == myValue)
@@ -0,0 +1,146 @@
+package datawave.query.composite;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import datawave.ingest.data.config.ingest.CompositeIngest;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index over the composite field definitions of a model, mapping each component field to the composite fields it is a part of. This lets the composites
+ * which can be made from the fields of a query node be found from those fields, rather than by checking every composite definition for every node of the
+ * query.
+ * <p>
+ * The composite definitions rarely change, so an index is built once for each distinct composite to field map and shared between queries.
+ */
+public class CompositeFieldIndex {
+    
+    private static final LoadingCache<IndexKey,CompositeFieldIndex> indexes = CacheBuilder.newBuilder().maximumSize(100)
+                    .build(new CacheLoader<IndexKey,CompositeFieldIndex>() {
+                        @Override
+                        public CompositeFieldIndex load(IndexKey key) {
+                            return new CompositeFieldIndex(key.compositeToFieldMap);
+                        }
+                    });
+    
+    private final Multimap<String,String> compositeToFieldMap;
+    
+    // the position of each composite field amongst the definitions, so that lookups return composites in the order they were defined
+    private final Map<String,Integer> compositeOrder = new HashMap<>();
+    private final Multimap<String,String> fieldToCompositeMap = ArrayListMultimap.create();
+    private final Map<String,Boolean> overloadedCompositeFields = new ConcurrentHashMap<>();
+    
+    CompositeFieldIndex(Multimap<String,String> compositeToFieldMap) {
+        this.compositeToFieldMap = compositeToFieldMap;
+        for (String compositeField : compositeToFieldMap.keySet()) {
+            compositeOrder.put(compositeField, compositeOrder.size());
+            for (String componentField : new HashSet<>(compositeToFieldMap.get(compositeField))) {
+                fieldToCompositeMap.put(componentField, compositeField);
+            }
+        }
+    }
+    
+    /**
+     * Get the index of a composite to field map, building it if an equal map, with its composite fields in the same order, has not been indexed recently
+     * 
+     * @param compositeToFieldMap
+     *            the composite fields, mapped to their component fields in order
+     * @return the index
+     */
+    public static CompositeFieldIndex getInstance(Multimap<String,String> compositeToFieldMap) {
+        return indexes.getUnchecked(new IndexKey(ImmutableListMultimap.copyOf(compositeToFieldMap)));
+    }
+    
+    public Multimap<String,String> getCompositeToFieldMap() {
+        return compositeToFieldMap;
+    }
+    
+    /**
+     * @param componentField
+     *            a field
+     * @return the composite fields which the field is a component of
+     */
+    public Collection<String> getCompositeFields(String componentField) {
+        return fieldToCompositeMap.get(componentField);
+    }
+    
+    /**
+     * Returns a map containing only the composites that could be created from the given set of required and other fields, in the order they were defined
+     * 
+     * @param requiredFields
+     *            A collection of fields, of which at least one must be present in each returned composite field mapping
+     * @param otherFields
+     *            A collection of other fields at our disposal for creating composites
+     * @return A multimap of composite fields, and their component fields which can be created with the given fields
+     */
+    public Multimap<String,String> getFilteredCompositeToFieldMap(Collection<String> requiredFields, Collection<String> otherFields) {
+        Set<String> allFields = new HashSet<>(requiredFields);
+        allFields.addAll(otherFields);
+        
+        // only the composites with one of our required fields are candidates
+        SortedSet<String> candidates = new TreeSet<>(Comparator.comparing(compositeOrder::get));
+        for (String requiredField : requiredFields) {
+            candidates.addAll(fieldToCompositeMap.get(requiredField));
+        }
+        
+        // if we have all of the fields needed to make the composite, add it to our list
+        Multimap<String,String> filteredCompositeToFieldMap = LinkedHashMultimap.create();
+        for (String compositeField : candidates) {
+            Collection<String> componentFields = compositeToFieldMap.get(compositeField);
+            if (allFields.containsAll(componentFields))
+                filteredCompositeToFieldMap.putAll(compositeField, componentFields);
+        }
+        return filteredCompositeToFieldMap;
+    }
+    
+    /**
+     * @param field
+     *            a field
+     * @return true if the field is a composite field which is also one of its own components
+     */
+    public boolean isOverloadedCompositeField(String field) {
+        return overloadedCompositeFields.computeIfAbsent(field, f -> CompositeIngest.isOverloadedCompositeField(compositeToFieldMap, f));
+    }
+    
+    /**
+     * Multimaps are equal regardless of the order of their keys, but the index returns composites in the order they were defined, so that order is part of the
+     * key of the cached indexes
+     */
+    private static class IndexKey {
+        private final ImmutableListMultimap<String,String> compositeToFieldMap;
+        private final ImmutableList<String> compositeFields;
+        
+        private IndexKey(ImmutableListMultimap<String,String> compositeToFieldMap) {
+            this.compositeToFieldMap = compositeToFieldMap;
+            this.compositeFields = compositeToFieldMap.keySet().asList();
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey other = (IndexKey) o;
+            return compositeFields.equals(other.compositeFields) && compositeToFieldMap.equals(other.compositeToFieldMap);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * compositeFields.hashCode() + compositeToFieldMap.hashCode();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package datawave.query.composite;
+
+import datawave.data.type.DiscreteIndexType;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The seek plan of a composite range: the component values of its bounds, whether each component bound is inclusive, and the discrete index type of each
+ * component field, all worked out once when a seeker first sees the range. Every key of the range is then checked against the plan, and the next valid composite
+ * term after a key that is out of range is found from it, without splitting the bounds or looking up the types again.
+ * <p>
+ * The next valid term is worked out from the key being skipped rather than by enumerating the valid sub-ranges up front, since the sub-ranges of components
+ * which are not of a discrete type cannot be enumerated.
+ */
+class CompositeSeekPlan {
+    
+    private final String separator;
+    private final String[] startValues;
+    private final String[] endValues;
+    
+    // the bound of each component, and whether it is inclusive. Only the last component of a bound takes the inclusiveness of the range
+    private final String[] starts;
+    private final String[] ends;
+    private final boolean[] startInclusive;
+    private final boolean[] endInclusive;
+    
+    // the discrete index types of the last component fields seen, with null for those which are not discrete
+    private List<String> fields;
+    private Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexType;
+    private DiscreteIndexType<?>[] discreteIndexTypes;
+    
+    /**
+     * @param startTerm
+     *            the composite term of the start of the range
+     * @param isStartInclusive
+     *            whether the start of the range is inclusive
+     * @param endTerm
+     *            the composite term of the end of the range
+     * @param isEndInclusive
+     *            whether the end of the range is inclusive
+     * @param separator
+     *            the composite separator
+     */
+    CompositeSeekPlan(String startTerm, boolean isStartInclusive, String endTerm, boolean isEndInclusive, String separator) {
+        this.separator = separator;
+        this.startValues = startTerm.split(separator);
+        this.endValues = endTerm.split(separator);
+        
+        int size = Math.max(startValues.length, endValues.length);
+        starts = new String[size];
+        ends = new String[size];
+        startInclusive = new boolean[size];
+        endInclusive = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            starts[i] = (i < startValues.length) ? startValues[i] : null;
+            ends[i] = (i < endValues.length) ? endValues[i] : null;
+            startInclusive[i] = (i != startValues.length - 1) || isStartInclusive;
+            endInclusive[i] = (i != endValues.length - 1) || isEndInclusive;
+            
+            // if start and end are equal, and one side is exclusive while the other is inclusive, just mark both as inclusive for our purposes
+            if (starts[i] != null && ends[i] != null && startInclusive[i] != endInclusive[i] && starts[i].equals(ends[i])) {
+                startInclusive[i] = true;
+                endInclusive[i] = true;
+            }
+        }
+    }
+    
+    String getSeparator() {
+        return separator;
+    }
+    
+    /**
+     * @param term
+     *            a composite term
+     * @return true if every component of the term is within the bounds of its component
+     */
+    boolean isInRange(String term) {
+        String[] values = term.split(separator);
+        for (int i = Math.min(values.length, starts.length) - 1; i >= 0; i--) {
+            // only use exclusive comparison for the last value, all others are inclusive
+            if (starts[i] != null && !isStartValid(values[i], i))
+                return false;
+            
+            // only use exclusive comparison for the last value, all others are inclusive
+            if (ends[i] != null && !isEndValid(values[i], i, endInclusive[i]))
+                return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Find the lowest composite term after the given one whose components are all within their bounds. Out of range components are moved up to their start,
+     * carrying over into the previous component where it is of a discrete type.
+     * 
+     * @param fields
+     *            the component fields
+     * @param fieldToDiscreteIndexType
+     *            the discrete index types of the fields
+     * @param term
+     *            the composite term to seek past
+     * @return the next lower bound
+     */
+    String nextLowerBound(List<String> fields, Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexType, String term) {
+        DiscreteIndexType<?>[] types = getDiscreteIndexTypes(fields, fieldToDiscreteIndexType);
+        String[] values = term.split(separator);
+        String[] newValues = new String[fields.size()];
+        
+        boolean carryOver = false;
+        for (int i = fields.size() - 1; i >= 0; i--) {
+            if (i >= values.length) {
+                continue;
+            }
+            String value = values[i];
+            String start = (i < starts.length) ? starts[i] : null;
+            String end = (i < ends.length) ? ends[i] : null;
+            
+            // value precedes start value. need to seek forward, and a discrete value absorbs any previous carry over.
+            if (start != null && !isStartValid(value, i)) {
+                setToStart(newValues, i);
+                if (types[i] != null)
+                    carryOver = false;
+            }
+            // value exceeds end value. need to seek forward, and carry over. A discrete value which is carried into must also be below its end.
+            else if (end != null && !isEndValid(value, i, endInclusive[i] && !(carryOver && types[i] != null))) {
+                setToStart(newValues, i);
+                carryOver = true;
+            }
+            // value is in range. a discrete value which is carried into is incremented, finishing the carry over.
+            else if (carryOver && types[i] != null) {
+                newValues[i] = types[i].incrementIndex(value);
+                carryOver = false;
+            } else {
+                newValues[i] = value;
+            }
+        }
+        
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < newValues.length && newValues[i] != null; i++) {
+            if (i > 0)
+                builder.append(separator);
+            builder.append(newValues[i]);
+        }
+        return builder.toString();
+    }
+    
+    private void setToStart(String[] newValues, int i) {
+        newValues[i] = starts[i];
+        
+        // subsequent values set to start
+        for (int j = i + 1; j < startValues.length && j < newValues.length; j++)
+            newValues[j] = startValues[j];
+    }
+    
+    private DiscreteIndexType<?>[] getDiscreteIndexTypes(List<String> fields, Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexType) {
+        if (fieldToDiscreteIndexType != this.fieldToDiscreteIndexType || !fields.equals(this.fields)) {
+            DiscreteIndexType<?>[] types = new DiscreteIndexType<?>[fields.size()];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = fieldToDiscreteIndexType.get(fields.get(i));
+            }
+            this.fields = fields;
+            this.fieldToDiscreteIndexType = fieldToDiscreteIndexType;
+            this.discreteIndexTypes = types;
+        }
+        return discreteIndexTypes;
+    }
+    
+    private boolean isStartValid(String value, int i) {
+        if (startInclusive[i])
+            return value.compareTo(starts[i]) >= 0;
+        else
+            return value.compareTo(starts[i]) > 0;
+    }
+    
+    private boolean isEndValid(String value, int i, boolean isInclusive) {
+        if (isInclusive)
+            return value.compareTo(ends[i]) <= 0;
+        else
+            return value.compareTo(ends[i]) < 0;
+    }
+}
@@ -6,7 +6,6 @@ import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
 import org.apache.hadoop.io.Text;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +16,10 @@ import java.util.Map;
 public abstract class CompositeSeeker {
     protected Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexType;
     
+    // the seek plan of the last range seen. Every key of a scan is checked against the same range, so a plan is only built when it changes
+    private Range planRange;
+    private CompositeSeekPlan plan;
+    
     CompositeSeeker(Map<String,DiscreteIndexType<?>> fieldToDiscreteIndexType) {
         this.fieldToDiscreteIndexType = fieldToDiscreteIndexType;
     }
@@ -25,159 +28,31 @@ public abstract class CompositeSeeker {
     
     abstract public Key nextSeekKey(List<String> fields, Key currentKey, Range currentRange, String separator);
     
-    boolean isInRange(List<String> values, List<String> startValues, boolean isStartInclusive, List<String> endValues, boolean isEndInclusive) {
-        for (int i = values.size(); i >= 0; i--) {
-            String value = (i < values.size()) ? values.get(i) : null;
-            String start = (i < startValues.size()) ? startValues.get(i) : null;
-            String end = (i < endValues.size()) ? endValues.get(i) : null;
-            
-            boolean isStartValueInclusive = (i != startValues.size() - 1) || isStartInclusive;
-            boolean isEndValueInclusive = (i != endValues.size() - 1) || isEndInclusive;
-            
-            // if start and end are equal, and one side is exclusive while the other is inclusive, just mark both as inclusive for our purposes
-            if (start != null && end != null && isStartValueInclusive != isEndValueInclusive && start.equals(end)) {
-                isStartValueInclusive = true;
-                isEndValueInclusive = true;
-            }
-            
-            if (value != null) {
-                // only use exclusive comparison for the last value, all others are inclusive
-                if (start != null && !isStartValid(value, start, isStartValueInclusive))
-                    return false;
-                
-                // only use exclusive comparison for the last value, all others are inclusive
-                if (end != null && !isEndValid(value, end, isEndValueInclusive))
-                    return false;
-            }
-        }
-        return true;
-    }
-    
-    private boolean isStartValid(String startValue, String startBound, boolean isInclusive) {
-        if (isInclusive)
-            return startValue.compareTo(startBound) >= 0;
-        else
-            return startValue.compareTo(startBound) > 0;
-    }
-    
-    private boolean isEndValid(String endValue, String endBound, boolean isInclusive) {
-        if (isInclusive)
-            return endValue.compareTo(endBound) <= 0;
-        else
-            return endValue.compareTo(endBound) < 0;
-    }
+    /**
+     * Get the composite term of a key
+     * 
+     * @param key
+     *            a key of the scan
+     * @return the composite term
+     */
+    abstract String getCompositeTerm(Key key);
     
-    String nextLowerBound(List<String> fields, List<String> values, String separator, List<String> startValues, boolean isStartInclusive,
-                    List<String> endValues, boolean isEndInclusive) {
-        String[] newValues = new String[fields.size()];
-        
-        boolean carryOver = false;
-        for (int i = fields.size() - 1; i >= 0; i--) {
-            DiscreteIndexType discreteIndexType = fieldToDiscreteIndexType.get(fields.get(i));
-            String value = (i < values.size()) ? values.get(i) : null;
-            String start = (i < startValues.size()) ? startValues.get(i) : null;
-            String end = (i < endValues.size()) ? endValues.get(i) : null;
-            
-            boolean isStartValueInclusive = (i != startValues.size() - 1) || isStartInclusive;
-            boolean isEndValueInclusive = (i != endValues.size() - 1) || isEndInclusive;
-            
-            // if start and end are equal, and one side is exclusive while the other is inclusive, just mark both as inclusive for our purposes
-            if (start != null && end != null && isStartValueInclusive != isEndValueInclusive && start.equals(end)) {
-                isStartValueInclusive = true;
-                isEndValueInclusive = true;
-            }
-            
-            if (value != null) {
-                // if it's not fixed length, check to see if we are in range
-                if (discreteIndexType == null) {
-                    // value precedes start value. need to seek forward.
-                    if (start != null && !isStartValid(value, start, isStartValueInclusive)) {
-                        newValues[i] = start;
-                        
-                        // subsequent values set to start
-                        for (int j = i + 1; j < startValues.size(); j++)
-                            newValues[j] = startValues.get(j);
-                    }
-                    // value exceeds end value. need to seek forward, and carry over.
-                    else if (end != null && !isEndValid(value, end, isEndValueInclusive)) {
-                        newValues[i] = start;
-                        carryOver = true;
-                        
-                        // subsequent values set to start
-                        for (int j = i + 1; j < startValues.size(); j++)
-                            newValues[j] = startValues.get(j);
-                    }
-                    // value is in range.
-                    else {
-                        newValues[i] = values.get(i);
-                    }
-                }
-                // if it's fixed length, determine whether or not we need to increment
-                else {
-                    // carry over means we need to increase our value
-                    if (carryOver) {
-                        // value precedes start value. just seek forward and ignore previous carry over.
-                        if (start != null && !isStartValid(value, start, isStartValueInclusive)) {
-                            newValues[i] = start;
-                            carryOver = false;
-                            
-                            // subsequent values set to start
-                            for (int j = i + 1; j < startValues.size(); j++)
-                                newValues[j] = startValues.get(j);
-                        }
-                        // value is at or exceeds end value. need to seek forward, and maintain carry over.
-                        else if (end != null && !isEndValid(value, end, false)) {
-                            newValues[i] = start;
-                            carryOver = true;
-                            
-                            // subsequent values set to start
-                            for (int j = i + 1; j < startValues.size(); j++)
-                                newValues[j] = startValues.get(j);
-                        }
-                        // value is in range. just increment, and finish carry over
-                        else {
-                            newValues[i] = discreteIndexType.incrementIndex(values.get(i));
-                            carryOver = false;
-                        }
-                    } else {
-                        // value precedes start value. need to seek forward.
-                        if (start != null && !isStartValid(value, start, isStartValueInclusive)) {
-                            newValues[i] = start;
-                            
-                            // subsequent values set to start
-                            for (int j = i + 1; j < startValues.size(); j++)
-                                newValues[j] = startValues.get(j);
-                        }
-                        // value exceeds end value. need to seek forward, and carry over.
-                        else if (end != null && !isEndValid(value, end, isEndValueInclusive)) {
-                            newValues[i] = start;
-                            carryOver = true;
-                            
-                            // subsequent values set to start
-                            for (int j = i + 1; j < startValues.size(); j++)
-                                newValues[j] = startValues.get(j);
-                        }
-                        // value is in range.
-                        else {
-                            newValues[i] = values.get(i);
-                        }
-                    }
-                }
-            }
-        }
-        
-        StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < newValues.length; i++) {
-            if (newValues[i] != null)
-                if (i > 0)
-                    builder.append(separator).append(newValues[i]);
-                else
-                    builder.append(newValues[i]);
-            else
-                break;
+    /**
+     * Get the seek plan of the range, unless it is that of the last range seen
+     * 
+     * @param range
+     *            the current range
+     * @param separator
+     *            the composite separator
+     * @return the seek plan
+     */
+    CompositeSeekPlan getSeekPlan(Range range, String separator) {
+        if (range != planRange || !separator.equals(plan.getSeparator())) {
+            plan = new CompositeSeekPlan(getCompositeTerm(range.getStartKey()), range.isStartKeyInclusive(), getCompositeTerm(range.getEndKey()),
+                            range.isEndKeyInclusive(), separator);
+            planRange = range;
         }
-        
-        return builder.toString();
+        return plan;
     }
     
     public Map<String,DiscreteIndexType<?>> getFieldToDiscreteIndexType() {
@@ -201,12 +76,14 @@ public abstract class CompositeSeeker {
             return isKeyInRange(currentKey, currentRange, separator);
         }
         
+        @Override
+        String getCompositeTerm(Key key) {
+            return key.getRow().toString();
+        }
+        
         @Override
         public boolean isKeyInRange(Key currentKey, Range currentRange, String separator) {
-            List<String> values = Arrays.asList(currentKey.getRow().toString().split(separator));
-            List<String> startValues = Arrays.asList(currentRange.getStartKey().getRow().toString().split(separator));
-            List<String> endValues = Arrays.asList(currentRange.getEndKey().getRow().toString().split(separator));
-            return isInRange(values, startValues, currentRange.isStartKeyInclusive(), endValues, currentRange.isEndKeyInclusive());
+            return getSeekPlan(currentRange, separator).isInRange(getCompositeTerm(currentKey));
         }
         
         public Key nextSeekKey(Key currentKey, Range currentRange) {
@@ -216,14 +93,8 @@ public abstract class CompositeSeeker {
         @Override
         public Key nextSeekKey(List<String> fields, Key currentKey, Range currentRange, String separator) {
             Key startKey = currentRange.getStartKey();
-            Key endKey = currentRange.getEndKey();
-            
-            List<String> values = Arrays.asList(currentKey.getRow().toString().split(separator));
-            List<String> startValues = Arrays.asList(startKey.getRow().toString().split(separator));
-            List<String> endValues = Arrays.asList(endKey.getRow().toString().split(separator));
             
-            String nextLowerBound = nextLowerBound(fields, values, separator, startValues, currentRange.isStartKeyInclusive(), endValues,
-                            currentRange.isEndKeyInclusive());
+            String nextLowerBound = getSeekPlan(currentRange, separator).nextLowerBound(fields, fieldToDiscreteIndexType, getCompositeTerm(currentKey));
             
             Key newStartKey = new Key(new Text(nextLowerBound), startKey.getColumnFamily(), startKey.getColumnQualifier(), startKey.getColumnVisibility(), 0L);
             
@@ -243,12 +114,14 @@ public abstract class CompositeSeeker {
             super(CompositeUtils.getFieldToDiscreteIndexTypeMap(fieldDatatypes));
         }
         
+        @Override
+        String getCompositeTerm(Key key) {
+            return key.getColumnQualifier().toString().split("\0")[0];
+        }
+        
         @Override
         public boolean isKeyInRange(Key currentKey, Range currentRange, String separator) {
-            List<String> values = Arrays.asList(currentKey.getColumnQualifier().toString().split("\0")[0].split(separator));
-            List<String> startValues = Arrays.asList(currentRange.getStartKey().getColumnQualifier().toString().split("\0")[0].split(separator));
-            List<String> endValues = Arrays.asList(currentRange.getEndKey().getColumnQualifier().toString().split("\0")[0].split(separator));
-            return isInRange(values, startValues, currentRange.isStartKeyInclusive(), endValues, currentRange.isEndKeyInclusive());
+            return getSeekPlan(currentRange, separator).isInRange(getCompositeTerm(currentKey));
         }
         
         @Override
@@ -256,20 +129,10 @@ public abstract class CompositeSeeker {
             Key startKey = currentRange.getStartKey();
             Key endKey = currentRange.getEndKey();
             
-            String currentValue = currentKey.getColumnQualifier().toString().split("\0")[0];
-            
-            String startColQual = startKey.getColumnQualifier().toString();
-            String lowerBound = startColQual.split("\0")[0];
-            
-            String endColQual = endKey.getColumnQualifier().toString();
-            String upperBound = endColQual.split("\0")[0];
-            
-            List<String> values = Arrays.asList(currentValue.split(separator));
-            List<String> startValues = Arrays.asList(lowerBound.split(separator));
-            List<String> endValues = Arrays.asList(upperBound.split(separator));
+            String currentValue = getCompositeTerm(currentKey);
+            String upperBound = getCompositeTerm(endKey);
             
-            String nextLowerBound = nextLowerBound(fields, values, separator, startValues, currentRange.isStartKeyInclusive(), endValues,
-                            currentRange.isEndKeyInclusive());
+            String nextLowerBound = getSeekPlan(currentRange, separator).nextLowerBound(fields, fieldToDiscreteIndexType, currentValue);
             
             // build a new range only if the new lower bound exceeds the current value without exceeding the upper bound of the range
             if (nextLowerBound.compareTo(currentValue) > 0 && nextLowerBound.compareTo(upperBound) <= 0) {
@@ -19,6 +19,7 @@ import datawave.query.function.DocumentPermutation;
 import datawave.query.iterator.QueryIterator;
 import datawave.query.jexl.JexlASTHelper;
 import datawave.query.model.QueryModel;
+import datawave.query.planner.pushdown.PlanCostReport;
 import datawave.query.tables.ShardQueryLogic;
 import datawave.query.tld.TLDQueryIterator;
 import datawave.query.util.QueryStopwatch;
@@ -125,6 +126,11 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * Used to determine the poll interval when buffering ranges in ThreadedRangeBundler
      */
     private long rangeBufferPollMillis = 100;
+    /**
+     * Used to bound how many days of ranges the ThreadedRangeBundler may pull from the global index ahead of the day being handed to the scanners. 0 leaves
+     * the lookahead bounded by the range queue alone.
+     */
+    private int rangeLookaheadDays = 0;
     /**
      * Used to determine the maximum number of query ranges to generate per tier when performing a geowave query against a GeometryType field.
      */
@@ -217,6 +223,21 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
     private boolean rawTypes = false;
     // Used to choose how "selective" a term is (indexStats)
     private double minSelectivity = -1.0;
+    // Used to reorder intersections and delay expensive terms using estimated term cardinalities
+    private boolean costBasedPlanning = false;
+    // A term in an intersection costing more than this multiple of the cheapest term is evaluated instead of looked up in the index
+    private double costEvaluationRatio = 100.0;
+    // The estimated and actual costs of the terms in the plan, populated when costBasedPlanning is enabled
+    private transient PlanCostReport planCostReport = null;
+    // Used to raise the value and unfielded expansion thresholds using the distinct values estimated from the index stats sketches
+    private boolean cardinalitySketches = false;
+    private String indexStatsSketchTableName = TableName.INDEX_STATS_SKETCH;
+    // The expansion thresholds are never raised above this number of distinct values
+    private int sketchExpansionCeiling = 20000;
+    // The number of document hashes held in memory when deduping results, beyond which they are spilled to disk
+    private int dedupeMaxInMemory = 1000000;
+    // The directory dedupe hashes are spilled to, or null for the default temporary directory
+    private String dedupeSpillDirectory = null;
     // Used to add the event datatype to the event as an event field.
     private boolean includeDataTypeAsField = false;
     // Used to add the event RECORD_ID to the event as an event field
@@ -310,6 +331,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
      * should the sizes of documents be tracked for this query
      */
     private boolean trackSizes = true;
+    /**
+     * the number of child ranges a top level document is read in concurrently, 1 to read it sequentially
+     */
+    private int tldAssemblyPartitions = 1;
+    /**
+     * the maximum number of children fetched for a top level document when the field index satisfies the query, -1 for all
+     */
+    private int tldAssemblyMaxChildren = -1;
     
     private List<String> contentFieldNames = Collections.emptyList();
     
@@ -362,6 +391,7 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setNumRangesToBuffer(other.getNumRangesToBuffer());
         this.setRangeBufferTimeoutMillis(other.getRangeBufferTimeoutMillis());
         this.setRangeBufferPollMillis(other.getRangeBufferPollMillis());
+        this.setRangeLookaheadDays(other.getRangeLookaheadDays());
         this.setGeometryMaxExpansion(other.getGeometryMaxExpansion());
         this.setPointMaxExpansion(other.getPointMaxExpansion());
         this.setGeoWaveMaxEnvelopes(other.getGeoWaveMaxEnvelopes());
@@ -419,6 +449,13 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setFailOutsideValidDateRange(other.isFailOutsideValidDateRange());
         this.setRawTypes(other.isRawTypes());
         this.setMinSelectivity(other.getMinSelectivity());
+        this.setCostBasedPlanning(other.isCostBasedPlanning());
+        this.setCostEvaluationRatio(other.getCostEvaluationRatio());
+        this.setCardinalitySketches(other.isCardinalitySketches());
+        this.setIndexStatsSketchTableName(other.getIndexStatsSketchTableName());
+        this.setSketchExpansionCeiling(other.getSketchExpansionCeiling());
+        this.setDedupeMaxInMemory(other.getDedupeMaxInMemory());
+        this.setDedupeSpillDirectory(other.getDedupeSpillDirectory());
         this.setIncludeDataTypeAsField(other.getIncludeDataTypeAsField());
         this.setIncludeRecordId(other.getIncludeRecordId());
         this.setIncludeHierarchyFields(other.getIncludeHierarchyFields());
@@ -480,6 +517,8 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.setUniqueFields(null == other.getUniqueFields() ? null : Sets.newHashSet(other.getUniqueFields()));
         this.setCacheModel(other.getCacheModel());
         this.setTrackSizes(other.isTrackSizes());
+        this.setTldAssemblyPartitions(other.getTldAssemblyPartitions());
+        this.setTldAssemblyMaxChildren(other.getTldAssemblyMaxChildren());
         this.setContentFieldNames(null == other.getContentFieldNames() ? null : Lists.newArrayList(other.getContentFieldNames()));
         this.setEvaluationOnlyFields(other.getEvaluationOnlyFields());
     }
@@ -824,6 +863,14 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.rangeBufferPollMillis = rangeBufferPollMillis;
     }
     
+    public int getRangeLookaheadDays() {
+        return rangeLookaheadDays;
+    }
+    
+    public void setRangeLookaheadDays(int rangeLookaheadDays) {
+        this.rangeLookaheadDays = rangeLookaheadDays;
+    }
+    
     public int getGeometryMaxExpansion() {
         return geometryMaxExpansion;
     }
@@ -1491,6 +1538,70 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.minSelectivity = minSelectivity;
     }
     
+    public boolean isCostBasedPlanning() {
+        return costBasedPlanning;
+    }
+    
+    public void setCostBasedPlanning(boolean costBasedPlanning) {
+        this.costBasedPlanning = costBasedPlanning;
+    }
+    
+    public double getCostEvaluationRatio() {
+        return costEvaluationRatio;
+    }
+    
+    public void setCostEvaluationRatio(double costEvaluationRatio) {
+        this.costEvaluationRatio = costEvaluationRatio;
+    }
+    
+    public PlanCostReport getPlanCostReport() {
+        return planCostReport;
+    }
+    
+    public void setPlanCostReport(PlanCostReport planCostReport) {
+        this.planCostReport = planCostReport;
+    }
+    
+    public boolean isCardinalitySketches() {
+        return cardinalitySketches;
+    }
+    
+    public void setCardinalitySketches(boolean cardinalitySketches) {
+        this.cardinalitySketches = cardinalitySketches;
+    }
+    
+    public String getIndexStatsSketchTableName() {
+        return indexStatsSketchTableName;
+    }
+    
+    public void setIndexStatsSketchTableName(String indexStatsSketchTableName) {
+        this.indexStatsSketchTableName = indexStatsSketchTableName;
+    }
+    
+    public int getSketchExpansionCeiling() {
+        return sketchExpansionCeiling;
+    }
+    
+    public void setSketchExpansionCeiling(int sketchExpansionCeiling) {
+        this.sketchExpansionCeiling = sketchExpansionCeiling;
+    }
+    
+    public int getDedupeMaxInMemory() {
+        return dedupeMaxInMemory;
+    }
+    
+    public void setDedupeMaxInMemory(int dedupeMaxInMemory) {
+        this.dedupeMaxInMemory = dedupeMaxInMemory;
+    }
+    
+    public String getDedupeSpillDirectory() {
+        return dedupeSpillDirectory;
+    }
+    
+    public void setDedupeSpillDirectory(String dedupeSpillDirectory) {
+        this.dedupeSpillDirectory = dedupeSpillDirectory;
+    }
+    
     /**
      * Checks for non-null, sane values for the configured values
      *
@@ -1981,6 +2092,22 @@ public class ShardQueryConfiguration extends GenericQueryConfiguration implement
         this.trackSizes = trackSizes;
     }
     
+    public int getTldAssemblyPartitions() {
+        return tldAssemblyPartitions;
+    }
+    
+    public void setTldAssemblyPartitions(int tldAssemblyPartitions) {
+        this.tldAssemblyPartitions = tldAssemblyPartitions;
+    }
+    
+    public int getTldAssemblyMaxChildren() {
+        return tldAssemblyMaxChildren;
+    }
+    
+    public void setTldAssemblyMaxChildren(int tldAssemblyMaxChildren) {
+        this.tldAssemblyMaxChildren = tldAssemblyMaxChildren;
+    }
+    
     public List<String> getContentFieldNames() {
         return contentFieldNames;
     }
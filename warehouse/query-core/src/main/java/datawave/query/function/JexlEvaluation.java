@@ -3,10 +3,10 @@ package datawave.query.function;
 import datawave.query.attributes.Attributes;
 import datawave.query.jexl.ArithmeticJexlEngines;
 import datawave.query.jexl.DefaultArithmetic;
+import datawave.query.jexl.JexlEvaluationPlan;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.security.ColumnVisibility;
 import org.apache.commons.jexl2.JexlArithmetic;
-import org.apache.commons.jexl2.Script;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 import org.apache.log4j.Logger;
 
@@ -27,9 +27,9 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     private DatawaveJexlEngine engine;
     
     /**
-     * Compiled jexl script
+     * Precompiled evaluation plan for the jexl script
      */
-    protected Script script;
+    protected JexlEvaluationPlan plan;
     
     public JexlEvaluation(String query) {
         this(query, new DefaultArithmetic());
@@ -42,8 +42,23 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         // Get a JexlEngine initialized with the correct JexlArithmetic for this Document
         this.engine = ArithmeticJexlEngines.getEngine(arithmetic);
         
-        // Evaluate the JexlContext against the Script
-        this.script = this.engine.createScript(query);
+        // Compile the script once so that every evaluated Document reuses it
+        this.plan = JexlEvaluationPlan.compile(this.engine, query);
+    }
+    
+    /**
+     * Create an evaluation from a plan that has already been compiled, allowing the plan to be shared by every evaluation of the same query
+     * 
+     * @param plan
+     *            the precompiled evaluation plan
+     * @param arithmetic
+     *            the arithmetic for this evaluation
+     */
+    public JexlEvaluation(JexlEvaluationPlan plan, JexlArithmetic arithmetic) {
+        this.query = plan.getQuery();
+        this.arithmetic = arithmetic;
+        this.engine = ArithmeticJexlEngines.getEngine(arithmetic);
+        this.plan = plan;
     }
     
     public JexlArithmetic getArithmetic() {
@@ -54,6 +69,10 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
         return engine;
     }
     
+    public JexlEvaluationPlan getPlan() {
+        return plan;
+    }
+    
     public ASTJexlScript parse(CharSequence expression) {
         return engine.parse(expression);
     }
@@ -65,7 +84,7 @@ public class JexlEvaluation implements Predicate<Tuple3<Key,Document,DatawaveJex
     @Override
     public boolean apply(Tuple3<Key,Document,DatawaveJexlContext> input) {
         
-        Object o = script.execute(input.third());
+        Object o = engine.evaluate(plan, input.third());
         
         if (log.isTraceEnabled()) {
             log.trace("Evaluation of " + query + " against " + input.third() + " returned " + o);
@@ -58,7 +58,7 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
     
     protected Equality equality;
     
-    private EventDataQueryFilter filter;
+    protected EventDataQueryFilter filter;
     
     private boolean includeParent = false;
     
@@ -176,6 +176,23 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
      */
     private static List<Entry<Key,Value>> collectAttributesForDocumentKey(Key documentStartKey, SortedKeyValueIterator<Key,Value> source, Equality equality,
                     EventDataQueryFilter filter, Set<Key> docKeys, Range keyRange) throws IOException {
+        return collectAttributesForDocumentKey(documentStartKey, source, equality, filter, docKeys, keyRange, -1);
+    }
+    
+    /**
+     * Collect the attributes of a document, stopping once the attributes of maxChildren descendant documents (those with a column family other than that of
+     * the documentStartKey) have been read.
+     * 
+     * @param documentStartKey
+     *            A Key of the form "bucket type\x00uid: "
+     * @param keyRange
+     *            the Range used to initialize source with seek()
+     * @param maxChildren
+     *            the maximum number of descendant documents to read, or -1 for no limit
+     * @return the attributes
+     */
+    protected static List<Entry<Key,Value>> collectAttributesForDocumentKey(Key documentStartKey, SortedKeyValueIterator<Key,Value> source,
+                    Equality equality, EventDataQueryFilter filter, Set<Key> docKeys, Range keyRange, int maxChildren) throws IOException {
         
         // setup the document key we are filtering for on the EventDataQueryFilter
         if (filter != null) {
@@ -189,7 +206,21 @@ public class KeyToDocumentData implements Function<Entry<Key,Document>,Entry<Doc
             documentAttributes = new ArrayList<>(256);
             WeakReference<Key> docAttrKey = new WeakReference<>(source.getTopKey());
             
+            ByteSequence documentCf = documentStartKey.getColumnFamilyData();
+            ByteSequence lastChildCf = null;
+            int children = 0;
+            
             while (docAttrKey != null) {
+                if (maxChildren >= 0) {
+                    ByteSequence cf = docAttrKey.get().getColumnFamilyData();
+                    if (!cf.equals(documentCf) && !cf.equals(lastChildCf)) {
+                        if (++children > maxChildren) {
+                            break;
+                        }
+                        lastChildCf = cf;
+                    }
+                }
+                
                 boolean seeked = false;
                 if (equality.partOf(documentStartKey, docAttrKey.get())) {
                     if (filter == null || filter.keep(docAttrKey.get())) {
@@ -10,6 +10,7 @@ import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import datawave.ingest.protobuf.Uid;
+import datawave.ingest.protobuf.UidSet;
 import datawave.query.tld.TLD;
 import datawave.query.util.Tuple3;
 import datawave.query.util.Tuples;
@@ -38,7 +39,7 @@ import com.google.common.collect.Lists;
  * EXAMPLE: For a term that hits in specific documents (doc1,doc2)
  * 
  * This example table has data for a single day across two shards. Datatypes are A, B, C. Documents are doc1-4.
- * Note: The Value is a Protobuf {@link Uid.List}.
+ * Note: The Value is a Protobuf {@link Uid.List}, whose UIDs may be in the compressed {@link UidSet} rather than the UID list.
  * 
  * K:(ROW, COLUMN_FAMILY, SHARD_0\u0000A) V:doc1
  * K:(ROW, COLUMN_FAMILY, SHARD_0\u0000A) V:doc2
@@ -206,9 +207,8 @@ public class CreateUidsIterator implements SortedKeyValueIterator<Key,Value>, Op
     public static Tuple3<Long,Boolean,List<String>> parseUids(Key k, Value v) throws IOException {
         final String dataType = parseDataType(k);
         Uid.List docIds = Uid.List.parseFrom(v.get());
-        final boolean ignore = docIds.getIGNORE();
-        List<String> uids = ignore || docIds.getUIDList() == null ? Collections.emptyList() : Lists.transform(docIds.getUIDList(),
-                        s -> dataType + "\u0000" + s.trim());
+        final boolean ignore = !UidSet.hasUids(docIds);
+        List<String> uids = ignore ? Collections.emptyList() : Lists.transform(UidSet.getUids(docIds), s -> dataType + "\u0000" + s.trim());
         return Tuples.tuple(docIds.getCOUNT(), ignore, uids);
     }
     
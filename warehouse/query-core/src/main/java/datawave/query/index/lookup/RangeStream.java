@@ -27,6 +27,7 @@ import datawave.query.jexl.visitors.EvaluationRendering;
 import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
 import datawave.query.jexl.visitors.TreeFlatteningRebuildingVisitor;
 import datawave.query.planner.QueryPlan;
+import datawave.query.planner.pushdown.PlanCostReport;
 import datawave.query.tables.RangeStreamScanner;
 import datawave.query.tables.ScannerFactory;
 import datawave.query.tables.SessionOptions;
@@ -488,6 +489,16 @@ public class RangeStream extends BaseVisitor implements CloseableIterable<QueryP
                 itr = Iterators.transform(scanner.iterator(), new EntryParser(node, fieldName, literal, indexOnlyFields));
             }
             
+            // record the index entries read for the term against its estimated cost
+            final PlanCostReport planCostReport = config.getPlanCostReport();
+            if (planCostReport != null) {
+                final String term = PlanCostReport.termKey(fieldName, literal);
+                itr = Iterators.transform(itr, entry -> {
+                    planCostReport.recordActual(term, entry.second().count());
+                    return entry;
+                });
+            }
+            
             /*
              * Create a scanner in the initialized state so that we can scan immediately
              */
@@ -0,0 +1,130 @@
+package datawave.query.index.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.clearspring.analytics.stream.cardinality.CardinalityMergeException;
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+
+/**
+ * The number of values of a field name/datatype pair for a day, along with a {@link HyperLogLogPlus} sketch of the distinct values. Unlike the counts in the
+ * index stats table, sketches can be merged, so the distinct values of a field over any range of dates and datatypes can be estimated from them. They are
+ * written by the shard stats job to the index stats sketch table, with the field name as the row, the date (yyyyMMdd) as the column family and the datatype
+ * as the column qualifier.
+ */
+public class FieldSketch implements Writable {
+    
+    private long count;
+    private HyperLogLogPlus sketch;
+    
+    // required for deserialization
+    public FieldSketch() {}
+    
+    public FieldSketch(long count, HyperLogLogPlus sketch) {
+        this.count = count;
+        this.sketch = sketch;
+    }
+    
+    public static FieldSketch fromValue(Value value) throws IOException {
+        FieldSketch fieldSketch = new FieldSketch();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value.get()))) {
+            fieldSketch.readFields(in);
+        }
+        return fieldSketch;
+    }
+    
+    /**
+     * Read only the number of values of a serialized sketch, without building the sketch itself
+     * 
+     * @param value
+     *            the serialized sketch
+     * @return the total number of values
+     * @throws IOException
+     *             if the value cannot be read
+     */
+    public static long getCount(Value value) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(value.get()))) {
+            return WritableUtils.readVLong(in);
+        }
+    }
+    
+    /**
+     * @return the total number of values
+     */
+    public long getCount() {
+        return count;
+    }
+    
+    /**
+     * @return the estimated number of distinct values, which is never more than the total number of values
+     */
+    public long getCardinality() {
+        return Math.min(sketch.cardinality(), count);
+    }
+    
+    public HyperLogLogPlus getSketch() {
+        return sketch;
+    }
+    
+    /**
+     * Merge another sketch into this one. The sketches must have been built with the same precision.
+     * 
+     * @param other
+     *            the sketch to merge
+     * @throws IOException
+     *             if the sketches cannot be merged
+     */
+    public void merge(FieldSketch other) throws IOException {
+        try {
+            sketch.addAll(other.sketch);
+        } catch (CardinalityMergeException e) {
+            throw new IOException(e);
+        }
+        count += other.count;
+    }
+    
+    /**
+     * @return a copy of this sketch, which can be merged into without changing this one
+     */
+    public FieldSketch copy() throws IOException {
+        return new FieldSketch(count, HyperLogLogPlus.Builder.build(sketch.getBytes()));
+    }
+    
+    public Value toValue() throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(baos)) {
+            write(out);
+        }
+        return new Value(baos.toByteArray());
+    }
+    
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVLong(out, count);
+        byte[] bytes = sketch.getBytes();
+        WritableUtils.writeVInt(out, bytes.length);
+        out.write(bytes);
+    }
+    
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        count = WritableUtils.readVLong(in);
+        byte[] bytes = new byte[WritableUtils.readVInt(in)];
+        in.readFully(bytes);
+        sketch = HyperLogLogPlus.Builder.build(bytes);
+    }
+    
+    @Override
+    public String toString() {
+        return "FieldSketch{count=" + count + ", cardinality=" + getCardinality() + "}";
+    }
+}
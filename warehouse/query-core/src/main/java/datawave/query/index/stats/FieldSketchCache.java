@@ -0,0 +1,263 @@
+package datawave.query.index.stats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import datawave.security.util.ScannerHelper;
+
+import org.apache.accumulo.core.client.BatchScanner;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.TableNotFoundException;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.PartialKey;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.FirstEntryInRowIterator;
+import org.apache.accumulo.core.security.Authorizations;
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Answers "how many values, and how many distinct values, does field F have over dates D" at planning time from the sketches in the index stats sketch
+ * table. The sketches of a field over a range of dates are read once and held in memory, shared by every query with the same table, authorizations and
+ * dates, so that an estimate is a merge of in-memory sketches rather than a scan of the global index. Only the dates asked for are read, and the cache is
+ * bounded by the number of sketches it holds rather than by the number of fields.
+ */
+public class FieldSketchCache {
+    
+    private static final Logger log = Logger.getLogger(FieldSketchCache.class);
+    
+    // a dense sketch is around 12KB, so this bounds the cache to a few hundred MB
+    private static final int MAX_SKETCHES = 20000;
+    private static final long EXPIRATION_MINUTES = 60;
+    private static final int MAX_QUERY_THREADS = 8;
+    
+    /**
+     * The sketches of a field, by date then datatype, keyed by table, authorizations, field and date range
+     */
+    private static final Cache<String,NavigableMap<String,Map<String,FieldSketch>>> sketches = newCache(Ticker.systemTicker());
+    
+    private final Cache<String,NavigableMap<String,Map<String,FieldSketch>>> cache;
+    private final Connector connector;
+    private final String table;
+    private final Set<Authorizations> auths;
+    private final String cacheKeyPrefix;
+    
+    public FieldSketchCache(Connector connector, String table, Set<Authorizations> auths) {
+        this(sketches, connector, table, auths);
+    }
+    
+    FieldSketchCache(Cache<String,NavigableMap<String,Map<String,FieldSketch>>> cache, Connector connector, String table, Set<Authorizations> auths) {
+        this.cache = cache;
+        this.connector = connector;
+        this.table = table;
+        this.auths = auths;
+        this.cacheKeyPrefix = table + '\0' + authsKey(auths) + '\0';
+    }
+    
+    static Cache<String,NavigableMap<String,Map<String,FieldSketch>>> newCache(Ticker ticker) {
+        // the weight is split between the segments, so few segments leave room for fields with sketches over long date ranges
+        return CacheBuilder.newBuilder().maximumWeight(MAX_SKETCHES).weigher(FieldSketchCache::weigh).concurrencyLevel(4)
+                        .expireAfterWrite(EXPIRATION_MINUTES, TimeUnit.MINUTES).ticker(ticker).build();
+    }
+    
+    private static int weigh(String key, NavigableMap<String,Map<String,FieldSketch>> byDate) {
+        int weight = 1;
+        for (Map<String,FieldSketch> byDatatype : byDate.values()) {
+            weight += byDatatype.size();
+        }
+        return weight;
+    }
+    
+    /**
+     * The authorizations in a canonical form, so that the same authorizations given in a different order share cached sketches
+     * 
+     * @param auths
+     *            the sets of authorizations
+     * @return the sorted authorizations of each set, with the sets sorted
+     */
+    static String authsKey(Collection<Authorizations> auths) {
+        Set<String> sets = new TreeSet<>();
+        for (Authorizations authorizations : auths) {
+            Set<String> sorted = new TreeSet<>();
+            for (byte[] auth : authorizations.getAuthorizations()) {
+                sorted.add(new String(auth, StandardCharsets.UTF_8));
+            }
+            sets.add(Joiner.on(',').join(sorted));
+        }
+        return Joiner.on('|').join(sets);
+    }
+    
+    /**
+     * Estimate the values of a field over a range of dates
+     * 
+     * @param field
+     *            the field name
+     * @param beginDate
+     *            the first date (yyyyMMdd), inclusive
+     * @param endDate
+     *            the last date (yyyyMMdd), inclusive
+     * @param datatypes
+     *            the datatypes to include, or an empty collection for all of them
+     * @return the merged sketch, or null if there are no sketches for the field in the date range
+     * @throws IOException
+     *             if the sketches cannot be read or merged
+     */
+    public FieldSketch estimate(String field, String beginDate, String endDate, Collection<String> datatypes) throws IOException {
+        NavigableMap<String,Map<String,FieldSketch>> byDate;
+        try {
+            byDate = cache.get(cacheKey(field, beginDate, endDate), () -> load(field, beginDate, endDate));
+        } catch (ExecutionException e) {
+            throw new IOException("Unable to load sketches for " + field, e.getCause());
+        }
+        
+        FieldSketch merged = null;
+        for (Map<String,FieldSketch> byDatatype : byDate.values()) {
+            for (Map.Entry<String,FieldSketch> entry : byDatatype.entrySet()) {
+                if (datatypes == null || datatypes.isEmpty() || datatypes.contains(entry.getKey())) {
+                    if (merged == null) {
+                        merged = entry.getValue().copy();
+                    } else {
+                        merged.merge(entry.getValue());
+                    }
+                }
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Count the fields which have any values over a range of dates, with a single scan for the fields whose sketches are not cached. Only the first sketch of
+     * each field is read when all datatypes are included.
+     * 
+     * @param fields
+     *            the field names
+     * @param beginDate
+     *            the first date (yyyyMMdd), inclusive
+     * @param endDate
+     *            the last date (yyyyMMdd), inclusive
+     * @param datatypes
+     *            the datatypes to include, or an empty collection for all of them
+     * @param limit
+     *            the count at which to stop counting
+     * @return the number of fields with values, up to the limit
+     * @throws TableNotFoundException
+     *             if the sketch table does not exist
+     * @throws IOException
+     *             if the sketches cannot be read
+     */
+    public int countPopulatedFields(Collection<String> fields, String beginDate, String endDate, Collection<String> datatypes, int limit)
+                    throws TableNotFoundException, IOException {
+        boolean allDatatypes = datatypes == null || datatypes.isEmpty();
+        int populated = 0;
+        List<Range> ranges = new ArrayList<>();
+        for (String field : fields) {
+            NavigableMap<String,Map<String,FieldSketch>> byDate = cache.getIfPresent(cacheKey(field, beginDate, endDate));
+            if (byDate == null) {
+                ranges.add(dateRange(field, beginDate, endDate));
+            } else if (isPopulated(byDate, datatypes)) {
+                populated++;
+            }
+        }
+        if (populated >= limit || ranges.isEmpty()) {
+            return Math.min(populated, limit);
+        }
+        
+        Set<String> counted = new HashSet<>();
+        BatchScanner scanner = ScannerHelper.createBatchScanner(connector, table, auths, Math.min(ranges.size(), MAX_QUERY_THREADS));
+        try {
+            scanner.setRanges(ranges);
+            if (allDatatypes) {
+                scanner.addScanIterator(new IteratorSetting(100, FirstEntryInRowIterator.class));
+            }
+            for (Map.Entry<Key,Value> entry : scanner) {
+                String field = entry.getKey().getRow().toString();
+                if (counted.contains(field) || !(allDatatypes || datatypes.contains(entry.getKey().getColumnQualifier().toString()))) {
+                    continue;
+                }
+                if (FieldSketch.getCount(entry.getValue()) > 0) {
+                    counted.add(field);
+                    if (++populated >= limit) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            scanner.close();
+        }
+        return populated;
+    }
+    
+    private static boolean isPopulated(NavigableMap<String,Map<String,FieldSketch>> byDate, Collection<String> datatypes) {
+        for (Map<String,FieldSketch> byDatatype : byDate.values()) {
+            for (Map.Entry<String,FieldSketch> entry : byDatatype.entrySet()) {
+                if ((datatypes == null || datatypes.isEmpty() || datatypes.contains(entry.getKey())) && entry.getValue().getCount() > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private String cacheKey(String field, String beginDate, String endDate) {
+        return cacheKeyPrefix + field + '\0' + beginDate + '\0' + endDate;
+    }
+    
+    /**
+     * @return the sketches of a field with dates from beginDate to endDate inclusive
+     */
+    private static Range dateRange(String field, String beginDate, String endDate) {
+        return new Range(new Key(field, beginDate), true, new Key(field, endDate).followingKey(PartialKey.ROW_COLFAM), false);
+    }
+    
+    private NavigableMap<String,Map<String,FieldSketch>> load(String field, String beginDate, String endDate) throws TableNotFoundException, IOException {
+        NavigableMap<String,Map<String,FieldSketch>> byDate = new TreeMap<>();
+        Scanner scanner = ScannerHelper.createScanner(connector, table, auths);
+        scanner.setRange(dateRange(field, beginDate, endDate));
+        int loaded = 0;
+        for (Map.Entry<Key,Value> entry : scanner) {
+            String date = entry.getKey().getColumnFamily().toString();
+            String datatype = entry.getKey().getColumnQualifier().toString();
+            FieldSketch sketch = FieldSketch.fromValue(entry.getValue());
+            Map<String,FieldSketch> byDatatype = byDate.computeIfAbsent(date, d -> new HashMap<>());
+            FieldSketch existing = byDatatype.get(datatype);
+            // entries with different visibilities are merged
+            if (existing == null) {
+                byDatatype.put(datatype, sketch);
+            } else {
+                existing.merge(sketch);
+            }
+            loaded++;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + loaded + " sketches for " + field + " over " + beginDate + " to " + endDate + " from " + table);
+        }
+        return byDate.isEmpty() ? Collections.emptyNavigableMap() : byDate;
+    }
+    
+    /**
+     * Drop all cached sketches, e.g. after the shard stats job has run
+     */
+    public static void clear() {
+        sketches.invalidateAll();
+    }
+}
@@ -52,6 +52,8 @@ import datawave.query.iterator.profile.SourceTrackingIterator;
 import datawave.query.jexl.DatawaveJexlContext;
 import datawave.query.jexl.DefaultArithmetic;
 import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.JexlEvaluationPlan;
+import datawave.query.jexl.JexlPatternCache;
 import datawave.query.jexl.StatefulArithmetic;
 import datawave.query.jexl.functions.IdentityAggregator;
 import datawave.query.jexl.functions.KeyAdjudicator;
@@ -171,6 +173,8 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
     
     protected JexlEvaluation myEvaluationFunction = null;
     
+    protected JexlEvaluationPlan evaluationPlan = null;
+    
     protected QuerySpan trackingSpan = null;
     
     protected QuerySpanCollector querySpanCollector = new QuerySpanCollector();
@@ -196,6 +200,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         this.seekKeySource = other.seekKeySource;
         this.myEnvironment = other.myEnvironment;
         this.myEvaluationFunction = other.myEvaluationFunction;
+        this.evaluationPlan = other.evaluationPlan;
         this.script = other.script;
         this.documentOptions = other.documentOptions;
         this.fieldIndexSatisfiesQuery = other.fieldIndexSatisfiesQuery;
@@ -233,12 +238,19 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         // Parse the query
         try {
             this.script = JexlASTHelper.parseJexlQuery(this.getQuery());
-            this.myEvaluationFunction = new JexlEvaluation(this.getQuery(), arithmetic);
+            // the evaluation plan is immutable, so it is shared with the other scan sessions of the query on this tserver
+            this.evaluationPlan = QueryStateCache.getInstance(env).get(QueryStateCache.State.EVALUATION_PLAN, this.getQuery(), JexlEvaluationPlan::compile);
+            this.myEvaluationFunction = new JexlEvaluation(this.evaluationPlan, arithmetic);
+            JexlPatternCache.startReporting(env);
             
         } catch (Exception e) {
             throw new IOException("Could not parse the JEXL query: '" + this.getQuery() + "'", e);
         }
         
+        if (log.isDebugEnabled()) {
+            log.debug(QueryStateCache.getInstance(env));
+        }
+        
         this.documentOptions = options;
         this.myEnvironment = env;
         
@@ -776,8 +788,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 }
             };
         } else {
-            docMapper = new KeyToDocumentData(deepSourceCopy, myEnvironment, documentOptions, super.equality, getEvaluationFilter(),
-                            this.includeHierarchyFields, this.includeHierarchyFields);
+            docMapper = createKeyToDocumentData(deepSourceCopy, false);
         }
         
         Iterator<Entry<DocumentData,Document>> sourceIterator = Iterators.transform(documentSpecificSource, from -> {
@@ -925,7 +936,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
                 
                 variables = VariableNameVisitor.parseQuery(jexlEvaluationFunction.parse(documentSource.getQuery()));
             } else {
-                variables = VariableNameVisitor.parseQuery(jexlEvaluationFunction.parse(query));
+                variables = VariableNameVisitor.parseQuery(getEvaluationPlan().getScript());
             }
             
             final Iterator<Tuple2<Key,Document>> tupleItr = Iterators.transform(documents, new EntryToTuple<>());
@@ -976,21 +987,34 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
     protected JexlEvaluation getJexlEvaluation(NestedQueryIterator<Key> documentSource) {
         
         if (null == documentSource) {
-            return new JexlEvaluation(query, getArithmetic());
+            return new JexlEvaluation(getEvaluationPlan(), getArithmetic());
         }
         JexlEvaluation jexlEvaluationFunction = null;
         NestedQuery<Key> nestedQuery = documentSource.getNestedQuery();
         if (null == nestedQuery) {
-            jexlEvaluationFunction = new JexlEvaluation(query, getArithmetic());
+            jexlEvaluationFunction = new JexlEvaluation(getEvaluationPlan(), getArithmetic());
         } else {
             jexlEvaluationFunction = nestedQuery.getEvaluation();
             if (null == jexlEvaluationFunction) {
-                return new JexlEvaluation(query, getArithmetic());
+                return new JexlEvaluation(getEvaluationPlan(), getArithmetic());
             }
         }
         return jexlEvaluationFunction;
     }
     
+    /**
+     * Get the precompiled evaluation plan for the query. The plan is compiled once per scan session and shared by every JexlEvaluation created against the
+     * query, so the query is not re-parsed each time the evaluation pipeline is built.
+     * 
+     * @return the evaluation plan
+     */
+    protected JexlEvaluationPlan getEvaluationPlan() {
+        if (null == evaluationPlan || !evaluationPlan.getQuery().equals(query)) {
+            evaluationPlan = JexlEvaluationPlan.compile(query);
+        }
+        return evaluationPlan;
+    }
+    
     @Override
     public JexlArithmetic getArithmetic() {
         JexlArithmetic myArithmetic = this.arithmetic;
@@ -1023,8 +1047,7 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
             log.trace("mapDocument " + fieldIndexSatisfiesQuery);
         }
         if (fieldIndexSatisfiesQuery) {
-            final KeyToDocumentData docMapper = new KeyToDocumentData(deepSourceCopy, this.myEnvironment, this.documentOptions, super.equality,
-                            getEvaluationFilter(), this.includeHierarchyFields, this.includeHierarchyFields);
+            final KeyToDocumentData docMapper = createKeyToDocumentData(deepSourceCopy, true);
             Iterator<Tuple2<Key,Document>> mappedDocuments = Iterators.transform(
                             documents,
                             new GetDocument(docMapper, new Aggregation(this.getTimeFilter(), typeMetadataWithNonIndexed, compositeMetadata, this
@@ -1047,6 +1070,20 @@ public class QueryIterator extends QueryOptions implements YieldingKeyValueItera
         return documents;
     }
     
+    /**
+     * Create the function which fetches the data for a document
+     * 
+     * @param deepSourceCopy
+     *            the source to read the document from
+     * @param fieldIndexSatisfiesQuery
+     *            true if the document has already been evaluated against the field index and is only being fetched to be returned
+     * @return the document mapper
+     */
+    protected KeyToDocumentData createKeyToDocumentData(SortedKeyValueIterator<Key,Value> deepSourceCopy, boolean fieldIndexSatisfiesQuery) {
+        return new KeyToDocumentData(deepSourceCopy, this.myEnvironment, this.documentOptions, super.equality, getEvaluationFilter(),
+                        this.includeHierarchyFields, this.includeHierarchyFields);
+    }
+    
     public class GetDocument implements Function<Entry<Key,Document>,Tuple2<Key,Document>> {
         private final KeyToDocumentData fetchDocData;
         private final Aggregation makeDocument;
@@ -52,6 +52,7 @@ import datawave.util.UniversalSet;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.PartialKey;
 import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
 import org.apache.accumulo.core.iterators.OptionDescriber;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.jexl2.JexlArithmetic;
@@ -151,6 +152,9 @@ public class QueryOptions implements OptionDescriber {
     public static final String DATATYPE_FIELDNAME = "include.datatype.fieldname";
     public static final String TRACK_SIZES = "track.sizes";
     
+    public static final String TLD_ASSEMBLY_PARTITIONS = "tld.assembly.partitions";
+    public static final String TLD_ASSEMBLY_MAX_CHILDREN = "tld.assembly.max.children";
+    
     // pass through to Evaluating iterator to ensure consistency between query
     // logics
     
@@ -327,6 +331,11 @@ public class QueryOptions implements OptionDescriber {
     
     protected long yieldThresholdMs = Long.MAX_VALUE;
     
+    // the number of child ranges a top level document is read in concurrently, 1 to read it sequentially
+    protected int tldAssemblyPartitions = 1;
+    // the maximum number of children fetched for a top level document when the field index satisfied the query, -1 for all
+    protected int tldAssemblyMaxChildren = -1;
+    
     protected Predicate<Key> fieldIndexKeyDataTypeFilter = KeyIdentity.Function;
     protected Predicate<Key> eventEntryKeyDataTypeFilter = KeyIdentity.Function;
     
@@ -446,6 +455,9 @@ public class QueryOptions implements OptionDescriber {
         
         this.yieldThresholdMs = other.yieldThresholdMs;
         
+        this.tldAssemblyPartitions = other.tldAssemblyPartitions;
+        this.tldAssemblyMaxChildren = other.tldAssemblyMaxChildren;
+        
         this.compressResults = other.compressResults;
         this.limitFieldsMap = other.limitFieldsMap;
         this.limitFieldsPreQueryEvaluation = other.limitFieldsPreQueryEvaluation;
@@ -1056,6 +1068,10 @@ public class QueryOptions implements OptionDescriber {
                         " The maximum number of sources to use for ivarators across all ivarated terms within the query.  Note the thread pool size is controlled via an accumulo property.");
         options.put(YIELD_THRESHOLD_MS,
                         "The threshold in milliseconds that the query iterator will evaluate consecutive documents to false before yielding the scan.");
+        options.put(TLD_ASSEMBLY_PARTITIONS,
+                        "The number of child ranges a top level document is partitioned into and read concurrently.  Note the thread pool size is controlled via an accumulo property.");
+        options.put(TLD_ASSEMBLY_MAX_CHILDREN,
+                        "The maximum number of children fetched for a top level document when the field index satisfies the query, -1 for no limit");
         options.put(COMPRESS_SERVER_SIDE_RESULTS, "GZIP compress the serialized Documents before returning to the webserver");
         options.put(MAX_EVALUATION_PIPELINES, "The max number of evaluation pipelines");
         options.put(SERIAL_EVALUATION_PIPELINE, "Forces us to use the serial pipeline. Allows us to still have a single thread for evaluation");
@@ -1136,8 +1152,15 @@ public class QueryOptions implements OptionDescriber {
         
         if (options.containsKey(COMPOSITE_METADATA)) {
             String compositeMetadataString = options.get(COMPOSITE_METADATA);
-            if (compositeMetadataString != null && !compositeMetadataString.isEmpty())
-                this.compositeMetadata = CompositeMetadata.fromBytes(java.util.Base64.getDecoder().decode(compositeMetadataString));
+            if (compositeMetadataString != null && !compositeMetadataString.isEmpty()) {
+                try {
+                    // the composite metadata is only read, so it is shared with the other scans of the query
+                    this.compositeMetadata = getQueryStateCache(options).get(QueryStateCache.State.COMPOSITE_METADATA, compositeMetadataString,
+                                    s -> CompositeMetadata.fromBytes(java.util.Base64.getDecoder().decode(s)));
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
             
             if (log.isTraceEnabled()) {
                 log.trace("Using compositeMetadata: " + this.compositeMetadata);
@@ -1452,6 +1475,14 @@ public class QueryOptions implements OptionDescriber {
             this.setYieldThresholdMs(Long.parseLong(options.get(YIELD_THRESHOLD_MS)));
         }
         
+        if (options.containsKey(TLD_ASSEMBLY_PARTITIONS)) {
+            this.setTldAssemblyPartitions(Integer.parseInt(options.get(TLD_ASSEMBLY_PARTITIONS)));
+        }
+        
+        if (options.containsKey(TLD_ASSEMBLY_MAX_CHILDREN)) {
+            this.setTldAssemblyMaxChildren(Integer.parseInt(options.get(TLD_ASSEMBLY_MAX_CHILDREN)));
+        }
+        
         if (options.containsKey(COMPRESS_SERVER_SIDE_RESULTS)) {
             this.setCompressResults(Boolean.parseBoolean(options.get(COMPRESS_SERVER_SIDE_RESULTS)));
         }
@@ -1543,10 +1574,11 @@ public class QueryOptions implements OptionDescriber {
         if (options.containsKey(TYPE_METADATA)) {
             String typeMetadataString = options.get(TYPE_METADATA);
             try {
-                if (compressedMappings) {
-                    typeMetadataString = decompressOption(typeMetadataString, QueryOptions.UTF8);
-                }
-                this.typeMetadata = buildTypeMetadata(typeMetadataString);
+                QueryStateCache.State state = compressedMappings ? QueryStateCache.State.COMPRESSED_TYPE_METADATA : QueryStateCache.State.TYPE_METADATA;
+                TypeMetadata cached = getQueryStateCache(options).get(state, typeMetadataString,
+                                s -> buildTypeMetadata(compressedMappings ? decompressOption(s, QueryOptions.UTF8) : s));
+                // the type metadata may be modified, so each scan gets its own copy of the cached metadata
+                this.typeMetadata = new TypeMetadata(cached);
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -1561,6 +1593,18 @@ public class QueryOptions implements OptionDescriber {
         
     }
     
+    /**
+     * Get the tserver wide cache of the query state built from the options
+     * 
+     * @param options
+     *            the options, which carry the iterator environment when they are {@link SourcedOptions}
+     * @return the query state cache
+     */
+    protected QueryStateCache getQueryStateCache(Map<String,String> options) {
+        IteratorEnvironment env = (options instanceof SourcedOptions) ? ((SourcedOptions<?,?>) options).getEnvironment() : null;
+        return QueryStateCache.getInstance(env);
+    }
+    
     protected static String decompressOption(final String buffer, Charset characterSet) throws IOException {
         final byte[] inBase64 = Base64.decodeBase64(buffer.getBytes());
         
@@ -1919,4 +1963,20 @@ public class QueryOptions implements OptionDescriber {
         this.yieldThresholdMs = yieldThresholdMs;
     }
     
+    public int getTldAssemblyPartitions() {
+        return tldAssemblyPartitions;
+    }
+    
+    public void setTldAssemblyPartitions(int tldAssemblyPartitions) {
+        this.tldAssemblyPartitions = tldAssemblyPartitions;
+    }
+    
+    public int getTldAssemblyMaxChildren() {
+        return tldAssemblyMaxChildren;
+    }
+    
+    public void setTldAssemblyMaxChildren(int tldAssemblyMaxChildren) {
+        this.tldAssemblyMaxChildren = tldAssemblyMaxChildren;
+    }
+    
 }
@@ -0,0 +1,272 @@
+package datawave.query.iterator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.accumulo.core.conf.AccumuloConfiguration;
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.log4j.Logger;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A tserver wide cache of the query state which the {@link QueryIterator} builds from its serialized options. A scan session is re-created for every batch of
+ * a scan, and for every range moved between scans, and each one used to re-parse the same query and deserialize the same metadata. The state is cached by a
+ * SHA-256 digest of the option it was built from, so that repeated inits for the same query only look it up, and so that the cache does not hold on to the
+ * options, which can be megabytes each.
+ * <p>
+ * Only state which is not modified once built is cached: the {@link datawave.query.jexl.JexlEvaluationPlan}, the
+ * {@link datawave.query.composite.CompositeMetadata} and the {@link datawave.query.util.TypeMetadata}, which callers copy before handing out. The iterator
+ * trees hold the sources of their scan session and are still built per session.
+ * <p>
+ * The cache is bounded by {@value #CACHE_MAX_BYTES_PROP}, 64MB by default, and is disabled with a bound of 0. Each entry is weighed by the size of the option
+ * it was built from, which the size of the state it holds follows, so that a few very large queries cannot pin much more of the heap than the bound. The
+ * least recently used entries are evicted first, and an entry larger than an eighth of the bound is not kept at all. The time saved is estimated from the
+ * time it took to build each entry that was found.
+ */
+public class QueryStateCache {
+    private static final Logger log = Logger.getLogger(QueryStateCache.class);
+    public static final String CACHE_MAX_BYTES_PROP = "tserver.datawave.query.state.cache.max.bytes";
+    public static final long DEFAULT_CACHE_MAX_BYTES = 64L * 1024 * 1024;
+    
+    // the weight of an entry beyond its option: the key, the digest and the cached state's own objects
+    private static final int ENTRY_WEIGHT = 256;
+    
+    private static final Object instanceSemaphore = new Object();
+    private static volatile QueryStateCache instance;
+    
+    /**
+     * The kinds of cached state, each of which is built from a single iterator option
+     */
+    public enum State {
+        EVALUATION_PLAN, TYPE_METADATA, COMPRESSED_TYPE_METADATA, COMPOSITE_METADATA
+    }
+    
+    /**
+     * Builds a piece of state from its option
+     */
+    public interface Loader<T> {
+        T load(String option) throws Exception;
+    }
+    
+    private final long maxBytes;
+    private final Cache<StateKey,CachedState> cache;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+    
+    QueryStateCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        // the weight is split between the segments, so fewer segments leave room for larger entries
+        this.cache = CacheBuilder.newBuilder().concurrencyLevel(8).maximumWeight(Math.max(0, maxBytes))
+                        .weigher((StateKey key, CachedState state) -> state.weight).build();
+    }
+    
+    /**
+     * Get the cache for this tserver, creating it from the configuration of the environment if it does not exist yet
+     * 
+     * @param env
+     *            the iterator environment, or null to use the default configuration
+     * @return the cache
+     */
+    public static QueryStateCache getInstance(IteratorEnvironment env) {
+        if (instance == null) {
+            synchronized (instanceSemaphore) {
+                if (instance == null) {
+                    instance = new QueryStateCache(getCacheMaxBytes(env != null ? env.getConfig() : DefaultConfiguration.getInstance()));
+                    log.info("Created the query state cache with a bound of " + instance.maxBytes + " bytes");
+                }
+            }
+        }
+        return instance;
+    }
+    
+    private static long getCacheMaxBytes(AccumuloConfiguration conf) {
+        if (conf != null) {
+            Map<String,String> properties = new TreeMap<>();
+            conf.getProperties(properties, k -> Objects.equals(k, CACHE_MAX_BYTES_PROP));
+            String maxBytes = properties.get(CACHE_MAX_BYTES_PROP);
+            if (maxBytes != null) {
+                try {
+                    return Long.parseLong(maxBytes.trim());
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid " + CACHE_MAX_BYTES_PROP + " of " + maxBytes + ", using " + DEFAULT_CACHE_MAX_BYTES);
+                }
+            }
+        }
+        return DEFAULT_CACHE_MAX_BYTES;
+    }
+    
+    /**
+     * Get the state built from an option, building it if it is not cached
+     * 
+     * @param state
+     *            the kind of state
+     * @param option
+     *            the option the state is built from
+     * @param loader
+     *            builds the state from the option
+     * @param <T>
+     *            the type of the state
+     * @return the state, which must not be modified
+     * @throws IOException
+     *             if the state could not be built
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(State state, String option, Loader<T> loader) throws IOException {
+        if (maxBytes <= 0) {
+            return (T) load(option, loader).value;
+        }
+        
+        try {
+            boolean[] loaded = new boolean[1];
+            CachedState cached = cache.get(new StateKey(state, Hashing.sha256().hashString(option, StandardCharsets.UTF_8)), () -> {
+                loaded[0] = true;
+                return load(option, loader);
+            });
+            if (loaded[0]) {
+                misses.incrementAndGet();
+                loadNanos.addAndGet(cached.loadNanos);
+            } else {
+                hits.incrementAndGet();
+                savedNanos.addAndGet(cached.loadNanos);
+            }
+            return (T) cached.value;
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Unable to build the " + state + " for the query", cause);
+        }
+    }
+    
+    private static <T> CachedState load(String option, Loader<T> loader) throws IOException {
+        long start = System.nanoTime();
+        try {
+            T value = loader.load(option);
+            if (value == null) {
+                throw new IOException("No state was built from the option");
+            }
+            return new CachedState(value, System.nanoTime() - start, weigh(option));
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+    
+    /**
+     * @return the weight of the state built from an option: the bytes of the option's characters, and those of the entry
+     */
+    static int weigh(String option) {
+        return (int) Math.min(Integer.MAX_VALUE, 2L * option.length() + ENTRY_WEIGHT);
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public double getHitRate() {
+        long hits = getHits();
+        long total = hits + getMisses();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+    
+    /**
+     * @return the time spent building the state that was cached, in milliseconds
+     */
+    public long getLoadTimeMillis() {
+        return loadNanos.get() / 1000000;
+    }
+    
+    /**
+     * @return the estimated time saved by finding the state in the cache, in milliseconds
+     */
+    public long getSavedTimeMillis() {
+        return savedNanos.get() / 1000000;
+    }
+    
+    public long getSize() {
+        return cache.size();
+    }
+    
+    /**
+     * @return the total weight of the cached state, in estimated bytes
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (CachedState state : cache.asMap().values()) {
+            weight += state.weight;
+        }
+        return weight;
+    }
+    
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    @Override
+    public String toString() {
+        return "QueryStateCache size:" + getSize() + " bytes:" + getWeight() + " maxBytes:" + getMaxBytes() + " hits:" + getHits() + " misses:" + getMisses() + " hitRate:" + getHitRate()
+                        + " loadTimeMs:" + getLoadTimeMillis() + " savedTimeMs:" + getSavedTimeMillis();
+    }
+    
+    static class StateKey {
+        private final State state;
+        private final HashCode option;
+        
+        StateKey(State state, HashCode option) {
+            this.state = state;
+            this.option = option;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey)) {
+                return false;
+            }
+            StateKey other = (StateKey) o;
+            return state == other.state && option.equals(other.option);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * state.hashCode() + option.hashCode();
+        }
+    }
+    
+    private static class CachedState {
+        private final Object value;
+        private final long loadNanos;
+        private final int weight;
+        
+        CachedState(Object value, long loadNanos, int weight) {
+            this.value = value;
+            this.loadNanos = loadNanos;
+            this.weight = weight;
+        }
+    }
+}
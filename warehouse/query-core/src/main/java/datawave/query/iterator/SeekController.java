@@ -0,0 +1,149 @@
+package datawave.query.iterator;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+
+/**
+ * Decides, while skipping over keys which are not wanted, whether to keep calling next on a source or to seek past them. A seek costs much more than a next,
+ * mostly in the blocks it has to read, but is paid once, so the break even point is the number of nexts which cost as much as a seek. The controller times
+ * both as the scan goes, along with how far a skip usually runs, and seeks straight away when skips are usually longer than the break even point. Otherwise
+ * it steps up to the break even point before seeking, which never costs more than twice the better of the two choices.
+ * <p>
+ * The configured threshold is used as the break even point until enough seeks have been timed to replace it, and a threshold of zero always seeks. The
+ * calls themselves still go through the source, so they are counted by a {@link datawave.query.iterator.profile.SourceTrackingIterator} as usual.
+ * <p>
+ * This is not thread safe, each scan should have its own controller.
+ */
+public class SeekController {
+    
+    // only one in this many nexts is timed, to keep the clock off of the hot path
+    private static final int NEXT_SAMPLE_RATE = 16;
+    // the number of timed seeks needed before the measured break even point is trusted
+    private static final int MIN_SEEK_SAMPLES = 4;
+    // the weight of a new sample in the moving averages
+    private static final double DECAY = 0.1;
+    
+    public static final int MAX_THRESHOLD = 1024;
+    
+    private final int seekThreshold;
+    
+    private long nexts = 0;
+    private long seeks = 0;
+    private int seekSamples = 0;
+    private double nextNanos = -1;
+    private double seekNanos = -1;
+    private double skipDistance = -1;
+    
+    public SeekController(int seekThreshold) {
+        this.seekThreshold = seekThreshold;
+    }
+    
+    /**
+     * @param skipped
+     *            the number of keys already stepped over in the current skip
+     * @return true if the rest of the skip should be a seek
+     */
+    public boolean shouldSeek(int skipped) {
+        if (seekThreshold <= 0) {
+            return true;
+        }
+        int breakEven = getBreakEven();
+        return skipped >= breakEven || skipDistance > breakEven;
+    }
+    
+    /**
+     * Record the end of a skip
+     * 
+     * @param skipped
+     *            the number of keys stepped over
+     * @param seeked
+     *            true if the skip was finished with a seek
+     */
+    public void skipped(int skipped, boolean seeked) {
+        double distance = skipped;
+        if (seeked) {
+            // how far a seek went is not known; count it as half the break even point beyond where it started, which lets the average fall back and scanning
+            // be tried again if the skips get shorter
+            distance += getBreakEven() / 2.0;
+        }
+        skipDistance = average(skipDistance, distance);
+    }
+    
+    /**
+     * Call next on the source, timing a sample of the calls
+     */
+    public void next(SortedKeyValueIterator<Key,Value> source) throws IOException {
+        if (++nexts % NEXT_SAMPLE_RATE == 0) {
+            long start = System.nanoTime();
+            source.next();
+            nextNanos = average(nextNanos, System.nanoTime() - start);
+        } else {
+            source.next();
+        }
+    }
+    
+    /**
+     * Seek the source, timing the call
+     */
+    public void seek(SortedKeyValueIterator<Key,Value> source, Range range, Collection<ByteSequence> columnFamilies, boolean inclusive) throws IOException {
+        seeks++;
+        long start = System.nanoTime();
+        source.seek(range, columnFamilies, inclusive);
+        seekNanos = average(seekNanos, System.nanoTime() - start);
+        seekSamples++;
+    }
+    
+    /**
+     * @return the number of nexts which cost as much as one seek
+     */
+    public int getBreakEven() {
+        if (seekSamples < MIN_SEEK_SAMPLES || nextNanos <= 0) {
+            return seekThreshold;
+        }
+        return (int) Math.max(1, Math.min(MAX_THRESHOLD, Math.round(seekNanos / nextNanos)));
+    }
+    
+    /**
+     * Record the cost of a next, for use when the calls are made elsewhere
+     */
+    void recordNext(long nanos) {
+        nexts++;
+        nextNanos = average(nextNanos, nanos);
+    }
+    
+    /**
+     * Record the cost of a seek, for use when the calls are made elsewhere
+     */
+    void recordSeek(long nanos) {
+        seeks++;
+        seekNanos = average(seekNanos, nanos);
+        seekSamples++;
+    }
+    
+    private static double average(double current, double sample) {
+        return current < 0 ? sample : current + DECAY * (sample - current);
+    }
+    
+    public long getNextCount() {
+        return nexts;
+    }
+    
+    public long getSeekCount() {
+        return seeks;
+    }
+    
+    public double getSkipDistance() {
+        return skipDistance;
+    }
+    
+    @Override
+    public String toString() {
+        return "SeekController next:" + nexts + " seek:" + seeks + " breakEven:" + getBreakEven() + " skipDistance:" + skipDistance;
+    }
+}
@@ -22,6 +22,7 @@ import org.apache.log4j.Logger;
 
 import com.google.common.base.Function;
 import com.google.common.base.Splitter;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -60,6 +61,7 @@ public class DynamicFacetIterator extends FieldIndexOnlyQueryIterator {
     public static String FACETED_SEARCH_TYPE = "query.facet.type";
     public static String FACETED_MINIMUM = "query.facet.minimum";
     public static String FACETED_SEARCH_FIELDS = "query.facet.fields";
+    public static String FACETED_PARTIAL_SIZE = "query.facet.partial.size";
     
     FacetedConfiguration configuration;
     
@@ -76,6 +78,7 @@ public class DynamicFacetIterator extends FieldIndexOnlyQueryIterator {
         options.put(FACETED_SEARCH_TYPE, "Type of faceted search");
         options.put(FACETED_MINIMUM, "Minimum Facet count. Defaults to 0");
         options.put(FACETED_SEARCH_FIELDS, "Comma separated list of facets that we must include. If this is empty, we return all facets");
+        options.put(FACETED_PARTIAL_SIZE, "Number of documents summarized into each partial facet result. Defaults to 0, a single result per range");
         
         return new IteratorOptions(getClass().getSimpleName(), "Runs a Faceted search against event data", options, null);
     }
@@ -102,6 +105,15 @@ public class DynamicFacetIterator extends FieldIndexOnlyQueryIterator {
             }
         }
         
+        if (options.containsKey(FACETED_PARTIAL_SIZE)) {
+            try {
+                configuration.setPartialSummarySize(Integer.parseInt(options.get(FACETED_PARTIAL_SIZE)));
+            } catch (NumberFormatException nfe) {
+                log.error(nfe);
+                // defaulting to a single summary
+            }
+        }
+        
         String fields = "";
         if (options.containsKey(FACETED_SEARCH_FIELDS)) {
             
@@ -253,8 +265,11 @@ public class DynamicFacetIterator extends FieldIndexOnlyQueryIterator {
         // convert the stream into a single document, so that we can summarize the cardinality
         fieldIndexDocuments = summarize(fieldIndexDocuments);
         
-        // minimize the list of facets that are returned.
-        fieldIndexDocuments = Iterators.transform(fieldIndexDocuments, new MinimumEstimation(configuration.getMinimumFacetCount()));
+        // minimize the list of facets that are returned. Partial summaries are only filtered once they are merged, as a value below the minimum in one
+        // partial may not be in the whole
+        if (configuration.getPartialSummarySize() <= 0) {
+            fieldIndexDocuments = Iterators.transform(fieldIndexDocuments, new MinimumEstimation(configuration.getMinimumFacetCount()));
+        }
         
         if (this.getReturnType() == ReturnType.kryo) {
             // Serialize the Document using Kryo
@@ -283,13 +298,33 @@ public class DynamicFacetIterator extends FieldIndexOnlyQueryIterator {
         }
     }
     
-    protected Iterator<Entry<Key,Document>> summarize(Iterator<Entry<Key,Document>> fieldIndexDocuments) {
+    protected Iterator<Entry<Key,Document>> summarize(final Iterator<Entry<Key,Document>> fieldIndexDocuments) {
+        final int partialSize = configuration.getPartialSummarySize();
+        if (partialSize <= 0) {
+            return summarize(fieldIndexDocuments, 0);
+        }
+        
+        // summarize the documents a batch at a time, so that merged facets are available before the whole range has been read. Each summary is keyed by
+        // the last document in it, so a scan which is torn down resumes after the documents already summarized.
+        return new AbstractIterator<Entry<Key,Document>>() {
+            @Override
+            protected Entry<Key,Document> computeNext() {
+                Iterator<Entry<Key,Document>> summary = summarize(fieldIndexDocuments, partialSize);
+                return summary.hasNext() ? summary.next() : endOfData();
+            }
+        };
+    }
+    
+    /**
+     * Summarize up to <code>max</code> documents into a single document, or all of them if <code>max</code> is not positive
+     */
+    private Iterator<Entry<Key,Document>> summarize(Iterator<Entry<Key,Document>> fieldIndexDocuments, int max) {
         
         if (fieldIndexDocuments.hasNext()) {
             Entry<Key,Document> topEntry = fieldIndexDocuments.next();
             
             CardinalitySummation summarizer = new CardinalitySummation(topEntry.getKey(), topEntry.getValue(), merge);
-            while (fieldIndexDocuments.hasNext()) {
+            for (int count = 1; (max <= 0 || count < max) && fieldIndexDocuments.hasNext(); count++) {
                 topEntry = fieldIndexDocuments.next();
                 summarizer.apply(topEntry);
             }
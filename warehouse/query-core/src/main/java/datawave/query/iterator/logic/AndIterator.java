@@ -16,25 +16,28 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.SortedSet;
 
 /**
  * Performs a merge join of the child iterators. It is expected that all child iterators return values in sorted order.
+ * <p>
+ * The join is a leapfrog: the heads of the includes are kept in arrays, and every head behind the highest is moved straight to it, until all of the heads
+ * agree. Moves go directly to the target rather than stepping through the values in between, and no sorted map of the heads is maintained.
  */
 public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>, SeekableIterator {
     // temporary stores of uninitialized streams of iterators
     private List<NestedIterator<T>> includes, excludes;
     
-    private Map<T,T> transforms;
     private Transformer<T> transformer;
+    private Comparator<T> keyComp;
     
-    private TreeMultimap<T,NestedIterator<T>> includeHeads, excludeHeads;
+    // the includes which are still in play, with their transformed heads and their heads as returned
+    private List<NestedIterator<T>> includeSources;
+    private List<T> includeHeads;
+    private List<T> includeOriginals;
+    private TreeMultimap<T,NestedIterator<T>> excludeHeads;
     private T prev;
     private T next;
     
@@ -63,22 +66,35 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
     }
     
     public void initialize() {
-        Comparator<T> keyComp = Util.keyComparator();
+        keyComp = Util.keyComparator();
         // nestedIteratorComparator will keep a deterministic ordering, unlike hashCodeComparator
         Comparator<NestedIterator<T>> itrComp = Util.nestedIteratorComparator();
         
         transformer = Util.keyTransformer();
-        transforms = new HashMap<>();
         
-        includeHeads = TreeMultimap.create(keyComp, itrComp);
-        includeHeads = initSubtree(includeHeads, includes, transformer, transforms, true);
+        includeSources = new ArrayList<>(includes.size());
+        includeHeads = new ArrayList<>(includes.size());
+        includeOriginals = new ArrayList<>(includes.size());
+        for (NestedIterator<T> src : includes) {
+            src.initialize();
+            if (src.hasNext()) {
+                T next = src.next();
+                includeSources.add(src);
+                includeHeads.add(transformer.transform(next));
+                includeOriginals.add(next);
+            } else {
+                // If a source has no valid records, it shouldn't throw an exception. It should just return no results.
+                // For an And, once one source is exhausted, the entire tree is exhausted
+                clearHeads();
+                break;
+            }
+        }
         
         if (excludes.isEmpty()) {
             excludeHeads = Util.getEmpty();
         } else {
             excludeHeads = TreeMultimap.create(keyComp, itrComp);
-            // pass null in for transforms as excludes are not returned
-            excludeHeads = initSubtree(excludeHeads, excludes, transformer, null, false);
+            excludeHeads = initSubtree(excludeHeads, excludes, transformer);
         }
         
         next();
@@ -103,22 +119,20 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
         prevDocument = document;
         
         while (!includeHeads.isEmpty()) {
-            SortedSet<T> topKeys = includeHeads.keySet();
-            T lowest = topKeys.first();
-            T highest = topKeys.last();
+            T highest = highest();
             
-            if (lowest.equals(highest)) {
-                if (!NegationFilter.isFiltered(lowest, excludeHeads, transformer)) {
-                    next = transforms.get(lowest);
-                    document = Util.buildNewDocument(includeHeads.values());
-                    includeHeads = advanceIterators(lowest);
+            if (aligned(highest)) {
+                if (!NegationFilter.isFiltered(highest, excludeHeads, transformer)) {
+                    next = includeOriginals.get(0);
+                    document = Util.buildNewDocument(includeSources);
+                    advanceIterators();
                     break;
                 } else {
-                    includeHeads = advanceIterators(lowest);
+                    advanceIterators();
                 }
             } else {
-                // jump the lowest to the highest
-                includeHeads = moveIterators(lowest, highest);
+                // jump everything behind to the highest
+                moveIterators(highest);
             }
         }
         
@@ -204,14 +218,8 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
             return next();
         }
         
-        Set<T> headSet = includeHeads.keySet().headSet(minimum);
-        
         // some iterators need to be moved into the target range before recalculating the next
-        Iterator<T> topKeys = new LinkedList<>(headSet).iterator();
-        while (!includeHeads.isEmpty() && topKeys.hasNext()) {
-            // advance each iterator that is under the threshold
-            includeHeads = moveIterators(topKeys.next(), minimum);
-        }
+        moveIterators(minimum);
         
         // next < minimum, so advance throwing next away and re-populating next with what should be >= minimum
         next();
@@ -220,7 +228,7 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
         if (hasNext()) {
             return next();
         } else {
-            includeHeads = Util.getEmpty();
+            clearHeads();
             return null;
         }
     }
@@ -242,58 +250,81 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
         return children;
     }
     
+    private T highest() {
+        T highest = includeHeads.get(0);
+        for (int i = 1; i < includeHeads.size(); i++) {
+            if (keyComp.compare(includeHeads.get(i), highest) > 0) {
+                highest = includeHeads.get(i);
+            }
+        }
+        return highest;
+    }
+    
+    private boolean aligned(T highest) {
+        for (T head : includeHeads) {
+            if (keyComp.compare(head, highest) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void clearHeads() {
+        includeSources.clear();
+        includeHeads.clear();
+        includeOriginals.clear();
+    }
+    
     /**
-     * Advances all iterators associated with the supplied key and adds them back into the sorted multimap. If any of the sub-trees returns false, this method
-     * immediately returns false to indicate that a sub-tree has been exhausted.
-     * 
-     * @param key
-     * @return
+     * Advances all of the includes, which are all at the same key. If any of the sub-trees is exhausted, this clears the heads to indicate that the join is
+     * exhausted. A sub-tree that fails is dropped, as long as there are others left.
      */
-    protected TreeMultimap<T,NestedIterator<T>> advanceIterators(T key) {
-        transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
+    protected void advanceIterators() {
+        for (int i = 0; i < includeSources.size(); i++) {
+            NestedIterator<T> itr = includeSources.get(i);
             try {
                 if (itr.hasNext()) {
                     T next = itr.next();
-                    T transform = transformer.transform(next);
-                    transforms.put(transform, next);
-                    includeHeads.put(transform, itr);
+                    includeHeads.set(i, transformer.transform(next));
+                    includeOriginals.set(i, next);
                 } else {
-                    return Util.getEmpty();
+                    clearHeads();
+                    return;
                 }
             } catch (Exception e) {
                 // only need to actually fail if we have nothing left in the AND clause
-                if (includeHeads.isEmpty()) {
+                if (includeSources.size() == 1) {
                     throw e;
                 } else {
                     log.warn("Failed include lookup, but dropping in lieu of other terms", e);
+                    includeSources.remove(i);
+                    includeHeads.remove(i);
+                    includeOriginals.remove(i);
+                    i--;
                 }
             }
         }
-        return includeHeads;
     }
     
     /**
      * Similar to <code>advanceIterators</code>, but instead of calling <code>next</code> on each sub-tree, this calls <code>move</code> with the supplied
-     * <code>to</code> parameter.
+     * <code>to</code> parameter on each sub-tree whose head is behind it.
      * 
-     * @param key
      * @param to
-     * @return
      */
-    protected TreeMultimap<T,NestedIterator<T>> moveIterators(T key, T to) {
-        transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
-            T next = itr.move(to);
-            if (next == null) {
-                return Util.getEmpty();
-            } else {
-                T transform = transformer.transform(next);
-                transforms.put(transform, next);
-                includeHeads.put(transform, itr);
+    protected void moveIterators(T to) {
+        for (int i = 0; i < includeSources.size(); i++) {
+            if (keyComp.compare(includeHeads.get(i), to) < 0) {
+                T next = includeSources.get(i).move(to);
+                if (next == null) {
+                    clearHeads();
+                    return;
+                } else {
+                    includeHeads.set(i, transformer.transform(next));
+                    includeOriginals.set(i, next);
+                }
             }
         }
-        return includeHeads;
     }
     
     /**
@@ -304,20 +335,11 @@ public class AndIterator<T extends Comparable<T>> implements NestedIterator<T>,
      * @return
      */
     private static <T extends Comparable<T>> TreeMultimap<T,NestedIterator<T>> initSubtree(TreeMultimap<T,NestedIterator<T>> subtree,
-                    Iterable<NestedIterator<T>> sources, Transformer<T> transformer, Map<T,T> transforms, boolean anded) {
+                    Iterable<NestedIterator<T>> sources, Transformer<T> transformer) {
         for (NestedIterator<T> src : sources) {
             src.initialize();
             if (src.hasNext()) {
-                T next = src.next();
-                T transform = transformer.transform(next);
-                if (transforms != null) {
-                    transforms.put(transform, next);
-                }
-                subtree.put(transform, src);
-            } else if (anded) {
-                // If a source has no valid records, it shouldn't throw an exception. It should just return no results.
-                // For an And, once one source is exhausted, the entire tree is exhausted
-                return Util.getEmpty();
+                subtree.put(transformer.transform(src.next()), src);
             }
         }
         return subtree;
@@ -8,6 +8,7 @@ import datawave.query.attributes.Document;
 import datawave.query.attributes.PreNormalizedAttributeFactory;
 import datawave.query.iterator.DocumentIterator;
 import datawave.query.iterator.LimitedSortedKeyValueIterator;
+import datawave.query.iterator.SeekController;
 import datawave.query.iterator.Util;
 import datawave.query.jexl.functions.FieldIndexAggregator;
 import datawave.query.jexl.functions.IdentityAggregator;
@@ -95,6 +96,9 @@ public class IndexIterator implements SortedKeyValueIterator<Key,Value>, Documen
     
     public static final String INDEX_FILTERING_CLASSES = "indexfiltering.classes";
     
+    // the number of keys a move steps over before seeking, until the seek controller has measured its own
+    public static final int MOVE_SEEK_THRESHOLD = 256;
+    
     protected SortedKeyValueIterator<Key,Value> source;
     protected LimitedSortedKeyValueIterator limitedSource;
     protected final Text valueMinPrefix;
@@ -119,6 +123,7 @@ public class IndexIterator implements SortedKeyValueIterator<Key,Value>, Documen
     protected final FieldIndexAggregator aggregation;
     protected TimeFilter timeFilter;
     protected SeekingFilter timeSeekingFilter;
+    protected final SeekController seekController = new SeekController(MOVE_SEEK_THRESHOLD);
     
     protected IndexIterator(Builder builder) {
         this(builder.field, builder.value, builder.source, builder.timeFilter, builder.typeMetadata, builder.buildDocument, builder.datatypeFilter,
@@ -391,8 +396,9 @@ public class IndexIterator implements SortedKeyValueIterator<Key,Value>, Documen
         
         Key nextKey = new Key(pointer.getRow(), columnFamily, newColumnQualifier);
         Key newTop = null;
-        for (int i = 0; i < 256 && source.hasTop() && (newTop = source.getTopKey()).compareTo(nextKey) < 0; ++i)
-            source.next();
+        int skipped = 0;
+        for (; source.hasTop() && (newTop = source.getTopKey()).compareTo(nextKey) < 0 && !seekController.shouldSeek(skipped); ++skipped)
+            seekController.next(source);
         
         /*
          * We need to verify a few things after next()'ing a bunch and then seeking:
@@ -404,10 +410,12 @@ public class IndexIterator implements SortedKeyValueIterator<Key,Value>, Documen
             Range r = new Range(nextKey, true, scanRange.getEndKey(), scanRange.isEndKeyInclusive());
             if (log.isTraceEnabled())
                 log.trace(this + " move'ing to: " + r);
-            source.seek(r, seekColumnFamilies, includeColumnFamilies);
+            seekController.seek(source, r, seekColumnFamilies, includeColumnFamilies);
+            seekController.skipped(skipped, true);
         } else {
             if (log.isTraceEnabled())
                 log.trace(this + " stepping its way to " + newTop);
+            seekController.skipped(skipped, false);
         }
         
         if (log.isTraceEnabled()) {
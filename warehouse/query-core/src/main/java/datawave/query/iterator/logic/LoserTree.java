@@ -0,0 +1,132 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.iterator.NestedIterator;
+import datawave.query.iterator.Util;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A tournament (loser) tree over the heads of a set of sorted sources, used to merge them. The tree is an array of source indexes: each internal node holds the
+ * loser of the match played there and the root holds the overall winner, the source with the lowest head. Replacing the head of the winner replays only the
+ * matches on its path to the root, one comparison per level and no allocation, which is what makes a wide merge cheap compared to keeping the heads in a sorted
+ * map. Only the head of the winner may be replaced. Exhausted sources have a null head, which loses to everything.
+ * 
+ * @param <T>
+ */
+class LoserTree<T extends Comparable<T>> {
+    private final NestedIterator<T>[] sources;
+    // the transformed heads which are compared, and the heads as returned by the sources
+    private final T[] heads;
+    private final T[] originals;
+    private final int[] tree;
+    private final Comparator<T> comparator;
+    private final Util.Transformer<T> transformer;
+    
+    @SuppressWarnings("unchecked")
+    LoserTree(List<NestedIterator<T>> sources, Util.Transformer<T> transformer, Comparator<T> comparator) {
+        this.sources = sources.toArray(new NestedIterator[sources.size()]);
+        this.heads = (T[]) new Comparable[sources.size()];
+        this.originals = (T[]) new Comparable[sources.size()];
+        this.tree = new int[Math.max(1, sources.size())];
+        this.comparator = comparator;
+        this.transformer = transformer;
+    }
+    
+    /**
+     * Initialize each source, take its first value and play the initial tournament
+     */
+    void initialize() {
+        for (int i = 0; i < sources.length; i++) {
+            sources[i].initialize();
+            if (sources[i].hasNext()) {
+                setHead(i, sources[i].next());
+            }
+        }
+        if (sources.length > 0) {
+            tree[0] = build(1);
+        }
+    }
+    
+    private int build(int node) {
+        if (node >= sources.length) {
+            return node - sources.length;
+        }
+        int left = build(2 * node);
+        int right = build(2 * node + 1);
+        if (beats(left, right)) {
+            tree[node] = right;
+            return left;
+        } else {
+            tree[node] = left;
+            return right;
+        }
+    }
+    
+    boolean isEmpty() {
+        return sources.length == 0 || heads[tree[0]] == null;
+    }
+    
+    NestedIterator<T> top() {
+        return sources[tree[0]];
+    }
+    
+    /**
+     * @return the transformed head of the winner
+     */
+    T topKey() {
+        return heads[tree[0]];
+    }
+    
+    /**
+     * @return the head of the winner as returned by its source
+     */
+    T topOriginal() {
+        return originals[tree[0]];
+    }
+    
+    /**
+     * Advance the winner to its next value, dropping it if it is exhausted
+     */
+    void next() {
+        int winner = tree[0];
+        setHead(winner, sources[winner].hasNext() ? sources[winner].next() : null);
+        replay(winner);
+    }
+    
+    /**
+     * Move the winner to the first value greater than or equal to <code>to</code>, dropping it if there is none
+     */
+    void move(T to) {
+        int winner = tree[0];
+        setHead(winner, sources[winner].move(to));
+        replay(winner);
+    }
+    
+    private void setHead(int i, T original) {
+        originals[i] = original;
+        heads[i] = original == null ? null : transformer.transform(original);
+    }
+    
+    private void replay(int winner) {
+        for (int node = (winner + sources.length) >> 1; node > 0; node >>= 1) {
+            if (beats(tree[node], winner)) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+    
+    // ties go to the lower index so that the merge is deterministic
+    private boolean beats(int a, int b) {
+        if (heads[a] == null) {
+            return false;
+        } else if (heads[b] == null) {
+            return true;
+        }
+        int cmp = comparator.compare(heads[a], heads[b]);
+        return cmp < 0 || (cmp == 0 && a < b);
+    }
+}
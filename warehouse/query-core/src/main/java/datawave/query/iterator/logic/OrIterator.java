@@ -9,16 +9,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 /**
- * Performs a deduping merge of iterators.
- *
+ * Performs a deduping merge of iterators. The heads of the includes are kept in a {@link LoserTree}, so that advancing the lowest head costs one comparison per
+ * level of the tree rather than a removal and re-insertion in a sorted map, which matters for wide unions of expanded terms.
+ * 
  * NOTE***** if however sortedUIDs is false, then deduping is not performed and filters cannot be applied *****NOTE
  * 
  * @param <T>
@@ -27,10 +25,11 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
     // temporary stores of uninitialized streams of iterators
     private List<NestedIterator<T>> includes, excludes;
     
-    private Map<T,T> transforms;
     private Util.Transformer<T> transformer;
+    private Comparator<T> keyComp;
     
-    private TreeMultimap<T,NestedIterator<T>> includeHeads, excludeHeads;
+    private LoserTree<T> includeHeads;
+    private TreeMultimap<T,NestedIterator<T>> excludeHeads;
     
     // sortedUIDs is normally true, however in some circumstances it may not in which case we cannot assume the underlying iterators are returning sorted
     // UIDs. When this is true, we cannot advance iterators based on returned keys.
@@ -70,15 +69,14 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
      * build the tree of iterators in <code>init()</code> and defer sorting the iterators until after <code>seek()</code> is called.
      */
     public void initialize() {
-        Comparator<T> keyComp = Util.keyComparator();
+        keyComp = Util.keyComparator();
         // nestedIteratorComparator will keep a deterministic ordering, unlike hashCodeComparator
         Comparator<NestedIterator<T>> itrComp = Util.nestedIteratorComparator();
         
         transformer = Util.keyTransformer();
-        transforms = new HashMap<>();
         
-        includeHeads = TreeMultimap.create(keyComp, itrComp);
-        initSubtree(includeHeads, includes, transformer, transforms, false);
+        includeHeads = new LoserTree<>(includes, transformer, keyComp);
+        includeHeads.initialize();
         
         if (excludes.isEmpty()) {
             excludeHeads = Util.getEmpty();
@@ -110,14 +108,13 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
         prevDocument = document;
         
         while (!includeHeads.isEmpty()) {
-            T lowest = includeHeads.keySet().first();
+            T lowest = includeHeads.topKey();
             if (!NegationFilter.isFiltered(lowest, excludeHeads, transformer)) {
-                next = transforms.get(lowest);
-                document = Util.buildNewDocument(includeHeads.get(lowest));
-                includeHeads = advanceIterators(lowest);
+                next = includeHeads.topOriginal();
+                document = advanceIterators(lowest, new Document());
                 break;
             } else {
-                includeHeads = advanceIterators(lowest);
+                advanceIterators(lowest, null);
             }
         }
         
@@ -154,13 +151,10 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
             return next();
         }
         
-        Set<T> headSet = includeHeads.keySet().headSet(minimum);
-        
         // some iterators need to be moved into the target range before recalculating the next
-        Iterator<T> topKeys = new LinkedList<>(headSet).iterator();
-        while (!includeHeads.isEmpty() && topKeys.hasNext()) {
+        while (!includeHeads.isEmpty() && keyComp.compare(includeHeads.topKey(), minimum) < 0) {
             // advance each iterator that is under the threshold
-            includeHeads = moveIterators(topKeys.next(), minimum);
+            includeHeads.move(minimum);
         }
         
         // next < minimum, so advance throwing next away and re-populating next with what should be >= minimum
@@ -170,50 +164,26 @@ public class OrIterator<T extends Comparable<T>> implements NestedIterator<T> {
         if (hasNext()) {
             return next();
         } else {
-            includeHeads = Util.getEmpty();
             return null;
         }
     }
     
     /**
-     * Advances all iterators associated with the supplied key and adds them back into the sorted multimap. If any of the sub-trees returns false, then they are
-     * dropped.
+     * Advances all iterators whose head is the supplied key. Exhausted iterators are dropped from the merge.
      * 
      * @param key
-     * @return
+     * @param document
+     *            if not null, the documents of the iterators are added to this before they are advanced
+     * @return the document
      */
-    protected TreeMultimap<T,NestedIterator<T>> advanceIterators(T key) {
-        transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
-            if (itr.hasNext()) {
-                T next = itr.next();
-                T transform = transformer.transform(next);
-                transforms.put(transform, next);
-                includeHeads.put(transform, itr);
+    protected Document advanceIterators(T key, Document document) {
+        do {
+            if (document != null) {
+                Util.addToDocument(document, includeHeads.top());
             }
-        }
-        return includeHeads;
-    }
-    
-    /**
-     * Similar to <code>advanceIterators</code>, but instead of calling <code>next</code> on each sub-tree, this calls <code>move</code> with the supplied
-     * <code>to</code> parameter.
-     * 
-     * @param key
-     * @param to
-     * @return
-     */
-    protected TreeMultimap<T,NestedIterator<T>> moveIterators(T key, T to) {
-        transforms.remove(key);
-        for (NestedIterator<T> itr : includeHeads.removeAll(key)) {
-            T next = itr.move(to);
-            if (next != null) {
-                T transform = transformer.transform(next);
-                transforms.put(transform, next);
-                includeHeads.put(transform, itr);
-            }
-        }
-        return includeHeads;
+            includeHeads.next();
+        } while (!includeHeads.isEmpty() && keyComp.compare(includeHeads.topKey(), key) == 0);
+        return document;
     }
     
     public Collection<NestedIterator<T>> leaves() {
@@ -50,11 +50,37 @@ public class DatawaveInterpreter extends Interpreter {
     
     protected Map<String,Object> resultMap;
     
+    /**
+     * The precompiled plan for the script being interpreted, may be null
+     */
+    protected final JexlEvaluationPlan plan;
+    
     private static final Logger log = Logger.getLogger(DatawaveInterpreter.class);
     
     public DatawaveInterpreter(JexlEngine jexl, JexlContext aContext, boolean strictFlag, boolean silentFlag) {
+        this(jexl, aContext, strictFlag, silentFlag, null);
+    }
+    
+    public DatawaveInterpreter(JexlEngine jexl, JexlContext aContext, boolean strictFlag, boolean silentFlag, JexlEvaluationPlan plan) {
         super(jexl, aContext, strictFlag, silentFlag);
         resultMap = Maps.newHashMap();
+        this.plan = plan;
+    }
+    
+    /**
+     * Get the key used to memoize the result of a node, preferring the key precomputed by the plan
+     * 
+     * @param node
+     * @return the node key
+     */
+    private String getNodeKey(JexlNode node) {
+        if (plan != null) {
+            String nodeKey = plan.getNodeKey(node);
+            if (nodeKey != null) {
+                return nodeKey;
+            }
+        }
+        return JexlStringBuildingVisitor.buildQueryWithoutParse(node);
     }
     
     /**
@@ -82,7 +108,7 @@ public class DatawaveInterpreter extends Interpreter {
     
     @Override
     public Object visit(ASTFunctionNode node, Object data) {
-        String nodeString = JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+        String nodeString = getNodeKey(node);
         
         Object result = resultMap.get(nodeString);
         if (null != result) {
@@ -130,7 +156,7 @@ public class DatawaveInterpreter extends Interpreter {
     
     @Override
     public Object visit(ASTEQNode node, Object data) {
-        String nodeString = JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+        String nodeString = getNodeKey(node);
         
         Object result = resultMap.get(nodeString);
         if (null != result)
@@ -142,7 +168,7 @@ public class DatawaveInterpreter extends Interpreter {
     
     @Override
     public Object visit(ASTERNode node, Object data) {
-        String nodeString = JexlStringBuildingVisitor.buildQueryWithoutParse(node);
+        String nodeString = getNodeKey(node);
         
         Object result = resultMap.get(nodeString);
         if (null != result)
@@ -408,6 +434,10 @@ public class DatawaveInterpreter extends Interpreter {
      */
     private boolean hasSiblings(ASTFunctionNode node) {
         
+        if (plan != null && plan.getNodeKey(node) != null) {
+            return plan.hasSiblings(node);
+        }
+        
         JexlNode parent = node.jjtGetParent();
         
         if (parent.jjtGetNumChildren() > 1) {
@@ -424,7 +454,7 @@ public class DatawaveInterpreter extends Interpreter {
     
     @Override
     public Object visit(ASTReference node, Object data) {
-        if (ExceededOrThresholdMarkerJexlNode.instanceOf(node)) {
+        if (plan != null ? plan.isExceededOrThresholdMarker(node) : ExceededOrThresholdMarkerJexlNode.instanceOf(node)) {
             return visitExceededOrThresholdMarker(node);
         } else {
             return super.visit(node, data);
@@ -432,8 +462,8 @@ public class DatawaveInterpreter extends Interpreter {
     }
     
     private Object visitExceededOrThresholdMarker(ASTReference node) {
-        String id = ExceededOrThresholdMarkerJexlNode.getId(node);
-        String field = ExceededOrThresholdMarkerJexlNode.getField(node);
+        String id = (plan != null) ? plan.getExceededOrId(node) : ExceededOrThresholdMarkerJexlNode.getId(node);
+        String field = (plan != null) ? plan.getExceededOrField(node) : ExceededOrThresholdMarkerJexlNode.getField(node);
         
         Set<String> evalValues = null;
         FST evalFst = null;
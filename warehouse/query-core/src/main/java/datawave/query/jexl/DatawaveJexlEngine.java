@@ -37,4 +37,19 @@ public class DatawaveJexlEngine extends JexlEngine {
     public ASTJexlScript parse(CharSequence expression) {
         return super.parse(expression, null, null);
     }
+    
+    /**
+     * Evaluate a precompiled plan against a context. This avoids re-parsing the query, and lets the interpreter use the per-node information resolved when the
+     * plan was compiled instead of recomputing it for every document.
+     * 
+     * @param plan
+     *            the precompiled evaluation plan
+     * @param context
+     *            the context to evaluate against
+     * @return the result of the evaluation
+     */
+    public Object evaluate(JexlEvaluationPlan plan, JexlContext context) {
+        Interpreter interpreter = new DatawaveInterpreter(this, context, isStrict(), isSilent(), plan);
+        return interpreter.interpret(plan.getScript());
+    }
 }
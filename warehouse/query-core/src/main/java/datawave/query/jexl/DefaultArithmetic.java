@@ -61,25 +61,25 @@ public class DefaultArithmetic extends DatawaveArithmetic {
             elements = Collections.singleton(left);
         }
         
-        Set<Pattern> patterns;
+        Set<JexlPatternMatcher> patterns;
         if (right instanceof Pattern) {
-            patterns = Collections.singleton((Pattern) right);
+            patterns = Collections.singleton(JexlPatternMatcher.forPattern((Pattern) right));
         } else if (right instanceof Set) {
             patterns = new HashSet<>();
             for (Object r : (Set<Object>) right) {
                 if (r instanceof Pattern) {
-                    patterns.add((Pattern) r);
+                    patterns.add(JexlPatternMatcher.forPattern((Pattern) r));
                 } else {
-                    patterns.add(JexlPatternCache.getPattern(r.toString()));
+                    patterns.add(JexlPatternCache.getMatcher(r.toString()));
                 }
             }
         } else {
-            patterns = Collections.singleton(JexlPatternCache.getPattern(right.toString()));
+            patterns = Collections.singleton(JexlPatternCache.getMatcher(right.toString()));
         }
         
         for (Object o : elements) {
-            for (Pattern p : patterns) {
-                if (p.matcher(o.toString()).matches()) {
+            for (JexlPatternMatcher p : patterns) {
+                if (p.matches(o.toString())) {
                     return true;
                 }
             }
@@ -91,20 +91,20 @@ public class HitListArithmetic extends DatawaveArithmetic implements StatefulAri
             elements = Collections.singleton(left);
         }
         
-        Set<Pattern> patterns;
+        Set<JexlPatternMatcher> patterns;
         if (right instanceof Pattern) {
-            patterns = Collections.singleton((Pattern) right);
+            patterns = Collections.singleton(JexlPatternMatcher.forPattern((Pattern) right));
         } else if (right instanceof Set) {
             patterns = new HashSet<>();
             for (Object r : (Set<Object>) right) {
                 if (r instanceof Pattern) {
-                    patterns.add((Pattern) r);
+                    patterns.add(JexlPatternMatcher.forPattern((Pattern) r));
                 } else {
-                    patterns.add(JexlPatternCache.getPattern(r.toString()));
+                    patterns.add(JexlPatternCache.getMatcher(r.toString()));
                 }
             }
         } else {
-            patterns = Collections.singleton(JexlPatternCache.getPattern(right.toString()));
+            patterns = Collections.singleton(JexlPatternCache.getMatcher(right.toString()));
         }
         
         boolean matches = false;
@@ -112,8 +112,8 @@ public class HitListArithmetic extends DatawaveArithmetic implements StatefulAri
             // normalize the element
             Object normalizedO = ValueTuple.getNormalizedValue(o);
             
-            for (Pattern p : patterns) {
-                if (p.matcher(normalizedO.toString()).matches()) {
+            for (JexlPatternMatcher p : patterns) {
+                if (p.matches(normalizedO.toString())) {
                     this.hitSet.add(ValueTuple.toValueTuple(o));
                     if (!exhaustiveHits) {
                         return true;
@@ -0,0 +1,157 @@
+package datawave.query.jexl;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.query.jexl.nodes.ExceededOrThresholdMarkerJexlNode;
+import datawave.query.jexl.visitors.JexlStringBuildingVisitor;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTERNode;
+import org.apache.commons.jexl2.parser.ASTFunctionNode;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.ASTMethodNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.JexlNode;
+
+/**
+ * A precompiled evaluation plan for a JEXL query.
+ * <p>
+ * The {@link DatawaveInterpreter} memoizes the results of function, equality and regex nodes by their query string, and checks every reference for an
+ * exceeded-or-threshold marker. Done naively, this rebuilds the query string of those nodes and re-parses the marker assignments for every document that is
+ * evaluated. A plan parses the query once and resolves all of that per-node information up front, keyed by the identity of the nodes in the parsed tree, so
+ * that evaluating a document only performs map lookups.
+ * <p>
+ * A plan is immutable once compiled and is safe to share across every document, and every thread, that evaluates the same query.
+ */
+public class JexlEvaluationPlan {
+    
+    private final String query;
+    private final ASTJexlScript script;
+    
+    // memoization keys for the function, EQ and ER nodes
+    private final Map<JexlNode,String> nodeKeys = new IdentityHashMap<>();
+    
+    // function nodes which are paired with a method (e.g. includeRegex(FOO, 'bar').size())
+    private final Set<JexlNode> functionsWithSiblings = Collections.newSetFromMap(new IdentityHashMap<>());
+    
+    // exceeded or threshold marker references mapped to their {id, field}
+    private final Map<JexlNode,String[]> exceededOrMarkers = new IdentityHashMap<>();
+    
+    /**
+     * Compile a plan for the query, parsing it with the shared default engine
+     *
+     * @param query
+     *            the jexl query
+     * @return the evaluation plan
+     */
+    public static JexlEvaluationPlan compile(String query) {
+        return compile(ArithmeticJexlEngines.getEngine(new DefaultArithmetic()), query);
+    }
+    
+    /**
+     * Compile a plan for the query, parsing it with the supplied engine
+     *
+     * @param engine
+     *            the engine used to parse the query
+     * @param query
+     *            the jexl query
+     * @return the evaluation plan
+     */
+    public static JexlEvaluationPlan compile(DatawaveJexlEngine engine, String query) {
+        return new JexlEvaluationPlan(query, engine.parse(query));
+    }
+    
+    public JexlEvaluationPlan(String query, ASTJexlScript script) {
+        this.query = query;
+        this.script = script;
+        
+        // iterative traversal of the tree to avoid stack overflow on large or'd lists
+        Deque<JexlNode> stack = new ArrayDeque<>();
+        stack.push(script);
+        while (!stack.isEmpty()) {
+            JexlNode node = stack.pop();
+            
+            if (node instanceof ASTFunctionNode) {
+                nodeKeys.put(node, JexlStringBuildingVisitor.buildQueryWithoutParse(node));
+                if (isPairedWithMethod(node)) {
+                    functionsWithSiblings.add(node);
+                }
+            } else if (node instanceof ASTEQNode || node instanceof ASTERNode) {
+                nodeKeys.put(node, JexlStringBuildingVisitor.buildQueryWithoutParse(node));
+            } else if (node instanceof ASTReference && ExceededOrThresholdMarkerJexlNode.instanceOf(node)) {
+                exceededOrMarkers.put(node, new String[] {ExceededOrThresholdMarkerJexlNode.getId(node), ExceededOrThresholdMarkerJexlNode.getField(node)});
+            }
+            
+            for (int i = node.jjtGetNumChildren() - 1; i >= 0; i--) {
+                stack.push(node.jjtGetChild(i));
+            }
+        }
+    }
+    
+    /**
+     * a function node that has siblings has a method paired with it, like the size method in includeRegex(foo,bar).size()
+     */
+    private static boolean isPairedWithMethod(JexlNode node) {
+        JexlNode parent = node.jjtGetParent();
+        if (parent == null) {
+            return false;
+        }
+        if (parent.jjtGetNumChildren() > 1) {
+            return true;
+        }
+        return parent.jjtGetParent() instanceof ASTMethodNode;
+    }
+    
+    public String getQuery() {
+        return query;
+    }
+    
+    public ASTJexlScript getScript() {
+        return script;
+    }
+    
+    /**
+     * Get the precomputed memoization key for a node
+     *
+     * @param node
+     *            a node within this plan's script
+     * @return the key, or null if the node is not one which was precomputed
+     */
+    public String getNodeKey(JexlNode node) {
+        return nodeKeys.get(node);
+    }
+    
+    public boolean hasSiblings(ASTFunctionNode node) {
+        return functionsWithSiblings.contains(node);
+    }
+    
+    public boolean isExceededOrThresholdMarker(ASTReference node) {
+        return exceededOrMarkers.containsKey(node);
+    }
+    
+    public String getExceededOrId(ASTReference node) {
+        String[] idAndField = exceededOrMarkers.get(node);
+        return idAndField == null ? null : idAndField[0];
+    }
+    
+    public String getExceededOrField(ASTReference node) {
+        String[] idAndField = exceededOrMarkers.get(node);
+        return idAndField == null ? null : idAndField[1];
+    }
+    
+    /**
+     * @return the number of nodes for which a memoization key was precomputed
+     */
+    public int getNodeKeyCount() {
+        return nodeKeys.size();
+    }
+    
+    @Override
+    public String toString() {
+        return query;
+    }
+}
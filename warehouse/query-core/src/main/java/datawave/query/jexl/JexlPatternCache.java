@@ -1,16 +1,49 @@
 package datawave.query.jexl;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
+import org.apache.accumulo.core.conf.DefaultConfiguration;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.server.util.time.SimpleTimer;
+import org.apache.log4j.Logger;
+
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
 
 /**
- * 
+ * A JVM wide cache of compiled regex matchers. The cache is bounded by the estimated size of the compiled matchers (see {@link JexlPatternMatcher#getWeight()})
+ * rather than by a count, so that a few very large regexes cannot crowd out, and many small literal matchers do not over-count against, the bound.
+ * <p>
+ * On a tserver the cache and matcher statistics are logged periodically once {@link #startReporting(IteratorEnvironment)} has been called.
  */
 public class JexlPatternCache {
+    private static final Logger log = Logger.getLogger(JexlPatternCache.class);
+    
+    private static final long REPORT_PERIOD_MILLIS = 60 * 1000;
+    private static final AtomicBoolean reporting = new AtomicBoolean();
+    private static final AtomicLong lastRequestCount = new AtomicLong();
+    
+    /**
+     * The flags used for every regex evaluated through the cache
+     */
+    public static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE;
+    
+    /**
+     * The maximum total weight, in estimated bytes, of the cached matchers
+     */
+    public static final long MAXIMUM_WEIGHT = 32l * 1024 * 1024;
     
-    private static Cache<String,Pattern> PATTERN_CACHE = CacheBuilder.newBuilder().maximumSize(10000l).initialCapacity(100).concurrencyLevel(10).build();
+    private static Cache<String,JexlPatternMatcher> MATCHER_CACHE = CacheBuilder.newBuilder().maximumWeight(MAXIMUM_WEIGHT)
+                    .weigher(new Weigher<String,JexlPatternMatcher>() {
+                        @Override
+                        public int weigh(String regex, JexlPatternMatcher matcher) {
+                            return matcher.getWeight();
+                        }
+                    }).initialCapacity(100).concurrencyLevel(10).recordStats().build();
     
     /**
      * Returns a cached Pattern
@@ -19,14 +52,59 @@ public class JexlPatternCache {
      * @return
      */
     public static Pattern getPattern(String regex) {
-        Pattern pattern = PATTERN_CACHE.getIfPresent(regex);
-        if (null != pattern) {
-            return pattern;
+        return getMatcher(regex).getPattern();
+    }
+    
+    /**
+     * Returns a cached matcher, specialized for the regex where possible
+     * 
+     * @param regex
+     * @return
+     */
+    public static JexlPatternMatcher getMatcher(String regex) {
+        JexlPatternMatcher matcher = MATCHER_CACHE.getIfPresent(regex);
+        if (null != matcher) {
+            return matcher;
         }
         
-        pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
-        PATTERN_CACHE.put(regex, pattern);
+        matcher = JexlPatternMatcher.compile(regex, FLAGS);
+        MATCHER_CACHE.put(regex, matcher);
         
-        return pattern;
+        return matcher;
+    }
+    
+    /**
+     * @return the hit, miss and eviction statistics for the cache
+     */
+    public static CacheStats getCacheStats() {
+        return MATCHER_CACHE.stats();
+    }
+    
+    /**
+     * @return a summary of the cache statistics, and of the matchers compiled and their match rates
+     */
+    public static String getStatistics() {
+        return "JexlPatternCache size:" + MATCHER_CACHE.size() + " " + getCacheStats() + " matchers:" + JexlPatternMatcher.getStatistics();
+    }
+    
+    /**
+     * Log the statistics every minute in which the cache was used, for the life of the JVM. Only the first call schedules the logging.
+     * 
+     * @param env
+     *            the iterator environment, or null to use the default configuration
+     */
+    public static void startReporting(IteratorEnvironment env) {
+        if (reporting.compareAndSet(false, true)) {
+            SimpleTimer.getInstance(env != null ? env.getConfig() : DefaultConfiguration.getInstance()).schedule(() -> {
+                try {
+                    long requests = getCacheStats().requestCount();
+                    if (requests != lastRequestCount.getAndSet(requests)) {
+                        log.info(getStatistics());
+                    }
+                } catch (Throwable t) {
+                    log.error(t, t);
+                }
+            }, REPORT_PERIOD_MILLIS, REPORT_PERIOD_MILLIS);
+        }
     }
 }
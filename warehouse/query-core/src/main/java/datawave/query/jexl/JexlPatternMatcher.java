@@ -0,0 +1,370 @@
+package datawave.query.jexl;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * A precompiled regex matcher. Most regexes seen in queries are a literal, possibly surrounded by <code>.*</code> (e.g. <code>foo.*</code>,
+ * <code>.*foo</code>, <code>.*foo.*</code>). Those are recognized when the matcher is compiled and are evaluated with a direct character comparison instead of
+ * running the {@link java.util.regex} engine. Anything else falls back to a compiled {@link Pattern}.
+ * <p>
+ * The specialized matchers give exactly the same answer as {@link Pattern#matcher(CharSequence)}.matches() for the same regex and flags. Values containing a
+ * line terminator (which <code>.</code> does not match) are handed to the compiled pattern to preserve that.
+ * <p>
+ * Per-type counts of compiled matchers, match attempts and matches are kept for all matchers in the JVM, see {@link #getStatistics()}.
+ */
+public abstract class JexlPatternMatcher {
+    
+    /**
+     * The strategy used by a matcher
+     */
+    public enum Type {
+        LITERAL, PREFIX, SUFFIX, CONTAINS, PATTERN
+    }
+    
+    // flags which the specialized matchers are able to honor
+    private static final int SUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.MULTILINE;
+    
+    private static final String METACHARACTERS = "\\.[]{}()*+?^$|";
+    
+    private static final LongAdder[] compiled = newCounters();
+    private static final LongAdder[] attempts = newCounters();
+    private static final LongAdder[] matched = newCounters();
+    
+    protected final String regex;
+    protected final int flags;
+    private final Type type;
+    private volatile Pattern pattern;
+    
+    protected JexlPatternMatcher(String regex, int flags, Type type, Pattern pattern) {
+        this.regex = regex;
+        this.flags = flags;
+        this.type = type;
+        this.pattern = pattern;
+    }
+    
+    /**
+     * Compile a matcher for the regex
+     *
+     * @param regex
+     *            the regex
+     * @param flags
+     *            the {@link Pattern} flags
+     * @return the matcher
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the regex is not valid
+     */
+    public static JexlPatternMatcher compile(String regex, int flags) {
+        JexlPatternMatcher matcher = specialize(regex, flags);
+        if (matcher == null) {
+            matcher = new PatternMatcher(Pattern.compile(regex, flags));
+        }
+        compiled[matcher.getType().ordinal()].increment();
+        return matcher;
+    }
+    
+    /**
+     * Recognize a regex which is a literal, optionally with a leading and/or trailing <code>.*</code>
+     *
+     * @param regex
+     *            the regex
+     * @param flags
+     *            the {@link Pattern} flags
+     * @return a specialized matcher, or null if the regex cannot be specialized
+     */
+    private static JexlPatternMatcher specialize(String regex, int flags) {
+        if ((flags & ~SUPPORTED_FLAGS) == 0) {
+            String body = regex;
+            
+            // with a full match, the anchors are implied
+            if (body.startsWith("^")) {
+                // in MULTILINE mode '^' never matches at the end of input, so an empty value cannot match
+                if ((flags & Pattern.MULTILINE) != 0) {
+                    return null;
+                }
+                body = body.substring(1);
+            }
+            if (body.endsWith("$") && !isEscaped(body, body.length() - 1)) {
+                body = body.substring(0, body.length() - 1);
+            }
+            
+            boolean leadingWildcard = false;
+            boolean trailingWildcard = false;
+            if (body.startsWith(".*")) {
+                leadingWildcard = true;
+                body = body.substring(2);
+            }
+            if (body.endsWith(".*") && !isEscaped(body, body.length() - 2)) {
+                trailingWildcard = true;
+                body = body.substring(0, body.length() - 2);
+            }
+            
+            String literal = unescape(body);
+            if (literal != null) {
+                if (leadingWildcard && trailingWildcard) {
+                    return new ContainsMatcher(regex, flags, literal);
+                } else if (leadingWildcard) {
+                    return new SuffixMatcher(regex, flags, literal);
+                } else if (trailingWildcard) {
+                    return new PrefixMatcher(regex, flags, literal);
+                } else {
+                    return new LiteralMatcher(regex, flags, literal);
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Wrap an already compiled pattern
+     *
+     * @param pattern
+     *            the pattern
+     * @return a matcher which delegates to the pattern
+     */
+    public static JexlPatternMatcher forPattern(Pattern pattern) {
+        return new PatternMatcher(pattern);
+    }
+    
+    /**
+     * @return true if the character at index is preceded by an odd number of backslashes
+     */
+    private static boolean isEscaped(String regex, int index) {
+        int backslashes = 0;
+        for (int i = index - 1; i >= 0 && regex.charAt(i) == '\\'; i--) {
+            backslashes++;
+        }
+        return (backslashes % 2) == 1;
+    }
+    
+    /**
+     * Turn a regex into the literal it matches
+     *
+     * @param regex
+     *            the regex
+     * @return the literal, or null if the regex contains anything other than literal characters and escaped punctuation
+     */
+    private static String unescape(String regex) {
+        StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                // an escaped non-alphanumeric character is always that character, anything else (\d, \Q, \1, ...) is not a literal
+                if (i + 1 == regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    return null;
+                }
+                literal.append(regex.charAt(++i));
+            } else if (METACHARACTERS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+    
+    /**
+     * Determine whether the value matches the regex in its entirety
+     *
+     * @param value
+     *            the value
+     * @return true if matched
+     */
+    public final boolean matches(CharSequence value) {
+        boolean matches = evaluate(value);
+        attempts[type.ordinal()].increment();
+        if (matches) {
+            matched[type.ordinal()].increment();
+        }
+        return matches;
+    }
+    
+    protected abstract boolean evaluate(CharSequence value);
+    
+    /**
+     * @return an estimate of the memory held by this matcher, in bytes
+     */
+    public abstract int getWeight();
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public String getRegex() {
+        return regex;
+    }
+    
+    /**
+     * @return the compiled pattern for the regex, compiled on first use for the specialized matchers
+     */
+    public Pattern getPattern() {
+        Pattern p = pattern;
+        if (p == null) {
+            p = Pattern.compile(regex, flags);
+            pattern = p;
+        }
+        return p;
+    }
+    
+    @Override
+    public String toString() {
+        return type + ":" + regex;
+    }
+    
+    private static LongAdder[] newCounters() {
+        LongAdder[] counters = new LongAdder[Type.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+    
+    public static long getCompiledCount(Type type) {
+        return compiled[type.ordinal()].sum();
+    }
+    
+    public static long getMatchAttempts(Type type) {
+        return attempts[type.ordinal()].sum();
+    }
+    
+    public static long getMatchCount(Type type) {
+        return matched[type.ordinal()].sum();
+    }
+    
+    /**
+     * @return a summary of the matchers compiled, and the match rate, for each matcher type
+     */
+    public static String getStatistics() {
+        StringBuilder builder = new StringBuilder();
+        for (Type type : Type.values()) {
+            long tried = getMatchAttempts(type);
+            long hits = getMatchCount(type);
+            builder.append(builder.length() == 0 ? "" : ", ").append(type).append("{compiled=").append(getCompiledCount(type)).append(", attempts=")
+                            .append(tried).append(", matches=").append(hits).append(", rate=").append(tried == 0 ? 0.0d : ((double) hits / tried))
+                            .append('}');
+        }
+        return builder.toString();
+    }
+    
+    /**
+     * Base class for the matchers which compare a literal against the value
+     */
+    private abstract static class LiteralBasedMatcher extends JexlPatternMatcher {
+        protected final String literal;
+        private final boolean caseInsensitive;
+        
+        LiteralBasedMatcher(String regex, int flags, Type type, String literal) {
+            super(regex, flags, type, null);
+            this.literal = literal;
+            this.caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
+        }
+        
+        /**
+         * Compare the literal against the value at the offset. Without UNICODE_CASE, {@link Pattern} only matches US-ASCII characters case insensitively.
+         */
+        protected boolean regionMatches(CharSequence value, int offset) {
+            for (int i = 0; i < literal.length(); i++) {
+                char expected = literal.charAt(i);
+                char actual = value.charAt(offset + i);
+                if (expected != actual && !(caseInsensitive && expected < 128 && actual < 128 && Character.isLetter(expected)
+                                && Character.toLowerCase(expected) == Character.toLowerCase(actual))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * '.' does not match line terminators, so those values are left to the compiled pattern
+         */
+        protected static boolean hasLineTerminator(CharSequence value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public int getWeight() {
+            return 64 + 2 * (regex.length() + literal.length());
+        }
+    }
+    
+    private static class LiteralMatcher extends LiteralBasedMatcher {
+        LiteralMatcher(String regex, int flags, String literal) {
+            super(regex, flags, Type.LITERAL, literal);
+        }
+        
+        @Override
+        protected boolean evaluate(CharSequence value) {
+            return value.length() == literal.length() && regionMatches(value, 0);
+        }
+    }
+    
+    private static class PrefixMatcher extends LiteralBasedMatcher {
+        PrefixMatcher(String regex, int flags, String literal) {
+            super(regex, flags, Type.PREFIX, literal);
+        }
+        
+        @Override
+        protected boolean evaluate(CharSequence value) {
+            if (value.length() < literal.length() || !regionMatches(value, 0)) {
+                return false;
+            }
+            return !hasLineTerminator(value) || getPattern().matcher(value).matches();
+        }
+    }
+    
+    private static class SuffixMatcher extends LiteralBasedMatcher {
+        SuffixMatcher(String regex, int flags, String literal) {
+            super(regex, flags, Type.SUFFIX, literal);
+        }
+        
+        @Override
+        protected boolean evaluate(CharSequence value) {
+            if (value.length() < literal.length() || !regionMatches(value, value.length() - literal.length())) {
+                return false;
+            }
+            return !hasLineTerminator(value) || getPattern().matcher(value).matches();
+        }
+    }
+    
+    private static class ContainsMatcher extends LiteralBasedMatcher {
+        ContainsMatcher(String regex, int flags, String literal) {
+            super(regex, flags, Type.CONTAINS, literal);
+        }
+        
+        @Override
+        protected boolean evaluate(CharSequence value) {
+            if (hasLineTerminator(value)) {
+                return getPattern().matcher(value).matches();
+            }
+            for (int offset = 0; offset <= value.length() - literal.length(); offset++) {
+                if (regionMatches(value, offset)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    private static class PatternMatcher extends JexlPatternMatcher {
+        PatternMatcher(Pattern pattern) {
+            super(pattern.pattern(), pattern.flags(), Type.PATTERN, pattern);
+        }
+        
+        @Override
+        protected boolean evaluate(CharSequence value) {
+            return getPattern().matcher(value).matches();
+        }
+        
+        @Override
+        public int getWeight() {
+            // a compiled pattern holds a node per regex element plus its source and flags
+            return 128 + 48 * regex.length();
+        }
+    }
+}
@@ -6,6 +6,7 @@ import com.google.common.collect.Sets;
 import datawave.data.type.Type;
 import datawave.query.attributes.ValueTuple;
 import datawave.query.jexl.JexlPatternCache;
+import datawave.query.jexl.JexlPatternMatcher;
 import datawave.query.collections.FunctionalSet;
 import org.apache.log4j.Logger;
 
@@ -19,7 +20,6 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -35,6 +35,7 @@ import java.util.regex.Pattern;
 public class EvaluationPhaseFilterFunctions {
     public static final String EVAL_PHASE_FUNCTION_NAMESPACE = "filter";
     public static final String CASE_SENSITIVE_EXPRESSION = ".*\\(\\?[idmsux]*-[dmsux]*i[idmsux]*\\).*";
+    private static final Pattern CASE_SENSITIVE_PATTERN = Pattern.compile(CASE_SENSITIVE_EXPRESSION);
     
     protected static Logger log = Logger.getLogger(EvaluationPhaseFilterFunctions.class);
     
@@ -220,14 +221,20 @@ public class EvaluationPhaseFilterFunctions {
     // Evaluate a regex. Note this is being done against the un-normalized value unless the regex is not case sensitive.
     public static FunctionalSet<ValueTuple> includeRegex(Object fieldValue, String regex) {
         FunctionalSet<ValueTuple> matches = FunctionalSet.emptySet();
-        if (fieldValue != null
-                        && (JexlPatternCache.getPattern(regex).matcher(ValueTuple.getStringValue(fieldValue)).matches() || (JexlPatternCache.getPattern(regex)
-                                        .matcher(ValueTuple.getNormalizedStringValue(fieldValue)).matches() && !regex.matches(CASE_SENSITIVE_EXPRESSION)))) {
-            matches = FunctionalSet.singleton(getHitTerm(fieldValue));
+        if (fieldValue != null) {
+            final JexlPatternMatcher matcher = JexlPatternCache.getMatcher(regex);
+            if (matcher.matches(ValueTuple.getStringValue(fieldValue))
+                            || (matcher.matches(ValueTuple.getNormalizedStringValue(fieldValue)) && !isCaseSensitiveExpression(regex))) {
+                matches = FunctionalSet.singleton(getHitTerm(fieldValue));
+            }
         }
         return matches;
     }
     
+    private static boolean isCaseSensitiveExpression(String regex) {
+        return CASE_SENSITIVE_PATTERN.matcher(regex).matches();
+    }
+    
     // Evaluate a regex. Note this is being done against the un-normalized value unless the regex is not case sensitive.
     public static FunctionalSet<ValueTuple> includeRegex(Iterable<?> values, String regex) {
         FunctionalSet<ValueTuple> matches = FunctionalSet.emptySet();
@@ -238,29 +245,20 @@ public class EvaluationPhaseFilterFunctions {
             return matches;
         }
         
-        final Pattern pattern = JexlPatternCache.getPattern(regex);
-        final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
+        final JexlPatternMatcher matcher = JexlPatternCache.getMatcher(regex);
+        final boolean caseSensitiveExpression = isCaseSensitiveExpression(regex);
         
-        Matcher m = null;
         for (Object value : values) {
             if (null == value)
                 continue;
             
-            if (null == m) {
-                m = pattern.matcher(ValueTuple.getStringValue(value));
-            } else {
-                m.reset(ValueTuple.getStringValue(value));
-            }
-            
-            if (m.matches()) {
+            if (matcher.matches(ValueTuple.getStringValue(value))) {
                 matches = FunctionalSet.singleton(getHitTerm(value));
                 return matches;
             }
             
             if (!caseSensitiveExpression) {
-                m.reset(ValueTuple.getNormalizedStringValue(value));
-                
-                if (m.matches()) {
+                if (matcher.matches(ValueTuple.getNormalizedStringValue(value))) {
                     matches = FunctionalSet.singleton(getHitTerm(value));
                     return matches;
                 }
@@ -281,30 +279,21 @@ public class EvaluationPhaseFilterFunctions {
             return FunctionalSet.unmodifiableSet(matches);
         }
         
-        final Pattern pattern = JexlPatternCache.getPattern(regex);
-        final boolean caseSensitiveExpression = regex.matches(CASE_SENSITIVE_EXPRESSION);
+        final JexlPatternMatcher matcher = JexlPatternCache.getMatcher(regex);
+        final boolean caseSensitiveExpression = isCaseSensitiveExpression(regex);
         
-        Matcher m = null;
         for (Object value : values) {
             if (null == value)
                 continue;
             
-            if (null == m) {
-                m = pattern.matcher(ValueTuple.getStringValue(value));
-            } else {
-                m.reset(ValueTuple.getStringValue(value));
-            }
-            
-            if (m.matches()) {
+            if (matcher.matches(ValueTuple.getStringValue(value))) {
                 matches.add(getHitTerm(value));
-            } else if (pattern.matcher(ValueTuple.getNormalizedStringValue(value)).matches()) {
+            } else if (matcher.matches(ValueTuple.getNormalizedStringValue(value))) {
                 matches.add(getHitTerm(value));
             }
             
             if (!caseSensitiveExpression) {
-                m.reset(ValueTuple.getNormalizedStringValue(value));
-                
-                if (m.matches()) {
+                if (matcher.matches(ValueTuple.getNormalizedStringValue(value))) {
                     matches.add(getHitTerm(value));
                 }
             }
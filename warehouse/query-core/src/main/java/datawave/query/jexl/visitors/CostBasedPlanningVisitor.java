@@ -0,0 +1,164 @@
+package datawave.query.jexl.visitors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import datawave.query.planner.pushdown.CardinalityCostEstimator;
+import datawave.query.planner.pushdown.PlanCostReport;
+
+import org.apache.commons.jexl2.parser.ASTAndNode;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTOrNode;
+import org.apache.commons.jexl2.parser.ASTReference;
+import org.apache.commons.jexl2.parser.ASTReferenceExpression;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.commons.jexl2.parser.JexlNodes;
+import org.apache.log4j.Logger;
+
+/**
+ * Visitor which uses estimated term cardinalities to plan each intersection:
+ * <ul>
+ * <li>the children of an AND are ordered by ascending cost, so the most selective terms are looked up (and evaluated) first</li>
+ * <li>an equality term, or a union, which costs more than evaluationRatio times the cheapest child of the AND is delayed, so that it is evaluated against the
+ * documents found by the cheaper terms instead of being looked up in the index</li>
+ * </ul>
+ * The cheapest child of an AND is never delayed, so an AND which was executable remains executable. Children which could not be estimated are left where they
+ * are relative to each other, after those which were. Estimates and decisions for the equality terms are recorded in a {@link PlanCostReport}.
+ */
+public class CostBasedPlanningVisitor extends BaseVisitor {
+    
+    private static final Logger log = Logger.getLogger(CostBasedPlanningVisitor.class);
+    
+    private final CardinalityCostEstimator estimator;
+    private final double evaluationRatio;
+    private final PlanCostReport report;
+    
+    public CostBasedPlanningVisitor(CardinalityCostEstimator estimator, double evaluationRatio, PlanCostReport report) {
+        this.estimator = estimator;
+        this.evaluationRatio = evaluationRatio;
+        this.report = report;
+    }
+    
+    public static <T extends JexlNode> T plan(T queryTree, CardinalityCostEstimator estimator, double evaluationRatio, PlanCostReport report) {
+        CostBasedPlanningVisitor visitor = new CostBasedPlanningVisitor(estimator, evaluationRatio, report);
+        queryTree.jjtAccept(visitor, null);
+        return queryTree;
+    }
+    
+    @Override
+    public Object visit(ASTReferenceExpression node, Object data) {
+        // if not already delayed somehow
+        if (!QueryPropertyMarker.instanceOf(node, null)) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTReference node, Object data) {
+        // if not already delayed somehow
+        if (!QueryPropertyMarker.instanceOf(node, null)) {
+            return super.visit(node, data);
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTEQNode node, Object data) {
+        String term = getTermKey(node);
+        if (term != null && report != null) {
+            report.recordEstimate(term, getCost(node), PlanCostReport.INDEX, estimator.isFromRootAuths(node));
+        }
+        return data;
+    }
+    
+    @Override
+    public Object visit(ASTAndNode node, Object data) {
+        // plan the nested intersections first
+        super.visit(node, data);
+        
+        JexlNode[] children = JexlNodes.children(node);
+        if (children.length < 2) {
+            return data;
+        }
+        
+        final long[] costs = new long[children.length];
+        List<Integer> order = new ArrayList<>(children.length);
+        for (int i = 0; i < children.length; i++) {
+            costs[i] = getCost(children[i]);
+            order.add(i);
+        }
+        
+        // a stable sort, so children which could not be estimated keep their relative order
+        order.sort(Comparator.comparingLong(i -> costs[i]));
+        
+        JexlNode[] ordered = new JexlNode[children.length];
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = children[order.get(i)];
+        }
+        if (!Arrays.equals(children, ordered)) {
+            JexlNodes.children(node, ordered);
+        }
+        
+        long anchor = costs[order.get(0)];
+        if (anchor != Long.MAX_VALUE && evaluationRatio > 0) {
+            double threshold = anchor * evaluationRatio;
+            for (int i = 1; i < ordered.length; i++) {
+                long cost = costs[order.get(i)];
+                if (cost != Long.MAX_VALUE && cost > threshold && isDelayable(ordered[i])) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Delaying " + JexlStringBuildingVisitor.buildQuery(ordered[i]) + " with cost " + cost + " against an anchor cost of "
+                                        + anchor);
+                    }
+                    recordEvaluation(ordered[i]);
+                    ASTDelayedPredicate.create(ordered[i]);
+                }
+            }
+        }
+        
+        return data;
+    }
+    
+    /**
+     * @return the estimated cost of the node, or Long.MAX_VALUE if it cannot be estimated or cannot be looked up in the index
+     */
+    private long getCost(JexlNode node) {
+        if (QueryPropertyMarker.instanceOf(node, null)) {
+            return Long.MAX_VALUE;
+        }
+        long cost = estimator.estimate(node);
+        return cost <= 0 ? Long.MAX_VALUE : cost;
+    }
+    
+    /**
+     * Only equality terms and unions (of anything) are delayed, anything else is left to the existing pushdown visitors
+     */
+    private boolean isDelayable(JexlNode node) {
+        JexlNode unwrapped = JexlASTHelper.dereference(node);
+        return unwrapped instanceof ASTEQNode || unwrapped instanceof ASTOrNode;
+    }
+    
+    private void recordEvaluation(JexlNode node) {
+        if (report != null) {
+            JexlNode unwrapped = JexlASTHelper.dereference(node);
+            String term = (unwrapped instanceof ASTEQNode ? getTermKey(unwrapped) : JexlStringBuildingVisitor.buildQuery(unwrapped));
+            if (term != null) {
+                report.recordEstimate(term, getCost(unwrapped), PlanCostReport.EVALUATION, estimator.isFromRootAuths(unwrapped));
+            }
+        }
+    }
+    
+    private static String getTermKey(JexlNode node) {
+        try {
+            return PlanCostReport.termKey(JexlASTHelper.getIdentifier(node), JexlASTHelper.getLiteralValue(node));
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+}
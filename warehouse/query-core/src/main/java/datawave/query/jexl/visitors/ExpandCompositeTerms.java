@@ -7,8 +7,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import datawave.data.type.DiscreteIndexType;
 import datawave.data.type.NoOpType;
-import datawave.ingest.data.config.ingest.CompositeIngest;
 import datawave.query.composite.Composite;
+import datawave.query.composite.CompositeFieldIndex;
 import datawave.query.composite.CompositeTerm;
 import datawave.query.composite.CompositeRange;
 import datawave.query.composite.CompositeUtils;
@@ -67,6 +67,8 @@ public class ExpandCompositeTerms extends RebuildingVisitor {
     
     private final ShardQueryConfiguration config;
     
+    private CompositeFieldIndex compositeFieldIndex;
+    
     private HashMap<JexlNode,Composite> jexlNodeToCompMap = new HashMap<>();
     
     private static class ExpandData {
@@ -101,6 +103,7 @@ public class ExpandCompositeTerms extends RebuildingVisitor {
             QueryException qe = new QueryException(DatawaveErrorCode.DATATYPESFORINDEXFIELDS_MULTIMAP_MISSING);
             throw new DatawaveFatalQueryException(qe);
         }
+        visitor.compositeFieldIndex = CompositeFieldIndex.getInstance(visitor.config.getCompositeToFieldMap());
         
         return (T) script.jjtAccept(visitor, new ExpandData());
     }
@@ -461,7 +464,7 @@ public class ExpandCompositeTerms extends RebuildingVisitor {
         // field which only contained the first component term. This means that we are running a query against
         // the base composite term, and thus need to expand our ranges to fully include both the composite and
         // non-composite events in our range.
-        boolean expandRangeForBaseTerm = CompositeIngest.isOverloadedCompositeField(config.getCompositeToFieldMap(), composite.getCompositeName())
+        boolean expandRangeForBaseTerm = compositeFieldIndex.isOverloadedCompositeField(composite.getCompositeName())
                         && composite.getJexlNodeList().size() == 1;
         
         DiscreteIndexType baseTermDiscreteIndexType = config.getFieldToDiscreteIndexTypes().get(composite.getFieldNameList().get(0));
@@ -526,7 +529,7 @@ public class ExpandCompositeTerms extends RebuildingVisitor {
             }
         }
         
-        if (!CompositeIngest.isOverloadedCompositeField(config.getCompositeToFieldMap(), composite.getCompositeName())) {
+        if (!compositeFieldIndex.isOverloadedCompositeField(composite.getCompositeName())) {
             config.getIndexedFields().add(composite.getCompositeName());
             config.getQueryFieldsDatatypes().put(composite.getCompositeName(), new NoOpType());
         }
@@ -607,7 +610,7 @@ public class ExpandCompositeTerms extends RebuildingVisitor {
         // we may need to create or tweak the leaf node's range, so we add a self-mapping
         Multimap<String,String> overloadedCompositeMap = LinkedHashMultimap.create();
         for (String requiredField : leafNodes.keySet())
-            if (CompositeIngest.isOverloadedCompositeField(config.getCompositeToFieldMap(), requiredField))
+            if (compositeFieldIndex.isOverloadedCompositeField(requiredField))
                 overloadedCompositeMap.put(requiredField, requiredField);
         
         // Add overloaded composite entries to the set of entries
@@ -626,24 +629,7 @@ public class ExpandCompositeTerms extends RebuildingVisitor {
      * @return A multimap of composite fields, and their component fields which can be created with the given fields
      */
     private Multimap<String,String> getFilteredCompositeToFieldMap(Collection<String> requiredFields, Collection<String> otherFields) {
-        List<String> allFields = new ArrayList<>();
-        allFields.addAll(requiredFields);
-        allFields.addAll(otherFields);
-        
-        // determine which composites can be made
-        Multimap<String,String> compositeToFieldMap = LinkedHashMultimap.create();
-        for (String compositeField : config.getCompositeToFieldMap().keySet()) {
-            Collection<String> componentFields = new ArrayList<>(config.getCompositeToFieldMap().get(compositeField));
-            
-            // determine whether one of our required fields is present
-            boolean requiredFieldPresent = componentFields.stream().filter(fieldName -> requiredFields.contains(fieldName)).findAny().isPresent();
-            
-            // if a required field is present, and we have all of the
-            // fields needed to make the composite, add it to our list
-            if (requiredFieldPresent && allFields.containsAll(componentFields))
-                compositeToFieldMap.putAll(compositeField, componentFields);
-        }
-        return compositeToFieldMap;
+        return compositeFieldIndex.getFilteredCompositeToFieldMap(requiredFields, otherFields);
     }
     
     /**
@@ -680,7 +666,7 @@ public class ExpandCompositeTerms extends RebuildingVisitor {
             List<String> componentFields = new ArrayList<>(compositeToFieldMap.getValue());
             
             // is this a query against a composite field with old data whose date range predates the transition date?
-            if (CompositeIngest.isOverloadedCompositeField(config.getCompositeToFieldMap(), compositeField)
+            if (compositeFieldIndex.isOverloadedCompositeField(compositeField)
                             && config.getCompositeTransitionDates().containsKey(compositeField)) {
                 Date transitionDate = config.getCompositeTransitionDates().get(compositeField);
                 if (config.getEndDate().compareTo(transitionDate) < 0)
@@ -179,6 +179,9 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             if (updatedQueryMetric.getPlan() != null) {
                 fields.put("PLAN", updatedQueryMetric.getPlan());
             }
+            if (updatedQueryMetric.getPlanCosts() != null) {
+                fields.put("PLAN_COSTS", updatedQueryMetric.getPlanCosts());
+            }
             if (updatedQueryMetric.getQueryId() != null) {
                 fields.put("QUERY_ID", updatedQueryMetric.getQueryId());
             }
@@ -235,6 +238,10 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             fields.put("YIELD_COUNT", Long.toString(updatedQueryMetric.getYieldCount()));
             fields.put("DOC_RANGES", Long.toString(updatedQueryMetric.getDocRanges()));
             fields.put("FI_RANGES", Long.toString(updatedQueryMetric.getFiRanges()));
+            fields.put("DEDUPE_BYTES", Long.toString(updatedQueryMetric.getDedupeBytes()));
+            fields.put("DEDUPE_FALSE_POSITIVES", Long.toString(updatedQueryMetric.getDedupeFalsePositives()));
+            fields.put("TIME_TO_FIRST_RANGE", Long.toString(updatedQueryMetric.getTimeToFirstRange()));
+            fields.put("TIME_TO_FIRST_RESULT", Long.toString(updatedQueryMetric.getTimeToFirstResult()));
             Set<Prediction> predictions = updatedQueryMetric.getPredictions();
             if (predictions != null && !predictions.isEmpty()) {
                 for (Prediction prediction : predictions) {
@@ -338,6 +345,21 @@ public class ContentQueryMetricsIngestHelper extends CSVIngestHelper implements
             if (updatedQueryMetric.getFiRanges() != storedQueryMetric.getFiRanges()) {
                 fields.put("FI_RANGES", Long.toString(storedQueryMetric.getFiRanges()));
             }
+            if (updatedQueryMetric.getDedupeBytes() != storedQueryMetric.getDedupeBytes()) {
+                fields.put("DEDUPE_BYTES", Long.toString(storedQueryMetric.getDedupeBytes()));
+            }
+            if (updatedQueryMetric.getDedupeFalsePositives() != storedQueryMetric.getDedupeFalsePositives()) {
+                fields.put("DEDUPE_FALSE_POSITIVES", Long.toString(storedQueryMetric.getDedupeFalsePositives()));
+            }
+            if (updatedQueryMetric.getTimeToFirstRange() != storedQueryMetric.getTimeToFirstRange()) {
+                fields.put("TIME_TO_FIRST_RANGE", Long.toString(storedQueryMetric.getTimeToFirstRange()));
+            }
+            if (updatedQueryMetric.getTimeToFirstResult() != storedQueryMetric.getTimeToFirstResult()) {
+                fields.put("TIME_TO_FIRST_RESULT", Long.toString(storedQueryMetric.getTimeToFirstResult()));
+            }
+            if (storedQueryMetric.getPlanCosts() != null && !storedQueryMetric.getPlanCosts().equals(updatedQueryMetric.getPlanCosts())) {
+                fields.put("PLAN_COSTS", storedQueryMetric.getPlanCosts());
+            }
             
             putExtendedFieldsToDelete(updatedQueryMetric, fields);
             
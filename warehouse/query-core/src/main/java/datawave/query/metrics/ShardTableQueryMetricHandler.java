@@ -664,6 +664,8 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                     m.setQuery(fieldValue);
                 } else if (fieldName.equals("PLAN")) {
                     m.setPlan(fieldValue);
+                } else if (fieldName.equals("PLAN_COSTS")) {
+                    m.setPlanCosts(fieldValue);
                 } else if (fieldName.equals("QUERY_LOGIC")) {
                     m.setQueryLogic(fieldValue);
                 } else if (fieldName.equals("QUERY_ID")) {
@@ -789,6 +791,22 @@ public class ShardTableQueryMetricHandler extends BaseQueryMetricHandler<QueryMe
                 
                 else if (fieldName.equals("FI_RANGES")) {
                     m.setFiRanges(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("DEDUPE_BYTES")) {
+                    m.setDedupeBytes(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("DEDUPE_FALSE_POSITIVES")) {
+                    m.setDedupeFalsePositives(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("TIME_TO_FIRST_RANGE")) {
+                    m.setTimeToFirstRange(Long.parseLong(fieldValue));
+                }
+                
+                else if (fieldName.equals("TIME_TO_FIRST_RESULT")) {
+                    m.setTimeToFirstResult(Long.parseLong(fieldValue));
                 } else {
                     log.error("encountered unanticipated field name: " + fieldName);
                 }
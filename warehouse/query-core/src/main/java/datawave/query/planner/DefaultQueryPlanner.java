@@ -30,6 +30,9 @@ import datawave.query.exceptions.InvalidQueryException;
 import datawave.query.exceptions.NoResultsException;
 import datawave.query.index.lookup.IndexStream.StreamContext;
 import datawave.query.index.lookup.RangeStream;
+import datawave.query.index.stats.FieldSketch;
+import datawave.query.index.stats.FieldSketchCache;
+import datawave.query.index.stats.IndexStatsClient;
 import datawave.query.iterator.CloseableListIterable;
 import datawave.query.iterator.QueryIterator;
 import datawave.query.iterator.QueryOptions;
@@ -40,6 +43,7 @@ import datawave.query.jexl.functions.EvaluationPhaseFilterFunctions;
 import datawave.query.jexl.functions.QueryFunctions;
 import datawave.query.jexl.visitors.BoundedRangeDetectionVisitor;
 import datawave.query.jexl.visitors.CaseSensitivityVisitor;
+import datawave.query.jexl.visitors.CostBasedPlanningVisitor;
 import datawave.query.jexl.visitors.DepthVisitor;
 import datawave.query.jexl.visitors.ExecutableDeterminationVisitor;
 import datawave.query.jexl.visitors.ExecutableDeterminationVisitor.STATE;
@@ -78,6 +82,8 @@ import datawave.query.jexl.visitors.ValidPatternVisitor;
 import datawave.query.model.QueryModel;
 import datawave.query.planner.comparator.DefaultQueryPlanComparator;
 import datawave.query.planner.comparator.GeoWaveQueryPlanComparator;
+import datawave.query.planner.pushdown.CardinalityCostEstimator;
+import datawave.query.planner.pushdown.PlanCostReport;
 import datawave.query.planner.pushdown.PushDownVisitor;
 import datawave.query.planner.pushdown.rules.PushDownRule;
 import datawave.query.planner.rules.NodeTransformRule;
@@ -89,6 +95,7 @@ import datawave.query.util.DateIndexHelper;
 import datawave.query.util.MetadataHelper;
 import datawave.query.util.QueryStopwatch;
 import datawave.query.util.Tuple2;
+import datawave.util.time.DateHelper;
 import datawave.util.time.TraceStopwatch;
 import datawave.webservice.common.logging.ThreadConfigurableLogger;
 import datawave.webservice.query.Query;
@@ -478,6 +485,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
                 .setNumRangesToBuffer(config.getNumRangesToBuffer())
                 .setRangeBufferTimeoutMillis(config.getRangeBufferTimeoutMillis())
                 .setRangeBufferPollMillis(config.getRangeBufferPollMillis())
+                .setRangeLookaheadDays(config.getRangeLookaheadDays())
                 .build();
         // @formatter:on
     }
@@ -501,6 +509,8 @@ public class DefaultQueryPlanner extends QueryPlanner {
         addOption(cfg, QueryOptions.QUERY_ID, config.getQuery().getId().toString(), false);
         addOption(cfg, QueryOptions.FULL_TABLE_SCAN_ONLY, Boolean.toString(isFullTable), false);
         addOption(cfg, QueryOptions.TRACK_SIZES, Boolean.toString(config.isTrackSizes()), true);
+        addOption(cfg, QueryOptions.TLD_ASSEMBLY_PARTITIONS, Integer.toString(config.getTldAssemblyPartitions()), false);
+        addOption(cfg, QueryOptions.TLD_ASSEMBLY_MAX_CHILDREN, Integer.toString(config.getTldAssemblyMaxChildren()), false);
         // Set the start and end dates
         configureTypeMappings(config, cfg, metadataHelper, compressMappings);
     }
@@ -904,6 +914,15 @@ public class DefaultQueryPlanner extends QueryPlanner {
         // running it here before any unfielded expansions to enable potentially pushing down terms before index lookups
         queryTree = applyNodeTransformRules(queryTree, getTransformRules(), config, metadataHelper, "Pre unfielded expansions");
         
+        // raise the expansion thresholds to what the index stats sketches say is needed, before any index expansions
+        if (config.isCardinalitySketches()) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Apply cardinality sketch estimates");
+            
+            applyCardinalitySketches(queryTree, config, metadataHelper);
+            
+            stopwatch.stop();
+        }
+        
         // Find unfielded terms, and fully qualify them with an OR of all fields
         // found in the index
         // If the max term expansion is reached, then the original query tree is
@@ -1109,7 +1128,7 @@ public class DefaultQueryPlanner extends QueryPlanner {
         Set<String> indexedFields = null;
         Set<String> indexOnlyFields = null;
         Set<String> nonEventFields = null;
-        if (config.getMinSelectivity() > 0 || !disableBoundedLookup) {
+        if (config.getMinSelectivity() > 0 || config.isCostBasedPlanning() || !disableBoundedLookup) {
             try {
                 indexedFields = metadataHelper.getIndexedFields(config.getDatatypeFilter());
                 indexOnlyFields = metadataHelper.getIndexOnlyFields(config.getDatatypeFilter());
@@ -1148,6 +1167,32 @@ public class DefaultQueryPlanner extends QueryPlanner {
             stopwatch.stop();
         }
         
+        // reorder intersections and delay expensive terms using the estimated term cardinalities
+        if (config.isCostBasedPlanning()) {
+            stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Cost based planning");
+            
+            queryTree = applyCostBasedPlanning(queryTree, config, metadataHelper, scannerFactory);
+            if (log.isDebugEnabled()) {
+                logQuery(queryTree, "Query after cost based planning:");
+                log.debug("Estimated term costs:\n" + config.getPlanCostReport());
+            }
+            
+            List<String> debugOutput = null;
+            if (log.isDebugEnabled()) {
+                debugOutput = new ArrayList<>(32);
+            }
+            if (!ExecutableDeterminationVisitor.isExecutable(queryTree, config, indexedFields, indexOnlyFields, nonEventFields, debugOutput, metadataHelper)) {
+                queryTree = (ASTJexlScript) PushdownUnexecutableNodesVisitor.pushdownPredicates(queryTree, config, indexedFields, indexOnlyFields,
+                                nonEventFields, metadataHelper);
+                if (log.isDebugEnabled()) {
+                    logDebug(debugOutput, "Executable state after cost based planning:");
+                    logQuery(queryTree, "Query after partially executable pushdown :");
+                }
+            }
+            
+            stopwatch.stop();
+        }
+        
         if (!disableCompositeFields) {
             stopwatch = timers.newStartedStopwatch("DefaultQueryPlanner - Expand composite terms");
             
@@ -1305,6 +1350,99 @@ public class DefaultQueryPlanner extends QueryPlanner {
         }
     }
     
+    /**
+     * Plan the intersections in the query tree using term cardinalities from the metadata table and field weights from the index stats table. The estimates are
+     * recorded in a {@link PlanCostReport} on the configuration, to which the range stream adds the actual index entries read for each term.
+     *
+     * @param queryTree
+     * @param config
+     * @param metadataHelper
+     * @param scannerFactory
+     * @return the planned query tree
+     */
+    protected ASTJexlScript applyCostBasedPlanning(ASTJexlScript queryTree, ShardQueryConfiguration config, MetadataHelper metadataHelper,
+                    ScannerFactory scannerFactory) {
+        Map<String,Double> fieldWeights = Collections.emptyMap();
+        if (config.getConnector() != null) {
+            IndexStatsClient statsClient = new IndexStatsClient(config.getConnector(), config.getIndexStatsTableName());
+            fieldWeights = statsClient.safeGetStat(JexlASTHelper.getIdentifierNames(queryTree), config.getDatatypeFilter(), config.getBeginDate(),
+                            config.getEndDate());
+        }
+        
+        PlanCostReport report = new PlanCostReport();
+        config.setPlanCostReport(report);
+        
+        CardinalityCostEstimator estimator = new CardinalityCostEstimator(config, scannerFactory, metadataHelper, fieldWeights);
+        return CostBasedPlanningVisitor.plan(queryTree, estimator, config.getCostEvaluationRatio(), report);
+    }
+    
+    /**
+     * Raise the value and unfielded expansion thresholds using estimates from the index stats sketches, rather than scanning the global index. A field whose
+     * estimated distinct values (plus a margin for the sketch error) are under the sketch expansion ceiling can always be fully expanded, so the value
+     * threshold is raised to cover it instead of leaving its regexes and ranges to an ivarator. Likewise the unfielded threshold is raised to the number of
+     * expansion fields with any values in the date range. Thresholds are never lowered. The estimates and the thresholds chosen are logged so that they can
+     * be compared with the expansions actually made.
+     * 
+     * @param queryTree
+     * @param config
+     * @param metadataHelper
+     */
+    protected void applyCardinalitySketches(ASTJexlScript queryTree, ShardQueryConfiguration config, MetadataHelper metadataHelper) {
+        if (config.getConnector() == null) {
+            return;
+        }
+        
+        FieldSketchCache sketches = new FieldSketchCache(config.getConnector(), config.getIndexStatsSketchTableName(), config.getAuthorizations());
+        String beginDate = DateHelper.format(config.getBeginDate());
+        String endDate = DateHelper.format(config.getEndDate());
+        Set<String> datatypes = config.getDatatypeFilter();
+        int ceiling = config.getSketchExpansionCeiling();
+        StringBuilder estimates = new StringBuilder();
+        
+        try {
+            Set<String> fields = JexlASTHelper.getIdentifierNames(queryTree);
+            long maxDistinct = 0;
+            for (String field : fields) {
+                if (Constants.ANY_FIELD.equals(field) || Constants.NO_FIELD.equals(field)) {
+                    continue;
+                }
+                FieldSketch estimate = sketches.estimate(field, beginDate, endDate, datatypes);
+                if (estimate == null) {
+                    estimates.append(field).append(": no sketches\n");
+                    continue;
+                }
+                long distinct = estimate.getCardinality();
+                estimates.append(field).append(": values=").append(estimate.getCount()).append(", distinct=").append(distinct).append('\n');
+                distinct += distinct / 10;
+                if (distinct <= ceiling) {
+                    maxDistinct = Math.max(maxDistinct, distinct);
+                }
+            }
+            if (maxDistinct > config.getMaxValueExpansionThreshold()) {
+                log.info("Raising the value expansion threshold from " + config.getMaxValueExpansionThreshold() + " to " + maxDistinct
+                                + " using sketch estimates");
+                config.setMaxValueExpansionThreshold((int) maxDistinct);
+            }
+            
+            if (fields.contains(Constants.ANY_FIELD)) {
+                // counting past the ceiling would not change the threshold
+                int populatedFields = sketches.countPopulatedFields(metadataHelper.getExpansionFields(datatypes), beginDate, endDate, datatypes, ceiling + 1);
+                estimates.append(Constants.ANY_FIELD).append(": populated expansion fields=").append(populatedFields).append('\n');
+                if (populatedFields > config.getMaxUnfieldedExpansionThreshold() && populatedFields <= ceiling) {
+                    log.info("Raising the unfielded expansion threshold from " + config.getMaxUnfieldedExpansionThreshold() + " to " + populatedFields
+                                    + " using sketch estimates");
+                    config.setMaxUnfieldedExpansionThreshold(populatedFields);
+                }
+            }
+        } catch (IOException | TableNotFoundException e) {
+            log.warn("Unable to estimate field cardinalities from " + config.getIndexStatsSketchTableName() + ", keeping the configured thresholds", e);
+        }
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Sketch estimates for " + beginDate + " to " + endDate + ":\n" + estimates);
+        }
+    }
+    
     // Overwrite projection and blacklist properties if the query model is
     // being used
     protected ASTJexlScript applyQueryModel(MetadataHelper metadataHelper, ShardQueryConfiguration config, TraceStopwatch stopwatch, ASTJexlScript queryTree,
@@ -73,6 +73,7 @@ public class FacetedQueryPlanner extends IndexQueryPlanner {
         cfg.addOption(DynamicFacetIterator.FACETED_SEARCH_TYPE, facetedConfig.getType().toString());
         cfg.addOption(DynamicFacetIterator.FACETED_MINIMUM, Integer.valueOf(facetedConfig.getMinimumFacetCount()).toString());
         cfg.addOption(DynamicFacetIterator.FACETED_SEARCH_FIELDS, Joiner.on(",").join(facetedConfig.getFacetedFields()));
+        cfg.addOption(DynamicFacetIterator.FACETED_PARTIAL_SIZE, Integer.toString(facetedConfig.getPartialSummarySize()));
         
         if (log.isTraceEnabled())
             log.trace("Configuration is " + facetedConfig);
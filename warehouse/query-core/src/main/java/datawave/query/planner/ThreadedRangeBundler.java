@@ -24,6 +24,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
     private final long rangeBufferTimeoutMillis;
     private final long rangeBufferPollMillis;
     private final long maxRangeWaitMillis;
+    private final int rangeLookaheadDays;
     private ThreadedRangeBundlerIterator iterator;
     
     /**
@@ -48,6 +49,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
         this.numRangesToBuffer = builder.numRangesToBuffer;
         this.rangeBufferTimeoutMillis = builder.rangeBufferTimeoutMillis;
         this.rangeBufferPollMillis = builder.rangeBufferPollMillis;
+        this.rangeLookaheadDays = builder.rangeLookaheadDays;
     }
     
     public QueryData getOriginal() {
@@ -98,6 +100,17 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
         return maxRangeWaitMillis;
     }
     
+    public int getRangeLookaheadDays() {
+        return rangeLookaheadDays;
+    }
+    
+    /**
+     * @return the milliseconds from the start of the range stream until the first range was handed out, or -1 if none has been
+     */
+    public long getTimeToFirstRangeMillis() {
+        return (null != iterator) ? iterator.getTimeToFirstRangeMillis() : -1;
+    }
+    
     /**
      * Builds and returns a new {@link ThreadedRangeBundlerIterator}.
      * 
@@ -126,6 +139,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
                 .setNumRangesToBuffer(numRangesToBuffer)
                 .setRangeBufferTimeoutMillis(rangeBufferTimeoutMillis)
                 .setRangeBufferPollMillis(rangeBufferPollMillis)
+                .setRangeLookaheadDays(rangeLookaheadDays)
                 .build();
         // @formatter:on
         
@@ -162,6 +176,7 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
         private int numRangesToBuffer;
         private long rangeBufferTimeoutMillis;
         private long rangeBufferPollMillis = 100L;
+        private int rangeLookaheadDays;
         
         public Builder setOriginal(QueryData original) {
             this.original = original;
@@ -223,6 +238,11 @@ public class ThreadedRangeBundler implements CloseableIterable<QueryData> {
             return this;
         }
         
+        public Builder setRangeLookaheadDays(int rangeLookaheadDays) {
+            this.rangeLookaheadDays = rangeLookaheadDays;
+            return this;
+        }
+        
         /**
          * Builds and returns a new {@link ThreadedRangeBundler}. The following default values will be used unless specified otherwise in the builder.
          *
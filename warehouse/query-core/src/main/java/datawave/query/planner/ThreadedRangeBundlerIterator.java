@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -68,6 +69,14 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
     protected long rangeBufferTimeoutMillis;
     protected long rangeBufferPollMillis;
     protected long startTimeMillis;
+    protected long firstRangeMillis = -1;
+    
+    /**
+     * The days of the plans put on the range queue that have not yet been passed by the plans handed out, oldest first
+     */
+    protected final LinkedList<String> pendingDays = new LinkedList<>();
+    protected final Object lookaheadLock = new Object();
+    protected int rangeLookaheadDays;
     
     private ThreadedRangeBundlerIterator(Builder builder) {
         
@@ -103,6 +112,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         this.numRangesToBuffer = builder.getNumRangesToBuffer();
         this.rangeBufferTimeoutMillis = builder.getRangeBufferTimeoutMillis();
         this.rangeBufferPollMillis = builder.getRangeBufferPollMillis();
+        this.rangeLookaheadDays = builder.getRangeLookaheadDays();
         
         rangeConsumer = new RangeConsumer(builder.getRanges());
         rangeConsumerThread = new Thread(rangeConsumer);
@@ -155,6 +165,8 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                         break;
                     }
                     
+                    releaseLookahead(getDay(plan));
+                    
                     // if the generated query is larger, use the original
                     if (null != queryTree && (plan.getQueryString().length() > original.getQuery().length())) {
                         plan.setQuery(original.getQuery(), queryTree);
@@ -315,6 +327,12 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                 this.rangesProcessed += current.getRanges().size();
                 this.producerCount++;
                 
+                if (this.producerCount == 1) {
+                    this.firstRangeMillis = System.currentTimeMillis() - this.startTimeMillis;
+                    if (log.isDebugEnabled())
+                        log.debug("First range produced after " + this.firstRangeMillis + " ms");
+                }
+                
                 if (log.isTraceEnabled() && 10 % this.producerCount == 0) {
                     log.trace("Produced " + this.producerCount + " QueryData objects with " + this.rangesProcessed + " total range(s)");
                 }
@@ -334,6 +352,75 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         throw new UnsupportedOperationException(this.getClass().getName() + " does not implement Iterator#remove().");
     }
     
+    /**
+     * @return the milliseconds from the start of the range stream until the first range was handed out, or -1 if none has been
+     */
+    public long getTimeToFirstRangeMillis() {
+        return firstRangeMillis;
+    }
+    
+    /**
+     * Get the day of a plan from the row of its first range, e.g. 20190314 for 20190314_4
+     * 
+     * @param plan
+     * @return the day, or null if the plan has no bounded range
+     */
+    protected static String getDay(QueryPlan plan) {
+        Iterator<Range> ranges = plan.getRanges().iterator();
+        if (!ranges.hasNext()) {
+            return null;
+        }
+        Key start = ranges.next().getStartKey();
+        if (null == start) {
+            return null;
+        }
+        String row = start.getRow().toString();
+        int index = row.indexOf('_');
+        return index < 0 ? row : row.substring(0, index);
+    }
+    
+    /**
+     * Wait until a plan of the given day may be put on the range queue. The global index is streamed a day at a time, so bounding the number of days queued
+     * ahead of the day being scanned keeps the index lookups for later days from running far ahead of the scans, which matters when only the first pages of
+     * a long date range are ever read.
+     * 
+     * @param day
+     *            the day of the plan
+     * @throws InterruptedException
+     */
+    protected void awaitLookahead(String day) throws InterruptedException {
+        if (rangeLookaheadDays <= 0 || null == day) {
+            return;
+        }
+        synchronized (lookaheadLock) {
+            if (!pendingDays.isEmpty() && pendingDays.getLast().equals(day)) {
+                return;
+            }
+            while (pendingDays.size() > rangeLookaheadDays && !rangeConsumer.isStopped()) {
+                lookaheadLock.wait(maxWaitUnit.toMillis(maxWaitValue) + 1);
+            }
+            pendingDays.add(day);
+        }
+    }
+    
+    /**
+     * A plan of the given day has been handed out, so the days before it are no longer queued
+     * 
+     * @param day
+     *            the day of the plan
+     */
+    protected void releaseLookahead(String day) {
+        if (rangeLookaheadDays <= 0 || null == day) {
+            return;
+        }
+        synchronized (lookaheadLock) {
+            while (!pendingDays.isEmpty() && pendingDays.getFirst().compareTo(day) < 0) {
+                pendingDays.removeFirst();
+            }
+            lookaheadLock.notifyAll();
+        }
+    }
+    
     /**
      * It is expected that the ranges supplied by plans are in sorted order. In the ThreadedRAngeBundlerIterator, this will always be the case
      * 
@@ -493,7 +580,8 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                 sb.append(", Event Ranges: ").append(eventRanges);
                 sb.append(", Shard-Datatype Ranges: ").append(shardDatatypeRanges);
                 sb.append(", Shard Ranges: ").append(shardRanges);
-                sb.append(", Day Ranges: ").append(dayRanges).append("}");
+                sb.append(", Day Ranges: ").append(dayRanges);
+                sb.append(", Time to first range: ").append(firstRangeMillis).append(" ms}");
                 log.debug(sb.toString());
             }
         }
@@ -538,6 +626,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
                     QueryPlan nextPlan = ranges.next();
                     if (log.isTraceEnabled())
                         log.trace("RangeConsumer count is " + count + " " + nextPlan.getRanges());
+                    awaitLookahead(getDay(nextPlan));
                     rangeQueue.put(nextPlan);
                     
                 }
@@ -565,6 +654,7 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
         protected int numRangesToBuffer = 0;
         protected long rangeBufferTimeoutMillis = 0;
         protected long rangeBufferPollMillis = 100;
+        protected int rangeLookaheadDays = 0;
         
         public QueryData getOriginal() {
             return original;
@@ -683,6 +773,15 @@ public class ThreadedRangeBundlerIterator implements Iterator<QueryData>, Closea
             return this;
         }
         
+        public int getRangeLookaheadDays() {
+            return rangeLookaheadDays;
+        }
+        
+        public Builder setRangeLookaheadDays(int rangeLookaheadDays) {
+            this.rangeLookaheadDays = rangeLookaheadDays;
+            return this;
+        }
+        
         public ThreadedRangeBundlerIterator build() {
             return new ThreadedRangeBundlerIterator(this);
         }
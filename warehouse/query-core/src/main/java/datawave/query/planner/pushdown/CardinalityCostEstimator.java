@@ -0,0 +1,130 @@
+package datawave.query.planner.pushdown;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import datawave.data.MetadataCardinalityCounts;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.jexl.nodes.QueryPropertyMarker;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.util.MetadataHelper;
+
+import org.apache.commons.jexl2.parser.ASTEQNode;
+import org.apache.commons.jexl2.parser.ASTNotNode;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.apache.log4j.Logger;
+
+/**
+ * A {@link CostEstimator} which costs an equality term by its cardinality. The cost of a term, in index entries, is taken from the first of these which is
+ * available:
+ * <ol>
+ * <li>the term counts kept in the metadata table</li>
+ * <li>the field count for the query date range, divided by the number of distinct values implied by the field's index-stats weight (the ratio of unique to
+ * total values)</li>
+ * <li>the field count for the query date range</li>
+ * </ol>
+ * Anything which is already marked (delayed, evaluation only, ivarator, ...) and negations are not index lookups and have no cost.
+ */
+public class CardinalityCostEstimator extends CostEstimator {
+    
+    private static final Logger log = Logger.getLogger(CardinalityCostEstimator.class);
+    
+    private final Map<String,Double> fieldWeights;
+    private Map<String,Map<String,MetadataCardinalityCounts>> termCounts;
+    
+    public CardinalityCostEstimator(ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelper helper, Map<String,Double> fieldWeights) {
+        super(config, scannerFactory, helper);
+        this.fieldWeights = (fieldWeights == null ? Collections.emptyMap() : fieldWeights);
+    }
+    
+    /**
+     * @return the total cost of the subtree, or 0 if it could not be estimated
+     */
+    public long estimate(JexlNode node) {
+        Cost cost = computeCostForSubtree(node);
+        long total = cost.getERCost() + cost.getOtherCost();
+        // saturate rather than overflow
+        if (total < 0) {
+            return Long.MAX_VALUE;
+        }
+        return total;
+    }
+    
+    @Override
+    public Cost computeCostForSubtree(JexlNode node) {
+        if (node instanceof ASTNotNode || QueryPropertyMarker.instanceOf(node, null)) {
+            return new Cost();
+        }
+        
+        Cost cost = super.computeCostForSubtree(node);
+        if (node instanceof ASTEQNode && !cost.isUnevaluated() && cost.getOtherCost() != Long.MAX_VALUE) {
+            try {
+                String field = JexlASTHelper.getIdentifier(node);
+                Object literal = JexlASTHelper.getLiteralValue(node);
+                
+                Long termCount = getTermCount(field, String.valueOf(literal));
+                if (termCount != null) {
+                    return new Cost(0l, termCount);
+                }
+                
+                Double weight = fieldWeights.get(field);
+                long fieldCount = cost.getOtherCost();
+                if (weight != null && weight > 0.0d && weight <= 1.0d && fieldCount > 0) {
+                    long distinctValues = Math.max(1l, Math.round(fieldCount * weight));
+                    return new Cost(0l, Math.max(1l, fieldCount / distinctValues));
+                }
+            } catch (NoSuchElementException e) {
+                log.trace("Could not find field name or value for EQ node, using the field count");
+            }
+        }
+        return cost;
+    }
+    
+    /**
+     * Whether the estimate of a subtree may have used the term counts, which are read with root auths. Such estimates can reveal counts of data the user
+     * cannot see, so they may be used for planning but must not be shown to the user.
+     * 
+     * @param node
+     *            the subtree
+     * @return true if any equality term in the subtree has a term count
+     */
+    public boolean isFromRootAuths(JexlNode node) {
+        JexlNode unwrapped = JexlASTHelper.dereference(node);
+        if (unwrapped instanceof ASTEQNode) {
+            try {
+                return getTermCount(JexlASTHelper.getIdentifier(unwrapped), String.valueOf(JexlASTHelper.getLiteralValue(unwrapped))) != null;
+            } catch (NoSuchElementException e) {
+                return false;
+            }
+        }
+        for (int i = 0; i < unwrapped.jjtGetNumChildren(); i++) {
+            if (isFromRootAuths(unwrapped.jjtGetChild(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private Long getTermCount(String field, String value) {
+        if (termCounts == null) {
+            try {
+                // The term counts are read with root auths (ignoring user auths) because this information is not
+                // exposed to the user. It is only used to adjust the query planning.
+                termCounts = helper.getTermCountsWithRootAuths();
+            } catch (Exception e) {
+                log.error("Could not retrieve counts from metadata helper", e);
+                termCounts = Collections.emptyMap();
+            }
+        }
+        Map<String,MetadataCardinalityCounts> valueCounts = termCounts.get(field);
+        if (valueCounts != null) {
+            MetadataCardinalityCounts counts = valueCounts.get(value);
+            if (counts != null) {
+                return (long) counts.getFieldValueCount();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,125 @@
+package datawave.query.planner.pushdown;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The estimated and actual cost of the terms in a query plan. Estimates, in index entries, are recorded by the cost based planning stage along with the
+ * decision made for the term (looked up in the index, or delayed to evaluation). Actual costs are the number of index entries read for a term while the ranges
+ * are streamed from the global index, so they accumulate while the query runs and are only complete once it has finished.
+ * <p>
+ * Estimates taken from the term counts are read with root auths, so they are only written to the server logs. {@link #toMetricString()} withholds them.
+ */
+public class PlanCostReport {
+    
+    public static final String INDEX = "index";
+    public static final String EVALUATION = "evaluation";
+    
+    private final Map<String,TermCost> terms = new ConcurrentSkipListMap<>();
+    
+    /**
+     * The key used for an equality term
+     * 
+     * @param field
+     *            the field name
+     * @param value
+     *            the value
+     * @return the term key
+     */
+    public static String termKey(String field, Object value) {
+        return field + " == '" + value + "'";
+    }
+    
+    private TermCost get(String term) {
+        return terms.computeIfAbsent(term, k -> new TermCost());
+    }
+    
+    /**
+     * @param term
+     *            the term key
+     * @param estimate
+     *            the estimated index entries
+     * @param decision
+     *            whether the term is looked up in the index or delayed to evaluation
+     * @param fromRootAuths
+     *            whether the estimate used counts read with root auths, which must not be shown to the user
+     */
+    public void recordEstimate(String term, long estimate, String decision, boolean fromRootAuths) {
+        TermCost cost = get(term);
+        cost.estimate = estimate;
+        cost.decision = decision;
+        cost.fromRootAuths = fromRootAuths;
+    }
+    
+    public void recordActual(String term, long count) {
+        TermCost cost = get(term);
+        cost.actual.add(count);
+        cost.actualRecorded = true;
+    }
+    
+    /**
+     * @return the estimate for the term, or -1 if it was not estimated
+     */
+    public long getEstimate(String term) {
+        TermCost cost = terms.get(term);
+        return cost == null ? -1 : cost.estimate;
+    }
+    
+    /**
+     * @return the index entries read for the term so far, or -1 if it has not been looked up
+     */
+    public long getActual(String term) {
+        TermCost cost = terms.get(term);
+        return (cost == null || !cost.actualRecorded) ? -1 : cost.actual.sum();
+    }
+    
+    public String getDecision(String term) {
+        TermCost cost = terms.get(term);
+        return cost == null ? null : cost.decision;
+    }
+    
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return format(false);
+    }
+    
+    /**
+     * @return the report as it may be recorded on the query metric, with the estimates read with root auths withheld
+     */
+    public String toMetricString() {
+        return format(true);
+    }
+    
+    private String format(boolean withholdRootAuths) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String,TermCost> entry : terms.entrySet()) {
+            TermCost cost = entry.getValue();
+            String estimate;
+            if (withholdRootAuths && cost.fromRootAuths) {
+                estimate = "withheld";
+            } else {
+                estimate = cost.estimate < 0 ? "?" : Long.toString(cost.estimate);
+            }
+            builder.append(entry.getKey()).append(": estimated=").append(estimate).append(", actual=")
+                            .append(cost.actualRecorded ? Long.toString(cost.actual.sum()) : "?");
+            if (cost.decision != null) {
+                builder.append(" (").append(cost.decision).append(')');
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+    
+    private static class TermCost {
+        private volatile long estimate = -1;
+        private volatile String decision;
+        private volatile boolean fromRootAuths = false;
+        private final LongAdder actual = new LongAdder();
+        private volatile boolean actualRecorded = false;
+    }
+}
@@ -10,12 +10,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 
 import datawave.core.iterators.TermFrequencyIterator;
 import datawave.core.iterators.TermFrequencyIterator.FieldValue;
 import datawave.data.type.NoOpType;
 import datawave.data.type.Type;
-import datawave.ingest.protobuf.TermWeight;
+import datawave.ingest.protobuf.TermWeightOffsets;
 import datawave.ingest.protobuf.TermWeightPosition;
 import datawave.query.jexl.functions.TermFrequencyList;
 import datawave.query.predicate.EventDataQueryFilter;
@@ -40,7 +41,6 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultimap;
 import com.google.protobuf.InvalidProtocolBufferException;
 
 public class TermOffsetPopulator {
@@ -62,6 +62,17 @@ public class TermOffsetPopulator {
     private Document document;
     private Set<String> contentExpansionFields;
     
+    // reused for every document, the field values only need to be sorted once
+    private TermFrequencyIterator tfSource;
+    // reused for every tf entry, the offsets are decoded into primitive arrays
+    private final TermWeightOffsets termWeightOffsets = new TermWeightOffsets();
+    private final TermWeightPosition.Builder positionBuilder = new TermWeightPosition.Builder();
+    
+    // statistics
+    private long documentsRead = 0;
+    private long tfKeysRead = 0;
+    private long tfSeeks = 0;
+    
     public TermOffsetPopulator(Multimap<String,String> termFrequencyFieldValues, Set<String> contentExpansionFields, EventDataQueryFilter evaluationFilter,
                     SortedKeyValueIterator<Key,Value> source) {
         this.termFrequencyFieldValues = termFrequencyFieldValues;
@@ -74,6 +85,34 @@ public class TermOffsetPopulator {
         return document;
     }
     
+    /**
+     * @return the number of documents for which term frequencies have been gathered
+     */
+    public long getDocumentsRead() {
+        return documentsRead;
+    }
+    
+    /**
+     * @return the number of term frequency keys read across all documents
+     */
+    public long getTfKeysRead() {
+        return tfKeysRead;
+    }
+    
+    /**
+     * @return the number of seeks made against the term frequency source, one per document (or per child of a top level document)
+     */
+    public long getTfSeeks() {
+        return tfSeeks;
+    }
+    
+    /**
+     * @return the average number of term frequency keys read per document
+     */
+    public double getTfKeysPerDocument() {
+        return documentsRead == 0 ? 0.0d : ((double) tfKeysRead / documentsRead);
+    }
+    
     // merge two maps presumming both came from getContextMap()
     @SuppressWarnings("unchecked")
     public static Map<String,Object> mergeContextMap(Map<String,Object> map1, Map<String,Object> map2) {
@@ -109,6 +148,21 @@ public class TermOffsetPopulator {
         return map;
     }
     
+    /**
+     * Get the term frequency range for a single document
+     * 
+     * @param key
+     *            the document key
+     * @return the range covering the term frequencies of that document
+     */
+    protected Range getRange(Key key) {
+        Text row = key.getRow();
+        String dataTypeUid = key.getColumnFamily().toString();
+        Key startKey = new Key(row, Constants.TERM_FREQUENCY_COLUMN_FAMILY, new Text(dataTypeUid + '\0'));
+        Key endKey = new Key(row, Constants.TERM_FREQUENCY_COLUMN_FAMILY, new Text(dataTypeUid + '\1'));
+        return new Range(startKey, true, endKey, false);
+    }
+    
     protected Range getRange(Set<Key> keys) {
         // building a range from the begining of the term frequencies for the first datatype\0uid
         // to the end of the term frequencies for the last datatype\0uid
@@ -129,17 +183,27 @@ public class TermOffsetPopulator {
         return getContextMap(key, Collections.singleton(key));
     }
     
+    /**
+     * Gather the term offsets for a document. The term frequency source is seeked once for each of the document keys, in sorted order, and the
+     * {@link TermFrequencyIterator} then seeks between the (field, term) pairs needed within each of them. Keys for other documents between the requested ones
+     * (e.g. other children of a top level document which were not requested) are never read.
+     * 
+     * @param docKey
+     *            the document key
+     * @param keys
+     *            the keys of the document, or documents (e.g. children of a top level document), from which offsets are gathered
+     * @return the context map containing the term offset map
+     */
     public Map<String,Object> getContextMap(Key docKey, Set<Key> keys) {
         document = new Document();
         
-        TermFrequencyIterator tfSource = new TermFrequencyIterator(termFrequencyFieldValues);
-        
-        Range range = getRange(keys);
-        try {
-            tfSource.init(source, null, null);
-            tfSource.seek(getRange(keys), null, false);
-        } catch (IOException e) {
-            log.error("Seek to the range failed: " + range, e);
+        if (tfSource == null) {
+            tfSource = new TermFrequencyIterator(termFrequencyFieldValues);
+            try {
+                tfSource.init(source, null, null);
+            } catch (IOException e) {
+                log.error("Failed to initialize the term frequency source", e);
+            }
         }
         
         // set the document context on the filter
@@ -149,61 +213,78 @@ public class TermOffsetPopulator {
         
         Map<String,TermFrequencyList> termOffsetMap = Maps.newHashMap();
         
-        while (tfSource.hasTop()) {
-            Key key = tfSource.getTopKey();
-            FieldValue fv = FieldValue.getFieldValue(key);
-            
-            // add the zone and term to our internal document
-            Content attr = new Content(fv.getValue(), source.getTopKey(), evaluationFilter == null || evaluationFilter.keep(key));
-            
-            // no need to apply the evaluation filter here as the TermFrequencyIterator above is already doing more filtering than we can do here.
-            // So this filter is simply extraneous. However if the an EventDataQueryFilter implementation gets smarter somehow, then it can be added back in
-            // here.
-            // For example the AncestorQueryLogic may require this....
-            // if (evaluationFilter == null || evaluationFilter.apply(Maps.immutableEntry(key, StringUtils.EMPTY_STRING))) {
-            
-            this.document.put(fv.getField(), attr);
-            
-            TreeMultimap<TermFrequencyList.Zone,TermWeightPosition> offsets = TreeMultimap.create();
+        long keysRead = 0;
+        for (Key key : new TreeSet<>(keys)) {
+            Range range = getRange(key);
             try {
-                TermWeight.Info twInfo = TermWeight.Info.parseFrom(tfSource.getTopValue().get());
+                tfSource.seek(range, null, false);
+                tfSeeks++;
+            } catch (IOException e) {
+                log.error("Seek to the range failed: " + range, e);
+                continue;
+            }
+            
+            while (tfSource.hasTop()) {
+                Key tfKey = tfSource.getTopKey();
+                FieldValue fv = FieldValue.getFieldValue(tfKey);
+                keysRead++;
+                
+                // add the zone and term to our internal document
+                Content attr = new Content(fv.getValue(), source.getTopKey(), evaluationFilter == null || evaluationFilter.keep(tfKey));
+                
+                // no need to apply the evaluation filter here as the TermFrequencyIterator above is already doing more filtering than we can do here.
+                // So this filter is simply extraneous. However if the an EventDataQueryFilter implementation gets smarter somehow, then it can be added back
+                // in here.
+                // For example the AncestorQueryLogic may require this....
+                // if (evaluationFilter == null || evaluationFilter.apply(Maps.immutableEntry(key, StringUtils.EMPTY_STRING))) {
+                
+                this.document.put(fv.getField(), attr);
+                
+                List<TermWeightPosition> positions;
+                try {
+                    termWeightOffsets.decode(tfSource.getTopValue().get());
+                    positions = new ArrayList<>(termWeightOffsets.size());
+                    for (int i = 0; i < termWeightOffsets.size(); i++) {
+                        positions.add(termWeightOffsets.getPosition(i, positionBuilder));
+                    }
+                } catch (InvalidProtocolBufferException e) {
+                    log.error("Could not deserialize TermWeight protocol buffer for: " + source.getTopKey());
+                    
+                    return null;
+                }
                 
                 // if no content expansion fields then assume every field is permitted for unfielded content functions
                 TermFrequencyList.Zone twZone = new TermFrequencyList.Zone(fv.getField(),
                                 (contentExpansionFields == null || contentExpansionFields.isEmpty() || contentExpansionFields.contains(fv.getField())),
-                                TermFrequencyList.getEventId(key));
+                                TermFrequencyList.getEventId(tfKey));
                 
-                TermWeightPosition.Builder position = new TermWeightPosition.Builder();
-                for (int i = 0; i < twInfo.getTermOffsetCount(); i++) {
-                    position.setTermWeightOffsetInfo(twInfo, i);
-                    offsets.put(twZone, position.build());
-                    position.reset();
+                // First time looking up this term in a field
+                TermFrequencyList tfl = termOffsetMap.get(fv.getValue());
+                if (null == tfl) {
+                    Entry<TermFrequencyList.Zone,Iterable<TermWeightPosition>> offsets = Maps.immutableEntry(twZone, positions);
+                    termOffsetMap.put(fv.getValue(), new TermFrequencyList(offsets));
+                } else {
+                    // Merge in the offsets for the current field+term with all previous
+                    // offsets from other fields in the same term
+                    tfl.addOffsets(twZone, positions);
                 }
                 
-            } catch (InvalidProtocolBufferException e) {
-                log.error("Could not deserialize TermWeight protocol buffer for: " + source.getTopKey());
-                
-                return null;
-            }
-            
-            // First time looking up this term in a field
-            TermFrequencyList tfl = termOffsetMap.get(fv.getValue());
-            if (null == tfl) {
-                termOffsetMap.put(fv.getValue(), new TermFrequencyList(offsets));
-            } else {
-                // Merge in the offsets for the current field+term with all previous
-                // offsets from other fields in the same term
-                tfl.addOffsets(offsets);
-            }
-            
-            try {
-                tfSource.next();
-            } catch (IOException ioe) {
-                log.error("Next failed: " + range, ioe);
-                break;
+                try {
+                    tfSource.next();
+                } catch (IOException ioe) {
+                    log.error("Next failed: " + range, ioe);
+                    break;
+                }
             }
         }
         
+        documentsRead++;
+        tfKeysRead += keysRead;
+        if (log.isTraceEnabled()) {
+            log.trace("Read " + keysRead + " term frequency keys for " + docKey + " (" + getTfKeysPerDocument() + " per document over " + documentsRead
+                            + " documents)");
+        }
+        
         // Load the actual map into map that will be put into the JexlContext
         Map<String,Object> map = new HashMap<>();
         map.put(Constants.TERM_OFFSET_MAP_JEXL_VARIABLE_NAME, termOffsetMap);
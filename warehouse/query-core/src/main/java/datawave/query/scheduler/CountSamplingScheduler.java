@@ -0,0 +1,198 @@
+package datawave.query.scheduler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import datawave.core.iterators.ResultCountingIterator;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.tables.ScannerFactory;
+import datawave.query.tables.shard.CountEstimate;
+import datawave.query.util.MetadataHelperFactory;
+import datawave.webservice.common.logging.ThreadConfigurableLogger;
+import datawave.webservice.query.configuration.QueryData;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.AbstractIterator;
+
+/**
+ * Purpose: Estimates a count by running the query against a stratified sample of the shards the query planner produced, rather than all of them.
+ * <p>
+ * The first round runs the query against the configured fraction of the shards of each day. When a target error is configured, further rounds double the
+ * fraction sampled until the confidence interval of the estimate is within the target, every shard has been sampled, or the maximum number of rounds is
+ * reached. The counts of each round are fed to the {@link CountEstimate} as they are returned.
+ */
+public class CountSamplingScheduler extends PushdownScheduler {
+    
+    private static final Logger log = ThreadConfigurableLogger.getLogger(CountSamplingScheduler.class);
+    
+    protected final CountEstimate estimate = new CountEstimate();
+    
+    protected final Map<String,List<QueryData>> unitQueries = new LinkedHashMap<>();
+    
+    protected double sampleRate = 0.1d;
+    protected double targetError = 0.0d;
+    protected double confidence = 0.95d;
+    protected int maxRounds = 5;
+    protected Random random = new Random();
+    
+    protected int round = 0;
+    protected List<QueryData> roundQueries = Collections.emptyList();
+    
+    private final Kryo kryo = new Kryo();
+    
+    public CountSamplingScheduler(ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelperFactory metaFactory) {
+        super(config, scannerFactory, metaFactory);
+    }
+    
+    public CountEstimate getEstimate() {
+        return estimate;
+    }
+    
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+    
+    public void setTargetError(double targetError) {
+        this.targetError = targetError;
+    }
+    
+    public void setConfidence(double confidence) {
+        this.confidence = confidence;
+    }
+    
+    public double getConfidence() {
+        return confidence;
+    }
+    
+    public void setMaxRounds(int maxRounds) {
+        this.maxRounds = maxRounds;
+    }
+    
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+    
+    public int getRound() {
+        return round;
+    }
+    
+    /**
+     * Split the planned queries into the units they cover, so that the sample can be drawn from them
+     * 
+     * @param queries
+     *            the planned queries
+     */
+    protected void addQueries(Iterator<QueryData> queries) {
+        while (queries.hasNext()) {
+            QueryData qd = queries.next();
+            Map<String,List<Range>> ranges = new LinkedHashMap<>();
+            for (Range range : qd.getRanges()) {
+                ranges.computeIfAbsent(CountEstimate.getUnit(range), k -> new ArrayList<>()).add(range);
+            }
+            for (Entry<String,List<Range>> entry : ranges.entrySet()) {
+                estimate.addUnit(entry.getKey());
+                unitQueries.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).add(new QueryData(qd, entry.getValue()));
+            }
+        }
+    }
+    
+    @Override
+    public Iterator<Entry<Key,Value>> iterator() {
+        if (null == this.config) {
+            throw new IllegalArgumentException("Null configuration provided");
+        }
+        
+        startTimeMillis = System.currentTimeMillis();
+        addQueries(config.getQueries());
+        
+        return timeFirstResult(new AbstractIterator<Entry<Key,Value>>() {
+            private Iterator<Entry<Key,Value>> results = Collections.emptyIterator();
+            
+            @Override
+            protected Entry<Key,Value> computeNext() {
+                while (!results.hasNext()) {
+                    if (!nextRound()) {
+                        return endOfData();
+                    }
+                    results = concatIterators();
+                }
+                
+                Entry<Key,Value> entry = results.next();
+                if (null != entry && null != entry.getKey() && null != entry.getValue()) {
+                    estimate.addCount(entry.getKey().getRow().toString(), unpackValue(entry.getValue()).getCount());
+                }
+                return entry;
+            }
+        });
+    }
+    
+    /**
+     * Draw the units for the next round, if the estimate needs one
+     * 
+     * @return true if there is another round to run
+     */
+    protected boolean nextRound() {
+        if (round > 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("Round " + round + " of the count sample gave " + estimate);
+            }
+            closeSession();
+            if (targetError <= 0 || round >= maxRounds || estimate.getRelativeError(confidence) <= targetError) {
+                return false;
+            }
+        }
+        
+        List<String> units = estimate.sample(Math.min(1.0d, sampleRate * (1 << round)), random);
+        round++;
+        if (units.isEmpty()) {
+            return false;
+        }
+        
+        roundQueries = new ArrayList<>();
+        for (String unit : units) {
+            roundQueries.addAll(unitQueries.get(unit));
+        }
+        return true;
+    }
+    
+    @Override
+    protected Iterator<QueryData> getQueryDataIterator() {
+        return roundQueries.iterator();
+    }
+    
+    private ResultCountingIterator.ResultCountTuple unpackValue(Value value) {
+        Input input = new Input(new ByteArrayInputStream(value.get()));
+        return kryo.readObject(input, ResultCountingIterator.ResultCountTuple.class);
+    }
+    
+    private void closeSession() {
+        if (session != null) {
+            try {
+                scannerFactory.close(session);
+            } finally {
+                session = null;
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        closeSession();
+        log.debug("Sampled " + estimate.getSampleSize() + " of " + estimate.getPopulationSize() + " shards in " + round + " rounds, time to first result: "
+                        + firstResultMillis + " ms");
+    }
+}
@@ -17,6 +17,7 @@ import org.apache.log4j.Logger;
 
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ForwardingIterator;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 
@@ -62,6 +63,12 @@ public class PushdownScheduler extends Scheduler {
     
     protected MetadataHelper metadataHelper;
     
+    /**
+     * When the results were first asked for, and how long after that the first one arrived
+     */
+    protected long startTimeMillis = -1;
+    protected long firstResultMillis = -1;
+    
     public PushdownScheduler(ShardQueryConfiguration config, ScannerFactory scannerFactory, MetadataHelperFactory metaFactory) {
         this(config, scannerFactory, metaFactory.createMetadataHelper(config.getConnector(), config.getMetadataTableName(), config.getAuthorizations()));
     }
@@ -89,7 +96,41 @@ public class PushdownScheduler extends Scheduler {
             throw new IllegalArgumentException("Null configuration provided");
         }
         
-        return concatIterators();
+        startTimeMillis = System.currentTimeMillis();
+        return timeFirstResult(concatIterators());
+    }
+    
+    /**
+     * Record the time until the first result of the given iterator is available
+     * 
+     * @param results
+     * @return the results
+     */
+    protected Iterator<Entry<Key,Value>> timeFirstResult(final Iterator<Entry<Key,Value>> results) {
+        return new ForwardingIterator<Entry<Key,Value>>() {
+            @Override
+            protected Iterator<Entry<Key,Value>> delegate() {
+                return results;
+            }
+            
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = super.hasNext();
+                if (hasNext && firstResultMillis < 0) {
+                    firstResultMillis = System.currentTimeMillis() - startTimeMillis;
+                    if (log.isDebugEnabled())
+                        log.debug("First result available after " + firstResultMillis + " ms");
+                }
+                return hasNext;
+            }
+        };
+    }
+    
+    /**
+     * @return the milliseconds from asking for the results until the first one was available, or -1 if none has been
+     */
+    public long getTimeToFirstResultMillis() {
+        return firstResultMillis;
     }
     
     /**
@@ -146,7 +187,7 @@ public class PushdownScheduler extends Scheduler {
         if (session != null)
             scannerFactory.close(session);
         
-        log.debug("Ran " + count.get() + " queries for a single user query");
+        log.debug("Ran " + count.get() + " queries for a single user query, time to first result: " + firstResultMillis + " ms");
     }
     
     /*
@@ -1,33 +1,50 @@
 package datawave.query.tables;
 
+import java.util.Set;
+
 import datawave.core.iterators.ResultCountingIterator;
+import datawave.query.QueryParameters;
 import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.scheduler.CountSamplingScheduler;
 import datawave.query.scheduler.PushdownScheduler;
 import datawave.query.scheduler.Scheduler;
 import datawave.query.tables.shard.CountAggregatingIterator;
+import datawave.query.tables.shard.CountEstimatingIterator;
 import datawave.query.transformer.ShardQueryCountTableTransformer;
 import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl.Parameter;
 import datawave.webservice.query.logic.QueryLogicTransformer;
 
 import org.apache.accumulo.core.client.IteratorSetting;
 import org.apache.commons.collections4.iterators.TransformIterator;
+import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
 /**
  * A simple extension of the basic ShardQueryTable which applies a counting iterator on top of the "normal" iterator stack.
  * 
- * 
+ * When a count estimate sample rate is set, either on the logic or with the {@link QueryParameters#COUNT_ESTIMATE_SAMPLE_RATE} parameter, only a stratified
+ * sample of the shards is counted, and the result is an estimate of the count with a confidence interval. See {@link CountSamplingScheduler}.
  * 
  */
 public class CountingShardQueryLogic extends ShardQueryLogic {
     private static final Logger log = Logger.getLogger(CountingShardQueryLogic.class);
     
+    private double countEstimateSampleRate = 0.0d;
+    private double countEstimateTargetError = 0.0d;
+    private double countEstimateConfidence = 0.95d;
+    private int countEstimateMaxRounds = 5;
+    
     public CountingShardQueryLogic() {
         super();
     }
     
     public CountingShardQueryLogic(CountingShardQueryLogic other) {
         super(other);
+        this.countEstimateSampleRate = other.countEstimateSampleRate;
+        this.countEstimateTargetError = other.countEstimateTargetError;
+        this.countEstimateConfidence = other.countEstimateConfidence;
+        this.countEstimateMaxRounds = other.countEstimateMaxRounds;
     }
     
     @Override
@@ -42,14 +59,91 @@ public class CountingShardQueryLogic extends ShardQueryLogic {
     
     @Override
     public TransformIterator getTransformIterator(Query settings) {
+        if (this.scheduler instanceof CountSamplingScheduler) {
+            CountSamplingScheduler sampler = (CountSamplingScheduler) this.scheduler;
+            return new CountEstimatingIterator(this.iterator(), (ShardQueryCountTableTransformer) getTransformer(settings), sampler.getEstimate(),
+                            sampler.getConfidence());
+        }
         return new CountAggregatingIterator(this.iterator(), getTransformer(settings));
     }
     
     @Override
     public Scheduler getScheduler(ShardQueryConfiguration config, ScannerFactory scannerFactory) {
-        PushdownScheduler scheduler = new PushdownScheduler(config, scannerFactory, this.metadataHelperFactory);
+        PushdownScheduler scheduler;
+        
+        double sampleRate = getParameter(config.getQuery(), QueryParameters.COUNT_ESTIMATE_SAMPLE_RATE, countEstimateSampleRate);
+        if (sampleRate > 0 && sampleRate < 1) {
+            CountSamplingScheduler sampler = new CountSamplingScheduler(config, scannerFactory, this.metadataHelperFactory);
+            sampler.setSampleRate(sampleRate);
+            sampler.setTargetError(getParameter(config.getQuery(), QueryParameters.COUNT_ESTIMATE_TARGET_ERROR, countEstimateTargetError));
+            sampler.setConfidence(countEstimateConfidence);
+            sampler.setMaxRounds(countEstimateMaxRounds);
+            scheduler = sampler;
+        } else {
+            scheduler = new PushdownScheduler(config, scannerFactory, this.metadataHelperFactory);
+        }
+        
         scheduler.addSetting(new IteratorSetting(config.getBaseIteratorPriority() + 50, "counter", ResultCountingIterator.class.getName()));
         return scheduler;
     }
     
+    private static double getParameter(Query settings, String name, double defaultValue) {
+        Parameter parameter = settings == null ? null : settings.findParameter(name);
+        if (parameter != null && StringUtils.isNotBlank(parameter.getParameterValue())) {
+            try {
+                return Double.parseDouble(parameter.getParameterValue().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + name + ": " + parameter.getParameterValue(), e);
+            }
+        }
+        return defaultValue;
+    }
+    
+    @Override
+    public Set<String> getOptionalQueryParameters() {
+        Set<String> optionalParams = super.getOptionalQueryParameters();
+        optionalParams.add(QueryParameters.COUNT_ESTIMATE_SAMPLE_RATE);
+        optionalParams.add(QueryParameters.COUNT_ESTIMATE_TARGET_ERROR);
+        return optionalParams;
+    }
+    
+    public double getCountEstimateSampleRate() {
+        return countEstimateSampleRate;
+    }
+    
+    /**
+     * @param countEstimateSampleRate
+     *            the fraction of the shards of each day to count when estimating, or 0 to count every result
+     */
+    public void setCountEstimateSampleRate(double countEstimateSampleRate) {
+        this.countEstimateSampleRate = countEstimateSampleRate;
+    }
+    
+    public double getCountEstimateTargetError() {
+        return countEstimateTargetError;
+    }
+    
+    /**
+     * @param countEstimateTargetError
+     *            the relative error to keep sampling until, or 0 to sample a single round
+     */
+    public void setCountEstimateTargetError(double countEstimateTargetError) {
+        this.countEstimateTargetError = countEstimateTargetError;
+    }
+    
+    public double getCountEstimateConfidence() {
+        return countEstimateConfidence;
+    }
+    
+    public void setCountEstimateConfidence(double countEstimateConfidence) {
+        this.countEstimateConfidence = countEstimateConfidence;
+    }
+    
+    public int getCountEstimateMaxRounds() {
+        return countEstimateMaxRounds;
+    }
+    
+    public void setCountEstimateMaxRounds(int countEstimateMaxRounds) {
+        this.countEstimateMaxRounds = countEstimateMaxRounds;
+    }
 }
@@ -1,33 +1,60 @@
 package datawave.query.tables;
 
-import com.google.common.hash.BloomFilter;
-import com.google.common.hash.Funnel;
-import com.google.common.hash.PrimitiveSink;
-import java.io.Serializable;
-import java.util.HashSet;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import datawave.query.exceptions.DatawaveFatalQueryException;
+import datawave.query.tables.dedupe.ScalableBloomFilter;
+import datawave.query.tables.dedupe.SpillingLongSet;
+import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.Map.Entry;
-import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.ByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Value;
+import org.apache.log4j.Logger;
 
 /**
+ * Drops documents that have already been returned, keyed on a 64 bit hash of the shard and document id of each result. A {@link ScalableBloomFilter} which
+ * starts small and grows with the results answers most lookups; only when it reports a possible duplicate is the exact set of seen hashes consulted, which
+ * keeps up to a fixed number of hashes in memory and spills the rest to disk.
+ * 
  * Created on 9/13/16.
  */
 class DedupingIterator implements Iterator<Entry<Key,Value>> {
+    private static final Logger log = Logger.getLogger(DedupingIterator.class);
+    
+    public static final int DEFAULT_BLOOM_CAPACITY = 10000;
+    public static final double DEFAULT_BLOOM_FPP = 1e-6;
+    public static final int DEFAULT_MAX_IN_MEMORY = 1000000;
+    
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    
     private Iterator<Entry<Key,Value>> delegate;
     private Entry<Key,Value> next;
-    private BloomFilter<byte[]> bloom = null;
-    private HashSet<ByteSequence> seen;
-    private final boolean DEBUG = true;
+    private final ScalableBloomFilter bloom;
+    private final SpillingLongSet seen;
+    private long falsePositives = 0;
+    private long duplicates = 0;
+    private long peakMemoryInBytes = 0;
+    private boolean closed = false;
     
     public DedupingIterator(Iterator<Entry<Key,Value>> iterator) {
+        this(iterator, DEFAULT_MAX_IN_MEMORY, null);
+    }
+    
+    /**
+     * @param iterator
+     *            the results to dedupe
+     * @param maxInMemory
+     *            the number of document hashes to hold in memory before spilling them to disk
+     * @param spillDirectory
+     *            the directory to spill to, or null for the default temporary directory
+     */
+    public DedupingIterator(Iterator<Entry<Key,Value>> iterator, int maxInMemory, File spillDirectory) {
         this.delegate = iterator;
-        this.bloom = BloomFilter.create(new ByteFunnel(), 500000, 1e-15);
-        if (DEBUG) {
-            this.seen = new HashSet<>();
-        }
+        this.bloom = new ScalableBloomFilter(DEFAULT_BLOOM_CAPACITY, DEFAULT_BLOOM_FPP);
+        this.seen = new SpillingLongSet(maxInMemory, spillDirectory);
         getNext();
     }
     
@@ -39,6 +66,9 @@ class DedupingIterator implements Iterator<Entry<Key,Value>> {
                 next = null;
             }
         }
+        if (next == null) {
+            close();
+        }
     }
     
     private byte[] getBytes(Entry<Key,Value> entry) {
@@ -87,31 +117,66 @@ class DedupingIterator implements Iterator<Entry<Key,Value>> {
     }
     
     private boolean isDuplicate(Entry<Key,Value> entry) {
-        byte[] bytes = getBytes(entry);
-        ByteSequence byteSeq = new ArrayByteSequence(bytes);
-        if (bloom.mightContain(bytes)) {
-            if (DEBUG && !seen.contains(byteSeq)) {
-                throw new IllegalStateException("This event is 1 in 1Q!");
-            } else {
-                return true;
+        long hash = HASH.hashBytes(getBytes(entry)).asLong();
+        try {
+            if (bloom.mightContain(hash)) {
+                if (seen.contains(hash)) {
+                    duplicates++;
+                    return true;
+                }
+                falsePositives++;
             }
+            bloom.put(hash);
+            // either the bloom filter or the exact set has just said that the hash is new
+            seen.addAbsent(hash);
+        } catch (IOException e) {
+            throw new DatawaveFatalQueryException("Unable to dedupe results", e);
         }
-        bloom.put(bytes);
-        if (DEBUG) {
-            seen.add(byteSeq);
-        }
+        peakMemoryInBytes = Math.max(peakMemoryInBytes, getMemoryInBytes());
         return false;
     }
     
-    public static class ByteFunnel implements Funnel<byte[]>, Serializable {
-        
-        private static final long serialVersionUID = -2126172579955897986L;
-        
-        @Override
-        public void funnel(byte[] from, PrimitiveSink into) {
-            into.putBytes(from);
-        }
-        
+    /**
+     * @return the number of possible duplicates reported by the bloom filter which were not in the exact set
+     */
+    public long getFalsePositives() {
+        return falsePositives;
     }
     
+    public long getDuplicates() {
+        return duplicates;
+    }
+    
+    /**
+     * @return the current size of the bloom filters and in-memory hashes, in bytes
+     */
+    public long getMemoryInBytes() {
+        return bloom.getSizeInBytes() + seen.getMemoryInBytes();
+    }
+    
+    public long getPeakMemoryInBytes() {
+        return peakMemoryInBytes;
+    }
+    
+    public long getSpilled() {
+        return seen.getSpilled();
+    }
+    
+    /**
+     * Release the spill files, if any. Called once the results are exhausted, and by the query logic when the query is closed early.
+     */
+    public void close() {
+        if (!closed) {
+            closed = true;
+            if (log.isDebugEnabled()) {
+                log.debug("Deduped " + seen.size() + " results: " + duplicates + " duplicates, " + falsePositives + " bloom false positives, " + bloom.getFilterCount()
+                                + " bloom filters, " + peakMemoryInBytes + " bytes peak memory, " + seen.getSpilled() + " hashes spilled");
+            }
+            try {
+                seen.close();
+            } catch (IOException e) {
+                log.warn("Unable to close dedupe spill files", e);
+            }
+        }
+    }
 }
@@ -33,6 +33,7 @@ import datawave.query.planner.DefaultQueryPlanner;
 import datawave.query.planner.MetadataHelperQueryModelProvider;
 import datawave.query.planner.QueryModelProvider;
 import datawave.query.planner.QueryPlanner;
+import datawave.query.planner.ThreadedRangeBundler;
 import datawave.query.scheduler.PushdownScheduler;
 import datawave.query.scheduler.Scheduler;
 import datawave.query.scheduler.SequentialScheduler;
@@ -58,6 +59,7 @@ import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.logic.BaseQueryLogic;
 import datawave.webservice.query.logic.QueryLogicTransformer;
 import datawave.webservice.query.logic.WritesQueryMetrics;
+import datawave.webservice.query.metric.BaseQueryMetric;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
 import org.apache.accumulo.core.client.BatchScanner;
 import org.apache.accumulo.core.client.Connector;
@@ -71,6 +73,7 @@ import org.apache.accumulo.core.security.Authorizations;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 import org.apache.log4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -154,7 +157,7 @@ import java.util.concurrent.TimeUnit;
  * 
  * @see datawave.query.enrich
  */
-public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
+public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> implements WritesQueryMetrics {
     
     public static final String NULL_BYTE = "\0";
     public static final Class<? extends ShardQueryConfiguration> tableConfigurationType = ShardQueryConfiguration.class;
@@ -168,6 +171,7 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
     protected QueryModel queryModel = null;
     protected ScannerFactory scannerFactory = null;
     protected Scheduler scheduler = null;
+    private DedupingIterator dedupingIterator = null;
     protected EventQueryDataDecoratorTransformer eventQueryDataDecoratorTransformer = null;
     private ShardQueryConfiguration config;
     protected MetadataHelperFactory metadataHelperFactory = null;
@@ -550,7 +554,9 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         this.iterator = this.scheduler.iterator();
         
         if (!config.isSortedUIDs()) {
-            this.iterator = new DedupingIterator(this.iterator);
+            File spillDirectory = config.getDedupeSpillDirectory() == null ? null : new File(config.getDedupeSpillDirectory());
+            this.dedupingIterator = new DedupingIterator(this.iterator, config.getDedupeMaxInMemory(), spillDirectory);
+            this.iterator = this.dedupingIterator;
         }
         
         stopwatch.stop();
@@ -1026,6 +1032,10 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         
         log.debug("Closing ShardQueryLogic: " + System.identityHashCode(this));
         
+        if (log.isDebugEnabled() && config != null && config.getPlanCostReport() != null) {
+            log.debug("Estimated and actual term costs: " + System.identityHashCode(this) + "\n" + config.getPlanCostReport());
+        }
+        
         if (null == scannerFactory) {
             log.debug("ScannerFactory was never initialized because, therefore there are no connections to close: " + System.identityHashCode(this));
         } else {
@@ -1093,6 +1103,35 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
             }
         }
         
+        if (null != this.dedupingIterator) {
+            this.dedupingIterator.close();
+        }
+        
+    }
+    
+    /**
+     * Adds the memory used and the bloom filter false positives of the result dedupe, if any, the times to the first range and the first result, and the
+     * estimated and actual term costs of a cost based plan to the metric
+     */
+    @Override
+    public void writeQueryMetrics(BaseQueryMetric metric) {
+        if (null != this.dedupingIterator) {
+            metric.setDedupeBytes(this.dedupingIterator.getPeakMemoryInBytes());
+            metric.setDedupeFalsePositives(this.dedupingIterator.getFalsePositives());
+        }
+        
+        if (this.queries instanceof ThreadedRangeBundler) {
+            metric.setTimeToFirstRange(((ThreadedRangeBundler) this.queries).getTimeToFirstRangeMillis());
+        }
+        
+        if (this.scheduler instanceof PushdownScheduler) {
+            metric.setTimeToFirstResult(((PushdownScheduler) this.scheduler).getTimeToFirstResultMillis());
+        }
+        
+        // the actual costs accumulate while the ranges are streamed, so this is rewritten with each page. Estimates read with root auths are withheld.
+        if (null != config && null != config.getPlanCostReport() && !config.getPlanCostReport().isEmpty()) {
+            metric.setPlanCosts(config.getPlanCostReport().toMetricString());
+        }
     }
     
     @Override
@@ -1706,6 +1745,62 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setMinSelectivity(d);
     }
     
+    public boolean isCostBasedPlanning() {
+        return getConfig().isCostBasedPlanning();
+    }
+    
+    public void setCostBasedPlanning(boolean costBasedPlanning) {
+        getConfig().setCostBasedPlanning(costBasedPlanning);
+    }
+    
+    public double getCostEvaluationRatio() {
+        return getConfig().getCostEvaluationRatio();
+    }
+    
+    public void setCostEvaluationRatio(double costEvaluationRatio) {
+        getConfig().setCostEvaluationRatio(costEvaluationRatio);
+    }
+    
+    public boolean isCardinalitySketches() {
+        return getConfig().isCardinalitySketches();
+    }
+    
+    public void setCardinalitySketches(boolean cardinalitySketches) {
+        getConfig().setCardinalitySketches(cardinalitySketches);
+    }
+    
+    public String getIndexStatsSketchTableName() {
+        return getConfig().getIndexStatsSketchTableName();
+    }
+    
+    public void setIndexStatsSketchTableName(String indexStatsSketchTableName) {
+        getConfig().setIndexStatsSketchTableName(indexStatsSketchTableName);
+    }
+    
+    public int getSketchExpansionCeiling() {
+        return getConfig().getSketchExpansionCeiling();
+    }
+    
+    public void setSketchExpansionCeiling(int sketchExpansionCeiling) {
+        getConfig().setSketchExpansionCeiling(sketchExpansionCeiling);
+    }
+    
+    public int getDedupeMaxInMemory() {
+        return getConfig().getDedupeMaxInMemory();
+    }
+    
+    public void setDedupeMaxInMemory(int dedupeMaxInMemory) {
+        getConfig().setDedupeMaxInMemory(dedupeMaxInMemory);
+    }
+    
+    public String getDedupeSpillDirectory() {
+        return getConfig().getDedupeSpillDirectory();
+    }
+    
+    public void setDedupeSpillDirectory(String dedupeSpillDirectory) {
+        getConfig().setDedupeSpillDirectory(dedupeSpillDirectory);
+    }
+    
     public Map<String,QueryParser> getQuerySyntaxParsers() {
         return querySyntaxParsers;
     }
@@ -2169,6 +2264,14 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setRangeBufferPollMillis(rangeBufferPollMillis);
     }
     
+    public int getRangeLookaheadDays() {
+        return getConfig().getRangeLookaheadDays();
+    }
+    
+    public void setRangeLookaheadDays(int rangeLookaheadDays) {
+        getConfig().setRangeLookaheadDays(rangeLookaheadDays);
+    }
+    
     public int getGeometryMaxExpansion() {
         return getConfig().getGeometryMaxExpansion();
     }
@@ -2225,6 +2328,22 @@ public class ShardQueryLogic extends BaseQueryLogic<Entry<Key,Value>> {
         getConfig().setTrackSizes(trackSizes);
     }
     
+    public int getTldAssemblyPartitions() {
+        return getConfig().getTldAssemblyPartitions();
+    }
+    
+    public void setTldAssemblyPartitions(int tldAssemblyPartitions) {
+        getConfig().setTldAssemblyPartitions(tldAssemblyPartitions);
+    }
+    
+    public int getTldAssemblyMaxChildren() {
+        return getConfig().getTldAssemblyMaxChildren();
+    }
+    
+    public void setTldAssemblyMaxChildren(int tldAssemblyMaxChildren) {
+        getConfig().setTldAssemblyMaxChildren(tldAssemblyMaxChildren);
+    }
+    
     public Profile getSelectedProfile() {
         return this.selectedProfile;
     }
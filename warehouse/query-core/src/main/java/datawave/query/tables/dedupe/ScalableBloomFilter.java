@@ -0,0 +1,92 @@
+package datawave.query.tables.dedupe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * A bloom filter which grows with the number of entries put into it (see Almeida et al, "Scalable Bloom Filters"). It starts as a single small filter; when
+ * that filter holds as many entries as it was sized for, a new filter with {@link #GROWTH} times the capacity and a tighter false positive probability is
+ * added. An entry might be contained if any of the filters might contain it, and the tightening keeps the compound false positive probability below twice the
+ * initial one no matter how many filters are added.
+ */
+public class ScalableBloomFilter {
+    
+    public static final int GROWTH = 4;
+    public static final double TIGHTENING = 0.5d;
+    
+    private final List<BloomFilter<Long>> filters = new ArrayList<>();
+    private final double initialFpp;
+    
+    private long capacity;
+    private double fpp;
+    private long inCurrent = 0;
+    private long bits = 0;
+    
+    /**
+     * @param initialCapacity
+     *            the number of entries the first filter is sized for
+     * @param initialFpp
+     *            the false positive probability of the first filter
+     */
+    public ScalableBloomFilter(int initialCapacity, double initialFpp) {
+        this.capacity = Math.max(1, initialCapacity);
+        this.initialFpp = initialFpp;
+        this.fpp = initialFpp;
+        addFilter();
+    }
+    
+    public boolean mightContain(long hash) {
+        // the newest filter is the largest, and so the most likely to hold the entry
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            if (filters.get(i).mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public void put(long hash) {
+        if (inCurrent >= capacity) {
+            capacity = Math.min(Integer.MAX_VALUE, capacity * GROWTH);
+            fpp *= TIGHTENING;
+            addFilter();
+        }
+        filters.get(filters.size() - 1).put(hash);
+        inCurrent++;
+    }
+    
+    private void addFilter() {
+        filters.add(BloomFilter.create(Funnels.longFunnel(), (int) capacity, fpp));
+        inCurrent = 0;
+        bits += optimalNumOfBits(capacity, fpp);
+    }
+    
+    /**
+     * @return the number of filters in the chain
+     */
+    public int getFilterCount() {
+        return filters.size();
+    }
+    
+    /**
+     * @return the upper bound on the false positive probability of the whole chain
+     */
+    public double getExpectedFpp() {
+        return initialFpp / (1.0d - TIGHTENING);
+    }
+    
+    /**
+     * @return the approximate size of the bit arrays of all of the filters, in bytes
+     */
+    public long getSizeInBytes() {
+        return bits / Byte.SIZE;
+    }
+    
+    // the same sizing the guava filters use internally
+    private static long optimalNumOfBits(long n, double p) {
+        return (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+}
@@ -0,0 +1,242 @@
+package datawave.query.tables.dedupe;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+/**
+ * An exact set of longs which holds up to a fixed number of entries in memory, in an open addressing hash table of primitives, and spills the rest to disk as
+ * sorted runs. A lookup which misses in memory is a binary search of each run, so lookups are meant to be rare (e.g. only after a bloom filter has said the
+ * entry might be present), while adds never touch the disk except to write a full run.
+ */
+public class SpillingLongSet implements Closeable {
+    
+    private static final Logger log = Logger.getLogger(SpillingLongSet.class);
+    
+    // zero marks an empty slot, so it is tracked on its own
+    private static final long EMPTY = 0L;
+    
+    private final int maxInMemory;
+    private final File spillDirectory;
+    private final List<Run> runs = new ArrayList<>();
+    
+    private long[] table;
+    private int inMemory = 0;
+    private boolean containsEmpty = false;
+    private long spilled = 0;
+    private long diskLookups = 0;
+    
+    /**
+     * @param maxInMemory
+     *            the number of entries held in memory before they are spilled to disk
+     * @param spillDirectory
+     *            the directory for the spill files, or null for the default temporary directory
+     */
+    public SpillingLongSet(int maxInMemory, File spillDirectory) {
+        this.maxInMemory = Math.max(1, maxInMemory);
+        this.spillDirectory = spillDirectory;
+        this.table = new long[tableSize(Math.min(this.maxInMemory, 1024))];
+    }
+    
+    /**
+     * @return true if the value was not already in the set
+     */
+    public boolean add(long value) throws IOException {
+        if (contains(value)) {
+            return false;
+        }
+        addAbsent(value);
+        return true;
+    }
+    
+    /**
+     * Add a value which is known not to be in the set, because {@link #contains} has just returned false for it or a bloom filter has never seen it. This skips
+     * the lookup, and so the reads of the spill files, that {@link #add} makes. Adding a value which is already in the set this way will miscount the size.
+     */
+    public void addAbsent(long value) throws IOException {
+        if (value == EMPTY) {
+            containsEmpty = true;
+            return;
+        }
+        if (inMemory >= maxInMemory) {
+            spill();
+        } else if (inMemory * 2 >= table.length) {
+            rehash(table.length * 2);
+        }
+        insert(table, value);
+        inMemory++;
+    }
+    
+    public boolean contains(long value) throws IOException {
+        if (value == EMPTY) {
+            return containsEmpty;
+        }
+        if (table[find(table, value)] == value) {
+            return true;
+        }
+        for (Run run : runs) {
+            diskLookups++;
+            if (run.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void spill() throws IOException {
+        long[] sorted = new long[inMemory];
+        int i = 0;
+        for (long value : table) {
+            if (value != EMPTY) {
+                sorted[i++] = value;
+            }
+        }
+        Arrays.sort(sorted);
+        
+        // the spill files are deleted by close, rather than on exit, which would hold on to every file name until the jvm exits
+        File file = File.createTempFile("dedupe", ".bin", spillDirectory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                for (long value : sorted) {
+                    out.writeLong(value);
+                }
+            }
+            runs.add(new Run(file, sorted.length));
+        } catch (IOException e) {
+            if (!file.delete()) {
+                log.warn("Unable to delete dedupe spill file " + file);
+            }
+            throw e;
+        }
+        spilled += sorted.length;
+        if (log.isDebugEnabled()) {
+            log.debug("Spilled " + sorted.length + " entries to " + file + ", " + spilled + " spilled in total");
+        }
+        
+        Arrays.fill(table, EMPTY);
+        inMemory = 0;
+    }
+    
+    private void rehash(int size) {
+        long[] newTable = new long[size];
+        for (long value : table) {
+            if (value != EMPTY) {
+                insert(newTable, value);
+            }
+        }
+        table = newTable;
+    }
+    
+    private static void insert(long[] table, long value) {
+        table[find(table, value)] = value;
+    }
+    
+    // the slot holding the value, or the empty slot where it belongs
+    private static int find(long[] table, long value) {
+        int mask = table.length - 1;
+        int slot = (int) (mix(value) & mask);
+        while (table[slot] != EMPTY && table[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        return value;
+    }
+    
+    // a power of two with room for the entries at a load factor of one half
+    private static int tableSize(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries) * 2 - 1) * 2;
+    }
+    
+    public long size() {
+        return inMemory + spilled + (containsEmpty ? 1 : 0);
+    }
+    
+    public long getSpilled() {
+        return spilled;
+    }
+    
+    public long getDiskLookups() {
+        return diskLookups;
+    }
+    
+    /**
+     * @return the size of the in-memory table, in bytes
+     */
+    public long getMemoryInBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        for (Run run : runs) {
+            run.close();
+        }
+        runs.clear();
+    }
+    
+    /**
+     * A sorted run of longs on disk
+     */
+    private static class Run implements Closeable {
+        private final File file;
+        private final RandomAccessFile in;
+        private final long length;
+        private final long min;
+        private final long max;
+        
+        private Run(File file, long length) throws IOException {
+            this.file = file;
+            this.in = new RandomAccessFile(file, "r");
+            this.length = length;
+            this.min = read(0);
+            this.max = read(length - 1);
+        }
+        
+        private boolean contains(long value) throws IOException {
+            if (value < min || value > max) {
+                return false;
+            }
+            long low = 0, high = length - 1;
+            while (low <= high) {
+                long mid = (low + high) >>> 1;
+                long found = read(mid);
+                if (found < value) {
+                    low = mid + 1;
+                } else if (found > value) {
+                    high = mid - 1;
+                } else {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        private long read(long index) throws IOException {
+            in.seek(index * Long.BYTES);
+            return in.readLong();
+        }
+        
+        @Override
+        public void close() throws IOException {
+            in.close();
+            if (!file.delete()) {
+                log.warn("Unable to delete dedupe spill file " + file);
+            }
+        }
+    }
+}
@@ -26,6 +26,8 @@ public class FacetedConfiguration {
     
     public static final String FACETED_FIELDS = "facet.field.list";
     
+    public static final String PARTIAL_SUMMARY_SIZE = "facet.partial.size";
+    
     protected int minimumFacetCount = 1;
     
     protected FacetedSearchType type;
@@ -38,6 +40,8 @@ public class FacetedConfiguration {
     
     protected boolean hasFieldLimits = false;
     
+    protected int partialSummarySize = 0;
+    
     /**
      * Sets whether or not we have a limited fields
      * 
@@ -151,12 +155,32 @@ public class FacetedConfiguration {
         
     }
     
+    /**
+     * Sets the number of documents summarized into each partial facet result. Partial results are merged as they arrive, so approximate facets are
+     * available early and refine as the scan goes. A size of 0 returns a single result per range.
+     * 
+     * @param partialSummarySize
+     */
+    public void setPartialSummarySize(int partialSummarySize) {
+        this.partialSummarySize = partialSummarySize;
+    }
+    
+    /**
+     * Returns the number of documents summarized into each partial facet result
+     * 
+     * @return
+     */
+    public int getPartialSummarySize() {
+        return partialSummarySize;
+    }
+    
     @Override
     public String toString() {
         final StringBuilder builder = new StringBuilder();
         builder.append("Maximum FacetGroupCount : ").append(maximumFacetGroupCount).append("\n");
         builder.append("Minimum Facet Count : ").append(minimumFacetCount).append("\n");
         builder.append("Faceted Fields: ").append(facetedFields).append("\n");
+        builder.append("Partial Summary Size : ").append(partialSummarySize).append("\n");
         return builder.toString();
     }
 }
@@ -10,6 +10,7 @@ import java.util.TreeSet;
 import datawave.query.DocumentSerialization;
 import datawave.query.config.ShardQueryConfiguration;
 import datawave.query.function.FacetedGrouping;
+import datawave.query.function.MinimumEstimation;
 import datawave.query.function.deserializer.DocumentDeserializer;
 import datawave.query.function.serializer.DocumentSerializer;
 import datawave.query.iterator.QueryOptions;
@@ -122,6 +123,11 @@ public class FacetedQueryLogic extends IndexQueryLogic {
             facetedConfig.setMinimumCount(Integer.valueOf(minimumCount));
         }
         
+        final String partialSummarySize = settings.findParameter(FacetedConfiguration.PARTIAL_SUMMARY_SIZE).getParameterValue().trim();
+        if (org.apache.commons.lang.StringUtils.isNotBlank(partialSummarySize)) {
+            facetedConfig.setPartialSummarySize(Integer.valueOf(partialSummarySize));
+        }
+        
         return super.initialize(connection, settings, auths);
         
     }
@@ -142,6 +148,11 @@ public class FacetedQueryLogic extends IndexQueryLogic {
         
         List<Function<Entry<Key,Document>,Entry<Key,Document>>> functionList = Lists.newArrayList();
         
+        // partial summaries are not filtered in the iterators, so apply the minimum to the merged facets
+        if (facetedConfig.getPartialSummarySize() > 0) {
+            functionList.add(new MinimumEstimation(facetedConfig.getMinimumFacetCount()));
+        }
+        
         functionList.add(new FacetedGrouping(facetedConfig));
         
         EmptyValueFunction filter = new EmptyValueFunction(deserializer);
@@ -179,6 +190,7 @@ public class FacetedQueryLogic extends IndexQueryLogic {
         optionalParams.add(FacetedConfiguration.FACETED_FIELDS);
         optionalParams.add(FacetedConfiguration.MAXIMUM_GROUP_COUNT);
         optionalParams.add(FacetedConfiguration.STREAMING_ENABLED);
+        optionalParams.add(FacetedConfiguration.PARTIAL_SUMMARY_SIZE);
         return optionalParams;
     }
     
@@ -226,4 +238,11 @@ public class FacetedQueryLogic extends IndexQueryLogic {
         facetedConfig.setStreamingMode(isStreaming);
     }
     
+    /**
+     * @param partialSummarySize
+     */
+    public void setPartialSummarySize(int partialSummarySize) {
+        facetedConfig.setPartialSummarySize(partialSummarySize);
+    }
+    
 }
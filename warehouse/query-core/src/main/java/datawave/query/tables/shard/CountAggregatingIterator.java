@@ -100,8 +100,21 @@ public class CountAggregatingIterator extends TransformIterator {
             return null;
         }
         
-        Object obj = getTransformer().transform(Maps.immutableEntry(count, cv));
+        Object obj = transform(count, cv);
         count = -1l;
         return obj;
     }
+    
+    /**
+     * Transform the aggregated count into the result
+     * 
+     * @param count
+     *            the sum of the counts
+     * @param cv
+     *            the combined visibility of the counts
+     * @return the result
+     */
+    protected Object transform(Long count, ColumnVisibility cv) {
+        return getTransformer().transform(Maps.immutableEntry(count, cv));
+    }
 }
@@ -0,0 +1,279 @@
+package datawave.query.tables.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import datawave.query.index.lookup.TupleToRange;
+import datawave.query.ranges.RangeFactory;
+
+import org.apache.accumulo.core.data.Range;
+import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.log4j.Logger;
+
+/**
+ * A stratified sample estimate of the number of results of a query. The units of the sample are the shards (or whole days when the global index could only
+ * narrow the query down to days) that the query planner produced ranges for, and the strata are the days, so that every day is represented in the sample.
+ * Whole day units are sampled amongst each other.
+ * <p>
+ * Within each stratum the units are sampled at random without replacement, and the total is estimated as the sum over the strata of the stratum size times
+ * the sampled mean, with the variance {@code sum(N_h^2 * (1 - n_h / N_h) * s_h^2 / n_h)}.
+ * <p>
+ * A stratum whose sampled units all counted zero has no variance, which would make its estimate of zero look exact. Instead the mean count of its unsampled
+ * units is bounded by the rule of three, {@code -ln(1 - confidence) / n_h}, which is added to the upper bound of the interval, so that a sample of zeros is
+ * never taken to have converged.
+ */
+public class CountEstimate {
+    private static final Logger log = Logger.getLogger(CountEstimate.class);
+    
+    /**
+     * The stratum of the units which are whole days
+     */
+    public static final String DAY_STRATUM = "";
+    
+    private final Map<String,Stratum> strata = new TreeMap<>();
+    private final Map<String,Stratum> units = new HashMap<>();
+    
+    private static class Stratum {
+        private final List<String> units = new ArrayList<>();
+        private final Map<String,Long> sampled = new HashMap<>();
+    }
+    
+    /**
+     * Get the sampling unit of a range, the shard for shard and document ranges and the day for a day range.
+     * 
+     * @param range
+     *            a range of the query plan
+     * @return the sampling unit
+     */
+    public static String getUnit(Range range) {
+        String start = range.getStartKey() == null ? "" : range.getStartKey().getRow().toString();
+        if (range.getEndKey() != null && range.getEndKey().getRow().toString().endsWith(RangeFactory.MAX_UNICODE_STRING)) {
+            return getDay(start);
+        }
+        return start;
+    }
+    
+    private static String getDay(String shard) {
+        int index = shard.indexOf('_');
+        return index < 0 ? shard : shard.substring(0, index);
+    }
+    
+    /**
+     * Add a unit to the population being sampled
+     * 
+     * @param unit
+     *            a shard or a day
+     */
+    public void addUnit(String unit) {
+        if (!units.containsKey(unit)) {
+            String name = TupleToRange.isShardRange(unit) ? getDay(unit) : DAY_STRATUM;
+            Stratum stratum = strata.computeIfAbsent(name, k -> new Stratum());
+            stratum.units.add(unit);
+            units.put(unit, stratum);
+        }
+    }
+    
+    /**
+     * Draw more units into the sample, so that at least the given fraction of each stratum is sampled. At least two units of each stratum are drawn, so that
+     * the variance of every stratum can be estimated.
+     * 
+     * @param fraction
+     *            the fraction of each stratum to sample
+     * @param random
+     *            the source of the draws
+     * @return the units newly drawn
+     */
+    public List<String> sample(double fraction, Random random) {
+        List<String> drawn = new ArrayList<>();
+        for (Stratum stratum : strata.values()) {
+            int size = stratum.units.size();
+            int target = Math.min(size, Math.max(2, (int) Math.ceil(fraction * size)));
+            
+            // the unsampled units are kept after the sampled ones, so a partial shuffle of them is a draw without replacement
+            for (int i = stratum.sampled.size(); i < target; i++) {
+                Collections.swap(stratum.units, i, i + random.nextInt(size - i));
+                String unit = stratum.units.get(i);
+                stratum.sampled.put(unit, 0L);
+                drawn.add(unit);
+            }
+        }
+        return drawn;
+    }
+    
+    /**
+     * Add the count of results from a sampled shard
+     * 
+     * @param shard
+     *            the shard of the results
+     * @param count
+     *            the number of results
+     */
+    public void addCount(String shard, long count) {
+        String unit = units.containsKey(shard) ? shard : getDay(shard);
+        Stratum stratum = units.get(unit);
+        if (stratum == null || !stratum.sampled.containsKey(unit)) {
+            log.warn("Ignoring a count of " + count + " from " + shard + " which was not sampled");
+            return;
+        }
+        stratum.sampled.merge(unit, count, Long::sum);
+    }
+    
+    public int getPopulationSize() {
+        return units.size();
+    }
+    
+    public int getSampleSize() {
+        int size = 0;
+        for (Stratum stratum : strata.values()) {
+            size += stratum.sampled.size();
+        }
+        return size;
+    }
+    
+    public double getSampleFraction() {
+        return units.isEmpty() ? 1.0d : (double) getSampleSize() / units.size();
+    }
+    
+    public boolean isComplete() {
+        return getSampleSize() == units.size();
+    }
+    
+    /**
+     * @return the sum of the counts of the sampled units
+     */
+    public long getSampledCount() {
+        long count = 0;
+        for (Stratum stratum : strata.values()) {
+            for (long sampled : stratum.sampled.values()) {
+                count += sampled;
+            }
+        }
+        return count;
+    }
+    
+    public double getEstimate() {
+        double estimate = 0;
+        for (Stratum stratum : strata.values()) {
+            int n = stratum.sampled.size();
+            if (n > 0) {
+                long sum = 0;
+                for (long count : stratum.sampled.values()) {
+                    sum += count;
+                }
+                estimate += stratum.units.size() * ((double) sum / n);
+            }
+        }
+        return estimate;
+    }
+    
+    public double getVariance() {
+        double variance = 0;
+        for (Stratum stratum : strata.values()) {
+            int n = stratum.sampled.size();
+            int size = stratum.units.size();
+            if (n == 0 || n == size) {
+                continue;
+            }
+            
+            double sum = 0;
+            double squares = 0;
+            for (long count : stratum.sampled.values()) {
+                sum += count;
+                squares += (double) count * count;
+            }
+            
+            // a single unit says nothing of the spread, so assume it is as large as the unit itself
+            double s2 = n > 1 ? Math.max(0, (squares - sum * sum / n) / (n - 1)) : squares;
+            variance += (double) size * size * (1.0d - (double) n / size) * s2 / n;
+        }
+        return variance;
+    }
+    
+    public double getStandardError() {
+        return Math.sqrt(getVariance());
+    }
+    
+    /**
+     * Get the bound on the count of the unsampled units of the strata whose sampled units all counted zero, which the variance cannot account for
+     * 
+     * @param confidence
+     *            the confidence level, e.g. 0.95
+     * @return the sum over those strata of the unsampled units times the rule of three bound on their mean count
+     */
+    public double getZeroCountBound(double confidence) {
+        double bound = 0;
+        for (Stratum stratum : strata.values()) {
+            int n = stratum.sampled.size();
+            int size = stratum.units.size();
+            if (n == 0 || n == size) {
+                continue;
+            }
+            
+            boolean zeros = true;
+            for (long count : stratum.sampled.values()) {
+                if (count != 0) {
+                    zeros = false;
+                    break;
+                }
+            }
+            if (zeros) {
+                bound += (size - n) * -Math.log(1.0d - confidence) / n;
+            }
+        }
+        return bound;
+    }
+    
+    /**
+     * Get the number of standard errors either side of the estimate which covers the true count with the given confidence
+     * 
+     * @param confidence
+     *            the confidence level, e.g. 0.95
+     * @return the z score
+     */
+    public static double getZ(double confidence) {
+        return new NormalDistribution().inverseCumulativeProbability(1.0d - (1.0d - confidence) / 2.0d);
+    }
+    
+    /**
+     * @param confidence
+     *            the confidence level, e.g. 0.95
+     * @return the lower bound of the confidence interval, which is never less than the counts actually seen
+     */
+    public long getLowerBound(double confidence) {
+        return Math.max(getSampledCount(), (long) Math.floor(getEstimate() - getZ(confidence) * getStandardError()));
+    }
+    
+    /**
+     * @param confidence
+     *            the confidence level, e.g. 0.95
+     * @return the upper bound of the confidence interval, widened by the bound on the strata which have only counted zeros
+     */
+    public long getUpperBound(double confidence) {
+        return (long) Math.ceil(getEstimate() + getZ(confidence) * getStandardError() + getZeroCountBound(confidence));
+    }
+    
+    /**
+     * @param confidence
+     *            the confidence level, e.g. 0.95
+     * @return the width of the confidence interval above the estimate relative to the estimate, which is infinite for an estimate of zero which is not exact
+     */
+    public double getRelativeError(double confidence) {
+        double estimate = getEstimate();
+        double error = getZ(confidence) * getStandardError() + getZeroCountBound(confidence);
+        if (estimate == 0) {
+            return error == 0 ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return error / estimate;
+    }
+    
+    @Override
+    public String toString() {
+        return "CountEstimate{estimate=" + getEstimate() + ", standardError=" + getStandardError() + ", sampled=" + getSampleSize() + '/' + getPopulationSize()
+                        + '}';
+    }
+}
@@ -0,0 +1,31 @@
+package datawave.query.tables.shard;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import datawave.query.transformer.ShardQueryCountTableTransformer;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.ColumnVisibility;
+
+/**
+ * Aggregates the counts of a sampled count query, returning the estimate of the total count and its confidence interval rather than the sum of the counts
+ * sampled. The estimate is fed by the {@link datawave.query.scheduler.CountSamplingScheduler} as the counts pass through it.
+ */
+public class CountEstimatingIterator extends CountAggregatingIterator {
+    
+    private final CountEstimate estimate;
+    private final double confidence;
+    
+    public CountEstimatingIterator(Iterator<Entry<Key,Value>> iterator, ShardQueryCountTableTransformer transformer, CountEstimate estimate, double confidence) {
+        super(iterator, transformer);
+        this.estimate = estimate;
+        this.confidence = confidence;
+    }
+    
+    @Override
+    protected Object transform(Long count, ColumnVisibility cv) {
+        return ((ShardQueryCountTableTransformer) getTransformer()).transform(estimate, confidence, cv);
+    }
+}
@@ -0,0 +1,204 @@
+package datawave.query.tld;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import datawave.core.iterators.IteratorThreadPoolManager;
+import datawave.data.hash.UIDConstants;
+import datawave.query.function.Equality;
+import datawave.query.function.KeyToDocumentData;
+import datawave.query.predicate.EventDataQueryFilter;
+
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.IteratorEnvironment;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Logger;
+
+/**
+ * Assembles a top level document by reading its child key space as several ranges concurrently. The children of a top level document <code>uid</code> are
+ * <code>uid.1</code>, <code>uid.2</code>, ... so the document range is split on the first digit following the uid separator. The first range, which holds the
+ * top level document itself, is read on the calling thread with the source given to this mapper, and the others are read on the TLD assembly thread pool
+ * through deep copies of that source, one per range, which are reused for every document.
+ * <p>
+ * The ranges are merged in order as each completes, so the attributes come out in the same order as a sequential read, and each range's attributes are
+ * released once merged. Each range is filtered with its own clone of the {@link EventDataQueryFilter}, so per document seek thresholds apply per range.
+ * <p>
+ * When maxChildren is non-negative, no more than that many descendant documents are kept: the first maxChildren descendants in key order, which is the same set
+ * a sequential read would keep. Each range stops reading once it has seen that many descendants.
+ */
+public class ParallelTLDKeyToDocumentData extends KeyToDocumentData {
+    
+    private static final Logger log = Logger.getLogger(ParallelTLDKeyToDocumentData.class);
+    
+    // child uids are numbered from 1, so there are at most 9 useful split points
+    public static final int MAX_PARTITIONS = 10;
+    
+    private final IteratorEnvironment env;
+    private final int partitions;
+    private final int maxChildren;
+    
+    // a deep copy of the source for each partition after the first, created on first use
+    private final List<SortedKeyValueIterator<Key,Value>> partitionSources = new ArrayList<>();
+    
+    public ParallelTLDKeyToDocumentData(SortedKeyValueIterator<Key,Value> source, IteratorEnvironment env, Map<String,String> options, Equality equality,
+                    EventDataQueryFilter filter, boolean includeChildCount, boolean includeParent, int partitions, int maxChildren) {
+        super(source, env, options, equality, filter, includeChildCount, includeParent);
+        this.env = env;
+        this.partitions = Math.max(1, Math.min(partitions, MAX_PARTITIONS));
+        this.maxChildren = maxChildren;
+    }
+    
+    @Override
+    public List<Entry<Key,Value>> collectDocumentAttributes(final Key documentStartKey, final Set<Key> docKeys, final Range keyRange) throws IOException {
+        List<Range> ranges = getPartitionRanges(documentStartKey, keyRange);
+        if (ranges.size() == 1) {
+            return collectAttributesForDocumentKey(documentStartKey, source, equality, filter, docKeys, keyRange, maxChildren);
+        }
+        
+        List<Future<PartialDocument>> futures = new ArrayList<>(ranges.size() - 1);
+        try {
+            for (int i = 1; i < ranges.size(); i++) {
+                final Range range = ranges.get(i);
+                final SortedKeyValueIterator<Key,Value> partitionSource = getPartitionSource(i - 1);
+                final EventDataQueryFilter partitionFilter = (filter == null ? null : filter.clone());
+                futures.add(IteratorThreadPoolManager.executeTLDAssembly(() -> collectPartition(documentStartKey, partitionSource, partitionFilter, range),
+                                "TLD assembly " + range, env));
+            }
+            
+            // the first partition holds the top level document itself and is read on this thread
+            PartialDocument first = collectPartition(documentStartKey, source, filter, ranges.get(0));
+            
+            List<Entry<Key,Value>> documentAttributes = first.attributes;
+            docKeys.addAll(first.docKeys);
+            for (Future<PartialDocument> future : futures) {
+                PartialDocument partial = future.get();
+                documentAttributes.addAll(partial.attributes);
+                docKeys.addAll(partial.docKeys);
+            }
+            
+            if (maxChildren >= 0) {
+                limitChildren(documentStartKey, documentAttributes, docKeys);
+            }
+            
+            if (log.isTraceEnabled()) {
+                log.trace("Collected " + documentAttributes.size() + " attributes for " + documentStartKey + " from " + ranges.size() + " ranges");
+            }
+            return documentAttributes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while assembling " + documentStartKey, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to assemble " + documentStartKey, e.getCause());
+        } finally {
+            for (Future<PartialDocument> future : futures) {
+                future.cancel(false);
+            }
+        }
+    }
+    
+    private PartialDocument collectPartition(Key documentStartKey, SortedKeyValueIterator<Key,Value> partitionSource, EventDataQueryFilter partitionFilter,
+                    Range range) throws IOException {
+        Set<Key> docKeys = new HashSet<>();
+        partitionSource.seek(range, columnFamilies, inclusive);
+        List<Entry<Key,Value>> attributes;
+        if (partitionSource.hasTop()) {
+            attributes = collectAttributesForDocumentKey(documentStartKey, partitionSource, equality, partitionFilter, docKeys, range, maxChildren);
+        } else {
+            attributes = new ArrayList<>();
+        }
+        return new PartialDocument(attributes, docKeys);
+    }
+    
+    private SortedKeyValueIterator<Key,Value> getPartitionSource(int index) {
+        while (partitionSources.size() <= index) {
+            partitionSources.add(source.deepCopy(env));
+        }
+        return partitionSources.get(index);
+    }
+    
+    /**
+     * Split the document range on the first digit of the child uid. The split points are kept inside the document range, so a range which does not cover the
+     * whole document (e.g. when a scan is restarted part way through a document) gets fewer partitions.
+     * 
+     * @param documentStartKey
+     *            the top level document key
+     * @param keyRange
+     *            the range covering the document
+     * @return the partition ranges, in order
+     */
+    protected List<Range> getPartitionRanges(Key documentStartKey, Range keyRange) {
+        if (partitions == 1) {
+            return Collections.singletonList(keyRange);
+        }
+        
+        Text row = documentStartKey.getRow();
+        String childPrefix = documentStartKey.getColumnFamily().toString() + UIDConstants.DEFAULT_SEPARATOR;
+        
+        List<Range> ranges = new ArrayList<>(partitions);
+        Key start = keyRange.getStartKey();
+        boolean startInclusive = keyRange.isStartKeyInclusive();
+        char lastDigit = 0;
+        for (int i = 0; i < partitions - 1; i++) {
+            // partition 0 ends before the first child
+            char digit = (char) ('1' + (i * 9) / (partitions - 1));
+            Key split = new Key(row, new Text(i == 0 ? childPrefix : childPrefix + digit));
+            if (digit == lastDigit || (start != null && split.compareTo(start) <= 0) || !keyRange.beforeEndKey(split)) {
+                continue;
+            }
+            lastDigit = digit;
+            ranges.add(new Range(start, startInclusive, split, false));
+            start = split;
+            startInclusive = true;
+        }
+        ranges.add(new Range(start, startInclusive, keyRange.getEndKey(), keyRange.isEndKeyInclusive()));
+        return ranges;
+    }
+    
+    /**
+     * Drop the attributes of descendants beyond the first maxChildren, in key order
+     */
+    private void limitChildren(Key documentStartKey, List<Entry<Key,Value>> documentAttributes, Set<Key> docKeys) {
+        ByteSequence documentCf = documentStartKey.getColumnFamilyData();
+        Set<ByteSequence> kept = new HashSet<>();
+        List<Entry<Key,Value>> limited = new ArrayList<>(documentAttributes.size());
+        for (Entry<Key,Value> attribute : documentAttributes) {
+            ByteSequence cf = attribute.getKey().getColumnFamilyData();
+            if (cf.equals(documentCf) || kept.contains(cf) || (kept.size() < maxChildren && kept.add(cf))) {
+                limited.add(attribute);
+            }
+        }
+        if (limited.size() != documentAttributes.size()) {
+            documentAttributes.clear();
+            documentAttributes.addAll(limited);
+            docKeys.removeIf(docKey -> {
+                ByteSequence cf = docKey.getColumnFamilyData();
+                return !cf.equals(documentCf) && !kept.contains(cf);
+            });
+        }
+    }
+    
+    private static class PartialDocument {
+        private final List<Entry<Key,Value>> attributes;
+        private final Set<Key> docKeys;
+        
+        PartialDocument(List<Entry<Key,Value>> attributes, Set<Key> docKeys) {
+            this.attributes = attributes;
+            this.docKeys = docKeys;
+        }
+    }
+}
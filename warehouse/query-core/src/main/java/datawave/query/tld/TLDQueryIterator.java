@@ -4,6 +4,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import datawave.query.attributes.Document;
 import datawave.query.data.parsers.DatawaveKey;
+import datawave.query.function.KeyToDocumentData;
 import datawave.query.function.TLDEquality;
 import datawave.query.iterator.NestedIterator;
 import datawave.query.iterator.QueryIterator;
@@ -183,6 +184,20 @@ public class TLDQueryIterator extends QueryIterator {
         return this.evaluationFilter != null ? evaluationFilter.clone() : null;
     }
     
+    /**
+     * Read the children of a top level document concurrently when more than one assembly partition is configured, and limit the children fetched when the
+     * field index already satisfied the query
+     */
+    @Override
+    protected KeyToDocumentData createKeyToDocumentData(SortedKeyValueIterator<Key,Value> deepSourceCopy, boolean fieldIndexSatisfiesQuery) {
+        int maxChildren = fieldIndexSatisfiesQuery ? getTldAssemblyMaxChildren() : -1;
+        if (getTldAssemblyPartitions() > 1 || maxChildren >= 0) {
+            return new ParallelTLDKeyToDocumentData(deepSourceCopy, this.myEnvironment, this.documentOptions, super.equality, getEvaluationFilter(),
+                            this.includeHierarchyFields, this.includeHierarchyFields, getTldAssemblyPartitions(), maxChildren);
+        }
+        return super.createKeyToDocumentData(deepSourceCopy, fieldIndexSatisfiesQuery);
+    }
+    
     @Override
     protected NestedIterator<Key> getEventDataNestedIterator(SortedKeyValueIterator<Key,Value> source) {
         return new TLDEventDataScanNestedIterator(source, getEventEntryKeyDataTypeFilter());
@@ -7,6 +7,8 @@ import datawave.util.StringUtils;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.exception.EmptyObjectException;
 import datawave.webservice.query.logic.BaseQueryLogic;
+import datawave.webservice.query.logic.ColumnarRow;
+import datawave.webservice.query.logic.ColumnarTransformer;
 import datawave.webservice.query.logic.Flushable;
 import datawave.webservice.query.logic.WritesQueryMetrics;
 import datawave.webservice.query.logic.WritesResultCardinalities;
@@ -32,7 +34,7 @@ import java.util.Map.Entry;
  *
  */
 public class DocumentTransformer extends DocumentTransformerSupport<Entry<Key,Value>,EventBase> implements WritesQueryMetrics, WritesResultCardinalities,
-                Flushable<EventBase> {
+                Flushable<EventBase>, ColumnarTransformer<Entry<Key,Value>> {
     
     private static final Logger log = Logger.getLogger(DocumentTransformerSupport.class);
     
@@ -87,7 +89,41 @@ public class DocumentTransformer extends DocumentTransformerSupport<Entry<Key,Va
     
     @Override
     public EventBase transform(Entry<Key,Value> entry) throws EmptyObjectException {
+        return _transform(applyTransforms(entry));
+    }
+    
+    @Override
+    public void transformColumns(Entry<Key,Value> entry, ColumnarRow row) throws EmptyObjectException {
+        Entry<Key,Document> documentEntry = applyTransforms(entry);
+        Key documentKey = getDocumentKey(documentEntry);
+        Document document = documentEntry.getValue();
+        
+        String colf = documentKey.getColumnFamily().toString();
+        int index = colf.indexOf("\0");
+        Preconditions.checkArgument(-1 != index);
+        String dataType = colf.substring(0, index);
+        String uid = colf.substring(index + 1);
+        
+        row.reset(documentKey.getRow().toString(), dataType, uid);
+        try {
+            // the same top-level markings that buildResponse gives the event
+            row.setMarkings(this.markingFunctions.translateFromColumnVisibility(new ColumnVisibility(documentKey.getColumnVisibility())));
+        } catch (MarkingFunctions.Exception ex) {
+            log.error("Error building response markings", ex);
+            throw new RuntimeException(ex);
+        }
+        addDocumentColumns(row, document);
+        if (row.isEmpty()) {
+            // the document only held metadata
+            throw new EmptyObjectException();
+        }
         
+        if (cardinalityConfiguration != null) {
+            collectCardinalities(document, documentKey, uid, dataType);
+        }
+    }
+    
+    private Entry<Key,Document> applyTransforms(Entry<Key,Value> entry) {
         Entry<Key,Document> documentEntry = deserializer.apply(entry);
         for (DocumentTransform transform : transforms) {
             if (documentEntry != null) {
@@ -96,11 +132,15 @@ public class DocumentTransformer extends DocumentTransformerSupport<Entry<Key,Va
                 break;
             }
         }
-        
-        return _transform(documentEntry);
+        return documentEntry;
     }
     
-    private EventBase _transform(Entry<Key,Document> documentEntry) throws EmptyObjectException {
+    /**
+     * Checks a transformed document and extracts its metrics
+     *
+     * @return the corrected key of the document
+     */
+    private Key getDocumentKey(Entry<Key,Document> documentEntry) throws EmptyObjectException {
         if (documentEntry == null) {
             // buildResponse will return a null object if there was only metadata in the document
             throw new EmptyObjectException();
@@ -113,6 +153,12 @@ public class DocumentTransformer extends DocumentTransformerSupport<Entry<Key,Va
             throw new IllegalArgumentException("Null key or value. Key:" + documentKey + ", Value: " + documentEntry.getValue());
         
         extractMetrics(document, documentKey);
+        return documentKey;
+    }
+    
+    private EventBase _transform(Entry<Key,Document> documentEntry) throws EmptyObjectException {
+        Key documentKey = getDocumentKey(documentEntry);
+        Document document = documentEntry.getValue();
         document.debugDocumentSize(documentKey);
         
         String row = documentKey.getRow().toString();
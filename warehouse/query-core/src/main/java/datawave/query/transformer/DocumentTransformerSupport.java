@@ -22,6 +22,7 @@ import datawave.webservice.query.Query;
 import datawave.webservice.query.QueryImpl.Parameter;
 import datawave.webservice.query.exception.EmptyObjectException;
 import datawave.webservice.query.logic.BaseQueryLogic;
+import datawave.webservice.query.logic.ColumnarRow;
 import datawave.webservice.query.logic.WritesQueryMetrics;
 import datawave.webservice.query.logic.WritesResultCardinalities;
 import datawave.webservice.query.metric.BaseQueryMetric;
@@ -170,16 +171,7 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
     protected Collection<FieldBase<?>> buildDocumentFields(Key documentKey, String documentName, Document document, ColumnVisibility topLevelColumnVisibility,
                     MarkingFunctions markingFunctions) {
         
-        // Whether the fields were added to projectFields or removed from blacklistedFields, they user does not want them returned
-        // If neither a projection nor a blacklist was used then the suppressFields set should remain empty
-        Set<String> suppressFields = Collections.emptySet();
-        if (cardinalityConfiguration != null) {
-            if (!projectFields.isEmpty()) {
-                suppressFields = cardinalityConfiguration.getStoredProjectFieldsToAdd(getQm(), projectFields);
-            } else if (!blacklistedFields.isEmpty()) {
-                suppressFields = cardinalityConfiguration.getStoredBlacklistedFieldsToRemove(getQm(), blacklistedFields);
-            }
-        }
+        Set<String> suppressFields = getSuppressFields();
         
         Set<FieldBase<?>> Fields = new HashSet<>();
         final Map<String,Attribute<? extends Comparable<?>>> documentData = document.getDictionary();
@@ -208,6 +200,58 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
         return Fields;
     }
     
+    /**
+     * Whether the fields were added to projectFields or removed from blacklistedFields, they user does not want them returned. If neither a projection nor a
+     * blacklist was used then the suppressFields set should remain empty
+     */
+    private Set<String> getSuppressFields() {
+        Set<String> suppressFields = Collections.emptySet();
+        if (cardinalityConfiguration != null) {
+            if (!projectFields.isEmpty()) {
+                suppressFields = cardinalityConfiguration.getStoredProjectFieldsToAdd(getQm(), projectFields);
+            } else if (!blacklistedFields.isEmpty()) {
+                suppressFields = cardinalityConfiguration.getStoredBlacklistedFieldsToRemove(getQm(), blacklistedFields);
+            }
+        }
+        return suppressFields;
+    }
+    
+    /**
+     * Adds the values of a document to the columns of a row, with the field names that {@link #buildDocumentFields} would give them, but without creating the
+     * fields. The row is labeled with the top-level markings of the document by the caller, rather than with the markings of each field.
+     * 
+     * @param row
+     * @param document
+     */
+    protected void addDocumentColumns(ColumnarRow row, Document document) {
+        Set<String> suppressFields = getSuppressFields();
+        for (Entry<String,Attribute<? extends Comparable<?>>> data : document.getDictionary().entrySet()) {
+            // skip metadata fields
+            if (data.getValue() instanceof datawave.query.attributes.Metadata) {
+                continue;
+            }
+            String fn = data.getKey();
+            if (!suppressFields.contains(JexlASTHelper.removeGroupingContext(fn))) {
+                if (null != this.getQm()) {
+                    fn = this.getQm().aliasFieldNameReverseModel(fn);
+                }
+                addDocumentColumns(row, fn, data.getValue());
+            }
+        }
+    }
+    
+    private void addDocumentColumns(ColumnarRow row, String fieldName, Attribute<?> attr) {
+        if (attr instanceof Attributes) {
+            for (Attribute<? extends Comparable<?>> embeddedAttr : ((Attributes) attr).getAttributes()) {
+                addDocumentColumns(row, fieldName, embeddedAttr);
+            }
+        } else if (this.reducedResponse && this.transformValuePrefixFields.contains(fieldName)) {
+            row.add(fieldName, convertMappedAttribute(attr).getData());
+        } else {
+            row.add(fieldName, attr.getData());
+        }
+    }
+    
     protected void extractMetrics(Document document, Key documentKey) {
         
         Map<String,Attribute<? extends Comparable<?>>> dictionary = document.getDictionary();
@@ -260,6 +304,11 @@ public abstract class DocumentTransformerSupport<I,O> extends EventQueryTransfor
             metric.setDocRanges(docRanges);
             metric.setFiRanges(fiRanges);
         }
+        
+        // metrics gathered by the query logic itself, e.g. from deduping the results
+        if (logic instanceof WritesQueryMetrics) {
+            ((WritesQueryMetrics) logic).writeQueryMetrics(metric);
+        }
     }
     
     protected List<String> getFieldValues(Document document, String field, boolean shortCircuit) {
@@ -121,6 +121,7 @@ public class FacetedTransformer extends DocumentTransformerSupport<Entry<Key,Val
                     fc.setLower(v.getFloorValue());
                     fc.setUpper(v.getCeilingValue());
                     fc.setCardinality(v.getEstimate().cardinality());
+                    fc.setCardinalityError(v.getErrorBound());
                     
                     myFields.add(fc);
                     
@@ -1,6 +1,8 @@
 package datawave.query.transformer;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -8,6 +10,7 @@ import java.util.Map.Entry;
 import datawave.marking.MarkingFunctions;
 import datawave.marking.MarkingFunctions.Exception;
 import datawave.query.Constants;
+import datawave.query.tables.shard.CountEstimate;
 import datawave.webservice.query.Query;
 import datawave.webservice.query.cachedresults.CacheableLogic;
 import datawave.webservice.query.cachedresults.CacheableQueryRow;
@@ -27,6 +30,9 @@ import org.apache.log4j.Logger;
 
 public class ShardQueryCountTableTransformer extends BaseQueryLogicTransformer<Entry<Long,ColumnVisibility>,EventBase> implements CacheableLogic {
     public static final String COUNT_CELL = "count";
+    public static final String COUNT_LOWER_BOUND_CELL = "countLowerBound";
+    public static final String COUNT_UPPER_BOUND_CELL = "countUpperBound";
+    public static final String SAMPLE_FRACTION_CELL = "sampleFraction";
     
     private Authorizations auths = null;
     
@@ -47,6 +53,30 @@ public class ShardQueryCountTableTransformer extends BaseQueryLogicTransformer<E
         Long count = untypedEntry.getKey();
         ColumnVisibility vis = untypedEntry.getValue();
         
+        return createEvent(Collections.singletonMap(COUNT_CELL, count), vis);
+    }
+    
+    /**
+     * Transform a sampled estimate of the count, along with its confidence interval and the fraction of the shards sampled
+     * 
+     * @param estimate
+     *            the estimate
+     * @param confidence
+     *            the confidence level of the interval
+     * @param vis
+     *            the combined visibility of the sampled counts
+     * @return the event
+     */
+    public EventBase transform(CountEstimate estimate, double confidence, ColumnVisibility vis) {
+        Map<String,Object> values = new LinkedHashMap<>();
+        values.put(COUNT_CELL, Math.round(estimate.getEstimate()));
+        values.put(COUNT_LOWER_BOUND_CELL, estimate.getLowerBound(confidence));
+        values.put(COUNT_UPPER_BOUND_CELL, estimate.getUpperBound(confidence));
+        values.put(SAMPLE_FRACTION_CELL, estimate.getSampleFraction());
+        return createEvent(values, vis);
+    }
+    
+    private EventBase createEvent(Map<String,Object> values, ColumnVisibility vis) {
         Map<String,String> markings;
         try {
             markings = markingFunctions.translateFromColumnVisibilityForAuths(vis, auths);
@@ -57,16 +87,16 @@ public class ShardQueryCountTableTransformer extends BaseQueryLogicTransformer<E
         EventBase e = this.responseObjectFactory.getEvent();
         e.setMarkings(markings);
         
-        FieldBase field = this.makeField(COUNT_CELL, markings, vis, System.currentTimeMillis(), count);
-        e.setMarkings(markings);
-        
+        long timestamp = System.currentTimeMillis();
         List<FieldBase> fields = new ArrayList<>();
-        fields.add(field);
+        for (Map.Entry<String,Object> value : values.entrySet()) {
+            fields.add(this.makeField(value.getKey(), markings, vis, timestamp, value.getValue()));
+        }
         e.setFields(fields);
         
         Metadata metadata = new Metadata();
         metadata.setDataType(Constants.EMPTY_STRING);
-        metadata.setInternalId(field.getName()); // There is only one item returned for the entire query logic.
+        metadata.setInternalId(COUNT_CELL); // There is only one item returned for the entire query logic.
         metadata.setRow(Constants.EMPTY_STRING);
         e.setMetadata(metadata);
         
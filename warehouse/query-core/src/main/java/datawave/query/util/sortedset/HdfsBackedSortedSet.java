@@ -1,6 +1,5 @@
 package datawave.query.util.sortedset;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -10,7 +9,9 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.SortedSet;
 
+import datawave.core.iterators.filesystem.IvaratorBufferCache;
 import datawave.query.iterator.ivarator.IvaratorCacheDir;
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
 import datawave.query.util.sortedset.FileSortedSet.SortedSetFileHandler;
 
 import org.apache.hadoop.fs.FileStatus;
@@ -78,7 +79,8 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
                         for (FileStatus file : files) {
                             if (!file.isDir() && file.getPath().getName().startsWith(FILENAME_PREFIX)) {
                                 count++;
-                                addSet(setFactory.newInstance(comparator, new SortedSetHdfsFileHandler(fs, file.getPath()), true));
+                                addSet(setFactory.newInstance(comparator,
+                                                new SortedSetHdfsFileHandler(fs, file.getPath(), hdfsHandlerFactory.getIvaratorCacheDir().getConfig()), true));
                             }
                         }
                     }
@@ -167,7 +169,7 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             // generate a unique file name
             fileCount++;
             Path file = new Path(uniqueDir, FILENAME_PREFIX + fileCount + '.' + System.currentTimeMillis());
-            return new SortedSetHdfsFileHandler(fs, file);
+            return new SortedSetHdfsFileHandler(fs, file, ivaratorCacheDir.getConfig());
         }
         
         @Override
@@ -180,10 +182,17 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
     public static class SortedSetHdfsFileHandler implements SortedSetFileHandler {
         private FileSystem fs;
         private Path file;
+        // the config of the cache dir holding the file, used to rank its pages in the buffer cache
+        private IvaratorCacheDirConfig config;
         
         public SortedSetHdfsFileHandler(FileSystem fs, Path file) {
+            this(fs, file, null);
+        }
+        
+        public SortedSetHdfsFileHandler(FileSystem fs, Path file, IvaratorCacheDirConfig config) {
             this.fs = fs;
             this.file = file;
+            this.config = config;
         }
         
         private String getScheme() {
@@ -199,7 +208,7 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             if (log.isDebugEnabled()) {
                 log.debug("Reading " + file);
             }
-            return new BufferedInputStream(fs.open(file));
+            return IvaratorBufferCache.getInstance(null).open(fs, file, config);
         }
         
         @Override
@@ -207,6 +216,7 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
             if (log.isDebugEnabled()) {
                 log.debug("Creating " + file);
             }
+            IvaratorBufferCache.getInstance(null).invalidate(file);
             return new BufferedOutputStream(fs.create(file));
         }
         
@@ -227,6 +237,7 @@ public class HdfsBackedSortedSet<E> extends BufferedFileBackedSortedSet<E> imple
                 if (log.isDebugEnabled()) {
                     log.debug("Deleting " + file);
                 }
+                IvaratorBufferCache.getInstance(null).invalidate(file);
                 if (!fs.delete(file, true)) {
                     log.error("Failed to delete file " + file + ": delete returned false");
                 }
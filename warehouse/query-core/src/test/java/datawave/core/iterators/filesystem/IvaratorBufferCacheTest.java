@@ -0,0 +1,141 @@
+package datawave.core.iterators.filesystem;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import datawave.query.iterator.ivarator.IvaratorCacheDirConfig;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IvaratorBufferCacheTest {
+    
+    private static final int PAGE_SIZE = 1024;
+    
+    private LocalFileSystem fs;
+    private File tempDir;
+    
+    @Before
+    public void setup() throws IOException {
+        tempDir = Files.createTempDir();
+        tempDir.deleteOnExit();
+        fs = new LocalFileSystem();
+        fs.initialize(tempDir.toURI(), new Configuration());
+    }
+    
+    private Path write(String name, byte[] data) throws IOException {
+        Path file = new Path(tempDir.toURI().toString(), name);
+        try (OutputStream out = fs.create(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+    
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+    
+    private static byte[] read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            return ByteStreams.toByteArray(stream);
+        }
+    }
+    
+    @Test
+    public void testReadsThroughCache() throws IOException {
+        IvaratorBufferCache cache = new IvaratorBufferCache(16 * PAGE_SIZE, PAGE_SIZE);
+        byte[] data = data(5 * PAGE_SIZE + 17);
+        Path file = write("file", data);
+        
+        assertArrayEquals(data, read(cache.open(fs, file, null)));
+        assertEquals(0, cache.getHits());
+        assertEquals(6, cache.getMisses());
+        assertEquals(6 * PAGE_SIZE, cache.getSizeInBytes());
+        
+        // the second reader is served entirely from the cache
+        assertArrayEquals(data, read(cache.open(fs, file, null)));
+        assertEquals(6, cache.getHits());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+        
+        // single byte reads and skips see the same data
+        try (InputStream in = cache.open(fs, file, null)) {
+            assertEquals(data[0] & 0xff, in.read());
+            assertEquals(PAGE_SIZE * 2, in.skip(PAGE_SIZE * 2));
+            assertEquals(data[PAGE_SIZE * 2 + 1] & 0xff, in.read());
+        }
+    }
+    
+    @Test
+    public void testDisabled() throws IOException {
+        IvaratorBufferCache cache = new IvaratorBufferCache(0, PAGE_SIZE);
+        byte[] data = data(3 * PAGE_SIZE);
+        Path file = write("file", data);
+        
+        assertArrayEquals(data, read(cache.open(fs, file, null)));
+        assertEquals(0, cache.getMisses());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+    
+    @Test
+    public void testEvictsLeastPreferredDir() throws IOException {
+        IvaratorBufferCache cache = new IvaratorBufferCache(4 * PAGE_SIZE, PAGE_SIZE);
+        Path preferred = write("preferred", data(2 * PAGE_SIZE));
+        Path other = write("other", data(2 * PAGE_SIZE));
+        Path next = write("next", data(2 * PAGE_SIZE));
+        
+        // the least recently used pages are from the preferred dir, but the other dir has the higher priority number
+        read(cache.open(fs, preferred, new IvaratorCacheDirConfig(tempDir.toURI().toString(), 0)));
+        read(cache.open(fs, other, new IvaratorCacheDirConfig(tempDir.toURI().toString(), 1)));
+        assertEquals(4 * PAGE_SIZE, cache.getSizeInBytes());
+        
+        read(cache.open(fs, next, new IvaratorCacheDirConfig(tempDir.toURI().toString(), 0)));
+        assertEquals(2, cache.getEvictions());
+        assertEquals(4 * PAGE_SIZE, cache.getSizeInBytes());
+        
+        // the pages of the preferred dir survived
+        long hits = cache.getHits();
+        read(cache.open(fs, preferred, null));
+        assertEquals(hits + 2, cache.getHits());
+    }
+    
+    @Test
+    public void testInvalidate() throws IOException {
+        IvaratorBufferCache cache = new IvaratorBufferCache(16 * PAGE_SIZE, PAGE_SIZE);
+        Path file = write("file", data(2 * PAGE_SIZE));
+        read(cache.open(fs, file, null));
+        assertEquals(2 * PAGE_SIZE, cache.getSizeInBytes());
+        
+        cache.invalidate(file);
+        assertEquals(0, cache.getSizeInBytes());
+        
+        // a rewritten file is read fresh
+        byte[] data = data(PAGE_SIZE + 1);
+        assertTrue(fs.delete(file, false));
+        write("file", data);
+        assertArrayEquals(data, read(cache.open(fs, file, null)));
+    }
+    
+    @Test
+    public void testShrink() throws IOException {
+        IvaratorBufferCache cache = new IvaratorBufferCache(16 * PAGE_SIZE, PAGE_SIZE);
+        read(cache.open(fs, write("file", data(8 * PAGE_SIZE)), null));
+        assertEquals(8 * PAGE_SIZE, cache.getSizeInBytes());
+        
+        cache.setMaxPages(2);
+        assertEquals(2 * PAGE_SIZE, cache.getSizeInBytes());
+        assertEquals(2 * PAGE_SIZE, cache.getMaxSizeInBytes());
+    }
+}
@@ -0,0 +1,88 @@
+package datawave.mr.bulk.split;
+
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Range;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class OfflineQuerySplitTest {
+    
+    private static TabletSplitSplit shard(String row, String host, String... files) throws Exception {
+        TabletSplitSplit shard = new TabletSplitSplit(files.length);
+        shard.setTable("shard");
+        for (String file : files) {
+            shard.add(new FileRangeSplit(new Range(row), new Path("hdfs://localhost/accumulo/tables/1/" + file), 0, 100, new String[] {host}));
+        }
+        return shard;
+    }
+    
+    private static List<IteratorSetting> plan(String query) {
+        IteratorSetting setting = new IteratorSetting(100, "query", "datawave.query.iterator.QueryIterator");
+        setting.addOption("query", query);
+        return Collections.singletonList(setting);
+    }
+    
+    @Test
+    public void testPlansAreHeldOnce() throws Exception {
+        List<IteratorSetting> plan1 = plan("FOO == 'bar'");
+        List<IteratorSetting> plan2 = plan("FOO == 'baz'");
+        
+        OfflineQuerySplit split = new OfflineQuerySplit();
+        split.add(shard("20180101_0", "host1", "A1.rf", "A2.rf"), plan1);
+        split.add(shard("20180101_1", "host1", "B1.rf"), plan2);
+        split.add(shard("20180101_2", "host2", "C1.rf"), plan1);
+        
+        assertEquals(3, split.getShardCount());
+        assertEquals(2, split.plans.size());
+        assertSame(split.getSettings(0), split.getSettings(2));
+        assertEquals(400, split.getLength());
+        assertArrayEquals(new String[] {"host1", "host2"}, split.getLocations());
+    }
+    
+    @Test
+    public void testWritable() throws Exception {
+        Map<String,String> tableProperties = new TreeMap<>();
+        tableProperties.put("table.iterator.scan.vers", "20,org.apache.accumulo.core.iterators.user.VersioningIterator");
+        tableProperties.put("table.iterator.scan.vers.opt.maxVersions", "1");
+        OfflineQuerySplit split = new OfflineQuerySplit(tableProperties);
+        split.add(shard("20180101_0", "host1", "A1.rf", "A2.rf"), plan("FOO == 'bar'"));
+        split.add(shard("20180101_1", "host1", "B1.rf"), plan("FOO == 'baz'"));
+        split.add(shard("20180101_2", "host1", "C1.rf"), plan("FOO == 'bar'"));
+        
+        DataOutputBuffer out = new DataOutputBuffer();
+        split.write(out);
+        DataInputBuffer in = new DataInputBuffer();
+        in.reset(out.getData(), out.getLength());
+        OfflineQuerySplit copy = new OfflineQuerySplit();
+        copy.readFields(in);
+        
+        assertEquals(3, copy.getShardCount());
+        assertEquals(2, copy.plans.size());
+        assertEquals(tableProperties, copy.getTableProperties());
+        for (int i = 0; i < split.getShardCount(); i++) {
+            assertEquals(split.getSettings(i), copy.getSettings(i));
+            assertEquals("shard", copy.getShard(i).getTable());
+            assertEquals(split.getShard(i).getLength(), copy.getShard(i).getLength());
+            for (int j = 0; j < split.getShard(i).getLength(); j++) {
+                FileRangeSplit expected = (FileRangeSplit) split.getShard(i).get(j);
+                FileRangeSplit actual = (FileRangeSplit) copy.getShard(i).get(j);
+                assertEquals(expected.getPath(), actual.getPath());
+                assertEquals(expected.getRanges(), actual.getRanges());
+            }
+        }
+        assertEquals(Arrays.asList("FOO == 'bar'", "FOO == 'baz'", "FOO == 'bar'"), Arrays.asList(copy.getSettings(0).get(0).getOptions().get("query"), copy
+                        .getSettings(1).get(0).getOptions().get("query"), copy.getSettings(2).get(0).getOptions().get("query")));
+    }
+}
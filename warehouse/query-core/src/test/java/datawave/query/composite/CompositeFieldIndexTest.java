@@ -0,0 +1,93 @@
+package datawave.query.composite;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CompositeFieldIndexTest {
+    
+    private static Multimap<String,String> createCompositeToFieldMap() {
+        Multimap<String,String> compositeToFieldMap = ArrayListMultimap.create();
+        compositeToFieldMap.putAll("MAKE_COLOR", Arrays.asList("MAKE", "COLOR"));
+        compositeToFieldMap.putAll("COLOR_WHEELS", Arrays.asList("COLOR", "WHEELS"));
+        compositeToFieldMap.putAll("MAKE_COLOR_WHEELS", Arrays.asList("MAKE", "COLOR", "WHEELS"));
+        compositeToFieldMap.putAll("GEO", Arrays.asList("GEO", "WKT_BYTE_LENGTH"));
+        return compositeToFieldMap;
+    }
+    
+    @Test
+    public void testCompositeFields() {
+        CompositeFieldIndex index = new CompositeFieldIndex(createCompositeToFieldMap());
+        
+        Assert.assertEquals(Arrays.asList("MAKE_COLOR", "COLOR_WHEELS", "MAKE_COLOR_WHEELS"), index.getCompositeFields("COLOR"));
+        Assert.assertEquals(Collections.singletonList("GEO"), index.getCompositeFields("WKT_BYTE_LENGTH"));
+        Assert.assertTrue(index.getCompositeFields("MODEL").isEmpty());
+    }
+    
+    @Test
+    public void testFilteredCompositeToFieldMap() {
+        CompositeFieldIndex index = new CompositeFieldIndex(createCompositeToFieldMap());
+        
+        // composites are returned in the order they were defined, with their components in order
+        Multimap<String,String> filtered = index.getFilteredCompositeToFieldMap(Arrays.asList("WHEELS", "MAKE"), Collections.singletonList("COLOR"));
+        Assert.assertEquals(Arrays.asList("MAKE_COLOR", "COLOR_WHEELS", "MAKE_COLOR_WHEELS"), Lists.newArrayList(filtered.keySet()));
+        Assert.assertEquals(Arrays.asList("MAKE", "COLOR", "WHEELS"), Lists.newArrayList(filtered.get("MAKE_COLOR_WHEELS")));
+        
+        // every composite must contain one of the required fields
+        filtered = index.getFilteredCompositeToFieldMap(Collections.singletonList("WHEELS"), Arrays.asList("MAKE", "COLOR"));
+        Assert.assertEquals(Arrays.asList("COLOR_WHEELS", "MAKE_COLOR_WHEELS"), Lists.newArrayList(filtered.keySet()));
+        
+        // and all of its components must be available
+        filtered = index.getFilteredCompositeToFieldMap(Collections.singletonList("MAKE"), Collections.singletonList("WHEELS"));
+        Assert.assertTrue(filtered.isEmpty());
+    }
+    
+    @Test
+    public void testOverloadedCompositeField() {
+        CompositeFieldIndex index = new CompositeFieldIndex(createCompositeToFieldMap());
+        
+        Assert.assertTrue(index.isOverloadedCompositeField("GEO"));
+        Assert.assertFalse(index.isOverloadedCompositeField("MAKE_COLOR"));
+        Assert.assertFalse(index.isOverloadedCompositeField("MAKE"));
+    }
+    
+    @Test
+    public void testGetInstance() {
+        CompositeFieldIndex index = CompositeFieldIndex.getInstance(createCompositeToFieldMap());
+        Assert.assertSame(index, CompositeFieldIndex.getInstance(createCompositeToFieldMap()));
+        
+        Multimap<String,String> compositeToFieldMap = createCompositeToFieldMap();
+        compositeToFieldMap.putAll("MAKE_WHEELS", Arrays.asList("MAKE", "WHEELS"));
+        CompositeFieldIndex other = CompositeFieldIndex.getInstance(compositeToFieldMap);
+        Assert.assertNotSame(index, other);
+        Assert.assertEquals(Collections.singletonList("MAKE_WHEELS"), Lists.newArrayList(other.getFilteredCompositeToFieldMap(
+                        Collections.singletonList("MAKE"), Collections.singletonList("WHEELS")).keySet()));
+    }
+    
+    @Test
+    public void testGetInstanceKeepsDefinitionOrder() {
+        Multimap<String,String> ordered = LinkedListMultimap.create();
+        ordered.putAll("MAKE_COLOR", Arrays.asList("MAKE", "COLOR"));
+        ordered.putAll("COLOR_WHEELS", Arrays.asList("COLOR", "WHEELS"));
+        ordered.putAll("MAKE_COLOR_WHEELS", Arrays.asList("MAKE", "COLOR", "WHEELS"));
+        CompositeFieldIndex index = CompositeFieldIndex.getInstance(ordered);
+        
+        // the same definitions in another order are an equal multimap, but must not share an index
+        Multimap<String,String> reordered = LinkedListMultimap.create();
+        reordered.putAll("MAKE_COLOR_WHEELS", Arrays.asList("MAKE", "COLOR", "WHEELS"));
+        reordered.putAll("COLOR_WHEELS", Arrays.asList("COLOR", "WHEELS"));
+        reordered.putAll("MAKE_COLOR", Arrays.asList("MAKE", "COLOR"));
+        Assert.assertEquals(ordered, reordered);
+        
+        CompositeFieldIndex other = CompositeFieldIndex.getInstance(reordered);
+        Assert.assertNotSame(index, other);
+        Assert.assertEquals(Arrays.asList("MAKE_COLOR", "COLOR_WHEELS", "MAKE_COLOR_WHEELS"), index.getCompositeFields("COLOR"));
+        Assert.assertEquals(Arrays.asList("MAKE_COLOR_WHEELS", "COLOR_WHEELS", "MAKE_COLOR"), other.getCompositeFields("COLOR"));
+    }
+}
@@ -0,0 +1,82 @@
+package datawave.query.composite;
+
+import datawave.data.normalizer.NoOpNormalizer;
+import datawave.data.type.BaseType;
+import datawave.data.type.DiscreteIndexType;
+import datawave.data.type.Type;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class CompositeSeekPlanTest {
+    
+    private static final List<String> FIELDS = Arrays.asList("MAKE", "WHEELS");
+    
+    @Test
+    public void testIsInRange() {
+        CompositeSeekPlan plan = new CompositeSeekPlan("a,1", true, "c,5", true, ",");
+        Assert.assertTrue(plan.isInRange("b,3"));
+        Assert.assertTrue(plan.isInRange("c,5"));
+        Assert.assertTrue(plan.isInRange("b"));
+        Assert.assertFalse(plan.isInRange("b,7"));
+        Assert.assertFalse(plan.isInRange("b,0"));
+        
+        // only the last component of a bound is exclusive
+        plan = new CompositeSeekPlan("a,1", true, "c,5", false, ",");
+        Assert.assertFalse(plan.isInRange("c,5"));
+        Assert.assertTrue(plan.isInRange("c,4"));
+    }
+    
+    @Test
+    public void testNextLowerBound() {
+        CompositeSeekPlan plan = new CompositeSeekPlan("a,1", true, "c,5", true, ",");
+        Map<String,DiscreteIndexType<?>> notDiscrete = Collections.emptyMap();
+        Map<String,DiscreteIndexType<?>> discrete = Collections.singletonMap("MAKE", new MockDiscreteIndexType());
+        
+        // a component below its start is moved up to it
+        Assert.assertEquals("b,1", plan.nextLowerBound(FIELDS, notDiscrete, "b,0"));
+        
+        // a component above its end is moved back to its start, carrying over into a discrete component before it
+        Assert.assertEquals("b,1", plan.nextLowerBound(FIELDS, notDiscrete, "b,7"));
+        Assert.assertEquals("c,1", plan.nextLowerBound(FIELDS, discrete, "b,7"));
+        Assert.assertEquals("a,1", plan.nextLowerBound(FIELDS, discrete, "c,7"));
+        
+        Assert.assertEquals("b,3", plan.nextLowerBound(FIELDS, discrete, "b,3"));
+    }
+    
+    private static class MockDiscreteIndexType extends BaseType<String> implements DiscreteIndexType<String> {
+        
+        public MockDiscreteIndexType() {
+            super(new NoOpNormalizer());
+        }
+        
+        @Override
+        public String incrementIndex(String index) {
+            return String.valueOf((char) (index.charAt(0) + 1));
+        }
+        
+        @Override
+        public String decrementIndex(String index) {
+            return String.valueOf((char) (index.charAt(0) - 1));
+        }
+        
+        @Override
+        public List<String> discretizeRange(String beginIndex, String endIndex) {
+            return Arrays.asList(beginIndex, endIndex);
+        }
+        
+        @Override
+        public boolean producesFixedLengthRanges() {
+            return true;
+        }
+        
+        @Override
+        public int compareTo(Type<String> o) {
+            return 0;
+        }
+    }
+}
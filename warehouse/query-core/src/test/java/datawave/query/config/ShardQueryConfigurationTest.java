@@ -76,6 +76,7 @@ public class ShardQueryConfigurationTest {
         Assert.assertEquals(0, config.getNumRangesToBuffer());
         Assert.assertEquals(0, config.getRangeBufferTimeoutMillis());
         Assert.assertEquals(100, config.getRangeBufferPollMillis());
+        Assert.assertEquals(0, config.getRangeLookaheadDays());
         Assert.assertEquals(8, config.getGeometryMaxExpansion());
         Assert.assertEquals(32, config.getPointMaxExpansion());
         Assert.assertEquals(4, config.getGeoWaveMaxEnvelopes());
@@ -1,6 +1,7 @@
 package datawave.query.index.lookup;
 
 import datawave.ingest.protobuf.Uid;
+import datawave.ingest.protobuf.UidSet;
 import org.apache.accumulo.core.data.ArrayByteSequence;
 import org.apache.accumulo.core.data.Key;
 import org.apache.accumulo.core.data.Range;
@@ -197,6 +198,47 @@ public class CreateUidsIteratorTest {
         assertFalse(iterator.hasTop());
     }
     
+    /**
+     * Ensure that the UIDs of a Protobuf UID list too large for its UID list are read from its UID set.
+     */
+    @Test
+    public void testWithUidSet() throws IOException {
+        // Setup data for test.
+        TreeMap<Key,Value> data = new TreeMap<>();
+        List<String> docIds = Arrays.asList("doc1", "doc2", "doc3", "doc4");
+        Uid.List.Builder builder = Uid.List.newBuilder();
+        builder.addAllUID(docIds);
+        builder.setCOUNT(docIds.size());
+        builder.setIGNORE(false);
+        
+        List<IndexMatch> expectedDocs = new LinkedList<>();
+        data.put(new Key("row", "cf", "date_1\u0000A"), new Value(builder.build().toByteArray()));
+        addToExpectedDocs("A", docIds, expectedDocs, null);
+        
+        List<String> manyDocIds = new LinkedList<>();
+        for (int ii = 0; ii < 30; ii++) {
+            manyDocIds.add("doc" + ii);
+        }
+        builder = Uid.List.newBuilder();
+        builder.setCOUNT(manyDocIds.size());
+        builder.setIGNORE(true);
+        builder.setUIDSET(UidSet.encode(manyDocIds));
+        data.put(new Key("row", "cf", "date_1\u0000B"), new Value(builder.build().toByteArray()));
+        addToExpectedDocs("B", manyDocIds, expectedDocs, null);
+        
+        // Setup iterator
+        CreateUidsIterator iterator = new CreateUidsIterator();
+        iterator.init(new SortedMapIterator(data), null, null);
+        iterator.seek(new Range(), Collections.emptySet(), false);
+        assertTrue(iterator.hasTop());
+        
+        IndexInfo indexInfo = new IndexInfo();
+        indexInfo.readFields(new DataInputStream(new ByteArrayInputStream(iterator.getTopValue().get())));
+        assertEquals(34, indexInfo.count());
+        assertEquals(expectedDocs.size(), indexInfo.uids().size());
+        assertTrue(expectedDocs.containsAll(indexInfo.uids()));
+    }
+    
     /**
      * Ensure correct iterator behavior with COLLAPSE_UIDS option set to "true", should return an {@link IndexInfo} object containing a correct UID count but no
      * stored UIDs.
@@ -0,0 +1,154 @@
+package datawave.query.index.stats;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.collect.Sets;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.security.Authorizations;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class FieldSketchCacheTest {
+    
+    private static final String TABLE = "sketches";
+    private static final Set<Authorizations> AUTHS = Collections.singleton(new Authorizations("A", "B", "C"));
+    
+    private Connector connector;
+    private MockTicker ticker;
+    private Cache<String,NavigableMap<String,Map<String,FieldSketch>>> cache;
+    
+    @Before
+    public void setup() throws Exception {
+        InMemoryInstance instance = new InMemoryInstance(FieldSketchCacheTest.class.getName() + System.nanoTime());
+        connector = instance.getConnector("root", new PasswordToken(""));
+        connector.securityOperations().changeUserAuthorizations("root", new Authorizations("A", "B", "C"));
+        connector.tableOperations().create(TABLE);
+        
+        ticker = new MockTicker();
+        cache = FieldSketchCache.newCache(ticker);
+    }
+    
+    @Test
+    public void testHitAndMiss() throws Exception {
+        write("FOO", "20190101", "csv", 10);
+        write("BAR", "20190101", "csv", 5);
+        
+        FieldSketchCache sketches = new FieldSketchCache(cache, connector, TABLE, AUTHS);
+        Assert.assertEquals(10, sketches.estimate("FOO", "20190101", "20190102", null).getCount());
+        
+        // a hit does not see sketches written since the field was loaded
+        write("FOO", "20190102", "csv", 20);
+        Assert.assertEquals(10, sketches.estimate("FOO", "20190101", "20190102", null).getCount());
+        
+        // a miss loads the field
+        Assert.assertEquals(5, sketches.estimate("BAR", "20190101", "20190102", null).getCount());
+        
+        // the same authorizations in another order share the cached sketches, while other authorizations do not
+        Set<Authorizations> reordered = Collections.singleton(new Authorizations("C", "A", "B"));
+        Assert.assertEquals(10, new FieldSketchCache(cache, connector, TABLE, reordered).estimate("FOO", "20190101", "20190102", null).getCount());
+        Set<Authorizations> other = Collections.singleton(new Authorizations("A", "B"));
+        Assert.assertEquals(30, new FieldSketchCache(cache, connector, TABLE, other).estimate("FOO", "20190101", "20190102", null).getCount());
+        
+        // other dates are loaded separately, while datatypes are filtered from the cached sketches
+        Assert.assertEquals(10, sketches.estimate("FOO", "20190101", "20190101", null).getCount());
+        Assert.assertEquals(20, sketches.estimate("FOO", "20190102", "20190102", null).getCount());
+        Assert.assertNull(sketches.estimate("FOO", "20190101", "20190102", Collections.singleton("json")));
+        Assert.assertNull(sketches.estimate("BAZ", "20190101", "20190102", null));
+    }
+    
+    @Test
+    public void testExpiry() throws Exception {
+        write("FOO", "20190101", "csv", 10);
+        
+        FieldSketchCache sketches = new FieldSketchCache(cache, connector, TABLE, AUTHS);
+        Assert.assertEquals(10, sketches.estimate("FOO", "20190101", "20190102", null).getCount());
+        
+        write("FOO", "20190102", "csv", 20);
+        ticker.advance(59, TimeUnit.MINUTES);
+        Assert.assertEquals(10, sketches.estimate("FOO", "20190101", "20190102", null).getCount());
+        
+        ticker.advance(2, TimeUnit.MINUTES);
+        Assert.assertEquals(30, sketches.estimate("FOO", "20190101", "20190102", null).getCount());
+    }
+    
+    @Test
+    public void testOnlyDatesAskedForAreLoaded() throws Exception {
+        write("FOO", "20180101", "csv", 5);
+        write("FOO", "20190101", "csv", 10);
+        write("FOO", "20190101", "json", 15);
+        write("FOO", "20200101", "csv", 20);
+        
+        FieldSketchCache sketches = new FieldSketchCache(cache, connector, TABLE, AUTHS);
+        Assert.assertEquals(25, sketches.estimate("FOO", "20190101", "20191231", null).getCount());
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(Collections.singleton("20190101"), cache.asMap().values().iterator().next().keySet());
+    }
+    
+    @Test
+    public void testCountPopulatedFields() throws Exception {
+        write("FOO", "20190101", "csv", 10);
+        write("BAR", "20190102", "json", 5);
+        write("BAZ", "20180101", "csv", 20);
+        Set<String> fields = Sets.newHashSet("FOO", "BAR", "BAZ", "QUX");
+        
+        FieldSketchCache sketches = new FieldSketchCache(cache, connector, TABLE, AUTHS);
+        Assert.assertEquals(2, sketches.countPopulatedFields(fields, "20190101", "20190102", null, 10));
+        Assert.assertEquals(1, sketches.countPopulatedFields(fields, "20190101", "20190102", Collections.singleton("csv"), 10));
+        Assert.assertEquals(1, sketches.countPopulatedFields(fields, "20190101", "20190102", null, 1));
+        
+        // cached fields are counted from the cache, which does not see sketches written since
+        Assert.assertNull(sketches.estimate("QUX", "20190101", "20190102", null));
+        write("QUX", "20190101", "csv", 1);
+        Assert.assertEquals(2, sketches.countPopulatedFields(fields, "20190101", "20190102", null, 10));
+        Assert.assertEquals(3, new FieldSketchCache(FieldSketchCache.newCache(ticker), connector, TABLE, AUTHS).countPopulatedFields(fields, "20190101",
+                        "20190102", null, 10));
+        Assert.assertEquals(0, sketches.countPopulatedFields(Collections.singleton("BAZ"), "20190101", "20190102", null, 10));
+    }
+    
+    @Test
+    public void testAuthsKey() {
+        Assert.assertEquals("A,B,C", FieldSketchCache.authsKey(Collections.singleton(new Authorizations("C", "A", "B"))));
+        Assert.assertEquals(FieldSketchCache.authsKey(Sets.newHashSet(new Authorizations("B", "A"), new Authorizations("D", "C"))),
+                        FieldSketchCache.authsKey(Sets.newHashSet(new Authorizations("C", "D"), new Authorizations("A", "B"))));
+        Assert.assertNotEquals(FieldSketchCache.authsKey(Collections.singleton(new Authorizations("A", "B"))),
+                        FieldSketchCache.authsKey(Sets.newHashSet(new Authorizations("A"), new Authorizations("B"))));
+    }
+    
+    private void write(String field, String date, String datatype, int values) throws Exception {
+        HyperLogLogPlus sketch = new HyperLogLogPlus(14, 24);
+        for (int i = 0; i < values; i++) {
+            sketch.offer(field + date + i);
+        }
+        Mutation m = new Mutation(field);
+        m.put(date, datatype, new FieldSketch(values, sketch).toValue());
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        writer.addMutation(m);
+        writer.close();
+    }
+    
+    private static class MockTicker extends Ticker {
+        private long nanos = 0;
+        
+        public void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+        
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package datawave.query.iterator;
+
+import com.google.common.base.Strings;
+import datawave.query.jexl.JexlEvaluationPlan;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueryStateCacheTest {
+    
+    @Test
+    public void testCachedPlan() throws IOException {
+        QueryStateCache cache = new QueryStateCache(1024 * 1024);
+        String query = "FOO == 'bar' && BAZ =~ 'qu.*'";
+        
+        JexlEvaluationPlan plan = cache.get(QueryStateCache.State.EVALUATION_PLAN, query, JexlEvaluationPlan::compile);
+        assertEquals(query, plan.getQuery());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        
+        // a new but equal option finds the same plan
+        assertSame(plan, cache.get(QueryStateCache.State.EVALUATION_PLAN, new String(query), JexlEvaluationPlan::compile));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5d, cache.getHitRate(), 0.0d);
+        assertTrue(cache.getSavedTimeMillis() <= cache.getLoadTimeMillis());
+        
+        assertNotSame(plan, cache.get(QueryStateCache.State.EVALUATION_PLAN, "FOO == 'baz'", JexlEvaluationPlan::compile));
+        assertEquals(2, cache.getSize());
+    }
+    
+    @Test
+    public void testStatesAreSeparate() throws IOException {
+        QueryStateCache cache = new QueryStateCache(1024 * 1024);
+        AtomicInteger loads = new AtomicInteger();
+        
+        cache.get(QueryStateCache.State.TYPE_METADATA, "option", s -> loads.incrementAndGet());
+        cache.get(QueryStateCache.State.COMPRESSED_TYPE_METADATA, "option", s -> loads.incrementAndGet());
+        cache.get(QueryStateCache.State.TYPE_METADATA, "option", s -> loads.incrementAndGet());
+        
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+    
+    @Test
+    public void testDisabled() throws IOException {
+        QueryStateCache cache = new QueryStateCache(0);
+        AtomicInteger loads = new AtomicInteger();
+        
+        assertEquals(Integer.valueOf(1), cache.get(QueryStateCache.State.COMPOSITE_METADATA, "option", s -> loads.incrementAndGet()));
+        assertEquals(Integer.valueOf(2), cache.get(QueryStateCache.State.COMPOSITE_METADATA, "option", s -> loads.incrementAndGet()));
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getHits());
+    }
+    
+    @Test
+    public void testEviction() throws IOException {
+        // room for a few small entries in each segment
+        QueryStateCache cache = new QueryStateCache(8 * 4 * QueryStateCache.weigh("option0"));
+        AtomicInteger loads = new AtomicInteger();
+        
+        for (int i = 0; i < 100; i++) {
+            cache.get(QueryStateCache.State.EVALUATION_PLAN, "option" + i, s -> loads.incrementAndGet());
+        }
+        assertEquals(100, loads.get());
+        assertTrue(cache.getSize() < 100);
+        assertTrue(cache.getWeight() <= cache.getMaxBytes());
+    }
+    
+    @Test
+    public void testLargeOptionsNotKept() throws IOException {
+        QueryStateCache cache = new QueryStateCache(1024 * 1024);
+        AtomicInteger loads = new AtomicInteger();
+        
+        // an option over an eighth of the bound is loaded but not kept
+        String large = Strings.repeat("x", 1024 * 1024 / 8);
+        cache.get(QueryStateCache.State.TYPE_METADATA, large, s -> loads.incrementAndGet());
+        cache.get(QueryStateCache.State.TYPE_METADATA, large, s -> loads.incrementAndGet());
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getSize());
+        
+        String small = Strings.repeat("x", 1024);
+        cache.get(QueryStateCache.State.TYPE_METADATA, small, s -> loads.incrementAndGet());
+        assertEquals(1, cache.getSize());
+        assertEquals(QueryStateCache.weigh(small), cache.getWeight());
+    }
+    
+    @Test
+    public void testFailures() {
+        QueryStateCache cache = new QueryStateCache(1024 * 1024);
+        
+        try {
+            cache.get(QueryStateCache.State.TYPE_METADATA, "option", s -> {
+                throw new IOException("bad option");
+            });
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("bad option", e.getMessage());
+        }
+        
+        try {
+            cache.get(QueryStateCache.State.TYPE_METADATA, "option", s -> {
+                throw new IllegalArgumentException("bad option");
+            });
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertEquals("bad option", e.getMessage());
+        } catch (IOException e) {
+            fail("Expected an IllegalArgumentException");
+        }
+        
+        // failures are not cached
+        assertEquals(0, cache.getSize());
+    }
+}
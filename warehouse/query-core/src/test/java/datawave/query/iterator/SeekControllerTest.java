@@ -0,0 +1,114 @@
+package datawave.query.iterator;
+
+import datawave.query.iterator.profile.QuerySpan;
+import datawave.query.iterator.profile.SourceTrackingIterator;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SeekControllerTest {
+    
+    @Test
+    public void testConfiguredThresholdUntilMeasured() {
+        SeekController controller = new SeekController(10);
+        assertEquals(10, controller.getBreakEven());
+        assertFalse(controller.shouldSeek(9));
+        assertTrue(controller.shouldSeek(10));
+        
+        // too few seeks to trust the measurement
+        controller.recordNext(100);
+        controller.recordSeek(100000);
+        assertEquals(10, controller.getBreakEven());
+    }
+    
+    @Test
+    public void testZeroThresholdAlwaysSeeks() {
+        SeekController controller = new SeekController(0);
+        assertTrue(controller.shouldSeek(0));
+        for (int i = 0; i < 10; i++) {
+            controller.recordNext(100);
+            controller.recordSeek(100000);
+        }
+        assertTrue(controller.shouldSeek(0));
+    }
+    
+    @Test
+    public void testBreakEvenFollowsCosts() {
+        // seeks which read blocks are expensive, so step further before seeking
+        SeekController controller = new SeekController(10);
+        for (int i = 0; i < 10; i++) {
+            controller.recordNext(100);
+            controller.recordSeek(5000);
+        }
+        assertEquals(50, controller.getBreakEven());
+        assertFalse(controller.shouldSeek(49));
+        assertTrue(controller.shouldSeek(50));
+        
+        // cached seeks are cheap, so seek almost right away
+        controller = new SeekController(10);
+        for (int i = 0; i < 10; i++) {
+            controller.recordNext(100);
+            controller.recordSeek(150);
+        }
+        assertEquals(2, controller.getBreakEven());
+        
+        // never more than the maximum
+        controller = new SeekController(10);
+        for (int i = 0; i < 10; i++) {
+            controller.recordNext(1);
+            controller.recordSeek(10000000);
+        }
+        assertEquals(SeekController.MAX_THRESHOLD, controller.getBreakEven());
+    }
+    
+    @Test
+    public void testLongSkipsSeekRightAway() {
+        SeekController controller = new SeekController(10);
+        assertFalse(controller.shouldSeek(0));
+        
+        // skips on a sparse field run well past the break even point
+        for (int i = 0; i < 20; i++) {
+            controller.skipped(1000, false);
+        }
+        assertTrue(controller.shouldSeek(0));
+        
+        // once the skips get short again scanning is tried again
+        for (int i = 0; i < 100; i++) {
+            controller.skipped(0, controller.shouldSeek(0));
+        }
+        assertFalse(controller.shouldSeek(0));
+    }
+    
+    @Test
+    public void testCallsAreTrackedBySource() throws IOException {
+        SortedMap<Key,Value> data = new TreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            data.put(new Key(String.format("row%03d", i)), new Value(new byte[0]));
+        }
+        QuerySpan span = new QuerySpan(null);
+        SourceTrackingIterator source = new SourceTrackingIterator(span, new SortedMapIterator(data));
+        
+        SeekController controller = new SeekController(10);
+        controller.seek(source, new Range(), Collections.emptyList(), false);
+        for (int i = 0; i < 20; i++) {
+            controller.next(source);
+        }
+        assertEquals(new Key("row020"), source.getTopKey());
+        
+        assertEquals(20, controller.getNextCount());
+        assertEquals(1, controller.getSeekCount());
+        assertEquals(20, span.getNextCount());
+        assertEquals(1, span.getSeekCount());
+    }
+}
@@ -0,0 +1,92 @@
+package datawave.query.iterator.facets;
+
+import datawave.query.attributes.Cardinality;
+import datawave.query.attributes.Document;
+import datawave.query.attributes.FieldValueCardinality;
+import datawave.query.tables.facets.FacetedConfiguration;
+import org.apache.accumulo.core.data.Key;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.google.common.collect.Maps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DynamicFacetIteratorTest {
+    
+    private DynamicFacetIterator iterator;
+    private List<Entry<Key,Document>> documents;
+    
+    @Before
+    public void setup() {
+        iterator = new DynamicFacetIterator();
+        iterator.configuration = new FacetedConfiguration();
+        
+        documents = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Key docKey = new Key("20200101_0", "datatype\u0000uid" + i);
+            FieldValueCardinality fvc = new FieldValueCardinality();
+            fvc.setContent("value");
+            fvc.setDocId("uid" + i);
+            Document d = new Document();
+            d.put("FIELD", new Cardinality(fvc, docKey, true));
+            documents.add(Maps.immutableEntry(docKey, d));
+        }
+    }
+    
+    private static long cardinality(Entry<Key,Document> summary) {
+        return ((Cardinality) summary.getValue().get("FIELD")).getContent().getEstimate().cardinality();
+    }
+    
+    @Test
+    public void testSingleSummary() {
+        Iterator<Entry<Key,Document>> summaries = iterator.summarize(documents.iterator());
+        assertTrue(summaries.hasNext());
+        Entry<Key,Document> summary = summaries.next();
+        assertEquals(5, cardinality(summary));
+        assertEquals(new Key("20200101_0", "datatype\u0000uid5"), summary.getKey());
+        assertFalse(summaries.hasNext());
+    }
+    
+    @Test
+    public void testPartialSummaries() {
+        iterator.configuration.setPartialSummarySize(2);
+        Iterator<Entry<Key,Document>> summaries = iterator.summarize(documents.iterator());
+        
+        // each partial covers the next documents, and is keyed by the last of them so that the scan can resume after it
+        List<Long> counts = new ArrayList<>();
+        List<Key> keys = new ArrayList<>();
+        while (summaries.hasNext()) {
+            Entry<Key,Document> summary = summaries.next();
+            counts.add(cardinality(summary));
+            keys.add(summary.getKey());
+        }
+        assertEquals(3, counts.size());
+        assertEquals(Long.valueOf(2), counts.get(0));
+        assertEquals(Long.valueOf(2), counts.get(1));
+        assertEquals(Long.valueOf(1), counts.get(2));
+        assertEquals(new Key("20200101_0", "datatype\u0000uid2"), keys.get(0));
+        assertEquals(new Key("20200101_0", "datatype\u0000uid4"), keys.get(1));
+        assertEquals(new Key("20200101_0", "datatype\u0000uid5"), keys.get(2));
+    }
+    
+    @Test
+    public void testErrorBound() {
+        FieldValueCardinality fvc = new FieldValueCardinality();
+        for (int i = 0; i < 10000; i++) {
+            fvc.setDocId("uid" + i);
+        }
+        long estimate = fvc.getEstimate().cardinality();
+        long bound = fvc.getErrorBound();
+        assertTrue(bound > 0);
+        // two standard errors of about 3.25% each
+        assertEquals(Math.ceil(estimate * 0.065), bound, 1.0);
+    }
+}
@@ -0,0 +1,104 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.iterator.NestedIterator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AndIteratorTest {
+    
+    @Test
+    public void testIntersection() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "c", "e", "g", "i")));
+        sources.add(new SortedListIterator<>("B", Arrays.asList("b", "c", "g", "h", "i")));
+        sources.add(new SortedListIterator<>("C", Arrays.asList("c", "d", "g", "i", "j")));
+        
+        AndIterator<String> and = new AndIterator<>(sources);
+        and.initialize();
+        List<String> results = new ArrayList<>();
+        while (and.hasNext()) {
+            results.add(and.next());
+            // the document holds the fields of all of the sources
+            assertEquals(3, and.document().getDictionary().size());
+        }
+        assertEquals(Arrays.asList("c", "g", "i"), results);
+    }
+    
+    @Test
+    public void testSelectiveTermLeaps() {
+        // a selective term should pull the dense terms along with moves rather than nexts
+        List<Integer> dense = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            dense.add(i);
+        }
+        SortedListIterator<Integer> dense1 = new SortedListIterator<>("A", dense);
+        SortedListIterator<Integer> dense2 = new SortedListIterator<>("B", dense);
+        SortedListIterator<Integer> sparse = new SortedListIterator<>("C", Arrays.asList(10, 5000, 9999));
+        List<NestedIterator<Integer>> sources = new ArrayList<>();
+        sources.add(dense1);
+        sources.add(sparse);
+        sources.add(dense2);
+        
+        AndIterator<Integer> and = new AndIterator<>(sources);
+        and.initialize();
+        List<Integer> results = new ArrayList<>();
+        while (and.hasNext()) {
+            results.add(and.next());
+        }
+        assertEquals(Arrays.asList(10, 5000, 9999), results);
+        assertTrue("Too many nexts: " + dense1.nextCalls, dense1.nextCalls < 100);
+        assertTrue("Too many nexts: " + dense2.nextCalls, dense2.nextCalls < 100);
+    }
+    
+    @Test
+    public void testMove() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "c", "e", "g")));
+        sources.add(new SortedListIterator<>("B", Arrays.asList("a", "c", "e", "g")));
+        
+        AndIterator<String> and = new AndIterator<>(sources);
+        and.initialize();
+        assertEquals("a", and.next());
+        assertEquals("e", and.move("d"));
+        assertEquals("g", and.next());
+        assertFalse(and.hasNext());
+        assertNull(and.move("h"));
+    }
+    
+    @Test
+    public void testExcludes() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "b", "c", "d")));
+        sources.add(new SortedListIterator<>("B", Arrays.asList("a", "b", "c", "d")));
+        List<NestedIterator<String>> filters = new ArrayList<>();
+        filters.add(new SortedListIterator<>("X", Arrays.asList("b", "d")));
+        
+        AndIterator<String> and = new AndIterator<>(sources, filters);
+        and.initialize();
+        List<String> results = new ArrayList<>();
+        while (and.hasNext()) {
+            results.add(and.next());
+        }
+        assertEquals(Arrays.asList("a", "c"), results);
+    }
+    
+    @Test
+    public void testEmptySource() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "b")));
+        sources.add(new SortedListIterator<>("B", Collections.<String> emptyList()));
+        
+        AndIterator<String> and = new AndIterator<>(sources);
+        and.initialize();
+        assertFalse(and.hasNext());
+    }
+}
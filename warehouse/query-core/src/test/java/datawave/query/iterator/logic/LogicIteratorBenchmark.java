@@ -0,0 +1,93 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.iterator.NestedIterator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A micro benchmark of the {@link OrIterator} and {@link AndIterator} over synthetic field index streams. Each stream is a sorted list of uids; a union is
+ * measured over streams of increasing width, and an intersection over a dense stream and streams of increasing selectivity. Run with:
+ * 
+ * <pre>
+ * LogicIteratorBenchmark [uids per stream] [iterations]
+ * </pre>
+ */
+public class LogicIteratorBenchmark {
+    
+    private static final int[] WIDTHS = {2, 10, 100, 500};
+    private static final double[] SELECTIVITIES = {0.5, 0.1, 0.01, 0.001};
+    
+    public static void main(String[] args) {
+        int uids = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Random random = new Random(42);
+        
+        System.out.println("union\twidth\tresults\tms/iteration");
+        for (int width : WIDTHS) {
+            List<List<Integer>> streams = new ArrayList<>();
+            for (int i = 0; i < width; i++) {
+                // wide unions are of many rare terms
+                streams.add(stream(random, uids, Math.min(1.0, 10.0 / width)));
+            }
+            time("union", width, iterations, () -> {
+                List<NestedIterator<Integer>> sources = new ArrayList<>();
+                for (List<Integer> stream : streams) {
+                    sources.add(new SortedListIterator<>("F", stream));
+                }
+                return new OrIterator<>(sources, true);
+            });
+        }
+        
+        System.out.println("intersection\tselectivity\tresults\tms/iteration");
+        List<Integer> dense = stream(random, uids, 0.9);
+        for (double selectivity : SELECTIVITIES) {
+            List<Integer> selective = stream(random, uids, selectivity);
+            List<Integer> medium = stream(random, uids, Math.sqrt(selectivity));
+            time("intersection", selectivity, iterations, () -> {
+                List<NestedIterator<Integer>> sources = new ArrayList<>();
+                sources.add(new SortedListIterator<>("A", dense));
+                sources.add(new SortedListIterator<>("B", medium));
+                sources.add(new SortedListIterator<>("C", selective));
+                return new AndIterator<>(sources);
+            });
+        }
+    }
+    
+    private static List<Integer> stream(Random random, int uids, double density) {
+        List<Integer> stream = new ArrayList<>();
+        for (int uid = 0; uid < uids; uid++) {
+            if (random.nextDouble() < density) {
+                stream.add(uid);
+            }
+        }
+        return stream;
+    }
+    
+    private interface IteratorFactory {
+        NestedIterator<Integer> create();
+    }
+    
+    private static void time(String name, Object parameter, int iterations, IteratorFactory factory) {
+        // one untimed pass to warm up
+        drain(factory.create());
+        long results = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            results = drain(factory.create());
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / iterations;
+        System.out.println(String.format("%s\t%s\t%d\t%.2f", name, parameter, results, millis));
+    }
+    
+    private static long drain(NestedIterator<Integer> iterator) {
+        iterator.initialize();
+        long count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+}
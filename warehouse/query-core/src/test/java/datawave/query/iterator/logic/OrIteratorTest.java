@@ -0,0 +1,124 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OrIteratorTest {
+    
+    @Test
+    public void testMergeDedupes() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "c", "e")));
+        sources.add(new SortedListIterator<>("B", Arrays.asList("b", "c", "f")));
+        sources.add(new SortedListIterator<>("C", Arrays.asList("c", "d")));
+        
+        OrIterator<String> or = new OrIterator<>(sources, true);
+        or.initialize();
+        
+        List<String> results = new ArrayList<>();
+        while (or.hasNext()) {
+            String next = or.next();
+            results.add(next);
+            if (next.equals("c")) {
+                // the document holds the fields of all of the sources at c
+                Document d = or.document();
+                assertEquals(3, d.getDictionary().size());
+            }
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e", "f"), results);
+    }
+    
+    @Test
+    public void testWideMerge() {
+        // many more sources than levels of the tree, some of them empty
+        TreeSet<Integer> union = new TreeSet<>();
+        List<NestedIterator<Integer>> sources = new ArrayList<>();
+        for (int i = 0; i < 37; i++) {
+            List<Integer> values = new ArrayList<>();
+            if (i % 11 != 0) {
+                for (int v = i; v < 500; v += (i % 7) + 3) {
+                    values.add(v);
+                }
+            }
+            union.addAll(values);
+            sources.add(new SortedListIterator<>("F" + i, values));
+        }
+        
+        OrIterator<Integer> or = new OrIterator<>(sources, true);
+        or.initialize();
+        List<Integer> results = new ArrayList<>();
+        while (or.hasNext()) {
+            results.add(or.next());
+        }
+        assertEquals(new ArrayList<>(union), results);
+    }
+    
+    @Test
+    public void testMove() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "c", "g")));
+        sources.add(new SortedListIterator<>("B", Arrays.asList("b", "d", "h")));
+        
+        OrIterator<String> or = new OrIterator<>(sources, true);
+        or.initialize();
+        assertEquals("a", or.next());
+        assertEquals("d", or.move("d"));
+        assertEquals("g", or.next());
+        assertEquals("h", or.next());
+        assertFalse(or.hasNext());
+    }
+    
+    @Test
+    public void testMovePastEnd() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "c")));
+        sources.add(new SortedListIterator<>("B", Arrays.asList("b", "d")));
+        
+        OrIterator<String> or = new OrIterator<>(sources, true);
+        or.initialize();
+        assertEquals("a", or.next());
+        assertNull(or.move("z"));
+        assertFalse(or.hasNext());
+    }
+    
+    @Test
+    public void testExcludes() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Arrays.asList("a", "c", "e")));
+        sources.add(new SortedListIterator<>("B", Arrays.asList("b", "d")));
+        List<NestedIterator<String>> filters = new ArrayList<>();
+        filters.add(new SortedListIterator<>("X", Arrays.asList("b", "e")));
+        
+        OrIterator<String> or = new OrIterator<>(sources, filters, true);
+        or.initialize();
+        List<String> results = new ArrayList<>();
+        while (or.hasNext()) {
+            results.add(or.next());
+        }
+        assertEquals(Arrays.asList("a", "c", "d"), results);
+    }
+    
+    @Test
+    public void testAllEmpty() {
+        List<NestedIterator<String>> sources = new ArrayList<>();
+        sources.add(new SortedListIterator<>("A", Collections.<String> emptyList()));
+        sources.add(new SortedListIterator<>("B", Collections.<String> emptyList()));
+        
+        OrIterator<String> or = new OrIterator<>(sources, true);
+        or.initialize();
+        assertFalse(or.hasNext());
+        assertTrue(or.children().size() == 2);
+    }
+}
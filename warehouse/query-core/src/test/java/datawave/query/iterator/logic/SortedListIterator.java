@@ -0,0 +1,89 @@
+package datawave.query.iterator.logic;
+
+import datawave.query.attributes.Content;
+import datawave.query.attributes.Document;
+import datawave.query.iterator.NestedIterator;
+import org.apache.accumulo.core.data.Key;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A leaf over a sorted list, for testing the logic iterators. The document of each value holds the field name of the iterator, and calls to next and move are
+ * counted.
+ */
+class SortedListIterator<T extends Comparable<T>> implements NestedIterator<T> {
+    private final String field;
+    private final List<T> values;
+    private int offset = 0;
+    private T current;
+    int nextCalls = 0;
+    int moveCalls = 0;
+    
+    SortedListIterator(String field, List<T> values) {
+        this.field = field;
+        this.values = values;
+    }
+    
+    @Override
+    public void initialize() {}
+    
+    @Override
+    public boolean hasNext() {
+        return offset < values.size();
+    }
+    
+    @Override
+    public T next() {
+        nextCalls++;
+        current = values.get(offset++);
+        return current;
+    }
+    
+    @Override
+    public T move(T minimum) {
+        moveCalls++;
+        // gallop to the first value at or beyond the minimum
+        int step = 1;
+        int low = offset;
+        while (offset < values.size() && values.get(offset).compareTo(minimum) < 0) {
+            low = offset;
+            offset = Math.min(values.size(), offset + step);
+            step <<= 1;
+        }
+        int high = offset;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values.get(mid).compareTo(minimum) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        offset = low;
+        return hasNext() ? next() : null;
+    }
+    
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> leaves() {
+        return Collections.singletonList(this);
+    }
+    
+    @Override
+    public Collection<NestedIterator<T>> children() {
+        return Collections.emptyList();
+    }
+    
+    @Override
+    public Document document() {
+        Document d = new Document();
+        d.put(field, new Content(String.valueOf(current), new Key(), true));
+        return d;
+    }
+}
@@ -0,0 +1,54 @@
+package datawave.query.jexl;
+
+import org.apache.commons.jexl2.Script;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JexlEvaluationPlanTest {
+    
+    @Test
+    public void testNodeKeysArePrecomputed() {
+        String query = "FOO == 'bar' && (BAZ =~ 'ba.*' || filter:includeRegex(FOO, 'b.*'))";
+        JexlEvaluationPlan plan = JexlEvaluationPlan.compile(query);
+        
+        Assert.assertEquals(query, plan.getQuery());
+        Assert.assertNotNull(plan.getScript());
+        // one EQ, one ER and one function node
+        Assert.assertEquals(3, plan.getNodeKeyCount());
+    }
+    
+    @Test
+    public void testPlanMatchesScriptEvaluation() {
+        String[] queries = {"FOO == 'bar'", "FOO == 'bar' && BAZ == 'qux'", "FOO == 'bar' || BAZ == 'qux'", "FOO =~ 'ba.*' && !(BAZ == 'qux')",
+                "FOO == 'bar' && FOO == 'bar'"};
+        
+        DatawaveJexlEngine engine = ArithmeticJexlEngines.getEngine(new DefaultArithmetic());
+        
+        for (String query : queries) {
+            Script script = engine.createScript(query);
+            JexlEvaluationPlan plan = JexlEvaluationPlan.compile(engine, query);
+            
+            for (String[] values : new String[][] { {"bar", "qux"}, {"bar", "zap"}, {"zip", "qux"}, {"zip", "zap"}}) {
+                DatawaveJexlContext context = new DatawaveJexlContext();
+                context.set("FOO", values[0]);
+                context.set("BAZ", values[1]);
+                
+                boolean expected = DatawaveInterpreter.isMatched(script.execute(context));
+                boolean actual = DatawaveInterpreter.isMatched(engine.evaluate(plan, context));
+                Assert.assertEquals(query + " against " + context, expected, actual);
+            }
+        }
+    }
+    
+    @Test
+    public void testPlanIsReusableAcrossDocuments() {
+        JexlEvaluationPlan plan = JexlEvaluationPlan.compile("FOO == 'bar'");
+        DatawaveJexlEngine engine = ArithmeticJexlEngines.getEngine(new DefaultArithmetic());
+        
+        for (int i = 0; i < 100; i++) {
+            DatawaveJexlContext context = new DatawaveJexlContext();
+            context.set("FOO", (i % 2 == 0) ? "bar" : "baz");
+            Assert.assertEquals(i % 2 == 0, DatawaveInterpreter.isMatched(engine.evaluate(plan, context)));
+        }
+    }
+}
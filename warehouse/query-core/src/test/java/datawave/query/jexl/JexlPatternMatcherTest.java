@@ -0,0 +1,68 @@
+package datawave.query.jexl;
+
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JexlPatternMatcherTest {
+    
+    private static final String[] VALUES = {"", "foo", "FOO", "foobar", "barfoo", "barfoobar", "bar", "fo", "foo\nbar", "bar\nfoo", "x\nfoo\ny", "foo.bar",
+            "foo\\bar", "éfoo", "ÉFOO", "f$o", "a|b"};
+    
+    @Test
+    public void testTypes() {
+        Assert.assertEquals(JexlPatternMatcher.Type.LITERAL, JexlPatternMatcher.compile("foo", JexlPatternCache.FLAGS).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.LITERAL, JexlPatternMatcher.compile("^foo\\.bar$", Pattern.CASE_INSENSITIVE).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.PREFIX, JexlPatternMatcher.compile("foo.*", JexlPatternCache.FLAGS).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.SUFFIX, JexlPatternMatcher.compile(".*foo", JexlPatternCache.FLAGS).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.CONTAINS, JexlPatternMatcher.compile(".*foo.*", JexlPatternCache.FLAGS).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.PATTERN, JexlPatternMatcher.compile("fo+", JexlPatternCache.FLAGS).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.PATTERN, JexlPatternMatcher.compile("foo\\.*", JexlPatternCache.FLAGS).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.PATTERN, JexlPatternMatcher.compile("\\d+", JexlPatternCache.FLAGS).getType());
+        Assert.assertEquals(JexlPatternMatcher.Type.PATTERN, JexlPatternMatcher.compile("foo.*", Pattern.DOTALL).getType());
+    }
+    
+    @Test
+    public void testMatchesAgreeWithPattern() {
+        String[] regexes = {"foo", "FoO", "foo.*", ".*foo", ".*foo.*", "^foo$", ".*", "", "foo\\.bar", "foo\\\\bar", "foo\\\\.*", "foo\\.*", "f\\$o",
+                "a\\|b", "éfoo", ".*FOO", "fo+", "(foo|bar)", "foo.*bar", ".*.*", "^", "$"};
+        int[] flags = {0, Pattern.CASE_INSENSITIVE, JexlPatternCache.FLAGS, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE};
+        
+        for (String regex : regexes) {
+            for (int flag : flags) {
+                Pattern pattern = Pattern.compile(regex, flag);
+                JexlPatternMatcher matcher = JexlPatternMatcher.compile(regex, flag);
+                for (String value : VALUES) {
+                    Assert.assertEquals(matcher + " (flags " + flag + ") against '" + value + "'", pattern.matcher(value).matches(), matcher.matches(value));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testCachedMatchers() {
+        JexlPatternMatcher matcher = JexlPatternCache.getMatcher("cached.*");
+        Assert.assertSame(matcher, JexlPatternCache.getMatcher("cached.*"));
+        Assert.assertEquals(JexlPatternMatcher.Type.PREFIX, matcher.getType());
+        Assert.assertEquals(JexlPatternCache.FLAGS, JexlPatternCache.getPattern("cached.*").flags());
+        Assert.assertTrue(JexlPatternCache.getCacheStats().hitCount() > 0);
+        
+        String statistics = JexlPatternCache.getStatistics();
+        Assert.assertTrue(statistics, statistics.contains("hitCount="));
+        Assert.assertTrue(statistics, statistics.contains("PREFIX{compiled="));
+    }
+    
+    @Test
+    public void testStatistics() {
+        long attempts = JexlPatternMatcher.getMatchAttempts(JexlPatternMatcher.Type.SUFFIX);
+        long matches = JexlPatternMatcher.getMatchCount(JexlPatternMatcher.Type.SUFFIX);
+        
+        JexlPatternMatcher matcher = JexlPatternMatcher.compile(".*bar", 0);
+        Assert.assertTrue(matcher.matches("foobar"));
+        Assert.assertFalse(matcher.matches("foobaz"));
+        
+        Assert.assertEquals(attempts + 2, JexlPatternMatcher.getMatchAttempts(JexlPatternMatcher.Type.SUFFIX));
+        Assert.assertEquals(matches + 1, JexlPatternMatcher.getMatchCount(JexlPatternMatcher.Type.SUFFIX));
+    }
+}
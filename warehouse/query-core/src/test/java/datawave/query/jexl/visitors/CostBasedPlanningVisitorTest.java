@@ -0,0 +1,152 @@
+package datawave.query.jexl.visitors;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.planner.pushdown.CardinalityCostEstimator;
+import datawave.query.planner.pushdown.PlanCostReport;
+import datawave.query.tables.ShardQueryLogic;
+import datawave.webservice.query.metric.QueryMetric;
+import org.apache.commons.jexl2.parser.ASTDelayedPredicate;
+import org.apache.commons.jexl2.parser.ASTJexlScript;
+import org.apache.commons.jexl2.parser.JexlNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CostBasedPlanningVisitorTest {
+    
+    /**
+     * Estimates equality terms from a fixed map of term to cost
+     */
+    private static class FixedCostEstimator extends CardinalityCostEstimator {
+        private final Map<String,Long> costs;
+        private final Set<String> rootAuthTerms;
+        
+        FixedCostEstimator(Map<String,Long> costs) {
+            this(costs, Collections.emptySet());
+        }
+        
+        FixedCostEstimator(Map<String,Long> costs, Set<String> rootAuthTerms) {
+            super(null, null, null, null);
+            this.costs = costs;
+            this.rootAuthTerms = rootAuthTerms;
+        }
+        
+        @Override
+        public boolean isFromRootAuths(JexlNode node) {
+            return rootAuthTerms.contains(JexlStringBuildingVisitor.buildQuery(JexlASTHelper.dereference(node)));
+        }
+        
+        @Override
+        public long estimate(JexlNode node) {
+            JexlNode unwrapped = JexlASTHelper.dereference(node);
+            String query = JexlStringBuildingVisitor.buildQuery(unwrapped);
+            if (costs.containsKey(query)) {
+                return costs.get(query);
+            }
+            // unions cost the sum of their children
+            long sum = 0;
+            for (int i = 0; i < unwrapped.jjtGetNumChildren(); i++) {
+                long child = estimate(unwrapped.jjtGetChild(i));
+                if (child == 0) {
+                    return 0;
+                }
+                sum += child;
+            }
+            return sum;
+        }
+    }
+    
+    private static Map<String,Long> costs() {
+        Map<String,Long> costs = new HashMap<>();
+        costs.put("FOO == 'common'", 1000000l);
+        costs.put("BAR == 'rare'", 10l);
+        costs.put("BAZ == 'medium'", 500l);
+        costs.put("A == 'a'", 20000l);
+        costs.put("B == 'b'", 30000l);
+        return costs;
+    }
+    
+    private static String plan(String query, double ratio, PlanCostReport report) throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery(query);
+        script = CostBasedPlanningVisitor.plan(script, new FixedCostEstimator(costs()), ratio, report);
+        return JexlStringBuildingVisitor.buildQuery(script);
+    }
+    
+    @Test
+    public void testIntersectionIsReordered() throws Exception {
+        String planned = plan("FOO == 'common' && BAZ == 'medium' && BAR == 'rare'", 0, null);
+        Assert.assertEquals("BAR == 'rare' && BAZ == 'medium' && FOO == 'common'", planned);
+    }
+    
+    @Test
+    public void testUnestimatedTermsKeepTheirOrder() throws Exception {
+        String planned = plan("X == 'x' && FOO == 'common' && Y == 'y' && BAR == 'rare'", 0, null);
+        Assert.assertEquals("BAR == 'rare' && FOO == 'common' && X == 'x' && Y == 'y'", planned);
+    }
+    
+    @Test
+    public void testExpensiveTermsAreDelayed() throws Exception {
+        PlanCostReport report = new PlanCostReport();
+        String planned = plan("FOO == 'common' && BAZ == 'medium' && BAR == 'rare'", 100, report);
+        
+        // 500 is within 100x of the anchor, 1000000 is not
+        Assert.assertEquals("BAR == 'rare' && BAZ == 'medium' && ((ASTDelayedPredicate = true) && (FOO == 'common'))", planned);
+        
+        Assert.assertEquals(10l, report.getEstimate("BAR == 'rare'"));
+        Assert.assertEquals(PlanCostReport.INDEX, report.getDecision("BAR == 'rare'"));
+        Assert.assertEquals(PlanCostReport.INDEX, report.getDecision("BAZ == 'medium'"));
+        Assert.assertEquals(PlanCostReport.EVALUATION, report.getDecision("FOO == 'common'"));
+        Assert.assertEquals(-1l, report.getActual("FOO == 'common'"));
+        
+        report.recordActual("BAR == 'rare'", 4);
+        report.recordActual("BAR == 'rare'", 3);
+        Assert.assertEquals(7l, report.getActual("BAR == 'rare'"));
+    }
+    
+    @Test
+    public void testExpensiveUnionIsDelayed() throws Exception {
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("(A == 'a' || B == 'b') && BAR == 'rare'");
+        script = CostBasedPlanningVisitor.plan(script, new FixedCostEstimator(costs()), 100, null);
+        
+        JexlNode and = script.jjtGetChild(0);
+        Assert.assertEquals("BAR == 'rare'", JexlStringBuildingVisitor.buildQuery(and.jjtGetChild(0)));
+        Assert.assertTrue(ASTDelayedPredicate.instanceOf(and.jjtGetChild(1)));
+    }
+    
+    @Test
+    public void testAnchorIsNeverDelayed() throws Exception {
+        String planned = plan("FOO == 'common' && FOO == 'common'", 1, null);
+        Assert.assertEquals("FOO == 'common' && FOO == 'common'", planned);
+    }
+    
+    @Test
+    public void testNestedIntersections() throws Exception {
+        String planned = plan("FOO == 'common' || (FOO == 'common' && BAR == 'rare')", 0, null);
+        Assert.assertEquals("FOO == 'common' || (BAR == 'rare' && FOO == 'common')", planned);
+    }
+    
+    @Test
+    public void testRootAuthEstimatesNeverReachTheMetric() throws Exception {
+        // the estimate for FOO came from the term counts, which are read with root auths
+        PlanCostReport report = new PlanCostReport();
+        ASTJexlScript script = JexlASTHelper.parseJexlQuery("FOO == 'common' && BAR == 'rare'");
+        CostBasedPlanningVisitor.plan(script, new FixedCostEstimator(costs(), Collections.singleton("FOO == 'common'")), 100, report);
+        report.recordActual("BAR == 'rare'", 7);
+        
+        // the server log keeps the estimate
+        Assert.assertTrue(report.toString().contains("FOO == 'common': estimated=1000000"));
+        
+        ShardQueryLogic logic = new ShardQueryLogic();
+        logic.getConfig().setPlanCostReport(report);
+        QueryMetric metric = new QueryMetric();
+        logic.writeQueryMetrics(metric);
+        
+        Assert.assertFalse(metric.getPlanCosts().contains("1000000"));
+        Assert.assertTrue(metric.getPlanCosts().contains("FOO == 'common': estimated=withheld"));
+        Assert.assertTrue(metric.getPlanCosts().contains("BAR == 'rare': estimated=10, actual=7"));
+    }
+}
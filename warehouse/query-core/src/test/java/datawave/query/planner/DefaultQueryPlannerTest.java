@@ -0,0 +1,103 @@
+package datawave.query.planner;
+
+import com.clearspring.analytics.stream.cardinality.HyperLogLogPlus;
+import com.google.common.collect.Sets;
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.query.config.ShardQueryConfiguration;
+import datawave.query.index.stats.FieldSketch;
+import datawave.query.index.stats.FieldSketchCache;
+import datawave.query.jexl.JexlASTHelper;
+import datawave.query.util.MetadataHelper;
+import datawave.util.time.DateHelper;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.security.Authorizations;
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class DefaultQueryPlannerTest {
+    
+    private static final String TABLE = "sketches";
+    
+    private ShardQueryConfiguration config;
+    private long fooDistinct;
+    
+    @Before
+    public void setup() throws Exception {
+        FieldSketchCache.clear();
+        
+        InMemoryInstance instance = new InMemoryInstance(DefaultQueryPlannerTest.class.getName() + System.nanoTime());
+        Connector connector = instance.getConnector("root", new PasswordToken(""));
+        connector.tableOperations().create(TABLE);
+        
+        fooDistinct = write(connector, "FOO", 50);
+        write(connector, "BAR", 500);
+        
+        config = ShardQueryConfiguration.create();
+        config.setConnector(connector);
+        config.setAuthorizations(Collections.singleton(new Authorizations()));
+        config.setIndexStatsSketchTableName(TABLE);
+        config.setBeginDate(DateHelper.parse("20190101"));
+        config.setEndDate(DateHelper.parse("20190102"));
+        config.setSketchExpansionCeiling(100);
+        config.setMaxValueExpansionThreshold(10);
+        config.setMaxUnfieldedExpansionThreshold(1);
+    }
+    
+    @Test
+    public void testValueThresholdRaisedForFieldsUnderTheCeiling() throws Exception {
+        apply("FOO =~ 'a.*' && BAR =~ 'b.*'", null);
+        
+        // FOO plus a margin for the sketch error, while BAR is over the ceiling
+        Assert.assertEquals(fooDistinct + fooDistinct / 10, config.getMaxValueExpansionThreshold());
+    }
+    
+    @Test
+    public void testValueThresholdKeptForFieldsOverTheCeiling() throws Exception {
+        apply("BAR =~ 'b.*'", null);
+        Assert.assertEquals(10, config.getMaxValueExpansionThreshold());
+        
+        // thresholds are never lowered
+        config.setMaxValueExpansionThreshold(1000);
+        apply("FOO =~ 'a.*'", null);
+        Assert.assertEquals(1000, config.getMaxValueExpansionThreshold());
+    }
+    
+    @Test
+    public void testUnfieldedThresholdRaisedToPopulatedFields() throws Exception {
+        MetadataHelper helper = EasyMock.createMock(MetadataHelper.class);
+        EasyMock.expect(helper.getExpansionFields(EasyMock.anyObject())).andReturn(Sets.newHashSet("FOO", "BAR", "BAZ"));
+        EasyMock.replay(helper);
+        
+        apply("_ANYFIELD_ == 'a'", helper);
+        
+        // BAZ has no sketches
+        Assert.assertEquals(2, config.getMaxUnfieldedExpansionThreshold());
+        EasyMock.verify(helper);
+    }
+    
+    private void apply(String query, MetadataHelper helper) throws Exception {
+        new DefaultQueryPlanner().applyCardinalitySketches(JexlASTHelper.parseJexlQuery(query), config, helper);
+    }
+    
+    private static long write(Connector connector, String field, int values) throws Exception {
+        HyperLogLogPlus sketch = new HyperLogLogPlus(14, 24);
+        for (int i = 0; i < values; i++) {
+            sketch.offer(field + i);
+        }
+        FieldSketch fieldSketch = new FieldSketch(values, sketch);
+        Mutation m = new Mutation(field);
+        m.put("20190101", "csv", fieldSketch.toValue());
+        BatchWriter writer = connector.createBatchWriter(TABLE, new BatchWriterConfig());
+        writer.addMutation(m);
+        writer.close();
+        return fieldSketch.getCardinality();
+    }
+}
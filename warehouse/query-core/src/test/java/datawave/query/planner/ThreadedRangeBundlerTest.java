@@ -1,8 +1,13 @@
 package datawave.query.planner;
 
 import datawave.query.CloseableIterable;
+import datawave.query.iterator.QueryIterator;
+import datawave.query.jexl.JexlASTHelper;
 import datawave.webservice.query.Query;
+import datawave.webservice.query.QueryImpl;
 import datawave.webservice.query.configuration.QueryData;
+import org.apache.accumulo.core.client.IteratorSetting;
+import org.apache.accumulo.core.data.Range;
 import org.apache.commons.jexl2.parser.ASTJexlScript;
 import org.junit.Rule;
 import org.junit.Test;
@@ -10,8 +15,13 @@ import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.easymock.EasyMock.mock;
 import static org.easymock.EasyMock.replay;
@@ -42,6 +52,7 @@ public class ThreadedRangeBundlerTest {
         assertEquals(0L, bundler.getRangeBufferTimeoutMillis());
         assertEquals(100L, bundler.getRangeBufferPollMillis());
         assertEquals(50L, bundler.getMaxRangeWaitMillis());
+        assertEquals(0, bundler.getRangeLookaheadDays());
     }
     
     @Test
@@ -66,6 +77,7 @@ public class ThreadedRangeBundlerTest {
                         .setNumRangesToBuffer(1)
                         .setRangeBufferTimeoutMillis(10)
                         .setRangeBufferPollMillis(5)
+                        .setRangeLookaheadDays(3)
                         .build();
         // @formatter:on
         
@@ -81,6 +93,7 @@ public class ThreadedRangeBundlerTest {
         assertEquals(10L, bundler.getRangeBufferTimeoutMillis());
         assertEquals(5L, bundler.getRangeBufferPollMillis());
         assertEquals(1L, bundler.getMaxRangeWaitMillis());
+        assertEquals(3, bundler.getRangeLookaheadDays());
     }
     
     @Test
@@ -110,6 +123,104 @@ public class ThreadedRangeBundlerTest {
         verify(iterator);
     }
     
+    @Test
+    public void whenRangeLookaheadIsSet_thenConsumerWaitsForTheScannedDay() throws Exception {
+        // two shards a day over five days
+        String query = "FOO == 'bar'";
+        List<QueryPlan> plans = new ArrayList<>();
+        for (int day = 1; day <= 5; day++) {
+            for (int shard = 0; shard < 2; shard++) {
+                plans.add(new QueryPlan(query, JexlASTHelper.parseJexlQuery(query), Collections.singletonList(new Range("2019010" + day + "_" + shard)),
+                                null));
+            }
+        }
+        CountingIterable ranges = new CountingIterable(plans);
+        
+        QueryData original = new QueryData(query, new ArrayList<>(), Collections.singletonList(new IteratorSetting(100, QueryIterator.class)));
+        
+        // @formatter:off
+        ThreadedRangeBundler bundler = ThreadedRangeBundler.builder()
+                        .setOriginal(original)
+                        .setRanges(ranges)
+                        .setMaxRanges(100)
+                        .setSettings(new QueryImpl())
+                        .setMaxRangeWaitMillis(10)
+                        .setRangeLookaheadDays(1)
+                        .build();
+        // @formatter:on
+        ThreadedRangeBundlerIterator iterator = bundler.iterator();
+        
+        // the first two days are queued, and the consumer holds the first plan of the third until the first day has been handed out
+        awaitPulled(ranges, 5);
+        Thread.sleep(100);
+        assertEquals(5, ranges.pulled.get());
+        assertEquals(-1L, bundler.getTimeToFirstRangeMillis());
+        
+        assertEquals("20190101_0", iterator.next().getRanges().iterator().next().getStartKey().getRow().toString());
+        assertEquals("20190101_1", iterator.next().getRanges().iterator().next().getStartKey().getRow().toString());
+        Thread.sleep(100);
+        assertEquals(5, ranges.pulled.get());
+        assertTrue(bundler.getTimeToFirstRangeMillis() >= 0);
+        
+        // handing out the second day releases the first, so the third day is queued and the consumer holds the first plan of the fourth
+        assertEquals("20190102_0", iterator.next().getRanges().iterator().next().getStartKey().getRow().toString());
+        awaitPulled(ranges, 7);
+        Thread.sleep(100);
+        assertEquals(7, ranges.pulled.get());
+        
+        List<String> rows = new ArrayList<>();
+        while (iterator.hasNext()) {
+            rows.add(iterator.next().getRanges().iterator().next().getStartKey().getRow().toString());
+        }
+        assertEquals(7, rows.size());
+        assertEquals("20190102_1", rows.get(0));
+        assertEquals("20190105_1", rows.get(6));
+        assertEquals(10, ranges.pulled.get());
+        
+        bundler.close();
+    }
+    
+    private void awaitPulled(CountingIterable ranges, int expected) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (ranges.pulled.get() < expected && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, ranges.pulled.get());
+    }
+    
+    /**
+     * Counts the plans pulled from it, standing in for the global index lookups
+     */
+    private static class CountingIterable implements CloseableIterable<QueryPlan> {
+        
+        private final List<QueryPlan> plans;
+        private final AtomicInteger pulled = new AtomicInteger();
+        
+        CountingIterable(List<QueryPlan> plans) {
+            this.plans = plans;
+        }
+        
+        @Override
+        public Iterator<QueryPlan> iterator() {
+            final Iterator<QueryPlan> delegate = plans.iterator();
+            return new Iterator<QueryPlan>() {
+                @Override
+                public boolean hasNext() {
+                    return delegate.hasNext();
+                }
+                
+                @Override
+                public QueryPlan next() {
+                    pulled.incrementAndGet();
+                    return delegate.next();
+                }
+            };
+        }
+        
+        @Override
+        public void close() {}
+    }
+    
     private void setIterator(final ThreadedRangeBundler bundler, final ThreadedRangeBundlerIterator iterator) throws NoSuchFieldException,
                     IllegalAccessException {
         Field field = bundler.getClass().getDeclaredField("iterator");
@@ -0,0 +1,128 @@
+package datawave.query.tables;
+
+import datawave.query.tables.dedupe.ScalableBloomFilter;
+import datawave.query.tables.dedupe.SpillingLongSet;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DedupingIteratorTest {
+    
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    
+    @Test
+    public void testDuplicatesDropped() {
+        List<Entry<Key,Value>> results = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            results.add(result("20180101_" + (i % 10), "datatype\0uid" + i));
+        }
+        // the same documents again
+        for (int i = 0; i < 1000; i++) {
+            results.add(result("20180101_" + (i % 10), "datatype\0uid" + i));
+        }
+        
+        DedupingIterator iterator = new DedupingIterator(results.iterator(), 100, temporaryFolder.getRoot());
+        assertEquals(1000, count(iterator));
+        assertEquals(1000, iterator.getDuplicates());
+        assertTrue(iterator.getSpilled() > 0);
+        assertTrue(iterator.getPeakMemoryInBytes() > 0);
+        // the spill files are removed once the results are exhausted
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+    
+    @Test
+    public void testSameUidInDifferentShards() {
+        List<Entry<Key,Value>> results = new ArrayList<>();
+        results.add(result("20180101_1", "datatype\0uid"));
+        results.add(result("20180101_2", "datatype\0uid"));
+        results.add(result("20180101_1", "datatype\0uid2"));
+        
+        assertEquals(3, count(new DedupingIterator(results.iterator())));
+    }
+    
+    @Test
+    public void testSpillingLongSet() throws Exception {
+        try (SpillingLongSet set = new SpillingLongSet(64, temporaryFolder.getRoot())) {
+            for (long i = -500; i < 500; i++) {
+                assertTrue(set.add(i * 7919));
+            }
+            for (long i = -500; i < 500; i++) {
+                assertFalse(set.add(i * 7919));
+                assertTrue(set.contains(i * 7919));
+                assertFalse(set.contains(i * 7919 + 1));
+            }
+            assertEquals(1000, set.size());
+            assertTrue(set.getSpilled() > 0);
+            assertTrue(set.getDiskLookups() > 0);
+        }
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+    
+    @Test
+    public void testSpillingLongSetAddAbsent() throws Exception {
+        try (SpillingLongSet set = new SpillingLongSet(64, temporaryFolder.getRoot())) {
+            for (long i = 0; i < 1000; i++) {
+                set.addAbsent(i * 7919);
+            }
+            // adding known new values never reads the spill files
+            assertEquals(0, set.getDiskLookups());
+            assertEquals(1000, set.size());
+            assertTrue(temporaryFolder.getRoot().list().length > 0);
+            for (long i = 0; i < 1000; i++) {
+                assertTrue(set.contains(i * 7919));
+            }
+            assertFalse(set.contains(1));
+        }
+        // the spill files are deleted on close
+        assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+    
+    @Test
+    public void testScalableBloomFilterGrows() {
+        ScalableBloomFilter bloom = new ScalableBloomFilter(100, 0.01);
+        long initialSize = bloom.getSizeInBytes();
+        for (long i = 0; i < 10000; i++) {
+            bloom.put(i);
+        }
+        for (long i = 0; i < 10000; i++) {
+            assertTrue(bloom.mightContain(i));
+        }
+        assertTrue(bloom.getFilterCount() > 1);
+        assertTrue(bloom.getSizeInBytes() > initialSize);
+        
+        int falsePositives = 0;
+        for (long i = 10000; i < 20000; i++) {
+            if (bloom.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        // well within the bound on the false positive probability of the chain
+        assertTrue("Too many false positives: " + falsePositives, falsePositives < 10000 * bloom.getExpectedFpp() * 2);
+    }
+    
+    private static Entry<Key,Value> result(String row, String cf) {
+        return new AbstractMap.SimpleEntry<>(new Key(row, cf), new Value(new byte[0]));
+    }
+    
+    private static int count(Iterator<?> iterator) {
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            count++;
+        }
+        return count;
+    }
+}
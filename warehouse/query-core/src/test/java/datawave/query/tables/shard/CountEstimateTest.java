@@ -0,0 +1,177 @@
+package datawave.query.tables.shard;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import datawave.query.ranges.RangeFactory;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CountEstimateTest {
+    
+    private static CountEstimate population(int days, int shards) {
+        CountEstimate estimate = new CountEstimate();
+        for (int day = 1; day <= days; day++) {
+            for (int shard = 0; shard < shards; shard++) {
+                estimate.addUnit(String.format("202001%02d_%d", day, shard));
+            }
+        }
+        return estimate;
+    }
+    
+    @Test
+    public void testUnits() {
+        assertEquals("20200101_3", CountEstimate.getUnit(RangeFactory.createShardRange("20200101_3")));
+        assertEquals("20200101_3", CountEstimate.getUnit(RangeFactory.createDocumentSpecificRange("20200101_3", "datatype\u0000uid")));
+        assertEquals("20200101", CountEstimate.getUnit(RangeFactory.createDayRange("20200101")));
+    }
+    
+    @Test
+    public void testStratifiedDraws() {
+        CountEstimate estimate = population(3, 10);
+        assertEquals(30, estimate.getPopulationSize());
+        
+        Random random = new Random(42);
+        List<String> drawn = estimate.sample(0.2, random);
+        assertEquals(6, drawn.size());
+        for (int day = 1; day <= 3; day++) {
+            int perDay = 0;
+            for (String unit : drawn) {
+                if (unit.startsWith(String.format("202001%02d_", day))) {
+                    perDay++;
+                }
+            }
+            assertEquals(2, perDay);
+        }
+        
+        // a larger sample only draws the units not already sampled
+        List<String> more = estimate.sample(0.5, random);
+        assertEquals(9, more.size());
+        Set<String> all = new HashSet<>(drawn);
+        all.addAll(more);
+        assertEquals(15, all.size());
+        assertEquals(15, estimate.getSampleSize());
+        assertEquals(0.5, estimate.getSampleFraction(), 0.0);
+        
+        assertEquals(15, estimate.sample(1.0, random).size());
+        assertTrue(estimate.isComplete());
+        assertTrue(estimate.sample(1.0, random).isEmpty());
+    }
+    
+    @Test
+    public void testCompleteSampleIsExact() {
+        CountEstimate estimate = population(2, 5);
+        for (String unit : estimate.sample(1.0, new Random(1))) {
+            estimate.addCount(unit, unit.hashCode() & 0xff);
+        }
+        long total = estimate.getSampledCount();
+        assertEquals(total, estimate.getEstimate(), 0.0);
+        assertEquals(0, estimate.getVariance(), 0.0);
+        assertEquals(total, estimate.getLowerBound(0.95));
+        assertEquals(total, estimate.getUpperBound(0.95));
+        assertEquals(0, estimate.getRelativeError(0.95), 0.0);
+    }
+    
+    @Test
+    public void testEstimate() {
+        // every shard of a day has the same count, so the strata have no variance at all
+        CountEstimate estimate = population(2, 10);
+        for (String unit : estimate.sample(0.2, new Random(7))) {
+            estimate.addCount(unit, unit.startsWith("20200101") ? 10 : 100);
+        }
+        assertEquals(220, estimate.getSampledCount());
+        assertEquals(1100, estimate.getEstimate(), 0.0);
+        assertEquals(0, estimate.getVariance(), 0.0);
+        
+        // counts which vary within the days give an interval about the estimate
+        estimate = population(2, 10);
+        Random random = new Random(7);
+        long actual = 0;
+        long[] counts = new long[20];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = random.nextInt(1000);
+            actual += counts[i];
+        }
+        for (String unit : estimate.sample(0.5, random)) {
+            int day = Integer.parseInt(unit.substring(6, 8)) - 1;
+            int shard = Integer.parseInt(unit.substring(9));
+            estimate.addCount(unit, counts[day * 10 + shard]);
+        }
+        assertTrue(estimate.getStandardError() > 0);
+        assertTrue(estimate.getLowerBound(0.99) <= actual);
+        assertTrue(estimate.getUpperBound(0.99) >= actual);
+        assertTrue(estimate.getLowerBound(0.95) >= estimate.getSampledCount());
+        assertTrue(estimate.getRelativeError(0.99) > estimate.getRelativeError(0.5));
+    }
+    
+    @Test
+    public void testZeroCountsAreNotExact() {
+        // a sample of zeros gives an estimate of zero, but not a converged one
+        CountEstimate estimate = population(2, 10);
+        for (String unit : estimate.sample(0.2, new Random(5))) {
+            estimate.addCount(unit, 0);
+        }
+        assertEquals(0, estimate.getEstimate(), 0.0);
+        assertEquals(0, estimate.getVariance(), 0.0);
+        assertEquals(0, estimate.getLowerBound(0.95));
+        // each day has 8 unsampled shards bounded by 3 / 2 results each
+        assertEquals(2 * 8 * -Math.log(0.05) / 2, estimate.getZeroCountBound(0.95), 1e-9);
+        assertTrue(estimate.getUpperBound(0.95) >= 24);
+        assertEquals(Double.POSITIVE_INFINITY, estimate.getRelativeError(0.95), 0.0);
+        
+        // a day of zeros still widens the interval of a day with counts
+        estimate = population(2, 10);
+        for (String unit : estimate.sample(0.5, new Random(5))) {
+            estimate.addCount(unit, unit.startsWith("20200101") ? 0 : 100);
+        }
+        assertEquals(1000, estimate.getEstimate(), 0.0);
+        assertEquals(0, estimate.getVariance(), 0.0);
+        assertTrue(estimate.getUpperBound(0.95) > 1000);
+        assertTrue(estimate.getRelativeError(0.95) > 0);
+        
+        // until the sample is complete
+        for (String unit : estimate.sample(1.0, new Random(5))) {
+            estimate.addCount(unit, 0);
+        }
+        assertEquals(0, estimate.getZeroCountBound(0.95), 0.0);
+        assertEquals(0, estimate.getRelativeError(0.95), 0.0);
+    }
+    
+    @Test
+    public void testDayUnits() {
+        CountEstimate estimate = new CountEstimate();
+        for (int day = 1; day <= 4; day++) {
+            estimate.addUnit(String.format("202001%02d", day));
+        }
+        List<String> drawn = estimate.sample(0.5, new Random(3));
+        assertEquals(2, drawn.size());
+        
+        // the results of a day come back from each of its shards
+        estimate.addCount(drawn.get(0) + "_0", 5);
+        estimate.addCount(drawn.get(0) + "_1", 5);
+        estimate.addCount(drawn.get(1) + "_7", 30);
+        assertEquals(40, estimate.getSampledCount());
+        assertEquals(80, estimate.getEstimate(), 0.0);
+        
+        // counts from units that were not sampled are not part of the estimate
+        for (int day = 1; day <= 4; day++) {
+            String unit = String.format("202001%02d", day);
+            if (!drawn.contains(unit)) {
+                estimate.addCount(unit + "_0", 1000);
+            }
+        }
+        assertEquals(40, estimate.getSampledCount());
+        assertFalse(estimate.isComplete());
+    }
+    
+    @Test
+    public void testZ() {
+        assertEquals(1.96, CountEstimate.getZ(0.95), 0.001);
+        assertEquals(2.576, CountEstimate.getZ(0.99), 0.001);
+    }
+}
@@ -0,0 +1,134 @@
+package datawave.query.tld;
+
+import datawave.query.function.KeyToDocumentData;
+import datawave.query.function.TLDEquality;
+import org.apache.accumulo.core.data.ArrayByteSequence;
+import org.apache.accumulo.core.data.ByteSequence;
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Range;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.iterators.SortedKeyValueIterator;
+import org.apache.accumulo.core.iterators.SortedMapIterator;
+import org.apache.accumulo.core.iterators.system.ColumnFamilySkippingIterator;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelTLDKeyToDocumentDataTest {
+    
+    private static final String ROW = "20190101_0";
+    private static final String PARENT = "dt\0a.b.c";
+    private static final Collection<ByteSequence> COLUMN_FAMILIES = Arrays.asList(new ArrayByteSequence("tf"), new ArrayByteSequence("d"));
+    
+    private final TreeMap<Key,Value> data = new TreeMap<>();
+    private final Key documentKey = new Key(ROW, PARENT);
+    private final Range documentRange = new Range(documentKey, true, new Key(ROW, PARENT + '\uffff'), false);
+    
+    @Before
+    public void setup() {
+        data.put(new Key(ROW, PARENT, "FIELD\0root"), new Value());
+        data.put(new Key(ROW, PARENT, "OTHER\0root"), new Value());
+        for (int i = 1; i <= 25; i++) {
+            data.put(new Key(ROW, PARENT + '.' + i, "FIELD\0child" + i), new Value());
+            data.put(new Key(ROW, PARENT + '.' + i + ".1", "FIELD\0grandchild" + i), new Value());
+        }
+        // a different document which must not be read
+        data.put(new Key(ROW, "dt\0a.b.d", "FIELD\0other"), new Value());
+    }
+    
+    private SortedKeyValueIterator<Key,Value> getSource() {
+        return new ColumnFamilySkippingIterator(new SortedMapIterator(data));
+    }
+    
+    private List<Map.Entry<Key,Value>> collectSequentially(Set<Key> docKeys) throws IOException {
+        SortedKeyValueIterator<Key,Value> source = getSource();
+        source.seek(documentRange, COLUMN_FAMILIES, false);
+        KeyToDocumentData mapper = new KeyToDocumentData(source, null, null, new TLDEquality(), null, false, false);
+        return mapper.collectDocumentAttributes(documentKey, docKeys, documentRange);
+    }
+    
+    private List<Map.Entry<Key,Value>> collectInParallel(int partitions, int maxChildren, Set<Key> docKeys) throws IOException {
+        SortedKeyValueIterator<Key,Value> source = getSource();
+        source.seek(documentRange, COLUMN_FAMILIES, false);
+        ParallelTLDKeyToDocumentData mapper = new ParallelTLDKeyToDocumentData(source, null, null, new TLDEquality(), null, false, false, partitions,
+                        maxChildren);
+        return mapper.collectDocumentAttributes(documentKey, docKeys, documentRange);
+    }
+    
+    @Test
+    public void testPartitionRanges() {
+        ParallelTLDKeyToDocumentData mapper = new ParallelTLDKeyToDocumentData(getSource(), null, null, new TLDEquality(), null, false, false, 10, -1);
+        List<Range> ranges = mapper.getPartitionRanges(documentKey, documentRange);
+        
+        assertEquals(10, ranges.size());
+        assertEquals(documentRange.getStartKey(), ranges.get(0).getStartKey());
+        assertEquals(new Key(ROW, PARENT + '.'), ranges.get(0).getEndKey());
+        for (int i = 1; i < ranges.size(); i++) {
+            // the ranges are contiguous
+            assertEquals(ranges.get(i - 1).getEndKey(), ranges.get(i).getStartKey());
+        }
+        assertEquals(documentRange.getEndKey(), ranges.get(ranges.size() - 1).getEndKey());
+        
+        // a range starting part way through the children is only split after its start
+        Range partial = new Range(new Key(ROW, PARENT + ".5"), true, documentRange.getEndKey(), false);
+        ranges = mapper.getPartitionRanges(documentKey, partial);
+        assertEquals(5, ranges.size());
+        assertEquals(partial.getStartKey(), ranges.get(0).getStartKey());
+    }
+    
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        Set<Key> expectedDocKeys = new HashSet<>();
+        List<Map.Entry<Key,Value>> expected = collectSequentially(expectedDocKeys);
+        assertEquals(52, expected.size());
+        
+        for (int partitions = 1; partitions <= ParallelTLDKeyToDocumentData.MAX_PARTITIONS; partitions++) {
+            Set<Key> docKeys = new HashSet<>();
+            List<Map.Entry<Key,Value>> actual = collectInParallel(partitions, -1, docKeys);
+            assertEquals("partitions: " + partitions, keys(expected), keys(actual));
+            assertEquals("partitions: " + partitions, expectedDocKeys, docKeys);
+        }
+    }
+    
+    @Test
+    public void testMaxChildren() throws IOException {
+        List<Map.Entry<Key,Value>> all = collectSequentially(new HashSet<>());
+        
+        // the root and the first 5 descendants in key order
+        Set<String> columnFamilies = new LinkedHashSet<>();
+        List<Key> expected = new ArrayList<>();
+        for (Map.Entry<Key,Value> entry : all) {
+            String cf = entry.getKey().getColumnFamily().toString();
+            if (cf.equals(PARENT) || columnFamilies.contains(cf) || (columnFamilies.size() < 5 && columnFamilies.add(cf))) {
+                expected.add(entry.getKey());
+            }
+        }
+        
+        for (int partitions = 1; partitions <= ParallelTLDKeyToDocumentData.MAX_PARTITIONS; partitions++) {
+            Set<Key> docKeys = new HashSet<>();
+            List<Map.Entry<Key,Value>> actual = collectInParallel(partitions, 5, docKeys);
+            assertEquals("partitions: " + partitions, expected, keys(actual));
+            assertEquals("partitions: " + partitions, 6, docKeys.size());
+        }
+    }
+    
+    private static List<Key> keys(List<Map.Entry<Key,Value>> entries) {
+        List<Key> keys = new ArrayList<>(entries.size());
+        for (Map.Entry<Key,Value> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+}
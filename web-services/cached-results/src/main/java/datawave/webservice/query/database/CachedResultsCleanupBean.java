@@ -1,5 +1,9 @@
 package datawave.webservice.query.database;
 
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -7,6 +11,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
@@ -27,6 +32,7 @@ import javax.sql.rowset.RowSetProvider;
 
 import datawave.configuration.spring.SpringBean;
 import datawave.webservice.results.cached.CachedResultsParameters;
+import datawave.webservice.results.cached.CachedRunningQuery;
 import org.apache.log4j.Logger;
 
 /**
@@ -78,6 +84,7 @@ public class CachedResultsCleanupBean {
      */
     @Schedule(hour = "*", minute = "*/30", persistent = false)
     public void cleanup() {
+        cleanupColumnarStores();
         try (Connection con = ds.getConnection()) {
             
             String schema = con.getCatalog();
@@ -109,6 +116,28 @@ public class CachedResultsCleanupBean {
         }
     }
     
+    /**
+     * Removes the columnar stores which results were loaded into instead of tables, once they are as old as the tables which are removed
+     */
+    private void cleanupColumnarStores() {
+        Path dir = CachedRunningQuery.getColumnarStoreDir();
+        if (dir == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(cachedResultsCleanupConfiguration.getDaysToLive());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "v*.dwcr")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    String fileName = file.getFileName().toString();
+                    Files.deleteIfExists(file);
+                    removeCrqRow(fileName.substring(0, fileName.length() - ".dwcr".length()));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error cleaning up columnar cached results: " + e.getMessage());
+        }
+    }
+    
     private void removeCrqRow(String id) {
         
         try (Connection con = ds.getConnection(); PreparedStatement ps = con.prepareStatement("DELETE FROM cachedResultsQuery WHERE tableName = ? OR view = ?")) {
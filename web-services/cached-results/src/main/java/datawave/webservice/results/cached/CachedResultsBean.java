@@ -7,6 +7,8 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.security.Principal;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
@@ -29,6 +31,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 import javax.annotation.PostConstruct;
@@ -46,6 +49,7 @@ import javax.ejb.TransactionAttributeType;
 import javax.ejb.TransactionManagement;
 import javax.ejb.TransactionManagementType;
 import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.inject.Inject;
 import javax.interceptor.Interceptors;
 import javax.sql.DataSource;
@@ -124,6 +128,8 @@ import datawave.webservice.result.CachedResultsResponse;
 import datawave.webservice.result.GenericResponse;
 import datawave.webservice.result.TotalResultsAware;
 import datawave.webservice.result.VoidResponse;
+import datawave.webservice.results.cached.store.CachedResultsStore;
+import datawave.webservice.results.cached.store.ColumnarCachedResultsStore;
 
 import org.apache.accumulo.core.client.Connector;
 import org.apache.accumulo.core.trace.Span;
@@ -204,6 +210,10 @@ public class CachedResultsBean {
     @Resource
     private ManagedExecutorService executor;
     
+    // creates the threads of the load writers, which are kept off of the executor that runs the queries
+    @Resource
+    private ManagedThreadFactory threadFactory;
+    
     @Inject
     private QueryPredictor predictor;
     
@@ -268,6 +278,17 @@ public class CachedResultsBean {
         CachedRunningQuery.setDatasource(ds);
         CachedRunningQuery.setQueryFactory(queryFactory);
         CachedRunningQuery.setResponseObjectFactory(responseObjectFactory);
+        String columnarStoreDir = cachedResultsConfiguration.getColumnarStoreDir();
+        if (StringUtils.isNotBlank(columnarStoreDir)) {
+            try {
+                CachedRunningQuery.setColumnarStoreDir(Files.createDirectories(Paths.get(columnarStoreDir.trim())));
+                log.info("Loading cached results into columnar stores in " + columnarStoreDir);
+            } catch (IOException e) {
+                throw new EJBException("Unable to create the columnar store directory " + columnarStoreDir, e);
+            }
+        } else {
+            CachedRunningQuery.setColumnarStoreDir(null);
+        }
         
         String template = null;
         try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
@@ -306,8 +327,14 @@ public class CachedResultsBean {
             // Get the field number from the fieldMap.
             Integer columnNumber = fieldMap.get(columnName);
             if (columnNumber == null) {
-                columnNumber = CacheableQueryRow.getFixedColumnSet().size() + fieldMap.size() + 1;
-                fieldMap.put(columnName, columnNumber);
+                // the fieldMap is shared by the load's writers, so assign new column numbers one at a time
+                synchronized (fieldMap) {
+                    columnNumber = fieldMap.get(columnName);
+                    if (columnNumber == null) {
+                        columnNumber = CacheableQueryRow.getFixedColumnSet().size() + fieldMap.size() + 1;
+                        fieldMap.put(columnName, columnNumber);
+                    }
+                }
             }
             
             if (columnValue.length() > maxFieldSize) {
@@ -362,7 +389,8 @@ public class CachedResultsBean {
         String tableName = "t" + nameBase;
         String viewName = "v" + nameBase;
         Connection con = null;
-        PreparedStatement ps = null;
+        CachedResultsLoader loader = null;
+        ColumnarCachedResultsStore store = null;
         boolean tableCreated = false;
         boolean viewCreated = false;
         CachedRunningQuery crq = null;
@@ -499,27 +527,43 @@ public class CachedResultsBean {
                 throw new IllegalArgumentException(logic.getLogicName() + " does not support CachedResults calls");
             }
             
-            try {
-                con = ds.getConnection();
-                // Create the result table for this query
-                Statement s = con.createStatement();
-                String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
-                createTable = createTable.replace(TABLE, tableName);
-                s.execute(createTable);
-                s.close();
-                tableCreated = true;
-                // Parse the PreparedStatement
-                String insert = cachedResultsConfiguration.getParameters().get("INSERT");
-                insert = insert.replace(TABLE, tableName);
-                ps = con.prepareStatement(insert);
-            } catch (SQLException sqle) {
-                throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, sqle);
-            }
-            
             // Object for keeping track of which fields are placed in which
             // table columns
-            // Key is fieldName, value is column number
-            Map<String,Integer> fieldMap = new HashMap<>();
+            // Key is fieldName, value is column number. Shared by the writers, see loadBatch
+            Map<String,Integer> fieldMap = new ConcurrentHashMap<>();
+            String logicName = logic.getLogicName();
+            
+            if (CachedRunningQuery.getColumnarStoreDir() != null) {
+                // the rows go into a local columnar store named for the view, in place of the table and view
+                store = new ColumnarCachedResultsStore(CachedRunningQuery.getColumnarStoreFile(viewName));
+            } else {
+                try {
+                    con = ds.getConnection();
+                    // Create the result table for this query
+                    Statement s = con.createStatement();
+                    String createTable = cachedResultsConfiguration.getParameters().get("CREATE_TABLE");
+                    createTable = createTable.replace(TABLE, tableName);
+                    s.execute(createTable);
+                    s.close();
+                    tableCreated = true;
+                } catch (SQLException sqle) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_RESULTS_TABLE_CREATE_ERROR, sqle);
+                }
+                
+                // The rows are inserted by the loader's writers, each with its own connection and staging table
+                loader = new CachedResultsLoader(ds, tableName, cachedResultsConfiguration.getParameters(), new CachedResultsLoader.RowWriter() {
+                    @Override
+                    public void addRow(PreparedStatement ps, CacheableQueryRow row, int maxFieldSize) throws SQLException {
+                        loadBatch(ps, owner, queryId, logicName, fieldMap, row, maxFieldSize);
+                    }
+                    
+                    @Override
+                    public void persistBatch(PreparedStatement ps) throws SQLException {
+                        CachedResultsBean.this.persistBatch(ps);
+                    }
+                }, cachedResultsConfiguration.getLoadWriters(), rowsPerBatch, cachedResultsConfiguration.getBytesPerBatch());
+                loader.start(threadFactory);
+            }
             
             // Loop over the results and put them into the database.
             ResultsPage results = null;
@@ -529,7 +573,7 @@ public class CachedResultsBean {
                 span = Trace.trace(traceInfo, "cachedresults:load");
             }
             
-            int rowsWritten = 0;
+            long lastProgressReport = System.currentTimeMillis();
             boolean go = true;
             while (go) {
                 
@@ -552,69 +596,38 @@ public class CachedResultsBean {
                     break;
                 }
                 
-                int maxLength = 0;
                 for (Object o : results.getResults()) {
-                    
-                    List<CacheableQueryRow> cacheableQueryRowList = cacheableLogic.writeToCache(o);
-                    
-                    for (CacheableQueryRow cacheableQueryObject : cacheableQueryRowList) {
-                        
-                        Collection<String> values = ((CacheableQueryRow) cacheableQueryObject).getColumnValues().values();
-                        int maxValueLength = 0;
-                        for (String s : values) {
-                            if (s.length() > maxValueLength) {
-                                maxValueLength = s.length();
-                            }
-                        }
-                        
-                        boolean dataWritten = false;
-                        // If a successful maxLength has been determined, then don't change it.
-                        if (maxLength == 0)
-                            maxLength = maxValueLength + 1;
-                        else if (maxValueLength > maxLength) {
-                            maxLength = maxValueLength;
-                        }
-                        
-                        int attempt = 0;
-                        SQLException loadBatchException = null; // exception;
-                        while (dataWritten == false && attempt < 10) {
-                            try {
-                                loadBatch(ps, owner, queryId, logic.getLogicName(), fieldMap, cacheableQueryObject, maxLength);
-                                dataWritten = true;
-                                rowsWritten++;
-                            } catch (SQLException e) {
-                                loadBatchException = e;
-                                String msg = e.getMessage();
-                                if (msg.startsWith("Table") && msg.endsWith("doesn't exist")) {
-                                    throw new QueryException(DatawaveErrorCode.CACHE_TABLE_MISSING, MessageFormat.format("message: {0}", msg));
-                                } else {
-                                    log.info("Caught other SQLException:" + msg + " writing batch with maxLength:" + maxLength);
-                                    maxLength = maxLength / 2;
-                                }
-                            }
-                            attempt++;
-                        }
-                        
-                        if (dataWritten == false) {
-                            String message = (loadBatchException == null) ? "unknown" : loadBatchException.getMessage();
-                            
-                            log.error("Batch write FAILED - last exception = " + message + "record = " + cacheableQueryObject.getColumnValues().entrySet(),
-                                            loadBatchException);
-                        } else if (rowsWritten >= rowsPerBatch) {
-                            persistBatch(ps);
-                            ps.clearBatch();
-                            rowsWritten = 0;
-                        }
+                    if (store != null) {
+                        store.add(CachedResultsStore.toColumns(cacheableLogic.writeToCache(o), owner, queryId, logicName));
+                    } else {
+                        loader.add(cacheableLogic.writeToCache(o));
                     }
                 }
+                
+                if (System.currentTimeMillis() - lastProgressReport >= cachedResultsConfiguration.getProgressInterval()) {
+                    String progress = (store != null) ? store.getTotalRows() + " rows loaded" : loader.getProgress();
+                    persistByQueryId(viewName, alias, owner, CachedRunningQuery.Status.LOADING, progress, false);
+                    lastProgressReport = System.currentTimeMillis();
+                }
             } // End of inserts into table
             
-            // commit the last batch
-            if (rowsWritten > 0) {
-                persistBatch(ps);
-                ps.clearBatch();
-                rowsWritten = 0;
+            String progress;
+            if (store != null) {
+                store.finish();
+                // number the columns as they would have been in the table
+                int columnNumber = CacheableQueryRow.getFixedColumnSet().size() + 1;
+                for (String column : store.getColumns()) {
+                    if (!CacheableQueryRow.getFixedColumnSet().contains(column)) {
+                        fieldMap.put(column, columnNumber++);
+                    }
+                }
+                progress = store.getTotalRows() + " rows loaded into " + store.getFile();
+            } else {
+                // wait for the writers to commit their last batches, and merge their staging tables
+                loader.finish();
+                progress = loader.getProgress();
             }
+            log.info("Cached results for " + queryId + ": " + progress);
             
             // Dump the fieldMap for debugging
             if (log.isTraceEnabled()) {
@@ -623,15 +636,19 @@ public class CachedResultsBean {
                 }
             }
             
-            // Create the view of the table
-            viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            if (store == null) {
+                // Create the view of the table
+                viewCreated = createView(tableName, viewName, con, viewCreated, fieldMap);
+            }
             
             // create the CachedRunningQuery and store it under the originalQueryName, but do not activate it
             crq = new CachedRunningQuery(q, logic, viewName, alias, owner, viewName, cachedResultsConfiguration.getDefaultPageSize(), queryId,
                             fieldMap.keySet(), null, metricFactory);
             crq.setOriginalQueryId(queryId);
-            crq.setTableName(tableName);
+            // a columnar store is a local file, so record the host that can read it in place of a table
+            crq.setTableName(store != null ? CachedRunningQuery.getColumnarTableName() : tableName);
             crq.setStatus(CachedRunningQuery.Status.LOADED);
+            crq.setStatusMessage(progress);
             crq.setPrincipal(ctx.getCallerPrincipal());
             persist(crq, owner);
             
@@ -691,6 +708,14 @@ public class CachedResultsBean {
             } else {
                 log.error(t.getMessage(), t);
             }
+            if (store != null) {
+                try {
+                    store.delete();
+                } catch (Exception e1) {
+                    log.error(e1.getMessage(), e1);
+                    response.addException(new QueryException(DatawaveErrorCode.FAILURE_CLEANUP_ERROR, e1).getBottomQueryException());
+                }
+            }
             if (con != null) {
                 Statement s = null;
                 try {
@@ -729,7 +754,15 @@ public class CachedResultsBean {
             }
             throw new DatawaveWebApplicationException(t, response, statusCode);
         } finally {
-            DbUtils.closeQuietly(con, ps, null);
+            if (loader != null) {
+                // stops the writers if the load did not complete
+                loader.abort();
+            }
+            if (store != null) {
+                // the cached running queries open the store themselves
+                store.close();
+            }
+            DbUtils.closeQuietly(con);
             if (queryLockedException == false) {
                 CachedResultsBean.loadingQueryMap.remove(queryId);
                 CachedResultsBean.loadingQueries.remove(queryId);
@@ -1173,27 +1206,40 @@ public class CachedResultsBean {
             
             List<String> columns = new ArrayList<>();
             Integer numRows = null;
-            try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
-                try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
-                    if (rs.next()) {
-                        numRows = rs.getInt(1);
+            if (crq.isColumnar()) {
+                try (ColumnarCachedResultsStore store = crq.openStore()) {
+                    numRows = store.getTotalRows();
+                    for (String column : store.getColumns()) {
+                        if (!CacheableQueryRow.getFixedColumnSet().contains(column)) {
+                            columns.add(column);
+                        }
                     }
+                } catch (IOException e) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR, e);
                 }
-                
-                try (ResultSet rs = s.executeQuery("show columns from " + view)) {
-                    Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
-                    while (rs.next()) {
-                        String column = rs.getString(1);
-                        if (!fixedColumns.contains(column)) {
-                            columns.add(column);
+            } else {
+                try (Connection con = ds.getConnection(); Statement s = con.createStatement()) {
+                    try (ResultSet rs = s.executeQuery("select count(*) from " + view)) {
+                        if (rs.next()) {
+                            numRows = rs.getInt(1);
                         }
                     }
+                    
+                    try (ResultSet rs = s.executeQuery("show columns from " + view)) {
+                        Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
+                        while (rs.next()) {
+                            String column = rs.getString(1);
+                            if (!fixedColumns.contains(column)) {
+                                columns.add(column);
+                            }
+                        }
+                    }
+                    
+                } catch (SQLSyntaxErrorException e) {
+                    throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
+                } catch (SQLException e) {
+                    throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
                 }
-                
-            } catch (SQLSyntaxErrorException e) {
-                throw new NotFoundQueryException(DatawaveErrorCode.VIEW_NOT_FOUND);
-            } catch (SQLException e) {
-                throw new QueryException(DatawaveErrorCode.CACHED_QUERY_SQL_ERROR);
             }
             
             response.setColumns(columns);
@@ -1279,11 +1325,10 @@ public class CachedResultsBean {
                 }
             }
             // this needs the real view name, so use the value from loadCrq instead of cp.getView() (because cp.getView may return the alias instead)
-            crq = new CachedRunningQuery(con, query, queryLogic, cp.getQueryId(), cp.getAlias(), owner, loadCrq.getView(), cp.getFields(), cp.getConditions(),
-                            cp.getGrouping(), cp.getOrder(), cp.getPagesize(), loadCrq.getVariableFields(), fixedFields, metricFactory);
+            crq = new CachedRunningQuery(con, query, queryLogic, cp.getQueryId(), cp.getAlias(), owner, loadCrq.getView(), table, cp.getFields(),
+                            cp.getConditions(), cp.getGrouping(), cp.getOrder(), cp.getPagesize(), loadCrq.getVariableFields(), fixedFields, metricFactory);
             crq.setStatus(CachedRunningQuery.Status.CREATING);
             crq.setOriginalQueryId(originalQueryId);
-            crq.setTableName(table);
             persist(crq, owner);
             // see above comment about using loadCrq.getView() instead of cp.getView()
             CachedRunningQuery.removeFromDatabase(loadCrq.getView());
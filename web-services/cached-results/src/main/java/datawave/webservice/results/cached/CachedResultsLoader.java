@@ -0,0 +1,409 @@
+package datawave.webservice.results.cached;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.exception.DatawaveErrorCode;
+import datawave.webservice.query.exception.QueryException;
+
+import org.apache.commons.dbutils.DbUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Inserts the rows of a cached results load into the result table from several writer threads. The thread draining the query cuts the rows into batches of
+ * either the configured number of rows or the configured number of bytes, and hands them over through a bounded queue, so the query is only paused when every
+ * writer is busy. Each writer has its own connection and prepared insert.
+ * <p>
+ * The result tables are MyISAM, which takes a table lock for every insert, so several writers inserting into the result table would only queue on the lock.
+ * Instead, when there is more than one writer, each writer inserts into a staging table of its own, and {@link #finish()} copies the staging tables into the
+ * result table with one INSERT ... SELECT each, which the database runs without a round trip per batch. The rows of the result table are then grouped by
+ * writer rather than in the order the query returned them, which the cached result pages do not depend on as they are always read with an ORDER BY. The
+ * writers run on threads of their own, so a load never takes threads from the executor that runs the queries.
+ */
+public class CachedResultsLoader {
+    
+    private static final Logger log = Logger.getLogger(CachedResultsLoader.class);
+    
+    private static final Batch DONE = new Batch();
+    
+    /**
+     * Adds a row to, and executes, the batch of a writer's prepared insert
+     */
+    public interface RowWriter {
+        
+        void addRow(PreparedStatement ps, CacheableQueryRow row, int maxFieldSize) throws SQLException;
+        
+        void persistBatch(PreparedStatement ps) throws SQLException;
+    }
+    
+    private final DataSource ds;
+    private final String tableName;
+    private final Map<String,String> parameters;
+    private final RowWriter rowWriter;
+    private final int writers;
+    private final int rowsPerBatch;
+    private final long bytesPerBatch;
+    private final BlockingQueue<Batch> queue;
+    private final List<Future<Void>> futures = new ArrayList<>();
+    private final AtomicBoolean aborted = new AtomicBoolean(false);
+    private ExecutorService executor;
+    private CompletionService<Void> completion;
+    private int writersFinished = 0;
+    
+    // the staging tables created by the writers and not yet dropped
+    private final Queue<String> stagingTables = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextWriter = new AtomicInteger();
+    
+    // the batch being filled by the thread draining the query
+    private Batch batch = new Batch();
+    
+    private final LongAdder rowsLoaded = new LongAdder();
+    private final LongAdder bytesLoaded = new LongAdder();
+    private long startTime;
+    private long finishTime;
+    
+    /**
+     * @param ds
+     *            the data source to take the writer connections from
+     * @param tableName
+     *            the result table, which must already exist
+     * @param parameters
+     *            the cached results statements, of which CREATE_TABLE, INSERT and DROP_TABLE are used for the staging tables
+     * @param rowWriter
+     *            binds rows to the insert
+     * @param writers
+     *            the number of writer threads, and connections
+     * @param rowsPerBatch
+     *            the most rows a writer will batch before executing it
+     * @param bytesPerBatch
+     *            the most (estimated) bytes a writer will batch before executing it, or 0 to batch by rows only
+     */
+    public CachedResultsLoader(DataSource ds, String tableName, Map<String,String> parameters, RowWriter rowWriter, int writers, int rowsPerBatch,
+                    long bytesPerBatch) {
+        this.ds = ds;
+        this.tableName = tableName;
+        this.parameters = parameters;
+        this.rowWriter = rowWriter;
+        this.writers = Math.max(1, writers);
+        this.rowsPerBatch = Math.max(1, rowsPerBatch);
+        this.bytesPerBatch = bytesPerBatch;
+        // enough to keep every writer busy while the next page is fetched
+        this.queue = new ArrayBlockingQueue<>(this.writers * 2);
+    }
+    
+    /**
+     * Start the writers, on a pool of their own
+     * 
+     * @param threadFactory
+     *            creates the writer threads
+     */
+    public void start(ThreadFactory threadFactory) {
+        startTime = System.currentTimeMillis();
+        executor = new ThreadPoolExecutor(writers, writers, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), threadFactory);
+        completion = new ExecutorCompletionService<>(executor);
+        for (int i = 0; i < writers; i++) {
+            futures.add(completion.submit(new Writer()));
+        }
+        log.debug("Started " + writers + " cached results writers");
+    }
+    
+    /**
+     * Add the rows created from one result, blocking while the writers are behind
+     */
+    public void add(List<CacheableQueryRow> rows) throws Exception {
+        for (CacheableQueryRow row : rows) {
+            batch.rows.add(row);
+            batch.bytes += estimateSize(row);
+            if (batch.rows.size() >= rowsPerBatch || (bytesPerBatch > 0 && batch.bytes >= bytesPerBatch)) {
+                queue(batch);
+                batch = new Batch();
+            }
+        }
+    }
+    
+    /**
+     * Wait for the writers to insert everything which has been added, and copy the staging tables into the result table
+     */
+    public void finish() throws Exception {
+        if (!batch.rows.isEmpty()) {
+            queue(batch);
+            batch = new Batch();
+        }
+        for (int i = 0; i < writers; i++) {
+            queue(DONE);
+        }
+        // take the writers in the order they finish, so that a failed writer fails the load at once
+        while (writersFinished < writers) {
+            get(completion.take());
+            writersFinished++;
+        }
+        executor.shutdown();
+        mergeStagingTables();
+        finishTime = System.currentTimeMillis();
+    }
+    
+    /**
+     * Stop the writers, discarding anything not yet inserted, and drop the staging tables
+     */
+    public void abort() {
+        if (aborted.compareAndSet(false, true)) {
+            queue.clear();
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            if (executor != null) {
+                executor.shutdownNow();
+                try {
+                    // the writers must be done with their staging tables before those are dropped
+                    executor.awaitTermination(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        dropStagingTables();
+    }
+    
+    public long getRowsLoaded() {
+        return rowsLoaded.sum();
+    }
+    
+    public long getBytesLoaded() {
+        return bytesLoaded.sum();
+    }
+    
+    /**
+     * @return the rows inserted per second since the writers were started
+     */
+    public long getRowsPerSecond() {
+        long elapsed = (finishTime > 0 ? finishTime : System.currentTimeMillis()) - startTime;
+        return elapsed > 0 ? getRowsLoaded() * 1000 / elapsed : getRowsLoaded();
+    }
+    
+    /**
+     * @return a summary of the load, for the status of the cached result
+     */
+    public String getProgress() {
+        long elapsed = (finishTime > 0 ? finishTime : System.currentTimeMillis()) - startTime;
+        return MessageFormat.format("{0,number,#} rows ({1,number,#} bytes) loaded in {2,number,#}ms by {3} writers, {4,number,#} rows/s", getRowsLoaded(),
+                        getBytesLoaded(), elapsed, writers, getRowsPerSecond());
+    }
+    
+    private void queue(Batch batch) throws Exception {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            checkWriters();
+        }
+    }
+    
+    private void checkWriters() throws Exception {
+        Future<Void> future = completion.poll();
+        if (future != null) {
+            get(future);
+            // a writer only stops early when it fails or the load is aborted
+            throw new IllegalStateException("Cached results writer stopped before the load finished");
+        }
+    }
+    
+    private void mergeStagingTables() throws Exception {
+        if (stagingTables.isEmpty()) {
+            return;
+        }
+        Connection con = null;
+        Statement s = null;
+        try {
+            con = ds.getConnection();
+            s = con.createStatement();
+            for (String stagingTable : stagingTables) {
+                s.execute("INSERT INTO " + tableName + " SELECT * FROM " + stagingTable);
+            }
+        } catch (SQLException e) {
+            abort();
+            throw e;
+        } finally {
+            DbUtils.closeQuietly(con, s, null);
+        }
+        dropStagingTables();
+    }
+    
+    private void dropStagingTables() {
+        if (stagingTables.isEmpty()) {
+            return;
+        }
+        Connection con = null;
+        Statement s = null;
+        try {
+            con = ds.getConnection();
+            s = con.createStatement();
+            String stagingTable;
+            while ((stagingTable = stagingTables.poll()) != null) {
+                s.execute(statement("DROP_TABLE", stagingTable));
+            }
+        } catch (SQLException e) {
+            log.error("Unable to drop the staging tables of " + tableName + ": " + stagingTables, e);
+        } finally {
+            DbUtils.closeQuietly(con, s, null);
+        }
+    }
+    
+    private String statement(String name, String table) {
+        return parameters.get(name).replace(CachedResultsBean.TABLE, table);
+    }
+    
+    private void get(Future<Void> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            abort();
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * A rough size of a row as sent to the database
+     */
+    static long estimateSize(CacheableQueryRow row) {
+        long size = 0;
+        for (Map.Entry<String,String> e : row.getColumnValues().entrySet()) {
+            size += e.getKey().length() + (e.getValue() == null ? 0 : e.getValue().length());
+        }
+        size += length(row.getDataType()) + length(row.getEventId()) + length(row.getRow()) + length(row.getColFam());
+        return size;
+    }
+    
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+    
+    /**
+     * Rows to be bound and executed together
+     */
+    private static class Batch {
+        
+        private final List<CacheableQueryRow> rows = new ArrayList<>();
+        private long bytes = 0;
+    }
+    
+    private class Writer implements Callable<Void> {
+        
+        @Override
+        public Void call() throws Exception {
+            Connection con = null;
+            PreparedStatement ps = null;
+            try {
+                con = ds.getConnection();
+                ps = con.prepareStatement(statement("INSERT", createTable(con)));
+                while (!aborted.get()) {
+                    Batch batch = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (batch == DONE) {
+                        break;
+                    } else if (batch != null) {
+                        write(ps, batch);
+                    }
+                }
+            } finally {
+                DbUtils.closeQuietly(con, ps, null);
+            }
+            return null;
+        }
+        
+        /**
+         * @return the table this writer inserts into: the result table when there is only one writer, otherwise a staging table of its own
+         */
+        private String createTable(Connection con) throws SQLException {
+            if (writers == 1) {
+                return tableName;
+            }
+            String stagingTable = tableName + "_" + nextWriter.getAndIncrement();
+            try (Statement s = con.createStatement()) {
+                s.execute(statement("CREATE_TABLE", stagingTable));
+            }
+            stagingTables.add(stagingTable);
+            return stagingTable;
+        }
+        
+        private void write(PreparedStatement ps, Batch batch) throws Exception {
+            int batchRows = 0;
+            long batchBytes = 0;
+            int maxLength = 0;
+            for (CacheableQueryRow row : batch.rows) {
+                int maxValueLength = 0;
+                for (String s : row.getColumnValues().values()) {
+                    if (s.length() > maxValueLength) {
+                        maxValueLength = s.length();
+                    }
+                }
+                
+                // If a successful maxLength has been determined, then don't change it.
+                if (maxLength == 0) {
+                    maxLength = maxValueLength + 1;
+                } else if (maxValueLength > maxLength) {
+                    maxLength = maxValueLength;
+                }
+                
+                boolean dataWritten = false;
+                int attempt = 0;
+                SQLException loadBatchException = null;
+                while (dataWritten == false && attempt < 10) {
+                    try {
+                        rowWriter.addRow(ps, row, maxLength);
+                        dataWritten = true;
+                    } catch (SQLException e) {
+                        loadBatchException = e;
+                        String msg = e.getMessage();
+                        if (msg.startsWith("Table") && msg.endsWith("doesn't exist")) {
+                            throw new QueryException(DatawaveErrorCode.CACHE_TABLE_MISSING, MessageFormat.format("message: {0}", msg));
+                        } else {
+                            log.info("Caught other SQLException:" + msg + " writing batch with maxLength:" + maxLength);
+                            maxLength = maxLength / 2;
+                        }
+                    }
+                    attempt++;
+                }
+                
+                if (dataWritten == false) {
+                    String message = (loadBatchException == null) ? "unknown" : loadBatchException.getMessage();
+                    log.error("Batch write FAILED - last exception = " + message + "record = " + row.getColumnValues().entrySet(), loadBatchException);
+                } else {
+                    batchRows++;
+                    batchBytes += estimateSize(row);
+                }
+            }
+            
+            if (batchRows > 0) {
+                rowWriter.persistBatch(ps);
+                ps.clearBatch();
+                rowsLoaded.add(batchRows);
+                bytesLoaded.add(batchBytes);
+            }
+        }
+    }
+}
@@ -13,6 +13,8 @@ import datawave.webservice.query.logic.QueryLogicFactory;
 import datawave.webservice.query.logic.QueryLogicTransformer;
 import datawave.webservice.query.metric.BaseQueryMetric;
 import datawave.webservice.query.result.event.ResponseObjectFactory;
+import datawave.webservice.results.cached.store.CachedResultsStore;
+import datawave.webservice.results.cached.store.ColumnarCachedResultsStore;
 import org.apache.commons.dbutils.DbUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
@@ -24,6 +26,10 @@ import javax.sql.rowset.RowSetProvider;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Principal;
 import java.sql.Blob;
 import java.sql.Connection;
@@ -39,6 +45,7 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
@@ -50,6 +57,13 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     
     private static DataSource datasource = null;
     
+    private static Path columnarStoreDir = null;
+    
+    /**
+     * Prefixes the host recorded as the table name of results loaded into a columnar store, which only that host can read
+     */
+    public static final String COLUMNAR_TABLE_PREFIX = "columnar@";
+    
     private static final long serialVersionUID = 1L;
     
     private static ResponseObjectFactory responseObjectFactory;
@@ -57,6 +71,11 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     private transient CachedRowSet crs = null;
     private transient Statement statement = null;
     
+    // set instead of the above when the results were loaded into a columnar store
+    private transient CachedResultsStore store = null;
+    private transient CachedResultsStore.Cursor cursor = null;
+    private transient Set<String> projection = null;
+    
     private transient CacheableLogic cacheableLogic = null;
     private transient QueryLogic<?> queryLogic = null;
     private transient QueryLogicTransformer transformer = null;
@@ -297,8 +316,8 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     }
     
     public CachedRunningQuery(Connection connection, Query query, QueryLogic<?> queryLogic, String queryId, String alias, String user, String view,
-                    String fields, String conditions, String grouping, String order, int pagesize, Set<String> variableFields, Set<String> fixedFieldsInEvent,
-                    QueryMetricFactory metricFactory) throws SQLException {
+                    String tableName, String fields, String conditions, String grouping, String order, int pagesize, Set<String> variableFields,
+                    Set<String> fixedFieldsInEvent, QueryMetricFactory metricFactory) throws SQLException {
         super(metricFactory);
         
         this.variableFields.clear();
@@ -311,6 +330,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
             this.queryLogicName = queryLogic.getLogicName();
         }
         this.view = view;
+        this.tableName = tableName;
         this.fields = fields;
         this.conditions = conditions;
         this.grouping = grouping;
@@ -402,7 +422,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
             grouping = null;
         
         if (null == this.viewColumnNames)
-            this.viewColumnNames = this.getViewColumnNames(connection, view);
+            this.viewColumnNames = isColumnar() ? this.getStoreColumnNames() : this.getViewColumnNames(connection, view);
         
         if (!fields.equals("*")) {
             LinkedHashSet<String> fieldSet = new LinkedHashSet<>();
@@ -544,6 +564,8 @@ public class CachedRunningQuery extends AbstractRunningQuery {
     public boolean isActivated() {
         if (this.connection != null && this.statement != null && this.crs != null) {
             return true;
+        } else if (this.cursor != null) {
+            return true;
         } else {
             return false;
         }
@@ -566,6 +588,40 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         return columns;
     }
     
+    private List<String> getStoreColumnNames() throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (ColumnarCachedResultsStore store = openStore()) {
+            Set<String> fixedColumns = CacheableQueryRow.getFixedColumnSet();
+            for (String column : store.getColumns()) {
+                if (fixedColumns.contains(column) == false) {
+                    columns.add(column);
+                }
+            }
+        } catch (IOException e) {
+            throw new SQLException("Unable to read the columns of " + this.view + ": " + e.getMessage(), e);
+        }
+        return columns;
+    }
+    
+    /**
+     * @return true if the results of the view were loaded into a columnar store rather than a table
+     */
+    public boolean isColumnar() {
+        return this.tableName != null && this.tableName.startsWith(COLUMNAR_TABLE_PREFIX);
+    }
+    
+    /**
+     * Open the columnar store the results of the view were loaded into. The store is a file local to the host which loaded it, so it can not be opened on
+     * any other host.
+     */
+    public ColumnarCachedResultsStore openStore() throws IOException {
+        if (columnarStoreDir == null || !Files.exists(getColumnarStoreFile(this.view))) {
+            throw new IOException("The results of " + this.view + " were loaded into a columnar store on "
+                            + this.tableName.substring(COLUMNAR_TABLE_PREFIX.length()) + ", and can only be read on that host, not on " + getHostName());
+        }
+        return ColumnarCachedResultsStore.open(getColumnarStoreFile(this.view));
+    }
+    
     public void activate(Connection connection, QueryLogic<?> queryLogic) throws SQLException {
         
         this.connection = connection;
@@ -586,8 +642,12 @@ public class CachedRunningQuery extends AbstractRunningQuery {
                 log.trace("activating CRS on host:" + host + ", " + this);
             }
             
-            this.statement = this.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
-            initialize();
+            if (isColumnar()) {
+                initializeColumnar();
+            } else {
+                this.statement = this.connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+                initialize();
+            }
         } catch (SQLException e) {
             log.error(e.getMessage(), e);
             throw e;
@@ -633,6 +693,65 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.currentRow = position.BEFORE_FIRST;
     }
     
+    /**
+     * Query the columnar store in place of the view. The fields, conditions and order are limited to what the store supports: plain columns, a conjunction
+     * of comparisons against literals, and a list of columns to sort by.
+     */
+    private void initializeColumnar() throws SQLException {
+        
+        this.sqlQuery = this.generateSql(this.view, this.fields, this.conditions, this.grouping, this.order, this.user, this.connection);
+        this.getMetric().setQuery(sqlQuery);
+        
+        if (StringUtils.isNotBlank(this.grouping)) {
+            throw new IllegalArgumentException("Grouping is not supported for results loaded into a columnar store");
+        }
+        this.projection = null;
+        if (StringUtils.isNotBlank(this.fields)) {
+            Set<String> requested = new HashSet<>();
+            for (String field : tokenizeOutsideParens(this.fields, ',')) {
+                field = field.replace("`", "").trim();
+                if (field.equals("*")) {
+                    requested = null;
+                    break;
+                } else if (field.contains(LPAREN)) {
+                    throw new IllegalArgumentException("Functions are not supported for results loaded into a columnar store: " + field);
+                }
+                requested.add(field);
+            }
+            this.projection = requested;
+        }
+        List<CachedResultsStore.Condition> storeConditions = new ArrayList<>(CachedResultsStore.Condition.parse(this.conditions));
+        storeConditions.add(0, new CachedResultsStore.Condition("_user_", CachedResultsStore.Condition.Operator.EQ, this.user));
+        
+        closeStore();
+        try {
+            this.store = openStore();
+            // all of the columns are read, as the column markings of a row refer to its columns by number
+            this.cursor = this.store.query(null, storeConditions, CachedResultsStore.Ordering.parse(this.order));
+        } catch (IOException e) {
+            closeStore();
+            throw new SQLException("Unable to query the columnar store for " + this.view, e);
+        }
+        this.totalRows = this.cursor.size();
+        this.currentRow = position.BEFORE_FIRST;
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Setting totalRows to " + this.totalRows + " from the columnar store");
+        }
+    }
+    
+    private void closeStore() {
+        if (this.store != null) {
+            try {
+                this.store.close();
+            } catch (IOException e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+        this.store = null;
+        this.cursor = null;
+    }
+    
     public String getUser() {
         return this.user;
     }
@@ -650,6 +769,20 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         updateTimestamp();
         long pageStartTime = System.currentTimeMillis();
         
+        if (this.cursor != null) {
+            // the store is already in event id order when no order was given
+            ResultsPage resultList;
+            try {
+                resultList = convert(this.cursor.getRows(rowBegin, rowEnd), pageByteTrigger);
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+            long now = System.currentTimeMillis();
+            this.getMetric().addPageTime(resultList.getResults().size(), (now - pageStartTime), pageStartTime, now);
+            updateTimestamp();
+            return resultList;
+        }
+        
         // We need to apply a default ORDER BY clause if one does not EXIST in the query
         StringBuilder query = new StringBuilder(this.sqlQuery);
         if (!this.sqlQuery.toUpperCase().contains(" ORDER BY ")) {
@@ -735,7 +868,13 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
         
         ResultsPage resultList = new ResultsPage();
-        if (nextPageOfResults()) {
+        if (this.cursor != null) {
+            try {
+                resultList = convert(this.cursor.next(this.pagesize), pageByteTrigger);
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        } else if (nextPageOfResults()) {
             resultList = convert(this.crs, pageByteTrigger);
         }
         
@@ -773,7 +912,13 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
         
         ResultsPage resultList = new ResultsPage();
-        if (previousPageOfResults()) {
+        if (this.cursor != null) {
+            try {
+                resultList = convert(this.cursor.previous(this.pagesize), pageByteTrigger);
+            } catch (IOException e) {
+                throw new SQLException(e);
+            }
+        } else if (previousPageOfResults()) {
             resultList = convert(this.crs, pageByteTrigger);
         }
         
@@ -833,6 +978,35 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         }
     }
     
+    /**
+     * Convert rows read from the columnar store into a result list.
+     */
+    private ResultsPage convert(List<Map<String,String>> rows, long pageByteTrigger) {
+        boolean hitPageByteTrigger = false;
+        List<CacheableQueryRow> cacheableQueryRowList = new ArrayList<>();
+        long resultBytes = 0;
+        for (Map<String,String> columns : rows) {
+            if (hitPageByteTrigger) {
+                break;
+            }
+            CacheableQueryRow row = CacheableQueryRowReader.createRow(columns, this.fixedFieldsInEvent, this.projection);
+            cacheableQueryRowList.add(row);
+            if (pageByteTrigger != 0) {
+                resultBytes += ObjectSizeOf.Sizer.getObjectSize(row);
+                if (resultBytes >= pageByteTrigger) {
+                    hitPageByteTrigger = true;
+                }
+            }
+        }
+        
+        if (this.cacheableLogic == null) {
+            return new ResultsPage();
+        } else {
+            return new ResultsPage(this.cacheableLogic.readFromCache(cacheableQueryRowList), (hitPageByteTrigger ? ResultsPage.Status.PARTIAL
+                            : ResultsPage.Status.COMPLETE));
+        }
+    }
+    
     private ResultsPage convert(CachedRowSet cachedRowSet, Integer rowBegin, Integer rowEnd, long pageByteTrigger) {
         boolean hitPageByteTrigger = false;
         List<CacheableQueryRow> cacheableQueryRowList = new ArrayList<>();
@@ -867,6 +1041,8 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         this.connection = null;
         this.statement = null;
         this.crs = null;
+        this.store = null;
+        this.cursor = null;
     }
     
     public Connection getConnection() {
@@ -1220,6 +1396,44 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         CachedRunningQuery.datasource = datasource;
     }
     
+    /**
+     * @param columnarStoreDir
+     *            the directory to load results into columnar stores in, or null to load them into tables
+     */
+    public static void setColumnarStoreDir(Path columnarStoreDir) {
+        CachedRunningQuery.columnarStoreDir = columnarStoreDir;
+    }
+    
+    public static Path getColumnarStoreDir() {
+        return columnarStoreDir;
+    }
+    
+    /**
+     * @return the file of the columnar store for a view
+     */
+    public static Path getColumnarStoreFile(String view) {
+        return columnarStoreDir.resolve(CachedResultsParameters.validate(view) + ".dwcr");
+    }
+    
+    /**
+     * @return the table name recorded for results loaded into a columnar store on this host, in place of the name of a table
+     */
+    public static String getColumnarTableName() {
+        return COLUMNAR_TABLE_PREFIX + getHostName();
+    }
+    
+    private static String getHostName() {
+        String host = System.getProperty("jboss.host.name");
+        if (host == null) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = "unknown";
+            }
+        }
+        return host;
+    }
+    
     public Status getStatus() {
         return status;
     }
@@ -1353,6 +1567,7 @@ public class CachedRunningQuery extends AbstractRunningQuery {
         Connection connection = getConnection();
         Statement statement = getStatement();
         CachedRowSet crs = getCrs();
+        closeStore();
         resetConnection();
         DbUtils.closeQuietly(connection, statement, crs);
     }
@@ -0,0 +1,259 @@
+package datawave.webservice.results.cached.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import datawave.marking.MarkingFunctions;
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Storage for the rows of a cached result set. Rows are added while the results are loaded, and once {@link #finish()} has been called the stored rows can be
+ * projected, filtered, sorted and paged through a {@link Cursor}, which covers the operations a {@code CachedRunningQuery} performs against its view.
+ */
+public interface CachedResultsStore extends Closeable {
+    
+    /**
+     * Add a row, keyed by column name. Columns not present in the row are null.
+     */
+    void add(Map<String,String> row) throws IOException;
+    
+    /**
+     * Complete the load. No rows may be added afterwards.
+     */
+    void finish() throws IOException;
+    
+    int getTotalRows();
+    
+    /**
+     * @return the column names, in the order they were first seen
+     */
+    List<String> getColumns();
+    
+    /**
+     * @param fields
+     *            the columns to return, or null for all of them
+     * @param conditions
+     *            the conditions every returned row must meet
+     * @param order
+     *            the sort order, applied after the store's own (load) order
+     * @return a cursor over the matching rows
+     */
+    Cursor query(List<String> fields, List<Condition> conditions, List<Ordering> order) throws IOException;
+    
+    /**
+     * Close the store and remove anything it has persisted
+     */
+    void delete() throws IOException;
+    
+    /**
+     * The columns for a cacheable row, named as in the cached results tables. The column markings and timestamps refer to the row's own columns, numbered in
+     * name order after the fixed columns, which is how the {@code CacheableQueryRowReader} reads them back from a store.
+     */
+    static Map<String,String> toColumns(CacheableQueryRow row, String owner, String queryId, String logicName) {
+        Map<String,Integer> fieldMap = new LinkedHashMap<>();
+        int columnNumber = CacheableQueryRow.getFixedColumnSet().size() + 1;
+        for (String column : new TreeSet<>(row.getColumnValues().keySet())) {
+            fieldMap.put(column, columnNumber++);
+        }
+        
+        Map<String,String> columns = new LinkedHashMap<>();
+        columns.put("_user_", owner);
+        columns.put("_queryId_", queryId);
+        columns.put("_logicName_", logicName);
+        columns.put("_datatype_", row.getDataType());
+        columns.put("_eventId_", row.getEventId());
+        columns.put("_row_", row.getRow());
+        columns.put("_colf_", row.getColFam());
+        columns.put("_markings_", MarkingFunctions.Encoding.toString(new TreeMap<>(row.getMarkings())));
+        columns.put("_column_markings_", row.getColumnSecurityMarkingString(fieldMap));
+        columns.put("_column_timestamps_", row.getColumnTimestampString(fieldMap));
+        columns.putAll(row.getColumnValues());
+        return columns;
+    }
+    
+    /**
+     * A page-able view of the rows matching a query
+     */
+    interface Cursor {
+        
+        int size();
+        
+        List<String> getColumns();
+        
+        /**
+         * @param rowBegin
+         *            the first row, starting at 1
+         * @param rowEnd
+         *            the last row, inclusive
+         * @return the rows, keyed by column name
+         */
+        List<Map<String,String>> getRows(int rowBegin, int rowEnd) throws IOException;
+        
+        /**
+         * @return the next pageSize rows, or an empty list once the end has been reached
+         */
+        List<Map<String,String>> next(int pageSize) throws IOException;
+        
+        /**
+         * @return the pageSize rows before the last page returned, or an empty list once the start has been reached
+         */
+        List<Map<String,String>> previous(int pageSize) throws IOException;
+    }
+    
+    /**
+     * A comparison of a column against a literal value. Values compare as strings, and a null (missing) column never matches.
+     */
+    class Condition {
+        
+        public enum Operator {
+            EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+            
+            private final String symbol;
+            
+            Operator(String symbol) {
+                this.symbol = symbol;
+            }
+            
+            static Operator fromSymbol(String symbol) {
+                if ("<>".equals(symbol)) {
+                    return NE;
+                }
+                for (Operator op : values()) {
+                    if (op.symbol.equals(symbol)) {
+                        return op;
+                    }
+                }
+                throw new IllegalArgumentException("Unsupported operator: " + symbol);
+            }
+        }
+        
+        private static final Pattern CONDITION = Pattern.compile("^\\s*`?([^`\\s=!<>]+)`?\\s*(=|!=|<>|<=|>=|<|>)\\s*'((?:[^']|'')*)'\\s*$");
+        
+        private final String column;
+        private final Operator operator;
+        private final String value;
+        
+        public Condition(String column, Operator operator, String value) {
+            this.column = column;
+            this.operator = operator;
+            this.value = value;
+        }
+        
+        public String getColumn() {
+            return column;
+        }
+        
+        public Operator getOperator() {
+            return operator;
+        }
+        
+        public String getValue() {
+            return value;
+        }
+        
+        /**
+         * Parse a conjunction of simple comparisons, such as the conditions given to a cached results query: {@code FIELD = 'a' AND OTHER != 'b'}
+         */
+        public static List<Condition> parse(String conditions) {
+            List<Condition> parsed = new ArrayList<>();
+            if (StringUtils.isBlank(conditions)) {
+                return parsed;
+            }
+            for (String clause : splitOnAnd(conditions)) {
+                Matcher m = CONDITION.matcher(clause);
+                if (!m.matches()) {
+                    throw new IllegalArgumentException("Unsupported condition: " + clause);
+                }
+                parsed.add(new Condition(m.group(1), Operator.fromSymbol(m.group(2)), m.group(3).replace("''", "'")));
+            }
+            return parsed;
+        }
+        
+        private static List<String> splitOnAnd(String conditions) {
+            List<String> clauses = new ArrayList<>();
+            boolean quoted = false;
+            int start = 0;
+            for (int i = 0; i < conditions.length(); i++) {
+                char c = conditions.charAt(i);
+                if (c == '\'') {
+                    quoted = !quoted;
+                } else if (!quoted && Character.isWhitespace(c) && conditions.regionMatches(true, i + 1, "AND", 0, 3) && i + 4 < conditions.length()
+                                && Character.isWhitespace(conditions.charAt(i + 4))) {
+                    clauses.add(conditions.substring(start, i));
+                    start = i + 5;
+                    i += 4;
+                }
+            }
+            clauses.add(conditions.substring(start));
+            return clauses;
+        }
+        
+        @Override
+        public String toString() {
+            return column + " " + operator.symbol + " '" + value + "'";
+        }
+    }
+    
+    /**
+     * A column to sort by
+     */
+    class Ordering {
+        
+        private final String column;
+        private final boolean ascending;
+        
+        public Ordering(String column, boolean ascending) {
+            this.column = column;
+            this.ascending = ascending;
+        }
+        
+        public String getColumn() {
+            return column;
+        }
+        
+        public boolean isAscending() {
+            return ascending;
+        }
+        
+        /**
+         * Parse an order clause, such as the order given to a cached results query: {@code FIELD DESC, OTHER}
+         */
+        public static List<Ordering> parse(String order) {
+            List<Ordering> parsed = new ArrayList<>();
+            if (StringUtils.isBlank(order)) {
+                return parsed;
+            }
+            for (String clause : StringUtils.split(order, ',')) {
+                String[] parts = StringUtils.split(clause.trim());
+                if (parts.length == 0 || parts.length > 2) {
+                    throw new IllegalArgumentException("Unsupported order: " + clause);
+                }
+                boolean ascending = true;
+                if (parts.length == 2) {
+                    if (parts[1].equalsIgnoreCase("DESC")) {
+                        ascending = false;
+                    } else if (!parts[1].equalsIgnoreCase("ASC")) {
+                        throw new IllegalArgumentException("Unsupported order: " + clause);
+                    }
+                }
+                parsed.add(new Ordering(StringUtils.strip(parts[0], "`"), ascending));
+            }
+            return parsed;
+        }
+        
+        @Override
+        public String toString() {
+            return column + (ascending ? " ASC" : " DESC");
+        }
+    }
+}
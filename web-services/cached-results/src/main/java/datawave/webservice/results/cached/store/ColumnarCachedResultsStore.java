@@ -0,0 +1,1073 @@
+package datawave.webservice.results.cached.store;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingOutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A {@link CachedResultsStore} kept in a local file, so that cached results can be loaded and paged without an external database. The file is only on the
+ * host which loaded it, so the store can only be read there.
+ * <p>
+ * Rows are loaded in segments, and only the segment being loaded is held in memory. Within a segment every column is dictionary encoded: each distinct value
+ * is stored once, and each row holds a code per column. When a segment is full its rows are sorted by the sort column (the event id by default), each
+ * dictionary is sorted by the store's collation so that comparing codes is the same as comparing values, and the segment is appended to the file. The
+ * dictionaries are front coded, with each value stored as the length of the prefix it shares with the value before it and the rest of its bytes, and the
+ * codes are bit packed to the width the dictionary needs.
+ * <p>
+ * When the load is finished the dictionaries of each column are merged into a rank for every value across all of the segments, which is what rows from
+ * different segments are compared by, and the segments are merged into the order of the sort column. Both merges stream from the file. Reads map each
+ * segment, and the rank and order arrays in chunks, so the file is not limited to the 2GB of a single mapping. Filtering and sorting work on the codes and
+ * ranks in place, and strings are only materialized for the rows of the page being returned.
+ * <p>
+ * Values are ordered by a {@link Collator} rather than by {@link String#compareTo}, so that conditions and sort orders give the same results as the case
+ * insensitive collation of the cached results tables. Values which are equal under the collation are compared as equal by conditions, and are ordered
+ * consistently, but arbitrarily, by a sort. A store must be read with the collation it was written with.
+ * <p>
+ * The file layout is:
+ * 
+ * <pre>
+ * segments:  columns x (front coded dictionary blocks, blocks x int blockOffset, bit packed codes)
+ * ranks:     columns x segments x dictionarySize x int rank
+ * order:     rows x int row, if the rows have a sort column
+ * footer:    int rows, int columns, columns x UTF name, long orderOffset, columns x long rankOffset,
+ *            int segments, segments x (long offset, int length, int rows, columns x (int dictionarySize, int blockOffsetsOffset))
+ * trailer:   long footerOffset, int MAGIC
+ * </pre>
+ * 
+ * Offsets within a segment are relative to the start of the segment. Code 0 is null, and code n is dictionary entry n - 1. Rank 0 is null, and rank n is the
+ * nth distinct value of the column across all of the segments.
+ */
+public class ColumnarCachedResultsStore implements CachedResultsStore {
+    
+    private static final Logger log = Logger.getLogger(ColumnarCachedResultsStore.class);
+    
+    public static final String DEFAULT_SORT_COLUMN = "_eventId_";
+    
+    public static final int DEFAULT_SEGMENT_ROWS = 1 << 20;
+    
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+    
+    // keeps a written segment well under the 2GB which can be mapped, as it is at most a small multiple of its size in memory
+    private static final long MAX_SEGMENT_BYTES = 256L << 20;
+    
+    private static final int MAGIC = 0x44574333; // DWC3
+    
+    // the number of values in a front coded block, which is how many values are read to find one
+    private static final int BLOCK_SIZE = 16;
+    
+    // the approximate heap used by a dictionary value beyond its characters
+    private static final int VALUE_OVERHEAD = 64;
+    
+    private final Path file;
+    private final String sortColumn;
+    private final Collator collation;
+    private final int segmentRows;
+    private final long segmentBytes;
+    
+    // load state
+    private Map<String,ColumnBuilder> builders = new LinkedHashMap<>();
+    private Map<String,Integer> columnIndex = new LinkedHashMap<>();
+    private List<Segment> loaded = new ArrayList<>();
+    private int loadingRows = 0;
+    private long loadingBytes = 0;
+    private FileChannel channel;
+    private CountingOutputStream counter;
+    private DataOutputStream out;
+    private int rows = 0;
+    
+    // read state
+    private List<String> columns;
+    private Segment[] segments;
+    private int[] segmentStarts;
+    private MappedInts[] ranks;
+    private MappedInts order;
+    
+    public ColumnarCachedResultsStore(Path file) {
+        this(file, DEFAULT_SORT_COLUMN, defaultCollation());
+    }
+    
+    public ColumnarCachedResultsStore(Path file, String sortColumn, Collator collation) {
+        this(file, sortColumn, collation, DEFAULT_SEGMENT_ROWS, DEFAULT_SEGMENT_BYTES);
+    }
+    
+    /**
+     * @param segmentRows
+     *            the most rows held in memory before they are written to the file
+     * @param segmentBytes
+     *            the most memory, approximately, used by the rows held before they are written to the file
+     */
+    public ColumnarCachedResultsStore(Path file, String sortColumn, Collator collation, int segmentRows, long segmentBytes) {
+        Preconditions.checkArgument(segmentRows > 0, "segmentRows must be positive");
+        Preconditions.checkArgument(segmentBytes > 0 && segmentBytes <= MAX_SEGMENT_BYTES, "segmentBytes must be positive and at most " + MAX_SEGMENT_BYTES);
+        this.file = file;
+        this.sortColumn = sortColumn;
+        this.collation = collation;
+        this.segmentRows = segmentRows;
+        this.segmentBytes = segmentBytes;
+    }
+    
+    /**
+     * The collation of the cached results tables: case and accent insensitive
+     */
+    public static Collator defaultCollation() {
+        Collator collator = Collator.getInstance(Locale.ROOT);
+        collator.setStrength(Collator.PRIMARY);
+        return collator;
+    }
+    
+    /**
+     * Open a store which was previously written to the file with the default collation
+     */
+    public static ColumnarCachedResultsStore open(Path file) throws IOException {
+        return open(file, defaultCollation());
+    }
+    
+    /**
+     * Open a store which was previously written to the file
+     */
+    public static ColumnarCachedResultsStore open(Path file, Collator collation) throws IOException {
+        ColumnarCachedResultsStore store = new ColumnarCachedResultsStore(file, DEFAULT_SORT_COLUMN, collation);
+        store.builders = null;
+        store.map();
+        return store;
+    }
+    
+    public Path getFile() {
+        return file;
+    }
+    
+    @Override
+    public void add(Map<String,String> row) throws IOException {
+        if (builders == null) {
+            throw new IllegalStateException("Rows can not be added once the store has been finished");
+        }
+        for (Map.Entry<String,String> e : row.entrySet()) {
+            if (e.getValue() != null) {
+                if (!columnIndex.containsKey(e.getKey())) {
+                    columnIndex.put(e.getKey(), columnIndex.size());
+                }
+                loadingBytes += builders.computeIfAbsent(e.getKey(), k -> new ColumnBuilder()).set(loadingRows, e.getValue());
+            }
+        }
+        loadingRows++;
+        rows++;
+        if (loadingRows >= segmentRows || loadingBytes >= segmentBytes) {
+            writeSegment();
+        }
+    }
+    
+    private DataOutputStream output() throws IOException {
+        if (out == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                            StandardOpenOption.WRITE);
+            counter = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 65536));
+            out = new DataOutputStream(counter);
+        }
+        return out;
+    }
+    
+    /**
+     * Sort the rows held in memory and append them to the file as a segment
+     */
+    private void writeSegment() throws IOException {
+        if (loadingRows == 0) {
+            return;
+        }
+        DataOutputStream out = output();
+        
+        // sort the rows by the sort column, keeping the load order for equal values
+        for (ColumnBuilder builder : builders.values()) {
+            builder.sortDictionary(collation);
+        }
+        int[] sorted = identity(loadingRows);
+        ColumnBuilder sortBy = builders.get(sortColumn);
+        if (sortBy != null) {
+            sorted = sort(sorted, sortBy::code, true);
+        }
+        
+        long offset = counter.getCount();
+        int[] dictionarySizes = new int[columnIndex.size()];
+        int[] blockOffsets = new int[columnIndex.size()];
+        for (Map.Entry<String,ColumnBuilder> e : builders.entrySet()) {
+            int column = columnIndex.get(e.getKey());
+            dictionarySizes[column] = e.getValue().values.size();
+            blockOffsets[column] = e.getValue().write(out, counter, offset, sorted, loadingRows);
+        }
+        long length = counter.getCount() - offset;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("A segment of " + loadingRows + " rows is larger than the 2GB which can be mapped");
+        }
+        loaded.add(new Segment(offset, (int) length, rows - loadingRows, loadingRows, dictionarySizes, blockOffsets));
+        
+        if (log.isTraceEnabled()) {
+            log.trace("Wrote a segment of " + loadingRows + " rows (" + length + " bytes) to " + file);
+        }
+        builders = new LinkedHashMap<>();
+        loadingRows = 0;
+        loadingBytes = 0;
+    }
+    
+    @Override
+    public void finish() throws IOException {
+        if (builders == null) {
+            throw new IllegalStateException("The store has already been finished");
+        }
+        long start = System.currentTimeMillis();
+        writeSegment();
+        output().flush();
+        builders = null;
+        
+        try {
+            for (Segment segment : loaded) {
+                segment.map(channel);
+            }
+            List<String> names = new ArrayList<>(columnIndex.keySet());
+            long position = counter.getCount();
+            
+            // merge the dictionaries of each column into ranks across the segments
+            long[] rankOffsets = new long[names.size()];
+            long[] rankCounts = new long[names.size()];
+            for (int c = 0; c < names.size(); c++) {
+                rankOffsets[c] = position;
+                for (Segment segment : loaded) {
+                    rankCounts[c] += segment.dictionarySize(c);
+                }
+                writeRanks(c, position);
+                position += rankCounts[c] * 4;
+            }
+            
+            // and merge the segments into the order of the sort column
+            long orderOffset = -1;
+            Integer sortBy = columnIndex.get(sortColumn);
+            if (sortBy != null) {
+                orderOffset = position;
+                writeOrder(sortBy, new MappedInts(channel, rankOffsets[sortBy], rankCounts[sortBy]), position);
+                position += (long) rows * 4;
+            }
+            
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(bytes);
+            footer.writeInt(rows);
+            footer.writeInt(names.size());
+            for (String name : names) {
+                footer.writeUTF(name);
+            }
+            footer.writeLong(orderOffset);
+            for (long rankOffset : rankOffsets) {
+                footer.writeLong(rankOffset);
+            }
+            footer.writeInt(loaded.size());
+            for (Segment segment : loaded) {
+                footer.writeLong(segment.offset);
+                footer.writeInt(segment.length);
+                footer.writeInt(segment.rows);
+                for (int c = 0; c < names.size(); c++) {
+                    footer.writeInt(segment.dictionarySize(c));
+                    footer.writeInt(c < segment.blockOffsets.length ? segment.blockOffsets[c] : 0);
+                }
+            }
+            footer.writeLong(position);
+            footer.writeInt(MAGIC);
+            write(channel, ByteBuffer.wrap(bytes.toByteArray()), position);
+        } finally {
+            closeOutput();
+        }
+        loaded = null;
+        
+        map();
+        if (log.isDebugEnabled()) {
+            log.debug("Wrote " + rows + " rows of " + columns.size() + " columns in " + segments.length + " segments to " + file + " (" + Files.size(file)
+                            + " bytes) in " + (System.currentTimeMillis() - start) + "ms");
+        }
+    }
+    
+    /**
+     * Merge the sorted dictionaries of a column, writing the rank of each value of each segment. The ranks of a segment follow those of the segment before
+     * it.
+     */
+    private void writeRanks(int column, long position) throws IOException {
+        Comparator<DictionaryHead> comparator = Comparator.<DictionaryHead,CollationKey> comparing(h -> h.key).thenComparing(h -> h.value)
+                        .thenComparingInt(h -> h.segment);
+        PriorityQueue<DictionaryHead> heads = new PriorityQueue<>(Math.max(1, loaded.size()), comparator);
+        for (int s = 0; s < loaded.size(); s++) {
+            Segment segment = loaded.get(s);
+            SegmentColumn segmentColumn = segment.column(column);
+            if (segmentColumn != null) {
+                DictionaryHead head = new DictionaryHead(s, segmentColumn.iterator(), new IntWriter(channel, position));
+                if (head.advance(collation)) {
+                    heads.add(head);
+                }
+            }
+            position += (long) segment.dictionarySize(column) * 4;
+        }
+        
+        int rank = 0;
+        String last = null;
+        List<IntWriter> writers = new ArrayList<>();
+        for (DictionaryHead head : heads) {
+            writers.add(head.ranks);
+        }
+        while (!heads.isEmpty()) {
+            DictionaryHead head = heads.poll();
+            if (!head.value.equals(last)) {
+                rank++;
+                last = head.value;
+            }
+            head.ranks.write(rank);
+            if (head.advance(collation)) {
+                heads.add(head);
+            }
+        }
+        for (IntWriter writer : writers) {
+            writer.flush();
+        }
+    }
+    
+    /**
+     * Merge the segments, whose rows are each in the order of the sort column, writing the rows in the order of the sort column across all of them. Rows
+     * with equal values keep their load order.
+     */
+    private void writeOrder(int column, MappedInts columnRanks, long position) throws IOException {
+        long base = 0;
+        PriorityQueue<long[]> heads = new PriorityQueue<>(Math.max(1, loaded.size()), Comparator.<long[]> comparingLong(h -> h[0]).thenComparingLong(h -> h[1]));
+        long[] rankBases = new long[loaded.size()];
+        int[] positions = new int[loaded.size()];
+        for (int s = 0; s < loaded.size(); s++) {
+            rankBases[s] = base;
+            base += loaded.get(s).dictionarySize(column);
+            if (loaded.get(s).rows > 0) {
+                heads.add(new long[] {rank(loaded.get(s), column, columnRanks, rankBases[s], 0), s});
+            }
+        }
+        
+        IntWriter writer = new IntWriter(channel, position);
+        while (!heads.isEmpty()) {
+            long[] head = heads.poll();
+            int s = (int) head[1];
+            Segment segment = loaded.get(s);
+            writer.write(segment.start + positions[s]);
+            if (++positions[s] < segment.rows) {
+                head[0] = rank(segment, column, columnRanks, rankBases[s], positions[s]);
+                heads.add(head);
+            }
+        }
+        writer.flush();
+    }
+    
+    private static int rank(Segment segment, int column, MappedInts columnRanks, long rankBase, int row) {
+        SegmentColumn segmentColumn = segment.column(column);
+        int code = segmentColumn == null ? 0 : segmentColumn.code(row);
+        return code == 0 ? 0 : columnRanks.get(rankBase + code - 1);
+    }
+    
+    private void map() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(12);
+            if (channel.size() < trailer.capacity()) {
+                throw new IOException(file + " is not a columnar cached results file");
+            }
+            while (trailer.hasRemaining()) {
+                channel.read(trailer, channel.size() - trailer.remaining());
+            }
+            if (trailer.getInt(8) != MAGIC) {
+                throw new IOException(file + " is not a columnar cached results file");
+            }
+            
+            channel.position(trailer.getLong(0));
+            DataInputStream footer = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 65536));
+            rows = footer.readInt();
+            int numColumns = footer.readInt();
+            List<String> names = new ArrayList<>(numColumns);
+            columnIndex = new HashMap<>();
+            for (int c = 0; c < numColumns; c++) {
+                names.add(footer.readUTF());
+                columnIndex.put(names.get(c), c);
+            }
+            long orderOffset = footer.readLong();
+            long[] rankOffsets = new long[numColumns];
+            for (int c = 0; c < numColumns; c++) {
+                rankOffsets[c] = footer.readLong();
+            }
+            
+            segments = new Segment[footer.readInt()];
+            segmentStarts = new int[segments.length];
+            long[] rankCounts = new long[numColumns];
+            int start = 0;
+            for (int s = 0; s < segments.length; s++) {
+                long offset = footer.readLong();
+                int length = footer.readInt();
+                int segmentRows = footer.readInt();
+                int[] dictionarySizes = new int[numColumns];
+                int[] blockOffsets = new int[numColumns];
+                for (int c = 0; c < numColumns; c++) {
+                    dictionarySizes[c] = footer.readInt();
+                    blockOffsets[c] = footer.readInt();
+                }
+                segments[s] = new Segment(offset, length, start, segmentRows, dictionarySizes, blockOffsets);
+                segments[s].map(channel);
+                for (int c = 0; c < numColumns; c++) {
+                    if (segments[s].column(c) != null) {
+                        segments[s].column(c).rankBase = rankCounts[c];
+                    }
+                    rankCounts[c] += dictionarySizes[c];
+                }
+                segmentStarts[s] = start;
+                start += segmentRows;
+            }
+            
+            ranks = new MappedInts[numColumns];
+            for (int c = 0; c < numColumns; c++) {
+                ranks[c] = new MappedInts(channel, rankOffsets[c], rankCounts[c]);
+            }
+            order = orderOffset < 0 ? null : new MappedInts(channel, orderOffset, rows);
+            columns = Collections.unmodifiableList(names);
+        }
+    }
+    
+    @Override
+    public int getTotalRows() {
+        return rows;
+    }
+    
+    @Override
+    public List<String> getColumns() {
+        checkFinished();
+        return columns;
+    }
+    
+    @Override
+    public Cursor query(List<String> fields, List<Condition> conditions, List<Ordering> order) throws IOException {
+        checkFinished();
+        List<String> projection = (fields == null || fields.isEmpty()) ? columns : fields;
+        
+        int[] selected = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            selected[i] = this.order == null ? i : this.order.get(i);
+        }
+        if (conditions != null) {
+            for (Condition condition : conditions) {
+                selected = filter(selected, condition);
+            }
+        }
+        if (order != null) {
+            // sort by the least significant column first, relying on the sort being stable
+            for (int i = order.size() - 1; i >= 0; i--) {
+                Integer column = columnIndex.get(order.get(i).getColumn());
+                if (column != null) {
+                    selected = sort(selected, row -> rank(column, row), order.get(i).isAscending());
+                }
+            }
+        }
+        return new ColumnarCursor(selected, projection);
+    }
+    
+    private int[] filter(int[] selected, Condition condition) {
+        Integer column = columnIndex.get(condition.getColumn());
+        if (column == null) {
+            // a missing column is null in every row, and null never matches
+            return new int[0];
+        }
+        
+        // each dictionary is sorted by the collation, so the codes of a segment's values equal to the condition value are the range [low, high)
+        int[] low = new int[segments.length];
+        int[] high = new int[segments.length];
+        for (int s = 0; s < segments.length; s++) {
+            SegmentColumn segmentColumn = segments[s].column(column);
+            if (segmentColumn != null) {
+                low[s] = segmentColumn.search(collation, condition.getValue(), false);
+                high[s] = segmentColumn.search(collation, condition.getValue(), true);
+            }
+        }
+        
+        int[] matches = new int[selected.length];
+        int count = 0;
+        for (int row : selected) {
+            int s = segmentOf(row);
+            SegmentColumn segmentColumn = segments[s].column(column);
+            int code = segmentColumn == null ? 0 : segmentColumn.code(row - segmentStarts[s]);
+            if (code != 0 && matches(condition.getOperator(), code, low[s], high[s])) {
+                matches[count++] = row;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+    
+    private static boolean matches(Condition.Operator operator, int code, int low, int high) {
+        switch (operator) {
+            case EQ:
+                return code >= low && code < high;
+            case NE:
+                return code < low || code >= high;
+            case LT:
+                return code < low;
+            case LE:
+                return code < high;
+            case GT:
+                return code >= high;
+            case GE:
+                return code >= low;
+            default:
+                throw new IllegalArgumentException("Unsupported operator: " + operator);
+        }
+    }
+    
+    private int segmentOf(int row) {
+        int s = Arrays.binarySearch(segmentStarts, row);
+        return s >= 0 ? s : -s - 2;
+    }
+    
+    /**
+     * @return the rank of the row's value of the column across all of the segments
+     */
+    private int rank(int column, int row) {
+        int s = segmentOf(row);
+        SegmentColumn segmentColumn = segments[s].column(column);
+        int code = segmentColumn == null ? 0 : segmentColumn.code(row - segmentStarts[s]);
+        return code == 0 ? 0 : ranks[column].get(segmentColumn.rankBase + code - 1);
+    }
+    
+    private String value(int column, int row) {
+        int s = segmentOf(row);
+        SegmentColumn segmentColumn = segments[s].column(column);
+        return segmentColumn == null ? null : segmentColumn.value(segmentColumn.code(row - segmentStarts[s]));
+    }
+    
+    private interface CodeFunction {
+        int code(int row);
+    }
+    
+    /**
+     * A stable sort of the rows by their code, with nulls first when ascending
+     */
+    private static int[] sort(int[] rows, CodeFunction codes, boolean ascending) {
+        // pack the code and the current position into a long so that a primitive sort is stable
+        long[] packed = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            long code = codes.code(rows[i]);
+            if (!ascending) {
+                code = Integer.MAX_VALUE - code;
+            }
+            packed[i] = (code << 32) | i;
+        }
+        Arrays.sort(packed);
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < packed.length; i++) {
+            sorted[i] = rows[(int) packed[i]];
+        }
+        return sorted;
+    }
+    
+    private static int[] identity(int size) {
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        return rows;
+    }
+    
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+    
+    private void checkFinished() {
+        if (columns == null) {
+            throw new IllegalStateException("The store has not been finished");
+        }
+    }
+    
+    private void closeOutput() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Unable to close " + file, e);
+            }
+        }
+        channel = null;
+        counter = null;
+        out = null;
+    }
+    
+    @Override
+    public void close() {
+        closeOutput();
+        columns = null;
+        columnIndex = null;
+        segments = null;
+        segmentStarts = null;
+        ranks = null;
+        order = null;
+        builders = null;
+        loaded = null;
+    }
+    
+    @Override
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+    
+    private class ColumnarCursor implements Cursor {
+        
+        private final int[] selected;
+        private final List<String> projection;
+        // the position of the first row of the last page returned by next or previous
+        private int pageStart = 0;
+        private int pageEnd = 0;
+        
+        ColumnarCursor(int[] selected, List<String> projection) {
+            this.selected = selected;
+            this.projection = projection;
+        }
+        
+        @Override
+        public int size() {
+            return selected.length;
+        }
+        
+        @Override
+        public List<String> getColumns() {
+            return projection;
+        }
+        
+        @Override
+        public List<Map<String,String>> getRows(int rowBegin, int rowEnd) throws IOException {
+            checkFinished();
+            int from = Math.max(0, rowBegin - 1);
+            int to = Math.min(selected.length, rowEnd);
+            if (from >= to) {
+                return Collections.emptyList();
+            }
+            
+            Integer[] projected = new Integer[projection.size()];
+            for (int i = 0; i < projected.length; i++) {
+                projected[i] = columnIndex.get(projection.get(i));
+            }
+            
+            List<Map<String,String>> page = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                Map<String,String> row = new LinkedHashMap<>();
+                for (int c = 0; c < projected.length; c++) {
+                    row.put(projection.get(c), projected[c] == null ? null : value(projected[c], selected[i]));
+                }
+                page.add(row);
+            }
+            return page;
+        }
+        
+        @Override
+        public List<Map<String,String>> next(int pageSize) throws IOException {
+            if (pageEnd >= selected.length) {
+                pageStart = pageEnd = selected.length;
+                return Collections.emptyList();
+            }
+            pageStart = pageEnd;
+            pageEnd = Math.min(selected.length, pageStart + pageSize);
+            return getRows(pageStart + 1, pageEnd);
+        }
+        
+        @Override
+        public List<Map<String,String>> previous(int pageSize) throws IOException {
+            if (pageStart <= 0) {
+                pageStart = pageEnd = 0;
+                return Collections.emptyList();
+            }
+            pageEnd = pageStart;
+            pageStart = Math.max(0, pageEnd - pageSize);
+            return getRows(pageStart + 1, pageEnd);
+        }
+    }
+    
+    /**
+     * @return the number of bits used for each code of a dictionary of the given size
+     */
+    private static int codeBits(int dictionarySize) {
+        return 32 - Integer.numberOfLeadingZeros(dictionarySize);
+    }
+    
+    private static int blocks(int dictionarySize) {
+        return (dictionarySize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+    
+    /**
+     * A segment of the file, which is mapped on its own
+     */
+    private static class Segment {
+        private final long offset;
+        private final int length;
+        private final int start;
+        private final int rows;
+        private final int[] dictionarySizes;
+        private final int[] blockOffsets;
+        private SegmentColumn[] columns;
+        
+        Segment(long offset, int length, int start, int rows, int[] dictionarySizes, int[] blockOffsets) {
+            this.offset = offset;
+            this.length = length;
+            this.start = start;
+            this.rows = rows;
+            this.dictionarySizes = dictionarySizes;
+            this.blockOffsets = blockOffsets;
+        }
+        
+        /**
+         * @return the size of the column's dictionary, which is 0 for a column first seen in a later segment
+         */
+        int dictionarySize(int column) {
+            return column < dictionarySizes.length ? dictionarySizes[column] : 0;
+        }
+        
+        SegmentColumn column(int column) {
+            return column < columns.length ? columns[column] : null;
+        }
+        
+        void map(FileChannel channel) throws IOException {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+            columns = new SegmentColumn[dictionarySizes.length];
+            for (int c = 0; c < columns.length; c++) {
+                // a column with no values in the segment is null in every row
+                if (dictionarySizes[c] > 0) {
+                    columns[c] = new SegmentColumn(buffer, dictionarySizes[c], blockOffsets[c]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * A column of a segment, read in place from the mapped file. Only absolute reads are used, so a column can be read by several cursors at once.
+     */
+    private static class SegmentColumn {
+        private final ByteBuffer buffer;
+        private final int dictionarySize;
+        private final int blockOffsets;
+        private final int codes;
+        private final int bits;
+        private final long mask;
+        // the index of the column's first value in its rank array
+        private long rankBase;
+        
+        SegmentColumn(ByteBuffer buffer, int dictionarySize, int blockOffsets) {
+            this.buffer = buffer;
+            this.dictionarySize = dictionarySize;
+            this.blockOffsets = blockOffsets;
+            this.codes = blockOffsets + blocks(dictionarySize) * 4;
+            this.bits = codeBits(dictionarySize);
+            this.mask = (1L << bits) - 1;
+        }
+        
+        int code(int row) {
+            // the codes are packed from the most significant bit, and followed by enough padding to read a long at the byte of any code
+            long bit = (long) row * bits;
+            long word = buffer.getLong(codes + (int) (bit >>> 3));
+            return (int) ((word >>> (Long.SIZE - bits - (int) (bit & 7))) & mask);
+        }
+        
+        String value(int code) {
+            if (code == 0) {
+                return null;
+            }
+            DictionaryIterator values = new DictionaryIterator(this, (code - 1) / BLOCK_SIZE);
+            String value = values.next();
+            for (int i = (code - 1) % BLOCK_SIZE; i > 0; i--) {
+                value = values.next();
+            }
+            return value;
+        }
+        
+        DictionaryIterator iterator() {
+            return new DictionaryIterator(this, 0);
+        }
+        
+        /**
+         * @return the first code whose value is greater than (or, when not inclusive, greater than or equal to) the value under the collation, or
+         *         dictionarySize + 1 if there is none
+         */
+        int search(Collator collation, String value, boolean inclusive) {
+            int low = 1;
+            int high = dictionarySize + 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int cmp = collation.compare(value(mid), value);
+                if (cmp < 0 || (inclusive && cmp == 0)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+    
+    /**
+     * Reads the values of a front coded dictionary in order, from the start of a block
+     */
+    private static class DictionaryIterator {
+        private final ByteBuffer buffer;
+        private final int dictionarySize;
+        private int position;
+        private int next;
+        private byte[] bytes = new byte[64];
+        
+        DictionaryIterator(SegmentColumn column, int block) {
+            this.buffer = column.buffer;
+            this.dictionarySize = column.dictionarySize;
+            this.position = buffer.getInt(column.blockOffsets + block * 4);
+            this.next = block * BLOCK_SIZE;
+        }
+        
+        boolean hasNext() {
+            return next < dictionarySize;
+        }
+        
+        String next() {
+            int shared = (next % BLOCK_SIZE == 0) ? 0 : readVInt();
+            int length = shared + readVInt();
+            if (length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length, bytes.length * 2));
+            }
+            for (int i = shared; i < length; i++) {
+                bytes[i] = buffer.get(position++);
+            }
+            next++;
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        
+        private int readVInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer.get(position++);
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+    
+    /**
+     * The next value of a segment's dictionary while the dictionaries of a column are merged
+     */
+    private static class DictionaryHead {
+        private final int segment;
+        private final DictionaryIterator values;
+        private final IntWriter ranks;
+        private String value;
+        private CollationKey key;
+        
+        DictionaryHead(int segment, DictionaryIterator values, IntWriter ranks) {
+            this.segment = segment;
+            this.values = values;
+            this.ranks = ranks;
+        }
+        
+        boolean advance(Collator collation) {
+            if (!values.hasNext()) {
+                return false;
+            }
+            value = values.next();
+            key = collation.getCollationKey(value);
+            return true;
+        }
+    }
+    
+    /**
+     * Buffered writes of consecutive ints at a position in the file
+     */
+    private static class IntWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        private long position;
+        
+        IntWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+        
+        void write(int value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+        
+        void flush() throws IOException {
+            buffer.flip();
+            int length = buffer.remaining();
+            ColumnarCachedResultsStore.write(channel, buffer, position);
+            position += length;
+            buffer.clear();
+        }
+    }
+    
+    /**
+     * An int array read in place from the file, mapped in chunks as a single mapping is limited to 2GB
+     */
+    private static class MappedInts {
+        private static final int CHUNK_SHIFT = 28;
+        private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+        
+        private final ByteBuffer[] chunks;
+        
+        MappedInts(FileChannel channel, long offset, long size) throws IOException {
+            chunks = new ByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+            for (int i = 0; i < chunks.length; i++) {
+                long first = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + first * 4, Math.min(size - first, CHUNK_MASK + 1) * 4);
+            }
+        }
+        
+        int get(long index) {
+            return chunks[(int) (index >>> CHUNK_SHIFT)].getInt((int) (index & CHUNK_MASK) << 2);
+        }
+    }
+    
+    /**
+     * A column of the segment being loaded. Values are given codes in the order they are first seen, and remapped to the sorted dictionary order when the
+     * segment is written.
+     */
+    private static class ColumnBuilder {
+        private final Map<String,Integer> codesByValue = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private int[] codes = new int[1024];
+        private int[] remap;
+        
+        /**
+         * @return the approximate number of bytes of memory added
+         */
+        long set(int row, String value) {
+            long added = 0;
+            if (row >= codes.length) {
+                int length = Math.max(row + 1, codes.length * 2);
+                added += (length - codes.length) * 4L;
+                codes = Arrays.copyOf(codes, length);
+            }
+            Integer code = codesByValue.get(value);
+            if (code == null) {
+                values.add(value);
+                code = values.size();
+                codesByValue.put(value, code);
+                added += value.length() * 2L + VALUE_OVERHEAD;
+            }
+            codes[row] = code;
+            return added;
+        }
+        
+        /**
+         * Sort the dictionary by the collation, breaking ties between values which are equal under the collation by their natural order
+         */
+        void sortDictionary(Collator collation) {
+            CollationKey[] keys = new CollationKey[values.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = collation.getCollationKey(values.get(i));
+            }
+            Arrays.sort(keys, Comparator.<CollationKey> naturalOrder().thenComparing(CollationKey::getSourceString));
+            remap = new int[keys.length + 1];
+            values.clear();
+            for (int i = 0; i < keys.length; i++) {
+                values.add(keys[i].getSourceString());
+                remap[codesByValue.get(keys[i].getSourceString())] = i + 1;
+            }
+            codesByValue.clear();
+        }
+        
+        /**
+         * @return the sorted code for the row, once the dictionary has been sorted
+         */
+        int code(int row) {
+            return row < codes.length ? remap[codes[row]] : 0;
+        }
+        
+        /**
+         * Write the front coded dictionary, its block offsets and the codes of the rows in the given order
+         * 
+         * @return the offset of the block offsets within the segment
+         */
+        int write(DataOutputStream out, CountingOutputStream counter, long segmentOffset, int[] order, int rows) throws IOException {
+            int[] blockOffsets = new int[blocks(values.size())];
+            byte[] previous = new byte[0];
+            for (int i = 0; i < values.size(); i++) {
+                byte[] b = values.get(i).getBytes(StandardCharsets.UTF_8);
+                if (i % BLOCK_SIZE == 0) {
+                    blockOffsets[i / BLOCK_SIZE] = (int) (counter.getCount() - segmentOffset);
+                    writeVInt(out, b.length);
+                    out.write(b);
+                } else {
+                    int shared = 0;
+                    int max = Math.min(b.length, previous.length);
+                    while (shared < max && b[shared] == previous[shared]) {
+                        shared++;
+                    }
+                    writeVInt(out, shared);
+                    writeVInt(out, b.length - shared);
+                    out.write(b, shared, b.length - shared);
+                }
+                previous = b;
+            }
+            
+            int offset = (int) (counter.getCount() - segmentOffset);
+            for (int blockOffset : blockOffsets) {
+                out.writeInt(blockOffset);
+            }
+            
+            // pack the codes from the most significant bit
+            int bits = codeBits(values.size());
+            long pending = 0;
+            int pendingBits = 0;
+            for (int i = 0; i < rows; i++) {
+                pending = (pending << bits) | code(order[i]);
+                pendingBits += bits;
+                while (pendingBits >= 8) {
+                    pendingBits -= 8;
+                    out.write((int) (pending >>> pendingBits));
+                }
+                pending &= (1L << pendingBits) - 1;
+            }
+            if (pendingBits > 0) {
+                out.write((int) (pending << (8 - pendingBits)));
+            }
+            // so that a long can be read at the byte of the last code
+            for (int i = 1; i < Long.BYTES; i++) {
+                out.write(0);
+            }
+            return offset;
+        }
+        
+        private static void writeVInt(DataOutputStream out, int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package datawave.webservice.results.cached;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+
+import org.easymock.EasyMock;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachedResultsLoaderTest {
+    
+    private static final Map<String,String> PARAMETERS = new HashMap<>();
+    static {
+        PARAMETERS.put("CREATE_TABLE", "CREATE TABLE " + CachedResultsBean.TABLE + " LIKE template");
+        PARAMETERS.put("INSERT", "INSERT INTO " + CachedResultsBean.TABLE);
+        PARAMETERS.put("DROP_TABLE", "DROP TABLE " + CachedResultsBean.TABLE);
+    }
+    
+    private DataSource ds;
+    private List<String> written;
+    private List<String> executed;
+    private Map<PreparedStatement,String> tables;
+    private Map<PreparedStatement,List<String>> bound;
+    private Map<String,List<String>> persisted;
+    private AtomicInteger batches;
+    private boolean failBatches;
+    private String failRow;
+    
+    @Before
+    public void setup() throws Exception {
+        ds = EasyMock.createMock(DataSource.class);
+        written = Collections.synchronizedList(new ArrayList<>());
+        executed = Collections.synchronizedList(new ArrayList<>());
+        tables = new ConcurrentHashMap<>();
+        bound = new ConcurrentHashMap<>();
+        persisted = new ConcurrentHashMap<>();
+        batches = new AtomicInteger();
+        failBatches = false;
+        failRow = null;
+    }
+    
+    private void expectConnections(int connections) throws Exception {
+        if (connections > 0) {
+            EasyMock.expect(ds.getConnection()).andAnswer(this::connection).times(connections);
+        } else {
+            EasyMock.expect(ds.getConnection()).andAnswer(this::connection).anyTimes();
+        }
+        EasyMock.replay(ds);
+    }
+    
+    private Connection connection() throws SQLException {
+        Statement s = EasyMock.createNiceMock(Statement.class);
+        EasyMock.expect(s.execute(EasyMock.anyString())).andAnswer(() -> executed.add((String) EasyMock.getCurrentArguments()[0])).anyTimes();
+        Connection con = EasyMock.createNiceMock(Connection.class);
+        EasyMock.expect(con.createStatement()).andReturn(s).anyTimes();
+        EasyMock.expect(con.prepareStatement(EasyMock.anyString())).andAnswer(() -> {
+            PreparedStatement ps = EasyMock.createNiceMock(PreparedStatement.class);
+            EasyMock.replay(ps);
+            tables.put(ps, ((String) EasyMock.getCurrentArguments()[0]).substring("INSERT INTO ".length()));
+            return ps;
+        }).anyTimes();
+        EasyMock.replay(s, con);
+        return con;
+    }
+    
+    private CachedResultsLoader createLoader(int writers, int rowsPerBatch, long bytesPerBatch) {
+        return new CachedResultsLoader(ds, "t", PARAMETERS, new CachedResultsLoader.RowWriter() {
+            @Override
+            public void addRow(PreparedStatement ps, CacheableQueryRow row, int maxFieldSize) throws SQLException {
+                if (row.getEventId().equals(failRow)) {
+                    throw new IllegalArgumentException("bad row");
+                }
+                written.add(row.getEventId());
+                bound.computeIfAbsent(ps, p -> new ArrayList<>()).add(row.getEventId());
+            }
+            
+            @Override
+            public void persistBatch(PreparedStatement ps) throws SQLException {
+                if (failBatches) {
+                    throw new SQLException("batch failed");
+                }
+                batches.incrementAndGet();
+                persisted.computeIfAbsent(tables.get(ps), t -> new ArrayList<>()).addAll(bound.remove(ps));
+            }
+        }, writers, rowsPerBatch, bytesPerBatch);
+    }
+    
+    private static List<CacheableQueryRow> rows(int start, int count) {
+        List<CacheableQueryRow> rows = new ArrayList<>();
+        for (int i = start; i < start + count; i++) {
+            CacheableQueryRow row = EasyMock.createNiceMock(CacheableQueryRow.class);
+            EasyMock.expect(row.getEventId()).andReturn("event" + i).anyTimes();
+            EasyMock.expect(row.getColumnValues()).andReturn(Collections.singletonMap("FIELD", "value" + i)).anyTimes();
+            EasyMock.replay(row);
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    private List<String> created() {
+        List<String> created = new ArrayList<>();
+        for (String sql : executed) {
+            if (sql.startsWith("CREATE TABLE ")) {
+                created.add(sql.substring("CREATE TABLE ".length(), sql.indexOf(" LIKE")));
+            }
+        }
+        return created;
+    }
+    
+    @Test
+    public void testRowsSpreadOverWriters() throws Exception {
+        // one connection per writer, then one to merge and one to drop the staging tables
+        expectConnections(6);
+        CachedResultsLoader loader = createLoader(4, 10, 0);
+        loader.start(Executors.defaultThreadFactory());
+        for (int i = 0; i < 100; i++) {
+            loader.add(rows(i * 5, 5));
+        }
+        loader.finish();
+        
+        EasyMock.verify(ds);
+        Assert.assertEquals(500, loader.getRowsLoaded());
+        Set<String> eventIds = new HashSet<>(written);
+        Assert.assertEquals(500, eventIds.size());
+        Assert.assertTrue(loader.getBytesLoaded() > 0);
+        Assert.assertTrue(loader.getProgress(), loader.getProgress().startsWith("500 rows"));
+        // the rows are cut into full batches, whichever writer binds them
+        Assert.assertEquals(50, batches.get());
+        
+        // each writer inserted into a staging table of its own, which was merged into the result table and dropped
+        List<String> created = created();
+        Assert.assertEquals(4, new HashSet<>(created).size());
+        Assert.assertFalse(persisted.containsKey("t"));
+        for (String stagingTable : created) {
+            Assert.assertTrue(executed.contains("INSERT INTO t SELECT * FROM " + stagingTable));
+            Assert.assertTrue(executed.indexOf("DROP TABLE " + stagingTable) > executed.indexOf("INSERT INTO t SELECT * FROM " + stagingTable));
+        }
+    }
+    
+    @Test
+    public void testRowOrderPreservedPerWriter() throws Exception {
+        expectConnections(0);
+        CachedResultsLoader loader = createLoader(4, 7, 0);
+        loader.start(Executors.defaultThreadFactory());
+        for (int i = 0; i < 50; i++) {
+            loader.add(rows(i * 3, 3));
+        }
+        loader.finish();
+        
+        // every row landed in one staging table, in the order the rows were added
+        Assert.assertEquals(22, batches.get());
+        int rows = 0;
+        for (List<String> eventIds : persisted.values()) {
+            int last = -1;
+            for (String eventId : eventIds) {
+                int next = Integer.parseInt(eventId.substring("event".length()));
+                Assert.assertTrue(eventIds.toString(), next > last);
+                last = next;
+            }
+            rows += eventIds.size();
+        }
+        Assert.assertEquals(150, rows);
+    }
+    
+    @Test
+    public void testSingleWriterInsertsIntoTheResultTable() throws Exception {
+        expectConnections(1);
+        CachedResultsLoader loader = createLoader(1, 1000, 1);
+        loader.start(Executors.defaultThreadFactory());
+        loader.add(rows(0, 10));
+        loader.finish();
+        
+        EasyMock.verify(ds);
+        Assert.assertEquals(10, loader.getRowsLoaded());
+        // batched by bytes, as every row is over the limit
+        Assert.assertEquals(10, batches.get());
+        Assert.assertEquals(Collections.singleton("t"), persisted.keySet());
+        Assert.assertTrue(executed.toString(), executed.isEmpty());
+    }
+    
+    @Test(expected = SQLException.class)
+    public void testWriterFailure() throws Exception {
+        expectConnections(0);
+        failBatches = true;
+        CachedResultsLoader loader = createLoader(2, 1, 0);
+        loader.start(Executors.defaultThreadFactory());
+        loader.add(rows(0, 10));
+        loader.finish();
+    }
+    
+    @Test(timeout = 30000)
+    public void testWriterFailureFailsTheLoad() throws Exception {
+        expectConnections(0);
+        failRow = "event7";
+        CachedResultsLoader loader = createLoader(4, 1, 0);
+        loader.start(Executors.defaultThreadFactory());
+        try {
+            loader.add(rows(0, 100));
+            loader.finish();
+            Assert.fail("Expected the failed writer to fail the load");
+        } catch (IllegalArgumentException e) {
+            // the failure surfaces from whichever of add or finish notices it first
+        } finally {
+            loader.abort();
+        }
+        
+        // the staging tables were dropped and nothing was merged
+        for (String stagingTable : created()) {
+            Assert.assertTrue(executed.contains("DROP TABLE " + stagingTable));
+            Assert.assertFalse(executed.contains("INSERT INTO t SELECT * FROM " + stagingTable));
+        }
+    }
+}
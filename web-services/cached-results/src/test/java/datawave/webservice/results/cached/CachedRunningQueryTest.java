@@ -1,6 +1,8 @@
 package datawave.webservice.results.cached;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -330,4 +332,27 @@ public class CachedRunningQueryTest {
             Assert.assertEquals(expected[i], got);
         }
     }
+    
+    @Test
+    public void testColumnarStoreOnAnotherHost() throws Exception {
+        Path dir = Files.createTempDirectory("columnar");
+        CachedRunningQuery.setColumnarStoreDir(dir);
+        try {
+            crq.setView("v1");
+            Assert.assertFalse(crq.isColumnar());
+            
+            // the results were loaded into a store on another host, which this host can not read
+            crq.setTableName(CachedRunningQuery.COLUMNAR_TABLE_PREFIX + "otherhost");
+            Assert.assertTrue(crq.isColumnar());
+            try {
+                crq.openStore();
+                Assert.fail("Expected the store to be unreadable on this host");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("otherhost"));
+            }
+        } finally {
+            CachedRunningQuery.setColumnarStoreDir(null);
+            Files.delete(dir);
+        }
+    }
 }
@@ -0,0 +1,345 @@
+package datawave.webservice.results.cached.store;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import datawave.webservice.query.cachedresults.CacheableQueryRow;
+import datawave.webservice.query.cachedresults.CacheableQueryRowImpl;
+import datawave.webservice.query.cachedresults.CacheableQueryRowReader;
+import datawave.webservice.results.cached.store.CachedResultsStore.Condition;
+import datawave.webservice.results.cached.store.CachedResultsStore.Cursor;
+import datawave.webservice.results.cached.store.CachedResultsStore.Ordering;
+
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColumnarCachedResultsStoreTest {
+    
+    private static final Logger log = Logger.getLogger(ColumnarCachedResultsStoreTest.class);
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private ColumnarCachedResultsStore store;
+    
+    @Before
+    public void setup() throws Exception {
+        store = new ColumnarCachedResultsStore(new File(folder.getRoot(), "results.dwcr").toPath());
+        // loaded out of event id order
+        store.add(row("e3", "GREEN", "3"));
+        store.add(row("e1", "RED", "1"));
+        store.add(row("e4", null, "4"));
+        store.add(row("e2", "BLUE", "2"));
+        store.add(row("e5", "RED", "5"));
+        store.finish();
+    }
+    
+    @After
+    public void cleanup() throws Exception {
+        store.delete();
+    }
+    
+    private static Map<String,String> row(String eventId, String color, String size) {
+        Map<String,String> row = new HashMap<>();
+        row.put("_eventId_", eventId);
+        row.put("COLOR", color);
+        row.put("SIZE", size);
+        return row;
+    }
+    
+    private static List<String> column(List<Map<String,String>> rows, String column) {
+        List<String> values = new ArrayList<>();
+        for (Map<String,String> row : rows) {
+            values.add(row.get(column));
+        }
+        return values;
+    }
+    
+    @Test
+    public void testRowsAreSortedByEventId() throws Exception {
+        Assert.assertEquals(5, store.getTotalRows());
+        Assert.assertEquals(Arrays.asList("_eventId_", "COLOR", "SIZE"), store.getColumns());
+        
+        Cursor cursor = store.query(null, null, null);
+        Assert.assertEquals(5, cursor.size());
+        List<Map<String,String>> rows = cursor.getRows(1, 5);
+        Assert.assertEquals(Arrays.asList("e1", "e2", "e3", "e4", "e5"), column(rows, "_eventId_"));
+        Assert.assertEquals(Arrays.asList("RED", "BLUE", "GREEN", null, "RED"), column(rows, "COLOR"));
+    }
+    
+    @Test
+    public void testFilter() throws Exception {
+        Cursor cursor = store.query(null, Condition.parse("COLOR = 'RED'"), null);
+        Assert.assertEquals(Arrays.asList("e1", "e5"), column(cursor.getRows(1, 10), "_eventId_"));
+        
+        // nulls never match
+        cursor = store.query(null, Condition.parse("COLOR != 'RED'"), null);
+        Assert.assertEquals(Arrays.asList("e2", "e3"), column(cursor.getRows(1, 10), "_eventId_"));
+        
+        // comparisons against values which are not in the dictionary
+        cursor = store.query(null, Condition.parse("COLOR > 'C' AND COLOR < 'ORANGE'"), null);
+        Assert.assertEquals(Arrays.asList("e3"), column(cursor.getRows(1, 10), "_eventId_"));
+        
+        cursor = store.query(null, Condition.parse("SIZE >= '2' and SIZE <= '3'"), null);
+        Assert.assertEquals(Arrays.asList("e2", "e3"), column(cursor.getRows(1, 10), "_eventId_"));
+        
+        cursor = store.query(null, Condition.parse("MISSING = 'x'"), null);
+        Assert.assertEquals(0, cursor.size());
+    }
+    
+    @Test
+    public void testSortAndProject() throws Exception {
+        Cursor cursor = store.query(Arrays.asList("COLOR", "_eventId_"), null, Ordering.parse("COLOR DESC, _eventId_ DESC"));
+        List<Map<String,String>> rows = cursor.getRows(1, 5);
+        Assert.assertEquals(Arrays.asList("e5", "e1", "e3", "e2", "e4"), column(rows, "_eventId_"));
+        Assert.assertEquals(Arrays.asList("COLOR", "_eventId_"), new ArrayList<>(rows.get(0).keySet()));
+        
+        // nulls sort first when ascending, and equal values keep their order
+        cursor = store.query(null, null, Ordering.parse("COLOR"));
+        Assert.assertEquals(Arrays.asList("e4", "e2", "e3", "e1", "e5"), column(cursor.getRows(1, 5), "_eventId_"));
+    }
+    
+    @Test
+    public void testPaging() throws Exception {
+        Cursor cursor = store.query(null, null, null);
+        Assert.assertEquals(Arrays.asList("e1", "e2"), column(cursor.next(2), "_eventId_"));
+        Assert.assertEquals(Arrays.asList("e3", "e4"), column(cursor.next(2), "_eventId_"));
+        Assert.assertEquals(Arrays.asList("e5"), column(cursor.next(2), "_eventId_"));
+        Assert.assertTrue(cursor.next(2).isEmpty());
+        Assert.assertEquals(Arrays.asList("e4", "e5"), column(cursor.previous(2), "_eventId_"));
+        Assert.assertEquals(Arrays.asList("e2", "e3"), column(cursor.previous(2), "_eventId_"));
+        Assert.assertEquals(Arrays.asList("e1"), column(cursor.previous(2), "_eventId_"));
+        Assert.assertTrue(cursor.previous(2).isEmpty());
+        
+        Assert.assertEquals(Arrays.asList("e2", "e3"), column(cursor.getRows(2, 3), "_eventId_"));
+        Assert.assertTrue(cursor.getRows(6, 10).isEmpty());
+    }
+    
+    @Test
+    public void testReopen() throws Exception {
+        ColumnarCachedResultsStore reopened = ColumnarCachedResultsStore.open(store.getFile());
+        Assert.assertEquals(5, reopened.getTotalRows());
+        Cursor cursor = reopened.query(null, Condition.parse("COLOR = 'BLUE'"), null);
+        Assert.assertEquals(Arrays.asList("2"), column(cursor.getRows(1, 10), "SIZE"));
+        reopened.close();
+    }
+    
+    @Test
+    public void testParse() {
+        List<Condition> conditions = Condition.parse("`A.B` = 'it''s' AND C <> 'sand and sea'");
+        Assert.assertEquals(2, conditions.size());
+        Assert.assertEquals("A.B", conditions.get(0).getColumn());
+        Assert.assertEquals("it's", conditions.get(0).getValue());
+        Assert.assertEquals(Condition.Operator.NE, conditions.get(1).getOperator());
+        Assert.assertEquals("sand and sea", conditions.get(1).getValue());
+        
+        List<Ordering> order = Ordering.parse("A desc, B ASC,C");
+        Assert.assertEquals(3, order.size());
+        Assert.assertFalse(order.get(0).isAscending());
+        Assert.assertTrue(order.get(2).isAscending());
+        Assert.assertEquals("C", order.get(2).getColumn());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCondition() {
+        Condition.parse("A = 'a' OR B = 'b'");
+    }
+    
+    @Test
+    public void testCollation() throws Exception {
+        ColumnarCachedResultsStore collated = new ColumnarCachedResultsStore(new File(folder.getRoot(), "collated.dwcr").toPath());
+        try {
+            collated.add(row("e1", "banana", "1"));
+            collated.add(row("e2", "Apple", "2"));
+            collated.add(row("e3", "Cherry", "3"));
+            collated.add(row("e4", "apple", "4"));
+            collated.finish();
+            
+            // comparisons ignore case, as they do against the cached results tables
+            Cursor cursor = collated.query(null, Condition.parse("COLOR = 'APPLE'"), null);
+            Assert.assertEquals(Arrays.asList("e2", "e4"), column(cursor.getRows(1, 10), "_eventId_"));
+            cursor = collated.query(null, Condition.parse("COLOR < 'B'"), null);
+            Assert.assertEquals(Arrays.asList("e2", "e4"), column(cursor.getRows(1, 10), "_eventId_"));
+            cursor = collated.query(null, Condition.parse("COLOR > 'apple'"), null);
+            Assert.assertEquals(Arrays.asList("e1", "e3"), column(cursor.getRows(1, 10), "_eventId_"));
+            
+            // and so does the sort order, where String ordering would put Cherry before apple and banana
+            cursor = collated.query(null, null, Ordering.parse("COLOR DESC"));
+            List<String> colors = column(cursor.getRows(1, 4), "COLOR");
+            Assert.assertEquals(Arrays.asList("Cherry", "banana"), colors.subList(0, 2));
+            Assert.assertEquals(new HashSet<>(Arrays.asList("Apple", "apple")), new HashSet<>(colors.subList(2, 4)));
+        } finally {
+            collated.delete();
+        }
+    }
+    
+    @Test
+    public void testSegments() throws Exception {
+        // two rows per segment, with a column which is first seen in the last segment
+        ColumnarCachedResultsStore segmented = new ColumnarCachedResultsStore(new File(folder.getRoot(), "segmented.dwcr").toPath(),
+                        ColumnarCachedResultsStore.DEFAULT_SORT_COLUMN, ColumnarCachedResultsStore.defaultCollation(), 2,
+                        ColumnarCachedResultsStore.DEFAULT_SEGMENT_BYTES);
+        try {
+            segmented.add(row("e3", "GREEN", "3"));
+            segmented.add(row("e1", "RED", "1"));
+            segmented.add(row("e4", null, "4"));
+            segmented.add(row("e2", "BLUE", "2"));
+            Map<String,String> last = row("e5", "RED", "5");
+            last.put("SHAPE", "round");
+            segmented.add(last);
+            segmented.finish();
+            
+            // the segments are merged into event id order
+            Cursor cursor = segmented.query(null, null, null);
+            Assert.assertEquals(Arrays.asList("e1", "e2", "e3", "e4", "e5"), column(cursor.getRows(1, 5), "_eventId_"));
+            Assert.assertEquals(Arrays.asList(null, null, null, null, "round"), column(cursor.getRows(1, 5), "SHAPE"));
+            
+            // conditions are applied against the dictionary of each segment
+            cursor = segmented.query(null, Condition.parse("COLOR = 'RED'"), null);
+            Assert.assertEquals(Arrays.asList("e1", "e5"), column(cursor.getRows(1, 10), "_eventId_"));
+            cursor = segmented.query(null, Condition.parse("SHAPE = 'round'"), null);
+            Assert.assertEquals(Arrays.asList("e5"), column(cursor.getRows(1, 10), "_eventId_"));
+            
+            // and rows from different segments are sorted by their values, keeping the load order for equal values
+            cursor = segmented.query(null, null, Ordering.parse("COLOR DESC, SIZE DESC"));
+            Assert.assertEquals(Arrays.asList("e5", "e1", "e3", "e2", "e4"), column(cursor.getRows(1, 5), "_eventId_"));
+            cursor = segmented.query(null, null, Ordering.parse("COLOR"));
+            Assert.assertEquals(Arrays.asList("e4", "e2", "e3", "e1", "e5"), column(cursor.getRows(1, 5), "_eventId_"));
+            
+            ColumnarCachedResultsStore reopened = ColumnarCachedResultsStore.open(segmented.getFile());
+            Assert.assertEquals(5, reopened.getTotalRows());
+            Assert.assertEquals(Arrays.asList("_eventId_", "COLOR", "SIZE", "SHAPE"), reopened.getColumns());
+            Assert.assertEquals(Arrays.asList("e1", "e2", "e3", "e4", "e5"), column(reopened.query(null, null, null).getRows(1, 5), "_eventId_"));
+            reopened.close();
+        } finally {
+            segmented.delete();
+        }
+    }
+    
+    @Test
+    public void testRowRoundTrip() throws Exception {
+        CacheableQueryRowImpl row = new CacheableQueryRowImpl();
+        row.setDataType("datatype");
+        row.setEventId("e9");
+        row.setRow("20180101_0");
+        Map<String,Set<String>> values = new HashMap<>();
+        values.put("ZEBRA", Collections.singleton("z"));
+        values.put("APPLE", Collections.singleton("a"));
+        values.put("MANGO", Collections.singleton("m"));
+        row.setColumnValues(values);
+        Map<String,Long> timestamps = new HashMap<>();
+        timestamps.put("ZEBRA", 2L);
+        timestamps.put("APPLE", 1L);
+        timestamps.put("MANGO", 1L);
+        row.setColumnTimestampMap(timestamps);
+        Map<String,String> visibilities = new HashMap<>();
+        visibilities.put("ZEBRA", "B");
+        visibilities.put("APPLE", "A");
+        visibilities.put("MANGO", "A");
+        row.setColumnColumnVisibilityMap(visibilities);
+        Map<String,Map<String,String>> markings = new HashMap<>();
+        markings.put("ZEBRA", Collections.singletonMap("columnVisibility", "B"));
+        markings.put("APPLE", Collections.singletonMap("columnVisibility", "A"));
+        markings.put("MANGO", Collections.singletonMap("columnVisibility", "A"));
+        row.setColumnMarkingsMap(markings);
+        
+        ColumnarCachedResultsStore rows = new ColumnarCachedResultsStore(new File(folder.getRoot(), "rows.dwcr").toPath());
+        try {
+            rows.add(CachedResultsStore.toColumns(row, "me", "query", "logic"));
+            rows.finish();
+            Map<String,String> columns = rows.query(null, null, null).getRows(1, 1).get(0);
+            
+            // the column markings and timestamps are read back against the right columns
+            CacheableQueryRow read = CacheableQueryRowReader.createRow(columns, Collections.emptySet(), null);
+            Assert.assertEquals("e9", read.getEventId());
+            Assert.assertEquals(Arrays.asList("APPLE", "MANGO", "ZEBRA"), read.getVariableColumnNames());
+            Assert.assertEquals(Long.valueOf(2), read.getColumnTimestamp("ZEBRA"));
+            Assert.assertEquals(Long.valueOf(1), read.getColumnTimestamp("APPLE"));
+            Assert.assertEquals("B", read.getColumnVisibility("ZEBRA"));
+            Assert.assertEquals("A", read.getColumnVisibility("MANGO"));
+            
+            // and a projection does not change them
+            read = CacheableQueryRowReader.createRow(columns, Collections.emptySet(), Collections.singleton("ZEBRA"));
+            Assert.assertEquals(Collections.singletonList("ZEBRA"), read.getVariableColumnNames());
+            Assert.assertEquals(Long.valueOf(2), read.getColumnTimestamp("ZEBRA"));
+            Assert.assertEquals("B", read.getColumnVisibility("ZEBRA"));
+        } finally {
+            rows.delete();
+        }
+    }
+    
+    @Test
+    public void testLargeResultSet() throws Exception {
+        int rows = 50000;
+        int columns = 12;
+        int pageSize = 1000;
+        
+        // small enough segments that the rows are spread over several of them
+        ColumnarCachedResultsStore large = new ColumnarCachedResultsStore(new File(folder.getRoot(), "large.dwcr").toPath(),
+                        ColumnarCachedResultsStore.DEFAULT_SORT_COLUMN, ColumnarCachedResultsStore.defaultCollation(), 8192, 1 << 20);
+        try {
+            Random random = new Random(42);
+            int datatype1 = 0;
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < rows; i++) {
+                Map<String,String> row = new HashMap<>();
+                row.put("_eventId_", String.format("%016x", random.nextLong()));
+                row.put("_datatype_", "datatype" + (i % 5));
+                if (i % 5 == 1) {
+                    datatype1++;
+                }
+                for (int c = 0; c < columns; c++) {
+                    // columns of increasing cardinality, some of them sparse, so that all of the code widths are used
+                    if (c % 4 != 3 || random.nextBoolean()) {
+                        row.put("FIELD" + c, "value" + random.nextInt(1 << Math.min(2 * c + 1, 20)));
+                    }
+                }
+                large.add(row);
+            }
+            long loaded = System.currentTimeMillis();
+            large.finish();
+            log.info("Loaded " + rows + " rows of " + (columns + 2) + " columns in " + (loaded - start) + "ms, finished in "
+                            + (System.currentTimeMillis() - loaded) + "ms");
+            
+            Assert.assertEquals(rows, page("all rows", large.query(null, null, null), pageSize));
+            List<String> eventIds = column(large.query(Collections.singletonList("_eventId_"), null, null).getRows(1, rows), "_eventId_");
+            List<String> sortedIds = new ArrayList<>(eventIds);
+            Collections.sort(sortedIds);
+            Assert.assertEquals(sortedIds, eventIds);
+            Assert.assertEquals(datatype1, page("filtered", large.query(null, Condition.parse("_datatype_ = 'datatype1'"), null), pageSize));
+            
+            Cursor sorted = large.query(Arrays.asList("_eventId_", "FIELD11"), null, Ordering.parse("FIELD11 DESC, _eventId_"));
+            Assert.assertEquals(rows, page("sorted", sorted, pageSize));
+            List<Map<String,String>> top = sorted.getRows(1, 2);
+            Assert.assertTrue(top.get(0).get("FIELD11").compareTo(top.get(1).get("FIELD11")) >= 0);
+        } finally {
+            large.delete();
+        }
+    }
+    
+    private static int page(String name, Cursor cursor, int pageSize) throws Exception {
+        long start = System.currentTimeMillis();
+        int pages = 0;
+        int rows = 0;
+        List<Map<String,String>> page;
+        while (!(page = cursor.next(pageSize)).isEmpty()) {
+            pages++;
+            rows += page.size();
+        }
+        log.info(name + ": " + cursor.size() + " rows, paged " + rows + " rows in " + pages + " pages in " + (System.currentTimeMillis() - start) + "ms");
+        return rows;
+    }
+}
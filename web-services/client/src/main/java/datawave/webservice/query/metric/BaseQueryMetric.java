@@ -575,6 +575,16 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
     @XmlElement
     protected long fiRanges = 0;
     @XmlElement
+    protected long dedupeBytes = 0;
+    @XmlElement
+    protected long dedupeFalsePositives = 0;
+    @XmlElement
+    protected long timeToFirstRange = -1;
+    @XmlElement
+    protected long timeToFirstResult = -1;
+    @XmlElement
+    protected String planCosts = null;
+    @XmlElement
     protected String plan = null;
     @XmlElement
     protected long loginTime = -1;
@@ -762,6 +772,46 @@ public abstract class BaseQueryMetric implements HasMarkings, Serializable {
         this.fiRanges = fiRanges;
     }
     
+    public long getDedupeBytes() {
+        return dedupeBytes;
+    }
+    
+    public void setDedupeBytes(long dedupeBytes) {
+        this.dedupeBytes = dedupeBytes;
+    }
+    
+    public long getDedupeFalsePositives() {
+        return dedupeFalsePositives;
+    }
+    
+    public void setDedupeFalsePositives(long dedupeFalsePositives) {
+        this.dedupeFalsePositives = dedupeFalsePositives;
+    }
+    
+    public long getTimeToFirstRange() {
+        return timeToFirstRange;
+    }
+    
+    public void setTimeToFirstRange(long timeToFirstRange) {
+        this.timeToFirstRange = timeToFirstRange;
+    }
+    
+    public long getTimeToFirstResult() {
+        return timeToFirstResult;
+    }
+    
+    public void setTimeToFirstResult(long timeToFirstResult) {
+        this.timeToFirstResult = timeToFirstResult;
+    }
+    
+    public String getPlanCosts() {
+        return planCosts;
+    }
+    
+    public void setPlanCosts(String planCosts) {
+        this.planCosts = planCosts;
+    }
+    
     public long getLoginTime() {
         return loginTime;
     }
@@ -95,6 +95,11 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         this.yieldCount = other.yieldCount;
         this.docRanges = other.docRanges;
         this.fiRanges = other.fiRanges;
+        this.dedupeBytes = other.dedupeBytes;
+        this.dedupeFalsePositives = other.dedupeFalsePositives;
+        this.timeToFirstRange = other.timeToFirstRange;
+        this.timeToFirstResult = other.timeToFirstResult;
+        this.planCosts = other.planCosts;
         this.plan = other.plan;
         this.loginTime = other.loginTime;
         
@@ -119,7 +124,8 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         .append(this.getErrorMessage()).append(this.getCreateCallTime()).append(this.getErrorCode()).append(this.getQueryName())
                         .append(this.getParameters()).append(this.getSourceCount()).append(this.getNextCount()).append(this.getSeekCount())
                         .append(this.getYieldCount()).append(this.getDocRanges()).append(this.getFiRanges()).append(this.getPlan()).append(this.getLoginTime())
-                        .append(this.getPredictions()).toHashCode();
+                        .append(this.getPredictions()).append(this.getDedupeBytes()).append(this.getDedupeFalsePositives())
+                        .append(this.getTimeToFirstRange()).append(this.getTimeToFirstResult()).append(this.getPlanCosts()).toHashCode();
     }
     
     @Override
@@ -146,7 +152,12 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                             .append(this.getNextCount(), other.getNextCount()).append(this.getSeekCount(), other.getSeekCount())
                             .append(this.getYieldCount(), other.getYieldCount()).append(this.getDocRanges(), other.getDocRanges())
                             .append(this.getFiRanges(), other.getFiRanges()).append(this.getPlan(), other.getPlan())
-                            .append(this.getLoginTime(), other.getLoginTime()).append(this.getPredictions(), other.getPredictions()).isEquals();
+                            .append(this.getLoginTime(), other.getLoginTime()).append(this.getPredictions(), other.getPredictions())
+                            .append(this.getDedupeBytes(), other.getDedupeBytes())
+                            .append(this.getDedupeFalsePositives(), other.getDedupeFalsePositives())
+                            .append(this.getTimeToFirstRange(), other.getTimeToFirstRange())
+                            .append(this.getTimeToFirstResult(), other.getTimeToFirstResult())
+                            .append(this.getPlanCosts(), other.getPlanCosts()).isEquals();
         } else {
             return false;
         }
@@ -186,6 +197,11 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
         buf.append(" FI Ranges: ").append(this.getFiRanges());
         buf.append(" Login Time: ").append(this.getLoginTime());
         buf.append(" Predictions: ").append(this.getPredictions());
+        buf.append(" Dedupe Bytes: ").append(this.getDedupeBytes());
+        buf.append(" Dedupe False Positives: ").append(this.getDedupeFalsePositives());
+        buf.append(" Time To First Range: ").append(this.getTimeToFirstRange());
+        buf.append(" Time To First Result: ").append(this.getTimeToFirstResult());
+        buf.append(" Plan Costs: ").append(this.getPlanCosts());
         buf.append("\n");
         return buf.toString();
     }
@@ -369,6 +385,21 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                 }
             }
             
+            output.writeInt64(37, message.dedupeBytes, false);
+            output.writeInt64(38, message.dedupeFalsePositives, false);
+            
+            if (message.timeToFirstRange != -1) {
+                output.writeInt64(39, message.timeToFirstRange, false);
+            }
+            
+            if (message.timeToFirstResult != -1) {
+                output.writeInt64(40, message.timeToFirstResult, false);
+            }
+            
+            if (message.planCosts != null) {
+                output.writeString(41, message.planCosts, false);
+            }
+            
         }
         
         public void mergeFrom(Input input, QueryMetric message) throws IOException {
@@ -501,6 +532,21 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                         }
                         message.predictions.add(input.mergeObject(null, Prediction.getSchema()));
                         break;
+                    case 37:
+                        message.dedupeBytes = input.readInt64();
+                        break;
+                    case 38:
+                        message.dedupeFalsePositives = input.readInt64();
+                        break;
+                    case 39:
+                        message.timeToFirstRange = input.readInt64();
+                        break;
+                    case 40:
+                        message.timeToFirstResult = input.readInt64();
+                        break;
+                    case 41:
+                        message.planCosts = input.readString();
+                        break;
                     default:
                         input.handleUnknownField(number, this);
                         break;
@@ -583,6 +629,16 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
                     return "loginTime";
                 case 36:
                     return "predictions";
+                case 37:
+                    return "dedupeBytes";
+                case 38:
+                    return "dedupeFalsePositives";
+                case 39:
+                    return "timeToFirstRange";
+                case 40:
+                    return "timeToFirstResult";
+                case 41:
+                    return "planCosts";
                 default:
                     return null;
             }
@@ -632,6 +688,11 @@ public class QueryMetric extends BaseQueryMetric implements Serializable, Messag
             fieldMap.put("plan", 34);
             fieldMap.put("loginTime", 35);
             fieldMap.put("predictions", 36);
+            fieldMap.put("dedupeBytes", 37);
+            fieldMap.put("dedupeFalsePositives", 38);
+            fieldMap.put("timeToFirstRange", 39);
+            fieldMap.put("timeToFirstResult", 40);
+            fieldMap.put("planCosts", 41);
         }
     };
     
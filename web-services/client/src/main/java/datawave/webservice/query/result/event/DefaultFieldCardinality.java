@@ -40,6 +40,8 @@ public class DefaultFieldCardinality extends FieldCardinalityBase implements Ser
     private String upper;
     @XmlElement(name = "cardinality")
     private Long cardinality;
+    @XmlElement(name = "cardinalityError")
+    private Long cardinalityError;
     
     public DefaultFieldCardinality() {}
     
@@ -73,11 +75,20 @@ public class DefaultFieldCardinality extends FieldCardinalityBase implements Ser
         this.cardinality = cardinality;
     }
     
+    public Long getCardinalityError() {
+        return cardinalityError;
+    }
+    
+    public void setCardinalityError(Long cardinalityError) {
+        this.cardinalityError = cardinalityError;
+    }
+    
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder();
         buf.append(" columnVisibility=").append(columnVisibility);
         buf.append(" cardinality=").append(cardinality);
+        buf.append(" cardinalityError=").append(cardinalityError);
         buf.append(" lower=").append(lower);
         buf.append(" upper= ").append(upper).append("] ");
         
@@ -166,6 +177,8 @@ public class DefaultFieldCardinality extends FieldCardinalityBase implements Ser
             output.writeUInt64(2, message.cardinality, false);
             output.writeString(3, message.lower, false);
             output.writeString(4, message.upper, false);
+            if (message.cardinalityError != null)
+                output.writeUInt64(5, message.cardinalityError, false);
         }
         
         @Override
@@ -185,6 +198,9 @@ public class DefaultFieldCardinality extends FieldCardinalityBase implements Ser
                     case 4:
                         message.upper = input.readString();
                         break;
+                    case 5:
+                        message.cardinalityError = input.readUInt64();
+                        break;
                     default:
                         input.handleUnknownField(number, this);
                         break;
@@ -203,6 +219,8 @@ public class DefaultFieldCardinality extends FieldCardinalityBase implements Ser
                     return "lower";
                 case 4:
                     return "upper";
+                case 5:
+                    return "cardinalityError";
                 default:
                     return null;
             }
@@ -220,6 +238,7 @@ public class DefaultFieldCardinality extends FieldCardinalityBase implements Ser
             fieldMap.put("cardinality", 2);
             fieldMap.put("lower", 3);
             fieldMap.put("upper", 4);
+            fieldMap.put("cardinalityError", 5);
         }
     };
     
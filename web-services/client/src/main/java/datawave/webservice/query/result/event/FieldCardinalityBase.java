@@ -31,6 +31,10 @@ public abstract class FieldCardinalityBase implements HasMarkings {
     
     public abstract void setCardinality(Long cardinality);
     
+    public abstract Long getCardinalityError();
+    
+    public abstract void setCardinalityError(Long cardinalityError);
+    
     public abstract String getUpper();
     
     public abstract void setUpper(String upper);
@@ -56,7 +56,7 @@ public class AccumuloTableCacheStatus extends BaseResponse implements HtmlProvid
         builder.append("<h2>").append("Table Caches").append("</h2>");
         builder.append("<br/>");
         builder.append("<table>");
-        builder.append("<tr><th>Table Name</th><th>Connection Pool</th><th>Authorizations</th><th>Reload Interval (ms)</th><th>Max Rows</th><th>Last Refresh</th><th>Refreshing Now</th></tr>");
+        builder.append("<tr><th>Table Name</th><th>Connection Pool</th><th>Authorizations</th><th>Reload Interval (ms)</th><th>Max Rows</th><th>Last Refresh</th><th>Refreshing Now</th><th>Last Reload (ms)</th><th>Last Reload (bytes)</th><th>Last Reload (entries)</th></tr>");
         for (TableCache cache : caches) {
             builder.append("<tr>");
             builder.append("<td>").append(cache.getTableName()).append("</td>");
@@ -66,6 +66,9 @@ public class AccumuloTableCacheStatus extends BaseResponse implements HtmlProvid
             builder.append("<td>").append(cache.getMaxRows()).append("</td>");
             builder.append("<td>").append(cache.getLastRefresh()).append("</td>");
             builder.append("<td>").append(cache.getCurrentlyRefreshing()).append("</td>");
+            builder.append("<td>").append(cache.getLastReloadTime()).append("</td>");
+            builder.append("<td>").append(cache.getLastReloadBytes()).append("</td>");
+            builder.append("<td>").append(cache.getLastReloadEntries()).append("</td>");
             builder.append("</tr>");
         }
         builder.append("</table>");
@@ -89,7 +89,7 @@ public class ConnectionFactoryResponse extends BaseResponse implements HtmlProvi
         builder.append("<h2>").append("Connection Pools").append("</h2>");
         builder.append("<br/>");
         builder.append("<table class=\"connectionPools\">");
-        builder.append("<tr><th>Pool Name</th><th>Priority</th><th>Num Active</th><th>Max Active</th><th>Num Idle</th><th>Max Idle</th><th>Num Waiting</th></tr>");
+        builder.append("<tr><th>Pool Name</th><th>Priority</th><th>Num Active</th><th>Max Active</th><th>Num Idle</th><th>Max Idle</th><th>Num Waiting</th><th>Borrows</th><th>Borrows Waited</th><th>Borrows Lent</th><th>Total Wait (ms)</th><th>Max Wait (ms)</th></tr>");
         
         Set<ConnectionPool> poolSet = new TreeSet<>();
         poolSet.addAll(connectionPools);
@@ -103,6 +103,11 @@ public class ConnectionFactoryResponse extends BaseResponse implements HtmlProvi
             builder.append("<td>").append(f.getNumIdle()).append("</td>");
             builder.append("<td>").append(f.getMaxIdle()).append("</td>");
             builder.append("<td>").append(f.getNumWaiting()).append("</td>");
+            builder.append("<td>").append(f.getNumBorrows()).append("</td>");
+            builder.append("<td>").append(f.getNumBorrowsWaited()).append("</td>");
+            builder.append("<td>").append(f.getNumBorrowsLent()).append("</td>");
+            builder.append("<td>").append(f.getTotalWaitMillis()).append("</td>");
+            builder.append("<td>").append(f.getMaxWaitMillis()).append("</td>");
             builder.append("</tr>");
         }
         builder.append("</table>");
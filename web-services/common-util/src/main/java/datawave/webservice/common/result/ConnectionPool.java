@@ -44,6 +44,21 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
     @XmlElement(name = "NumWaiting")
     private Integer numWaiting = null;
     
+    @XmlElement(name = "NumBorrows")
+    private Long numBorrows = null;
+    
+    @XmlElement(name = "NumBorrowsWaited")
+    private Long numBorrowsWaited = null;
+    
+    @XmlElement(name = "NumBorrowsLent")
+    private Long numBorrowsLent = null;
+    
+    @XmlElement(name = "TotalWaitMillis")
+    private Long totalWaitMillis = null;
+    
+    @XmlElement(name = "MaxWaitMillis")
+    private Long maxWaitMillis = null;
+    
     @XmlElementWrapper(name = "ConnectionRequests")
     @XmlElement(name = "Connection")
     private List<Connection> connectionRequests = null;
@@ -88,6 +103,46 @@ public class ConnectionPool implements Serializable, Comparable<ConnectionPool>
         this.numWaiting = numWaiting;
     }
     
+    public Long getNumBorrows() {
+        return numBorrows;
+    }
+    
+    public void setNumBorrows(Long numBorrows) {
+        this.numBorrows = numBorrows;
+    }
+    
+    public Long getNumBorrowsWaited() {
+        return numBorrowsWaited;
+    }
+    
+    public void setNumBorrowsWaited(Long numBorrowsWaited) {
+        this.numBorrowsWaited = numBorrowsWaited;
+    }
+    
+    public Long getNumBorrowsLent() {
+        return numBorrowsLent;
+    }
+    
+    public void setNumBorrowsLent(Long numBorrowsLent) {
+        this.numBorrowsLent = numBorrowsLent;
+    }
+    
+    public Long getTotalWaitMillis() {
+        return totalWaitMillis;
+    }
+    
+    public void setTotalWaitMillis(Long totalWaitMillis) {
+        this.totalWaitMillis = totalWaitMillis;
+    }
+    
+    public Long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    public void setMaxWaitMillis(Long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+    
     public List<Connection> getConnectionRequests() {
         return connectionRequests;
     }
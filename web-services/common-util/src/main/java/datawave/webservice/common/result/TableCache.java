@@ -35,6 +35,15 @@ public class TableCache implements Serializable {
     @XmlAttribute
     private Boolean currentlyRefreshing = null;
     
+    @XmlAttribute
+    private Long lastReloadTime = null;
+    
+    @XmlAttribute
+    private Long lastReloadBytes = null;
+    
+    @XmlAttribute
+    private Long lastReloadEntries = null;
+    
     public String getTableName() {
         return tableName;
     }
@@ -63,6 +72,18 @@ public class TableCache implements Serializable {
         return currentlyRefreshing;
     }
     
+    public Long getLastReloadTime() {
+        return lastReloadTime;
+    }
+    
+    public Long getLastReloadBytes() {
+        return lastReloadBytes;
+    }
+    
+    public Long getLastReloadEntries() {
+        return lastReloadEntries;
+    }
+    
     public void setTableName(String tableName) {
         this.tableName = tableName;
     }
@@ -91,4 +112,16 @@ public class TableCache implements Serializable {
         this.currentlyRefreshing = currentlyRefreshing;
     }
     
+    public void setLastReloadTime(Long lastReloadTime) {
+        this.lastReloadTime = lastReloadTime;
+    }
+    
+    public void setLastReloadBytes(Long lastReloadBytes) {
+        this.lastReloadBytes = lastReloadBytes;
+    }
+    
+    public void setLastReloadEntries(Long lastReloadEntries) {
+        this.lastReloadEntries = lastReloadEntries;
+    }
+    
 }
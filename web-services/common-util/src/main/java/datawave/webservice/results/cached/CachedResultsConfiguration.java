@@ -8,6 +8,10 @@ public class CachedResultsConfiguration {
     private int defaultPageSize = 20;
     private int maxPageSize = 0;
     private long pageByteTrigger = 0;
+    private int loadWriters = 4;
+    private long bytesPerBatch = 4 * 1024 * 1024;
+    private long progressInterval = 5000;
+    private String columnarStoreDir = null;
     private Map<String,String> parameters = new HashMap<>();
     
     public int getDefaultPageSize() {
@@ -34,6 +38,50 @@ public class CachedResultsConfiguration {
         this.pageByteTrigger = pageByteTrigger;
     }
     
+    /**
+     * @return the number of threads, each with its own database connection, that insert rows during a load
+     */
+    public int getLoadWriters() {
+        return loadWriters;
+    }
+    
+    public void setLoadWriters(int loadWriters) {
+        this.loadWriters = loadWriters;
+    }
+    
+    /**
+     * @return the (estimated) number of bytes at which a writer's batch is executed, even if it holds fewer than ROWS_PER_BATCH rows
+     */
+    public long getBytesPerBatch() {
+        return bytesPerBatch;
+    }
+    
+    public void setBytesPerBatch(long bytesPerBatch) {
+        this.bytesPerBatch = bytesPerBatch;
+    }
+    
+    /**
+     * @return the milliseconds between updates of the status message of a loading cached result
+     */
+    public long getProgressInterval() {
+        return progressInterval;
+    }
+    
+    public void setProgressInterval(long progressInterval) {
+        this.progressInterval = progressInterval;
+    }
+    
+    /**
+     * @return the local directory that results are loaded into columnar stores in, instead of into database tables, or null (or empty) to use tables
+     */
+    public String getColumnarStoreDir() {
+        return columnarStoreDir;
+    }
+    
+    public void setColumnarStoreDir(String columnarStoreDir) {
+        this.columnarStoreDir = columnarStoreDir;
+    }
+    
     public Map<String,String> getParameters() {
         return parameters;
     }
@@ -317,6 +317,9 @@ public class AccumuloTableCache {
             t.setMaxRows(entry.getValue().getMaxRows());
             t.setLastRefresh(entry.getValue().getLastRefresh());
             t.setCurrentlyRefreshing((entry.getValue().getReference() != null));
+            t.setLastReloadTime(entry.getValue().getLastReloadTime());
+            t.setLastReloadBytes(entry.getValue().getLastReloadBytes());
+            t.setLastReloadEntries(entry.getValue().getLastReloadEntries());
             response.getCaches().add(t);
         }
         return response;
@@ -50,6 +50,9 @@ public class BaseTableCache implements Serializable, TableCache {
     
     /** set programatically **/
     private Date lastRefresh = new Date(0);
+    private long lastReloadTime = 0;
+    private long lastReloadBytes = 0;
+    private long lastReloadEntries = 0;
     private AccumuloConnectionFactory connectionFactory = null;
     private InMemoryInstance instance = null;
     private SharedCacheCoordinator watcher = null;
@@ -157,6 +160,21 @@ public class BaseTableCache implements Serializable, TableCache {
         this.maxRows = maxRows;
     }
     
+    @Override
+    public long getLastReloadTime() {
+        return lastReloadTime;
+    }
+    
+    @Override
+    public long getLastReloadBytes() {
+        return lastReloadBytes;
+    }
+    
+    @Override
+    public long getLastReloadEntries() {
+        return lastReloadEntries;
+    }
+    
     @Override
     public Boolean call() throws Exception {
         if (!lock.tryLock(0, TimeUnit.SECONDS))
@@ -167,6 +185,7 @@ public class BaseTableCache implements Serializable, TableCache {
         Connector accumuloConn = null;
         
         String tempTableName = tableName + "Temp";
+        long start = System.currentTimeMillis();
         try {
             Map<String,String> map = connectionFactory.getTrackingMap(Thread.currentThread().getStackTrace());
             accumuloConn = connectionFactory.getConnection(connectionPoolName, Priority.ADMIN, map);
@@ -198,6 +217,7 @@ public class BaseTableCache implements Serializable, TableCache {
             
             Iterator<Entry<Key,Value>> iter = scanner.iterator();
             long count = 0;
+            long bytes = 0;
             while (iter.hasNext()) {
                 
                 if (count > maxRows)
@@ -205,6 +225,7 @@ public class BaseTableCache implements Serializable, TableCache {
                 Entry<Key,Value> value = iter.next();
                 
                 Key valueKey = value.getKey();
+                bytes += valueKey.getSize() + value.getValue().getSize();
                 
                 Mutation m = new Mutation(value.getKey().getRow());
                 m.put(valueKey.getColumnFamily(), valueKey.getColumnQualifier(), new ColumnVisibility(valueKey.getColumnVisibility()), valueKey.getTimestamp(),
@@ -219,7 +240,10 @@ public class BaseTableCache implements Serializable, TableCache {
                 // the table will not exist the first time this is run
             }
             instanceConnector.tableOperations().rename(tempTableName, tableName);
-            log.info("Cached " + count + " k,v for table: " + tableName);
+            this.lastReloadTime = System.currentTimeMillis() - start;
+            this.lastReloadBytes = bytes;
+            this.lastReloadEntries = count;
+            log.info("Cached " + count + " k,v for table: " + tableName + " (read " + bytes + " bytes in " + lastReloadTime + "ms)");
         } catch (Exception e) {
             log.error(e.getMessage(), e);
             throw e;
@@ -31,6 +31,12 @@ public interface TableCache extends Callable<Boolean>, Serializable {
     
     long getMaxRows();
     
+    long getLastReloadTime();
+    
+    long getLastReloadBytes();
+    
+    long getLastReloadEntries();
+    
     void setTableName(String tableName);
     
     void setConnectionPoolName(String connectionPoolName);
@@ -1,6 +1,8 @@
 package datawave.webservice.common.connection;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 import org.apache.accumulo.core.client.Connector;
 
@@ -49,6 +51,23 @@ public interface AccumuloConnectionFactory {
      */
     Connector getConnection(String poolName, Priority priority, Map<String,String> trackingMap) throws Exception;
     
+    /**
+     * Gets a connection from the named pool with the assigned priority without blocking the caller. Implementations which cannot borrow asynchronously
+     * return an already completed future.
+     *
+     * @param poolName
+     *            the name of the pool to retrieve the connection from
+     * @param priority
+     *            the priority of the connection
+     * @param trackingMap
+     *            the tracking map
+     * @return a future for the Accumulo connection
+     * @throws Exception
+     */
+    default Future<Connector> getConnectionAsync(String poolName, Priority priority, Map<String,String> trackingMap) throws Exception {
+        return CompletableFuture.completedFuture(getConnection(poolName, priority, trackingMap));
+    }
+    
     /**
      * Returns the connection to the pool with the associated priority.
      *
@@ -35,6 +35,8 @@ import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.PermitAll;
 import javax.annotation.security.RolesAllowed;
 import javax.annotation.security.RunAs;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
 import javax.ejb.EJBContext;
 import javax.ejb.Local;
 import javax.ejb.LocalBean;
@@ -61,7 +63,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Future;
 
 @Path("/Common/AccumuloConnectionFactory")
 @Produces({"application/xml", "text/xml", "application/json", "text/yaml", "text/x-yaml", "application/x-yaml", "text/html"})
@@ -265,7 +269,7 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
                 trackingMap.put("proxyServers", proxyServers.toString());
         }
         AccumuloConnectionPool pool = pools.get(poolName).get(priority);
-        Connector c = pool.borrowObject(trackingMap);
+        Connector c = borrow(pools.get(poolName), priority, trackingMap);
         Connector mock = cache.getInstance().getConnector(pool.getFactory().getUsername(), new PasswordToken(pool.getFactory().getPassword()));
         WrappedConnector wrappedConnector = new WrappedConnector(c, mock);
         String classLoaderContext = System.getProperty("dw.accumulo.classLoader.context");
@@ -279,6 +283,60 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
         return wrappedConnector;
     }
     
+    /**
+     * Gets a connection from the named pool with the assigned priority, on a container thread
+     *
+     * @param cpn
+     *            the name of the pool to retrieve the connection from
+     * @param priority
+     *            the priority of the connection
+     * @param tm
+     *            the tracking map
+     * @return a future for the Accumulo connection
+     * @throws Exception
+     */
+    @Override
+    @Asynchronous
+    public Future<Connector> getConnectionAsync(final String cpn, final Priority priority, final Map<String,String> tm) throws Exception {
+        return new AsyncResult<>(getConnection(cpn, priority, tm));
+    }
+    
+    /**
+     * Borrow a connector from the pool for the priority. A LOW or NORMAL priority request which has waited longer than the aging threshold may also take an
+     * idle connector from a higher priority pool (but never the ADMIN pool), so that bursts of higher priority requests cannot starve it and idle capacity in
+     * the higher pools is not wasted. The connector is returned to the pool it came from. The request's wait is tracked and recorded from its first attempt,
+     * however many times it has timed out and tried again.
+     */
+    private Connector borrow(Map<Priority,AccumuloConnectionPool> lanes, Priority priority, Map<String,String> trackingMap) throws Exception {
+        AccumuloConnectionPool pool = lanes.get(priority);
+        long agingThreshold = connectionPoolsConfiguration.getAgingThresholdMillis();
+        if (agingThreshold <= 0 || priority.ordinal() >= Priority.HIGH.ordinal()) {
+            return pool.borrowObject(trackingMap);
+        }
+        
+        long start = System.nanoTime();
+        long deadline = pool.getMaxWaitMillis() < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + pool.getMaxWaitMillis();
+        while (true) {
+            long wait = Math.min(agingThreshold, deadline - System.currentTimeMillis());
+            try {
+                return pool.borrowObject(trackingMap, Math.max(0, wait), start);
+            } catch (NoSuchElementException e) {
+                if (System.currentTimeMillis() >= deadline) {
+                    throw e;
+                }
+            }
+            for (Priority higher : Priority.values()) {
+                if (higher.ordinal() > priority.ordinal() && higher != Priority.ADMIN && lanes.get(higher) != pool) {
+                    Connector c = lanes.get(higher).tryBorrowObject(trackingMap, start);
+                    if (c != null) {
+                        trackingMap.put("lent.from", higher.name());
+                        return c;
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * Returns the connection to the pool with the associated priority.
      *
@@ -368,6 +426,11 @@ public class AccumuloConnectionFactoryBean implements AccumuloConnectionFactory
                 poolInfo.setMaxIdle(maxIdle.toInteger());
                 poolInfo.setNumIdle(numIdle.toInteger());
                 poolInfo.setPoolName(poolName);
+                poolInfo.setNumBorrows(p.getBorrowCount());
+                poolInfo.setNumBorrowsWaited(p.getBorrowWaitedCount());
+                poolInfo.setNumBorrowsLent(p.getBorrowLentCount());
+                poolInfo.setTotalWaitMillis(p.getTotalWaitMillis());
+                poolInfo.setMaxWaitMillis(p.getMaxWaitMillisObserved());
                 
                 List<Connection> requestingConnections = new ArrayList<>();
                 for (Map<String,String> m : requestingConnectionsMap) {
@@ -3,9 +3,13 @@ package datawave.webservice.common.connection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.accumulo.core.client.Connector;
 import org.apache.commons.lang.mutable.MutableInt;
@@ -15,10 +19,17 @@ import org.apache.log4j.Logger;
 public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     
     private static final Logger log = Logger.getLogger(AccumuloConnectionPool.class);
-    private final Map<Long,Map<String,String>> threadToTrackingMapMap = Collections.synchronizedMap(new HashMap<>());
-    private final Map<Connector,Map<String,String>> connectorToTrackingMapMap = Collections.synchronizedMap(new HashMap<>());
+    private final Map<Long,Map<String,String>> threadToTrackingMapMap = new ConcurrentHashMap<>();
+    private final Map<Connector,Map<String,String>> connectorToTrackingMapMap = new ConcurrentHashMap<>();
     private AccumuloConnectionPoolFactory factory = null;
     
+    // contention metrics
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder borrowsWaited = new LongAdder();
+    private final LongAdder borrowsLent = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    
     public AccumuloConnectionPool(AccumuloConnectionPoolFactory factory) {
         super(factory);
         this.factory = factory;
@@ -30,15 +41,40 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     }
     
     public Connector borrowObject(Map<String,String> trackingMap) throws Exception {
+        return borrowObject(trackingMap, getMaxWaitMillis());
+    }
+    
+    /**
+     * Borrow a connector, waiting at most borrowMaxWaitMillis (or indefinitely if negative) for one to become available
+     *
+     * @return the connector
+     * @throws NoSuchElementException
+     *             if no connector became available in time
+     */
+    public Connector borrowObject(Map<String,String> trackingMap, long borrowMaxWaitMillis) throws Exception {
+        return borrowObject(trackingMap, borrowMaxWaitMillis, System.nanoTime());
+    }
+    
+    /**
+     * Borrow a connector for a request which has been waiting since waitStartNanos, possibly in earlier borrows which timed out. The request is shown as
+     * waiting, and its wait is recorded, from then rather than from this borrow.
+     *
+     * @return the connector
+     * @throws NoSuchElementException
+     *             if no connector became available in time
+     */
+    public Connector borrowObject(Map<String,String> trackingMap, long borrowMaxWaitMillis, long waitStartNanos) throws Exception {
         
         Long threadId = Thread.currentThread().getId();
         Connector o = null;
         try {
-            trackingMap.put("connection.state.start", Long.valueOf(System.currentTimeMillis()).toString());
+            long waitStart = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStartNanos);
+            trackingMap.put("connection.state.start", Long.valueOf(waitStart).toString());
             trackingMap.put("state", AccumuloConnectionFactory.State.WAITING.toString());
             trackingMap.put("thread.name", Thread.currentThread().getName());
             threadToTrackingMapMap.put(threadId, trackingMap);
-            o = super.borrowObject();
+            o = super.borrowObject(borrowMaxWaitMillis);
+            recordBorrow(System.nanoTime() - waitStartNanos);
             log.debug(System.currentTimeMillis() + " thread: " + threadId + " borrowed connector: " + o);
             if (log.isTraceEnabled()) {
                 log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
@@ -63,15 +99,54 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
         throw new UnsupportedOperationException("you can not call AccumuloConnectionFactory.borrowObject without a trackingMap argument");
     }
     
+    /**
+     * Borrow a connector only if one is available without waiting. Used to lend connectors from this pool to requests which have waited too long in a lower
+     * priority pool.
+     *
+     * @return the connector, or null if none was available
+     */
+    public Connector tryBorrowObject(Map<String,String> trackingMap) throws Exception {
+        return tryBorrowObject(trackingMap, System.nanoTime());
+    }
+    
+    /**
+     * Borrow a connector only if one is available without waiting, for a request which has been waiting since waitStartNanos
+     *
+     * @return the connector, or null if none was available
+     */
+    public Connector tryBorrowObject(Map<String,String> trackingMap, long waitStartNanos) throws Exception {
+        if (getNumActive() >= getMaxTotal() && getNumIdle() == 0) {
+            return null;
+        }
+        try {
+            Connector o = borrowObject(trackingMap, 0, waitStartNanos);
+            borrowsLent.increment();
+            return o;
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+    
+    private void recordBorrow(long waitNanos) {
+        borrows.increment();
+        // anything over a millisecond had to wait for a connector to be returned or created
+        if (waitNanos > TimeUnit.MILLISECONDS.toNanos(1)) {
+            borrowsWaited.increment();
+            totalWaitNanos.add(waitNanos);
+        }
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+    
     public void returnObject(Connector connector) {
         if (connector != null) {
-            synchronized (connectorToTrackingMapMap) {
-                connectorToTrackingMapMap.remove(connector);
-                Long threadId = Thread.currentThread().getId();
-                log.debug(System.currentTimeMillis() + " thread: " + threadId + " returned connector: " + connector);
-                if (log.isTraceEnabled()) {
-                    log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
-                }
+            connectorToTrackingMapMap.remove(connector);
+            Long threadId = Thread.currentThread().getId();
+            log.debug(System.currentTimeMillis() + " thread: " + threadId + " returned connector: " + connector);
+            if (log.isTraceEnabled()) {
+                log.trace(System.currentTimeMillis() + " " + Arrays.toString(Thread.currentThread().getStackTrace()));
             }
             
             super.returnObject(connector);
@@ -81,27 +156,16 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
     public List<Map<String,String>> getConnectionPoolStats(MutableInt maxTotal, MutableInt numActive, MutableInt maxIdle, MutableInt numIdle,
                     MutableInt numWaiting) {
         
+        // The tracking maps are concurrent, so this is a weakly consistent snapshot which does not block borrowing or returning connectors. A connector
+        // may be counted as active a moment before its tracking map moves from waiting to connected.
         ArrayList<Map<String,String>> t = new ArrayList<>();
-        // no changes to underlying values while collecting metrics
-        synchronized (connectorToTrackingMapMap) {
-            // no changes to underlying values while collecting metrics
-            synchronized (threadToTrackingMapMap) {
-                // synchronize this last to prevent race condition for this lock underlying super type
-                synchronized (this) {
-                    if (!threadToTrackingMapMap.isEmpty()) {
-                        t.addAll(Collections.unmodifiableCollection(threadToTrackingMapMap.values()));
-                    }
-                    if (!connectorToTrackingMapMap.isEmpty()) {
-                        t.addAll(Collections.unmodifiableCollection(connectorToTrackingMapMap.values()));
-                    }
-                    maxTotal.setValue(getMaxTotal());
-                    numActive.setValue(getNumActive());
-                    maxIdle.setValue(getMaxIdle());
-                    numIdle.setValue(getNumIdle());
-                    numWaiting.setValue(getNumWaiters());
-                }
-            }
-        }
+        t.addAll(threadToTrackingMapMap.values());
+        t.addAll(connectorToTrackingMapMap.values());
+        maxTotal.setValue(getMaxTotal());
+        numActive.setValue(getNumActive());
+        maxIdle.setValue(getMaxIdle());
+        numIdle.setValue(getNumIdle());
+        numWaiting.setValue(getNumWaiters());
         return Collections.unmodifiableList(t);
     }
     
@@ -114,6 +178,32 @@ public class AccumuloConnectionPool extends GenericObjectPool<Connector> {
         return connectorToTrackingMapMap.size();
     }
     
+    public long getBorrowCount() {
+        return borrows.sum();
+    }
+    
+    /**
+     * @return the number of borrows which had to wait for a connector
+     */
+    public long getBorrowWaitedCount() {
+        return borrowsWaited.sum();
+    }
+    
+    /**
+     * @return the number of connectors lent to requests from lower priority pools
+     */
+    public long getBorrowLentCount() {
+        return borrowsLent.sum();
+    }
+    
+    public long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.sum());
+    }
+    
+    public long getMaxWaitMillisObserved() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+    }
+    
     public AccumuloConnectionPoolFactory getFactory() {
         return factory;
     }
@@ -20,6 +20,10 @@ public class ConnectionPoolsConfiguration {
     @ConfigProperty(name = "dw.connectionPool.pools", defaultValue = "WAREHOUSE,METRICS")
     private List<String> poolNames;
     
+    @Inject
+    @ConfigProperty(name = "dw.connectionPool.agingThresholdMillis", defaultValue = "1000")
+    private long agingThresholdMillis = 1000L;
+    
     private Map<String,ConnectionPoolConfiguration> pools = new HashMap<>();
     
     @PostConstruct
@@ -33,6 +37,14 @@ public class ConnectionPoolsConfiguration {
         return defaultPool;
     }
     
+    /**
+     * @return how long a LOW or NORMAL priority request waits for its own pool before it may also take an idle connection from a higher priority pool, or 0
+     *         to disable aging
+     */
+    public long getAgingThresholdMillis() {
+        return agingThresholdMillis;
+    }
+    
     public Map<String,ConnectionPoolConfiguration> getPools() {
         return Collections.unmodifiableMap(pools);
     }
@@ -0,0 +1,103 @@
+package datawave.webservice.common.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import datawave.webservice.common.connection.AccumuloConnectionFactory;
+import org.apache.accumulo.core.client.BatchWriter;
+import org.apache.accumulo.core.client.BatchWriterConfig;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.accumulo.core.client.Scanner;
+import org.apache.accumulo.core.client.security.tokens.PasswordToken;
+import org.apache.accumulo.core.data.Mutation;
+import org.apache.accumulo.core.data.Value;
+import org.apache.accumulo.core.security.Authorizations;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BaseTableCacheTest {
+    
+    private static final String TABLE = "cacheTest";
+    
+    private Connector source;
+    private InMemoryInstance cacheInstance;
+    private BaseTableCache cache;
+    
+    @Before
+    public void setup() throws Exception {
+        source = new InMemoryInstance("source").getConnector("root", new PasswordToken(new byte[0]));
+        source.securityOperations().changeUserAuthorizations("root", new Authorizations("A"));
+        source.tableOperations().create(TABLE);
+        
+        AccumuloConnectionFactory connectionFactory = EasyMock.createMock(AccumuloConnectionFactory.class);
+        EasyMock.expect(connectionFactory.getTrackingMap(EasyMock.anyObject())).andReturn(Collections.emptyMap()).anyTimes();
+        EasyMock.expect(connectionFactory.getConnection(EasyMock.anyString(), EasyMock.anyObject(), EasyMock.anyObject())).andReturn(source).anyTimes();
+        connectionFactory.returnConnection(source);
+        EasyMock.expectLastCall().anyTimes();
+        EasyMock.replay(connectionFactory);
+        
+        cacheInstance = new InMemoryInstance("cache");
+        cache = new BaseTableCache();
+        cache.setTableName(TABLE);
+        cache.setConnectionPoolName("WAREHOUSE");
+        cache.setAuths("A");
+        cache.setConnectionFactory(connectionFactory);
+        cache.setInstance(cacheInstance);
+    }
+    
+    private void write(String row, String value, long timestamp) throws Exception {
+        BatchWriter writer = source.createBatchWriter(TABLE, new BatchWriterConfig());
+        Mutation m = new Mutation(row);
+        m.put("cf", "cq", timestamp, new Value(value.getBytes()));
+        writer.addMutation(m);
+        writer.close();
+    }
+    
+    private Map<String,String> getCached() throws Exception {
+        Map<String,String> cached = new TreeMap<>();
+        Scanner scanner = cacheInstance.getConnector(AccumuloTableCache.MOCK_USERNAME, AccumuloTableCache.MOCK_PASSWORD).createScanner(TABLE,
+                        new Authorizations("A"));
+        scanner.forEach(e -> cached.put(e.getKey().getRow().toString(), e.getValue().toString()));
+        return cached;
+    }
+    
+    private void delete(String row) throws Exception {
+        BatchWriter writer = source.createBatchWriter(TABLE, new BatchWriterConfig());
+        Mutation m = new Mutation(row);
+        m.putDelete("cf", "cq");
+        writer.addMutation(m);
+        writer.close();
+    }
+    
+    @Test
+    public void testReload() throws Exception {
+        write("r1", "v1", 1000);
+        write("r2", "v2", 1000);
+        
+        assertTrue(cache.call());
+        assertEquals(2, cache.getLastReloadEntries());
+        assertTrue(cache.getLastReloadBytes() > 0);
+        assertEquals(2, getCached().size());
+        
+        // every reload replaces the cached copy with the whole table, whatever the timestamps of the changes
+        write("r2", "v2-updated", 2000);
+        write("r3", "v3", 10);
+        delete("r1");
+        assertTrue(cache.call());
+        assertEquals(2, cache.getLastReloadEntries());
+        
+        Map<String,String> cached = getCached();
+        assertEquals(2, cached.size());
+        assertEquals("v2-updated", cached.get("r2"));
+        assertEquals("v3", cached.get("r3"));
+        assertFalse(cacheInstance.getConnector(AccumuloTableCache.MOCK_USERNAME, AccumuloTableCache.MOCK_PASSWORD).tableOperations()
+                        .exists(TABLE + "Temp"));
+    }
+}
@@ -0,0 +1,116 @@
+package datawave.webservice.common.connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import datawave.accumulo.inmemory.InMemoryInstance;
+import org.apache.accumulo.core.client.Connector;
+import org.apache.commons.lang.mutable.MutableInt;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AccumuloConnectionPoolTest {
+    
+    private AccumuloConnectionPool pool;
+    
+    @Before
+    public void setup() {
+        pool = new AccumuloConnectionPool(new AccumuloConnectionPoolFactory("root", "", new InMemoryInstance()) {
+            @Override
+            public PooledObject<Connector> makeObject() throws Exception {
+                return new DefaultPooledObject<>(EasyMock.createMock(Connector.class));
+            }
+            
+            @Override
+            public boolean validateObject(PooledObject<Connector> p) {
+                return true;
+            }
+        });
+        pool.setMaxTotal(1);
+    }
+    
+    @Test
+    public void testTryBorrowWhenExhausted() throws Exception {
+        Map<String,String> trackingMap = new HashMap<>();
+        Connector c = pool.tryBorrowObject(trackingMap);
+        assertNotNull(c);
+        assertEquals(1, pool.getBorrowLentCount());
+        assertEquals(AccumuloConnectionFactory.State.CONNECTED.toString(), trackingMap.get("state"));
+        
+        // the only connector is active
+        assertNull(pool.tryBorrowObject(new HashMap<>()));
+        
+        pool.returnObject(c);
+        assertNotNull(pool.tryBorrowObject(new HashMap<>()));
+        assertEquals(2, pool.getBorrowCount());
+    }
+    
+    @Test
+    public void testTimedBorrow() throws Exception {
+        Connector c = pool.borrowObject(new HashMap<>());
+        try {
+            pool.borrowObject(new HashMap<>(), 20);
+            fail("Expected the borrow to time out");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        assertEquals(1, pool.getBorrowCount());
+        assertEquals(1, pool.getNumActiveEntriesBeingTracked());
+        
+        pool.returnObject(c);
+        assertEquals(0, pool.getNumActiveEntriesBeingTracked());
+    }
+    
+    @Test
+    public void testWaitRecordedAcrossRetries() throws Exception {
+        Connector c = pool.borrowObject(new HashMap<>());
+        long start = System.nanoTime();
+        Map<String,String> trackingMap = new HashMap<>();
+        try {
+            pool.borrowObject(trackingMap, 50, start);
+            fail("Expected the borrow to time out");
+        } catch (NoSuchElementException e) {
+            // expected
+        }
+        pool.returnObject(c);
+        
+        // the retry is recorded as a single borrow which waited since the first attempt
+        assertNotNull(pool.borrowObject(trackingMap, 50, start));
+        assertEquals(2, pool.getBorrowCount());
+        assertEquals(1, pool.getBorrowWaitedCount());
+        assertTrue(pool.getMaxWaitMillisObserved() >= 50);
+    }
+    
+    @Test
+    public void testStats() throws Exception {
+        Map<String,String> trackingMap = new HashMap<>();
+        trackingMap.put("query.id", "123");
+        Connector c = pool.borrowObject(trackingMap);
+        
+        MutableInt maxTotal = new MutableInt();
+        MutableInt numActive = new MutableInt();
+        MutableInt maxIdle = new MutableInt();
+        MutableInt numIdle = new MutableInt();
+        MutableInt numWaiting = new MutableInt();
+        List<Map<String,String>> stats = pool.getConnectionPoolStats(maxTotal, numActive, maxIdle, numIdle, numWaiting);
+        
+        assertEquals(1, stats.size());
+        assertEquals("123", stats.get(0).get("query.id"));
+        assertEquals(1, maxTotal.intValue());
+        assertEquals(1, numActive.intValue());
+        assertEquals(0, numWaiting.intValue());
+        
+        pool.returnObject(c);
+    }
+}
@@ -0,0 +1,52 @@
+package datawave.webservice.mr.bulkresults.columnar;
+
+import java.io.IOException;
+
+import datawave.webservice.query.logic.ColumnarRow;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+/**
+ * Writes each task's results to a columnar file, see {@link ColumnarResultsWriter}.
+ */
+public class ColumnarResultsOutputFormat extends FileOutputFormat<NullWritable,ColumnarRow> {
+    
+    /**
+     * Parameter for the number of rows in each row group
+     */
+    public static final String ROWS_PER_GROUP = "bulk.results.columnar.rows.per.group";
+    public static final int DEFAULT_ROWS_PER_GROUP = 10000;
+    
+    /**
+     * Parameter for whether column chunks are deflated
+     */
+    public static final String COMPRESS = "bulk.results.columnar.compress";
+    
+    public static final String EXTENSION = ".dwc";
+    
+    @Override
+    public RecordWriter<NullWritable,ColumnarRow> getRecordWriter(TaskAttemptContext context) throws IOException, InterruptedException {
+        Configuration conf = context.getConfiguration();
+        Path file = getDefaultWorkFile(context, EXTENSION);
+        FSDataOutputStream out = file.getFileSystem(conf).create(file, false);
+        final ColumnarResultsWriter writer = new ColumnarResultsWriter(out, conf.getInt(ROWS_PER_GROUP, DEFAULT_ROWS_PER_GROUP), conf.getBoolean(COMPRESS, true));
+        
+        return new RecordWriter<NullWritable,ColumnarRow>() {
+            @Override
+            public void write(NullWritable key, ColumnarRow row) throws IOException {
+                writer.write(row);
+            }
+            
+            @Override
+            public void close(TaskAttemptContext context) throws IOException {
+                writer.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,190 @@
+package datawave.webservice.mr.bulkresults.columnar;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import datawave.webservice.mr.bulkresults.columnar.ColumnarResultsWriter.ColumnType;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Reads the files written by {@link ColumnarResultsWriter}. Only the chunks of the requested columns are read and decoded, the others are skipped.
+ */
+public class ColumnarResultsReader implements Closeable {
+    
+    private final FSDataInputStream in;
+    private final List<String> columnNames = new ArrayList<>();
+    private final Map<String,ColumnType> columnTypes = new LinkedHashMap<>();
+    private final List<long[]> groups = new ArrayList<>();
+    private final Inflater inflater = new Inflater();
+    
+    public ColumnarResultsReader(FSDataInputStream in, long length) throws IOException {
+        this.in = in;
+        byte[] magic = new byte[ColumnarResultsWriter.MAGIC.length];
+        in.seek(length - magic.length - 4);
+        int footerLength = in.readInt();
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarResultsWriter.MAGIC)) {
+            throw new IOException("Not a columnar results file");
+        }
+        
+        in.seek(length - magic.length - 4 - footerLength);
+        int columns = WritableUtils.readVInt(in);
+        for (int i = 0; i < columns; i++) {
+            String name = Text.readString(in);
+            columnNames.add(name);
+            columnTypes.put(name, ColumnType.values()[in.readByte()]);
+        }
+        int groupCount = WritableUtils.readVInt(in);
+        for (int i = 0; i < groupCount; i++) {
+            groups.add(new long[] {WritableUtils.readVLong(in), WritableUtils.readVInt(in)});
+        }
+    }
+    
+    /**
+     * @return the columns of the file and their types
+     */
+    public Map<String,ColumnType> getColumns() {
+        return Collections.unmodifiableMap(columnTypes);
+    }
+    
+    public int getRowGroupCount() {
+        return groups.size();
+    }
+    
+    public long getRowCount() {
+        long rows = 0;
+        for (long[] group : groups) {
+            rows += group[1];
+        }
+        return rows;
+    }
+    
+    /**
+     * Read some of the columns of a row group
+     * 
+     * @param group
+     *            the index of the row group
+     * @param columns
+     *            the columns to read
+     * @return the values of each requested column, with a list of values per row (empty where a row had no value)
+     */
+    public Map<String,List<List<Object>>> readRowGroup(int group, Collection<String> columns) throws IOException {
+        in.seek(groups.get(group)[0]);
+        int rows = WritableUtils.readVInt(in);
+        int chunks = WritableUtils.readVInt(in);
+        
+        Map<String,List<List<Object>>> result = new LinkedHashMap<>();
+        for (int i = 0; i < chunks; i++) {
+            String column = columnNames.get(WritableUtils.readVInt(in));
+            ColumnType type = ColumnType.values()[in.readByte()];
+            boolean compressed = in.readBoolean();
+            int length = WritableUtils.readVInt(in);
+            int storedLength = WritableUtils.readVInt(in);
+            if (!columns.contains(column)) {
+                in.seek(in.getPos() + storedLength);
+                continue;
+            }
+            
+            byte[] bytes = new byte[storedLength];
+            in.readFully(bytes);
+            if (compressed) {
+                bytes = inflate(bytes, length);
+            }
+            result.put(column, readChunk(new DataInputStream(new ByteArrayInputStream(bytes)), type, rows));
+        }
+        
+        // columns without a chunk in this group had no values
+        for (String column : columns) {
+            if (!result.containsKey(column) && columnTypes.containsKey(column)) {
+                List<List<Object>> empty = new ArrayList<>(rows);
+                for (int i = 0; i < rows; i++) {
+                    empty.add(Collections.emptyList());
+                }
+                result.put(column, empty);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+    
+    private byte[] inflate(byte[] bytes, int length) throws IOException {
+        byte[] inflated = new byte[length];
+        inflater.reset();
+        inflater.setInput(bytes);
+        try {
+            if (inflater.inflate(inflated) != length) {
+                throw new IOException("Truncated chunk");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt chunk", e);
+        }
+        return inflated;
+    }
+    
+    private static List<List<Object>> readChunk(DataInputStream chunk, ColumnType type, int rows) throws IOException {
+        int[] counts = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            counts[i] = WritableUtils.readVInt(chunk);
+        }
+        
+        String[] dictionary = null;
+        if (type == ColumnType.STRING && chunk.readBoolean()) {
+            dictionary = new String[WritableUtils.readVInt(chunk)];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = Text.readString(chunk);
+            }
+        }
+        
+        List<List<Object>> values = new ArrayList<>(rows);
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            if (counts[row] == 0) {
+                values.add(Collections.emptyList());
+                continue;
+            }
+            List<Object> rowValues = new ArrayList<>(counts[row]);
+            for (int i = 0; i < counts[row]; i++) {
+                switch (type) {
+                    case LONG:
+                        previous += WritableUtils.readVLong(chunk);
+                        rowValues.add(previous);
+                        break;
+                    case TIMESTAMP:
+                        previous += WritableUtils.readVLong(chunk);
+                        rowValues.add(new Date(previous));
+                        break;
+                    case DOUBLE:
+                        rowValues.add(chunk.readDouble());
+                        break;
+                    case BOOLEAN:
+                        rowValues.add(chunk.readBoolean());
+                        break;
+                    default:
+                        rowValues.add(dictionary != null ? dictionary[WritableUtils.readVInt(chunk)] : Text.readString(chunk));
+                }
+            }
+            values.add(rowValues);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,433 @@
+package datawave.webservice.mr.bulkresults.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import datawave.data.type.Type;
+import datawave.webservice.query.logic.ColumnarRow;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Writes bulk query results as column chunks. Rows are buffered into row groups, and each row group is written one column at a time, so a reader can pull out
+ * the columns it needs without deserializing whole results. The file is laid out as
+ * 
+ * <pre>
+ * MAGIC
+ * row group*:  vint rows, vint chunks, chunk*
+ * chunk:       vint column, byte type, byte compressed, vint length, vint stored length, bytes
+ * footer:      vint columns, (string name, byte type)*, vint row groups, (vlong offset, vint rows)*
+ * int footer length
+ * MAGIC
+ * </pre>
+ * 
+ * A chunk holds, for each row, the number of values the row has in that column (0 if none) followed by the values. String columns are dictionary encoded
+ * when their values repeat, longs and timestamps are delta encoded, and each chunk is deflated when that makes it smaller. The type of a chunk is derived from
+ * the typed values of the results, falling back to strings when a column mixes types.
+ * <p>
+ * The markings of each row are written as string columns named {@value #MARKING_COLUMN_PREFIX} followed by the marking, such as
+ * {@code MARKING:columnVisibility}, so that every row carries the markings of its result. The fields of each row are written as columns named
+ * {@value #FIELD_COLUMN_PREFIX} followed by the field, such as {@code FIELD:NAME}, so that no field can collide with the row, datatype, uid or marking
+ * columns.
+ */
+public class ColumnarResultsWriter implements Closeable {
+    
+    public static final byte[] MAGIC = {'D', 'W', 'C', '1'};
+    
+    public static final String ROW_COLUMN = "ROW";
+    public static final String DATATYPE_COLUMN = "DATATYPE";
+    public static final String UID_COLUMN = "UID";
+    public static final String MARKING_COLUMN_PREFIX = "MARKING:";
+    public static final String FIELD_COLUMN_PREFIX = "FIELD:";
+    
+    public enum ColumnType {
+        STRING, LONG, DOUBLE, BOOLEAN, TIMESTAMP;
+        
+        /**
+         * @return the narrowest type holding values of this type and another
+         */
+        ColumnType merge(ColumnType other) {
+            if (other == null || other == this) {
+                return this;
+            } else if ((this == LONG && other == DOUBLE) || (this == DOUBLE && other == LONG)) {
+                return DOUBLE;
+            }
+            return STRING;
+        }
+    }
+    
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final int rowsPerGroup;
+    private final boolean compress;
+    
+    // the columns of the file, in the order they were first seen, and their types over every row group
+    private final Map<String,Integer> columnIndexes = new HashMap<>();
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<ColumnType> columnTypes = new ArrayList<>();
+    
+    // the buffered row group, by column and by the marking or field of the column
+    private final Map<String,ColumnBuffer> buffers = new LinkedHashMap<>();
+    private final Map<String,ColumnBuffer> markingBuffers = new HashMap<>();
+    private final Map<String,ColumnBuffer> fieldBuffers = new HashMap<>();
+    private int groupRows = 0;
+    
+    private final List<long[]> groups = new ArrayList<>();
+    private long totalRows = 0;
+    
+    private final ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream(64 * 1024);
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] deflated = new byte[64 * 1024];
+    
+    /**
+     * @param out
+     *            the stream to write to, which is closed with this writer
+     * @param rowsPerGroup
+     *            the number of rows buffered into each row group
+     * @param compress
+     *            whether to deflate chunks
+     */
+    public ColumnarResultsWriter(OutputStream out, int rowsPerGroup, boolean compress) throws IOException {
+        this.counter = new CountingOutputStream(out);
+        this.out = new DataOutputStream(counter);
+        this.rowsPerGroup = Math.max(1, rowsPerGroup);
+        this.compress = compress;
+        this.out.write(MAGIC);
+        addColumn(ROW_COLUMN);
+        addColumn(DATATYPE_COLUMN);
+        addColumn(UID_COLUMN);
+    }
+    
+    public void write(ColumnarRow row) throws IOException {
+        buffers.get(ROW_COLUMN).add(groupRows, row.getRow());
+        buffers.get(DATATYPE_COLUMN).add(groupRows, row.getDataType());
+        buffers.get(UID_COLUMN).add(groupRows, row.getUid());
+        for (Map.Entry<String,String> marking : row.getMarkings().entrySet()) {
+            ColumnBuffer buffer = markingBuffers.get(marking.getKey());
+            if (buffer == null) {
+                buffer = addColumn(MARKING_COLUMN_PREFIX + marking.getKey());
+                markingBuffers.put(marking.getKey(), buffer);
+            }
+            buffer.add(groupRows, marking.getValue());
+        }
+        for (Map.Entry<String,List<Object>> column : row.getColumns().entrySet()) {
+            ColumnBuffer buffer = fieldBuffers.get(column.getKey());
+            if (buffer == null) {
+                buffer = addColumn(FIELD_COLUMN_PREFIX + column.getKey());
+                fieldBuffers.put(column.getKey(), buffer);
+            }
+            buffer.add(groupRows, column.getValue());
+        }
+        groupRows++;
+        if (groupRows >= rowsPerGroup) {
+            flushGroup();
+        }
+    }
+    
+    public long getRowsWritten() {
+        return totalRows + groupRows;
+    }
+    
+    /**
+     * @return the bytes written so far, not counting the buffered row group
+     */
+    public long getBytesWritten() {
+        return counter.count;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flushGroup();
+            long footerStart = counter.count;
+            WritableUtils.writeVInt(out, columnNames.size());
+            for (int i = 0; i < columnNames.size(); i++) {
+                Text.writeString(out, columnNames.get(i));
+                ColumnType type = columnTypes.get(i);
+                out.writeByte((type == null ? ColumnType.STRING : type).ordinal());
+            }
+            WritableUtils.writeVInt(out, groups.size());
+            for (long[] group : groups) {
+                WritableUtils.writeVLong(out, group[0]);
+                WritableUtils.writeVInt(out, (int) group[1]);
+            }
+            out.writeInt((int) (counter.count - footerStart));
+            out.write(MAGIC);
+            out.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+    
+    private ColumnBuffer addColumn(String name) {
+        columnIndexes.put(name, columnNames.size());
+        columnNames.add(name);
+        columnTypes.add(null);
+        ColumnBuffer buffer = new ColumnBuffer(name);
+        buffers.put(name, buffer);
+        return buffer;
+    }
+    
+    private void flushGroup() throws IOException {
+        if (groupRows == 0) {
+            return;
+        }
+        groups.add(new long[] {counter.count, groupRows});
+        
+        int chunks = 0;
+        for (ColumnBuffer buffer : buffers.values()) {
+            if (buffer.values.size() > 0) {
+                chunks++;
+            }
+        }
+        WritableUtils.writeVInt(out, groupRows);
+        WritableUtils.writeVInt(out, chunks);
+        for (ColumnBuffer buffer : buffers.values()) {
+            if (buffer.values.size() > 0) {
+                buffer.pad(groupRows);
+                writeChunk(buffer);
+            }
+            buffer.clear();
+        }
+        totalRows += groupRows;
+        groupRows = 0;
+    }
+    
+    private void writeChunk(ColumnBuffer buffer) throws IOException {
+        int column = columnIndexes.get(buffer.name);
+        ColumnType type = buffer.type;
+        columnTypes.set(column, type.merge(columnTypes.get(column)));
+        
+        chunkBytes.reset();
+        DataOutputStream chunk = new DataOutputStream(chunkBytes);
+        for (int i = 0; i < buffer.rows; i++) {
+            WritableUtils.writeVInt(chunk, buffer.counts[i]);
+        }
+        switch (type) {
+            case LONG:
+            case TIMESTAMP:
+                long previous = 0;
+                for (Object value : buffer.values) {
+                    long l = toLong(value);
+                    WritableUtils.writeVLong(chunk, l - previous);
+                    previous = l;
+                }
+                break;
+            case DOUBLE:
+                for (Object value : buffer.values) {
+                    chunk.writeDouble(((Number) value).doubleValue());
+                }
+                break;
+            case BOOLEAN:
+                for (Object value : buffer.values) {
+                    chunk.writeBoolean((Boolean) value);
+                }
+                break;
+            default:
+                writeStrings(chunk, buffer.values);
+        }
+        chunk.flush();
+        
+        byte[] bytes = chunkBytes.toByteArray();
+        int length = bytes.length;
+        boolean compressed = false;
+        if (compress && length > 64) {
+            deflater.reset();
+            deflater.setInput(bytes);
+            deflater.finish();
+            if (deflated.length < length) {
+                deflated = new byte[length];
+            }
+            int deflatedLength = deflater.deflate(deflated);
+            // only keep the deflated chunk if it fit in the buffer and is smaller
+            if (deflater.finished() && deflatedLength < length) {
+                bytes = deflated;
+                length = deflatedLength;
+                compressed = true;
+            }
+        }
+        
+        WritableUtils.writeVInt(out, column);
+        out.writeByte(type.ordinal());
+        out.writeBoolean(compressed);
+        WritableUtils.writeVInt(out, chunkBytes.size());
+        WritableUtils.writeVInt(out, length);
+        out.write(bytes, 0, length);
+    }
+    
+    /**
+     * Strings are written with a dictionary when less than half of them are distinct
+     */
+    private static void writeStrings(DataOutputStream chunk, List<Object> values) throws IOException {
+        Map<String,Integer> dictionary = new LinkedHashMap<>();
+        for (Object value : values) {
+            if (dictionary.size() * 2 > values.size()) {
+                break;
+            }
+            dictionary.putIfAbsent(toString(value), dictionary.size());
+        }
+        if (dictionary.size() * 2 <= values.size()) {
+            chunk.writeBoolean(true);
+            WritableUtils.writeVInt(chunk, dictionary.size());
+            for (String s : dictionary.keySet()) {
+                Text.writeString(chunk, s);
+            }
+            for (Object value : values) {
+                WritableUtils.writeVInt(chunk, dictionary.get(toString(value)));
+            }
+        } else {
+            chunk.writeBoolean(false);
+            for (Object value : values) {
+                Text.writeString(chunk, toString(value));
+            }
+        }
+    }
+    
+    /**
+     * Unwraps the normalized types and calendars that results hold
+     */
+    static Object normalize(Object value) {
+        if (value instanceof Type) {
+            value = ((Type<?>) value).getDelegate();
+        }
+        if (value instanceof Calendar) {
+            value = ((Calendar) value).getTime();
+        }
+        return value;
+    }
+    
+    static ColumnType typeOf(Object value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ColumnType.LONG;
+        } else if (value instanceof BigInteger) {
+            return ((BigInteger) value).bitLength() < 64 ? ColumnType.LONG : ColumnType.STRING;
+        } else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            if (decimal.signum() == 0 || decimal.stripTrailingZeros().scale() <= 0) {
+                return decimal.toBigInteger().bitLength() < 64 ? ColumnType.LONG : ColumnType.STRING;
+            }
+            return ColumnType.DOUBLE;
+        } else if (value instanceof Number) {
+            return ColumnType.DOUBLE;
+        } else if (value instanceof Boolean) {
+            return ColumnType.BOOLEAN;
+        } else if (value instanceof Date) {
+            return ColumnType.TIMESTAMP;
+        }
+        return ColumnType.STRING;
+    }
+    
+    private static long toLong(Object value) {
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).longValueExact();
+        }
+        return ((Number) value).longValue();
+    }
+    
+    private static String toString(Object value) {
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return String.valueOf(value);
+    }
+    
+    /**
+     * The values of one column in the buffered row group
+     */
+    private static class ColumnBuffer {
+        private final String name;
+        private int[] counts = new int[1024];
+        private int rows = 0;
+        private final List<Object> values = new ArrayList<>();
+        private ColumnType type = null;
+        
+        ColumnBuffer(String name) {
+            this.name = name;
+        }
+        
+        void add(int row, Object value) {
+            if (value != null) {
+                pad(row);
+                addValue(value);
+                counts[rows++] = 1;
+            }
+        }
+        
+        void add(int row, List<Object> rowValues) {
+            pad(row);
+            int count = 0;
+            for (Object value : rowValues) {
+                if (value != null) {
+                    addValue(value);
+                    count++;
+                }
+            }
+            counts[rows++] = count;
+        }
+        
+        private void addValue(Object value) {
+            value = normalize(value);
+            ColumnType valueType = typeOf(value);
+            type = (type == null) ? valueType : type.merge(valueType);
+            values.add(value);
+        }
+        
+        /**
+         * Record that the rows up to the given row had no values in this column
+         */
+        void pad(int row) {
+            if (counts.length < row + 1) {
+                int[] grown = new int[Math.max(counts.length * 2, row + 1)];
+                System.arraycopy(counts, 0, grown, 0, rows);
+                counts = grown;
+            }
+            while (rows < row) {
+                counts[rows++] = 0;
+            }
+        }
+        
+        void clear() {
+            rows = 0;
+            values.clear();
+            type = null;
+        }
+    }
+    
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
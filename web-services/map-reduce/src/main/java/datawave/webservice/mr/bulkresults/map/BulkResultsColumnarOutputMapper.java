@@ -0,0 +1,126 @@
+package datawave.webservice.mr.bulkresults.map;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.xml.bind.JAXBException;
+
+import datawave.webservice.query.Query;
+import datawave.webservice.query.exception.EmptyObjectException;
+import datawave.webservice.query.logic.ColumnarRow;
+import datawave.webservice.query.logic.ColumnarTransformer;
+import datawave.webservice.query.logic.QueryLogic;
+import datawave.webservice.query.logic.QueryLogicTransformer;
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.FieldBase;
+import datawave.webservice.query.result.event.Metadata;
+
+import org.apache.accumulo.core.data.Key;
+import org.apache.accumulo.core.data.Value;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.log4j.Logger;
+import org.jboss.weld.environment.se.Weld;
+
+/**
+ * Writes query results as {@link ColumnarRow}s for the {@link datawave.webservice.mr.bulkresults.columnar.ColumnarResultsOutputFormat}. The rows are either
+ * taken from the events the query logic's transformer creates, or, when {@link #COLUMNAR_FROM_DOCUMENTS} is set and the transformer supports it, written
+ * straight from the results without creating events.
+ */
+public class BulkResultsColumnarOutputMapper extends ApplicationContextAwareMapper<Key,Value,NullWritable,ColumnarRow> {
+    
+    private static Logger log = Logger.getLogger(BulkResultsColumnarOutputMapper.class);
+    
+    /**
+     * Parameter to write rows directly from the query results
+     */
+    public static final String COLUMNAR_FROM_DOCUMENTS = "bulk.results.columnar.from.documents";
+    
+    private QueryLogicTransformer t = null;
+    private ColumnarTransformer columnarTransformer = null;
+    private ColumnarRow row = new ColumnarRow();
+    private Weld weld;
+    
+    @Override
+    protected void setup(Context context) throws IOException, InterruptedException {
+        if (System.getProperty("ignore.weld.startMain") == null) {
+            System.setProperty("com.sun.jersey.server.impl.cdi.lookupExtensionInBeanManager", "true"); // Disable CDI extensions in Jersey libs
+            
+            weld = new Weld("STATIC_INSTANCE");
+            weld.initialize();
+        }
+        
+        super.setup(context);
+        Query query;
+        try {
+            Class<? extends Query> queryImplClass = Class.forName(context.getConfiguration().get(BulkResultsFileOutputMapper.QUERY_IMPL_CLASS)).asSubclass(
+                            Query.class);
+            query = BulkResultsFileOutputMapper.deserializeQuery(context.getConfiguration().get(BulkResultsFileOutputMapper.QUERY_LOGIC_SETTINGS), queryImplClass);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Error deserializing Query", e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Error instantiating query impl class " + context.getConfiguration().get(BulkResultsFileOutputMapper.QUERY_IMPL_CLASS),
+                            e);
+        }
+        
+        this.setApplicationContext(context.getConfiguration().get(SPRING_CONFIG_LOCATIONS));
+        
+        String logicName = context.getConfiguration().get(BulkResultsFileOutputMapper.QUERY_LOGIC_NAME);
+        QueryLogic<?> logic = (QueryLogic<?>) super.applicationContext.getBean(logicName);
+        t = logic.getTransformer(query);
+        
+        if (context.getConfiguration().getBoolean(COLUMNAR_FROM_DOCUMENTS, false)) {
+            if (t instanceof ColumnarTransformer) {
+                columnarTransformer = (ColumnarTransformer) t;
+            } else {
+                log.warn("Transformer " + t.getClass().getName() + " can not write columns directly, the rows will be taken from its events");
+            }
+        }
+    }
+    
+    @Override
+    protected void cleanup(Context context) throws IOException, InterruptedException {
+        super.cleanup(context);
+        
+        if (weld != null) {
+            weld.shutdown();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    protected void map(Key key, Value value, Context context) throws IOException, InterruptedException {
+        Entry<Key,Value> entry = new AbstractMap.SimpleImmutableEntry<>(key, value);
+        try {
+            if (columnarTransformer != null) {
+                columnarTransformer.transformColumns(entry, row);
+            } else {
+                Object o = t.transform(entry);
+                if (!(o instanceof EventBase)) {
+                    throw new IllegalStateException("Columnar output requires event results, not " + o.getClass().getName());
+                }
+                toRow((EventBase<?,?>) o, row);
+            }
+            context.write(NullWritable.get(), row);
+            context.progress();
+        } catch (EmptyObjectException e) {
+            // not yet done, so continue fetching next
+        }
+    }
+    
+    /**
+     * Fill a row from the typed values and the markings of an event
+     */
+    static void toRow(EventBase<?,?> event, ColumnarRow row) {
+        Metadata metadata = event.getMetadata();
+        row.reset(metadata.getRow(), metadata.getDataType(), metadata.getInternalId());
+        row.setMarkings(event.getMarkings());
+        List<? extends FieldBase<?>> fields = event.getFields();
+        if (fields != null) {
+            for (FieldBase<?> field : fields) {
+                row.add(field.getName(), field.getValueOfTypedValue());
+            }
+        }
+    }
+}
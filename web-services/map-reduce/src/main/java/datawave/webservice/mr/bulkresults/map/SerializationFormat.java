@@ -1,5 +1,7 @@
 package datawave.webservice.mr.bulkresults.map;
 
 public enum SerializationFormat {
-    JSON, PROTOBUF, XML, YAML
+    JSON, PROTOBUF, XML, YAML,
+    /** Typed column chunks written by the {@link datawave.webservice.mr.bulkresults.columnar.ColumnarResultsOutputFormat} rather than serialized responses */
+    COLUMNAR
 }
@@ -1,11 +1,14 @@
 package datawave.webservice.mr.configuration;
 
 import datawave.mr.bulk.BulkInputFormat;
+import datawave.mr.bulk.OfflineQueryInputFormat;
 import datawave.security.authorization.DatawavePrincipal;
 import datawave.security.iterator.ConfigurableVisibilityFilter;
 import datawave.security.util.AuthorizationsUtil;
 import datawave.webservice.common.connection.AccumuloConnectionFactory;
 import datawave.webservice.common.exception.NoResultsException;
+import datawave.webservice.mr.bulkresults.columnar.ColumnarResultsOutputFormat;
+import datawave.webservice.mr.bulkresults.map.BulkResultsColumnarOutputMapper;
 import datawave.webservice.mr.bulkresults.map.BulkResultsFileOutputMapper;
 import datawave.webservice.mr.bulkresults.map.BulkResultsTableOutputMapper;
 import datawave.webservice.mr.bulkresults.map.SerializationFormat;
@@ -16,6 +19,7 @@ import datawave.webservice.query.configuration.QueryData;
 import datawave.webservice.query.exception.DatawaveErrorCode;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.factory.Persister;
+import datawave.webservice.query.logic.ColumnarRow;
 import datawave.webservice.query.logic.QueryLogic;
 import datawave.webservice.query.logic.QueryLogicFactory;
 import datawave.webservice.query.runner.RunningQuery;
@@ -134,6 +138,11 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
         }
         if (runtimeParameters.containsKey("outputTableName"))
             this.tableName = runtimeParameters.get("outputTableName");
+        if (format == SerializationFormat.COLUMNAR && this.tableName != null) {
+            throw new QueryException("Columnar results can only be written to files", Response.Status.BAD_REQUEST.getStatusCode());
+        }
+        boolean columnarFromDocuments = Boolean.parseBoolean(runtimeParameters.get("columnarFromDocuments"));
+        boolean offlineQuery = Boolean.parseBoolean(runtimeParameters.get("offlineQuery"));
         
         // Initialize the Query
         QueryLogic<?> logic;
@@ -160,9 +169,21 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
         // Setup and run the MapReduce job
         try {
             
-            setupJob(job, jobDir, queryConfig, logic, base64EncodedQuery, queryImplClass, runtimeQueryAuthorizations, serverPrincipal);
+            setupJob(job, jobDir, queryConfig, logic, base64EncodedQuery, queryImplClass, runtimeQueryAuthorizations, serverPrincipal, offlineQuery);
             
-            if (null == this.tableName) {
+            if (format == SerializationFormat.COLUMNAR) {
+                // Setup job for columnar output to HDFS
+                job.setMapperClass(BulkResultsColumnarOutputMapper.class);
+                job.getConfiguration().set(BulkResultsFileOutputMapper.RESULT_SERIALIZATION_FORMAT, format.name());
+                job.getConfiguration().setBoolean(BulkResultsColumnarOutputMapper.COLUMNAR_FROM_DOCUMENTS, columnarFromDocuments);
+                job.setOutputFormatClass(ColumnarResultsOutputFormat.class);
+                job.setMapOutputKeyClass(NullWritable.class);
+                job.setMapOutputValueClass(ColumnarRow.class);
+                job.setOutputKeyClass(NullWritable.class);
+                job.setOutputValueClass(ColumnarRow.class);
+                job.setNumReduceTasks(0);
+                ColumnarResultsOutputFormat.setOutputPath(job, new Path(this.getResultsDir()));
+            } else if (null == this.tableName) {
                 // Setup job for output to HDFS
                 // set the mapper
                 job.setMapperClass(BulkResultsFileOutputMapper.class);
@@ -231,17 +252,20 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
      *            the authorizations to use for input format query scanners
      * @param serverPrincipal
      *            the {@link Principal} of the server running DATAWAVE
+     * @param offlineQuery
+     *            whether to run the query plan over the rfiles of the table rather than through the tablet servers
      * @throws IOException
      * @throws AccumuloSecurityException
      */
     private void setupJob(Job job, Path jobDir, GenericQueryConfiguration queryConfig, QueryLogic<?> logic, String base64EncodedQuery,
-                    Class<? extends Query> queryImplClass, Set<Authorizations> runtimeQueryAuthorizations, DatawavePrincipal serverPrincipal)
-                    throws IOException, AccumuloSecurityException {
+                    Class<? extends Query> queryImplClass, Set<Authorizations> runtimeQueryAuthorizations, DatawavePrincipal serverPrincipal,
+                    boolean offlineQuery) throws IOException, AccumuloSecurityException {
         
-        job.setInputFormatClass(BulkInputFormat.class);
+        job.setInputFormatClass(offlineQuery ? OfflineQueryInputFormat.class : BulkInputFormat.class);
         
         QueryData queryData = null;
         Collection<Range> ranges = new ArrayList<>();
+        List<QueryData> plans = new ArrayList<>();
         
         if (!queryConfig.canRunQuery()) {
             throw new UnsupportedOperationException("Unable to run query");
@@ -251,6 +275,7 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
         while (iter.hasNext()) {
             queryData = iter.next();
             ranges.addAll(queryData.getRanges());
+            plans.add(queryData);
         }
         
         if (ranges.isEmpty()) {
@@ -260,10 +285,15 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
         BulkInputFormat.setWorkingDirectory(job.getConfiguration(), jobDir.toString());
         
         // Copy the information from the GenericQueryConfiguration to the job.
-        BulkInputFormat.setRanges(job, ranges);
-        
-        for (IteratorSetting cfg : queryData.getSettings()) {
-            BulkInputFormat.addIterator(job.getConfiguration(), cfg);
+        if (offlineQuery) {
+            // each plan keeps its own iterator settings, which are applied per shard when reading the rfiles
+            OfflineQueryInputFormat.setQueryPlans(job, plans);
+        } else {
+            BulkInputFormat.setRanges(job, ranges);
+            
+            for (IteratorSetting cfg : queryData.getSettings()) {
+                BulkInputFormat.addIterator(job.getConfiguration(), cfg);
+            }
         }
         
         BulkInputFormat.setZooKeeperInstance(job.getConfiguration(), this.instanceName, this.zookeepers);
@@ -271,6 +301,13 @@ public class BulkResultsJobConfiguration extends MapReduceJobConfiguration imple
                         .iterator();
         Authorizations auths = (authsIter == null) ? null : authsIter.next();
         BulkInputFormat.setInputInfo(job, this.user, this.password.getBytes(), logic.getTableName(), auths);
+        if (offlineQuery && auths != null) {
+            // there is no tablet server to apply the scan authorizations when reading rfiles directly
+            IteratorSetting cfg = new IteratorSetting(9, ConfigurableVisibilityFilter.class);
+            cfg.setName("visibilityFilter9");
+            cfg.addOption(ConfigurableVisibilityFilter.AUTHORIZATIONS_OPT, auths.toString());
+            BulkInputFormat.addIterator(job.getConfiguration(), cfg);
+        }
         for (int priority = 10; authsIter != null && authsIter.hasNext(); ++priority) {
             IteratorSetting cfg = new IteratorSetting(priority, ConfigurableVisibilityFilter.class);
             cfg.setName("visibilityFilter" + priority);
@@ -0,0 +1,279 @@
+package datawave.webservice.mr.bulkresults.columnar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import datawave.webservice.mr.bulkresults.columnar.ColumnarResultsWriter.ColumnType;
+import datawave.webservice.mr.bulkresults.map.BulkResultsColumnarOutputMapper;
+import datawave.webservice.mr.bulkresults.map.BulkResultsFileOutputMapper;
+import datawave.webservice.mr.bulkresults.map.SerializationFormat;
+import datawave.webservice.query.logic.ColumnarRow;
+import datawave.webservice.query.result.event.DefaultEvent;
+import datawave.webservice.query.result.event.DefaultField;
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.Metadata;
+import datawave.webservice.result.DefaultEventQueryResponse;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColumnarResultsWriterTest {
+    
+    private static final Logger log = Logger.getLogger(ColumnarResultsWriterTest.class);
+    
+    private FileSystem fs;
+    private Path file;
+    
+    @Before
+    public void setup() throws Exception {
+        fs = FileSystem.getLocal(new Configuration()).getRaw();
+        File tmp = File.createTempFile("columnar", ColumnarResultsOutputFormat.EXTENSION);
+        tmp.deleteOnExit();
+        file = new Path(tmp.toURI());
+    }
+    
+    @After
+    public void cleanup() throws Exception {
+        fs.delete(file, false);
+    }
+    
+    private static ColumnarRow row(int i) {
+        ColumnarRow row = new ColumnarRow();
+        row.reset("20180101_" + (i % 10), i % 2 == 0 ? "csv" : "json", "-abc.def." + i);
+        row.setMarkings(Collections.singletonMap("columnVisibility", i % 5 == 0 ? "PRIVATE" : "PUBLIC"));
+        row.add("NAME", "name " + i);
+        row.add("CITY", i % 3 == 0 ? "Baltimore" : "Columbia");
+        row.add("AGE", 20L + i % 50);
+        row.add("SCORE", new BigDecimal(i + ".5"));
+        row.add("ACTIVE", i % 2 == 0);
+        row.add("LOAD_DATE", new Date(1514764800000L + i * 1000L));
+        if (i % 4 == 0) {
+            // a multi-valued field that most rows don't have
+            row.add("ALIAS", "alias " + i);
+            row.add("ALIAS", "other " + i);
+        }
+        return row;
+    }
+    
+    private long write(int rows, int rowsPerGroup, boolean compress) throws Exception {
+        try (FSDataOutputStream out = fs.create(file, true); ColumnarResultsWriter writer = new ColumnarResultsWriter(out, rowsPerGroup, compress)) {
+            for (int i = 0; i < rows; i++) {
+                writer.write(row(i));
+            }
+            assertEquals(rows, writer.getRowsWritten());
+        }
+        return fs.getFileStatus(file).getLen();
+    }
+    
+    private ColumnarResultsReader open() throws Exception {
+        return new ColumnarResultsReader(fs.open(file), fs.getFileStatus(file).getLen());
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception {
+        write(250, 100, true);
+        
+        try (ColumnarResultsReader reader = open()) {
+            assertEquals(250, reader.getRowCount());
+            assertEquals(3, reader.getRowGroupCount());
+            
+            Map<String,ColumnType> columns = reader.getColumns();
+            assertEquals(Arrays.asList("ROW", "DATATYPE", "UID", "MARKING:columnVisibility", "FIELD:NAME", "FIELD:CITY", "FIELD:AGE", "FIELD:SCORE",
+                            "FIELD:ACTIVE", "FIELD:LOAD_DATE", "FIELD:ALIAS"), new ArrayList<>(columns.keySet()));
+            assertEquals(ColumnType.STRING, columns.get("FIELD:NAME"));
+            assertEquals(ColumnType.LONG, columns.get("FIELD:AGE"));
+            assertEquals(ColumnType.DOUBLE, columns.get("FIELD:SCORE"));
+            assertEquals(ColumnType.BOOLEAN, columns.get("FIELD:ACTIVE"));
+            assertEquals(ColumnType.TIMESTAMP, columns.get("FIELD:LOAD_DATE"));
+            
+            int i = 0;
+            for (int group = 0; group < reader.getRowGroupCount(); group++) {
+                Map<String,List<List<Object>>> values = reader.readRowGroup(group, columns.keySet());
+                int rows = values.get("ROW").size();
+                for (int r = 0; r < rows; r++, i++) {
+                    ColumnarRow expected = row(i);
+                    assertEquals(expected.getRow(), values.get("ROW").get(r).get(0));
+                    assertEquals(expected.getDataType(), values.get("DATATYPE").get(r).get(0));
+                    assertEquals(expected.getUid(), values.get("UID").get(r).get(0));
+                    assertEquals(expected.getMarkings().get("columnVisibility"), values.get("MARKING:columnVisibility").get(r).get(0));
+                    assertEquals(expected.getColumns().get("NAME"), values.get("FIELD:NAME").get(r));
+                    assertEquals(expected.getColumns().get("CITY"), values.get("FIELD:CITY").get(r));
+                    assertEquals(expected.getColumns().get("AGE"), values.get("FIELD:AGE").get(r));
+                    assertEquals(((BigDecimal) expected.getColumns().get("SCORE").get(0)).doubleValue(), values.get("FIELD:SCORE").get(r).get(0));
+                    assertEquals(expected.getColumns().get("ACTIVE"), values.get("FIELD:ACTIVE").get(r));
+                    assertEquals(expected.getColumns().get("LOAD_DATE"), values.get("FIELD:LOAD_DATE").get(r));
+                    List<Object> alias = expected.getColumns().get("ALIAS");
+                    assertEquals(alias == null ? Collections.emptyList() : alias, values.get("FIELD:ALIAS").get(r));
+                }
+            }
+            assertEquals(250, i);
+        }
+    }
+    
+    @Test
+    public void testProjection() throws Exception {
+        write(100, 100, false);
+        
+        try (ColumnarResultsReader reader = open()) {
+            Map<String,List<List<Object>>> values = reader.readRowGroup(0, Collections.singleton("FIELD:AGE"));
+            assertEquals(Collections.singleton("FIELD:AGE"), values.keySet());
+            assertEquals(100, values.get("FIELD:AGE").size());
+            assertEquals(Collections.singletonList(29L), values.get("FIELD:AGE").get(9));
+        }
+    }
+    
+    @Test
+    public void testMixedTypesFallBackToStrings() throws Exception {
+        try (FSDataOutputStream out = fs.create(file, true); ColumnarResultsWriter writer = new ColumnarResultsWriter(out, 10, true)) {
+            ColumnarRow row = new ColumnarRow();
+            row.reset("row", "csv", "uid1");
+            row.add("VALUE", 1L);
+            writer.write(row);
+            row.reset("row", "csv", "uid2");
+            row.add("VALUE", 2.5d);
+            writer.write(row);
+            row.reset("row", "csv", "uid3");
+            row.add("VALUE", "three");
+            writer.write(row);
+        }
+        
+        try (ColumnarResultsReader reader = open()) {
+            assertEquals(ColumnType.STRING, reader.getColumns().get("FIELD:VALUE"));
+            List<List<Object>> values = reader.readRowGroup(0, Collections.singleton("FIELD:VALUE")).get("FIELD:VALUE");
+            assertEquals(Arrays.asList(Collections.singletonList("1"), Collections.singletonList("2.5"), Collections.singletonList("three")), values);
+        }
+    }
+    
+    @Test
+    public void testFieldsNamedLikeReservedColumns() throws Exception {
+        try (FSDataOutputStream out = fs.create(file, true); ColumnarResultsWriter writer = new ColumnarResultsWriter(out, 10, true)) {
+            ColumnarRow row = new ColumnarRow();
+            for (int i = 0; i < 15; i++) {
+                row.reset("row" + i, "csv", "uid" + i);
+                row.setMarkings(Collections.singletonMap("columnVisibility", "PUBLIC"));
+                row.add("UID", "field uid " + i);
+                row.add("ROW", (long) i);
+                row.add("MARKING:columnVisibility", "field marking " + i);
+                writer.write(row);
+            }
+        }
+        
+        try (ColumnarResultsReader reader = open()) {
+            assertEquals(15, reader.getRowCount());
+            assertEquals(Arrays.asList("ROW", "DATATYPE", "UID", "MARKING:columnVisibility", "FIELD:UID", "FIELD:ROW", "FIELD:MARKING:columnVisibility"),
+                            new ArrayList<>(reader.getColumns().keySet()));
+            assertEquals(ColumnType.STRING, reader.getColumns().get("UID"));
+            assertEquals(ColumnType.LONG, reader.getColumns().get("FIELD:ROW"));
+            
+            int i = 0;
+            for (int group = 0; group < reader.getRowGroupCount(); group++) {
+                Map<String,List<List<Object>>> values = reader.readRowGroup(group, reader.getColumns().keySet());
+                int rows = values.get("UID").size();
+                for (int r = 0; r < rows; r++, i++) {
+                    // the reserved columns and the fields named like them each hold one value per row
+                    assertEquals(Collections.singletonList("row" + i), values.get("ROW").get(r));
+                    assertEquals(Collections.singletonList("uid" + i), values.get("UID").get(r));
+                    assertEquals(Collections.singletonList("PUBLIC"), values.get("MARKING:columnVisibility").get(r));
+                    assertEquals(Collections.singletonList("field uid " + i), values.get("FIELD:UID").get(r));
+                    assertEquals(Collections.singletonList((long) i), values.get("FIELD:ROW").get(r));
+                    assertEquals(Collections.singletonList("field marking " + i), values.get("FIELD:MARKING:columnVisibility").get(r));
+                }
+            }
+            assertEquals(15, i);
+        }
+    }
+    
+    private static EventBase event(int i) {
+        ColumnarRow row = row(i);
+        Metadata metadata = new Metadata();
+        metadata.setRow(row.getRow());
+        metadata.setDataType(row.getDataType());
+        metadata.setInternalId(row.getUid());
+        metadata.setTable("shard");
+        
+        List<DefaultField> fields = new ArrayList<>();
+        for (Map.Entry<String,List<Object>> column : row.getColumns().entrySet()) {
+            for (Object value : column.getValue()) {
+                // events hold dates as their time
+                value = (value instanceof Date) ? ((Date) value).getTime() : value;
+                fields.add(new DefaultField(column.getKey(), row.getMarkings().get("columnVisibility"), 1514764800000L, value));
+            }
+        }
+        DefaultEvent event = new DefaultEvent();
+        event.setMetadata(metadata);
+        event.setMarkings(row.getMarkings());
+        event.setFields(fields);
+        return event;
+    }
+    
+    @Test
+    public void testEventMarkings() throws Exception {
+        try (FSDataOutputStream out = fs.create(file, true); ColumnarResultsWriter writer = new ColumnarResultsWriter(out, 10, true)) {
+            ColumnarRow row = new ColumnarRow();
+            for (int i = 0; i < 10; i++) {
+                BulkResultsColumnarOutputMapper.toRow(event(i), row);
+                writer.write(row);
+            }
+        }
+        
+        try (ColumnarResultsReader reader = open()) {
+            List<List<Object>> markings = reader.readRowGroup(0, Collections.singleton("MARKING:columnVisibility")).get("MARKING:columnVisibility");
+            assertEquals(10, markings.size());
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Collections.singletonList(i % 5 == 0 ? "PRIVATE" : "PUBLIC"), markings.get(i));
+            }
+        }
+    }
+    
+    /**
+     * Compares the size and time of writing events as per-row serialized responses, as the file output mapper does, with writing them as columns
+     */
+    @Test
+    public void testBenchmarkAgainstSerializedResponses() throws Exception {
+        int rows = 20000;
+        List<EventBase> events = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            events.add(event(i));
+        }
+        
+        long start = System.currentTimeMillis();
+        try (FSDataOutputStream out = fs.create(file, true);
+                        ColumnarResultsWriter writer = new ColumnarResultsWriter(out, ColumnarResultsOutputFormat.DEFAULT_ROWS_PER_GROUP, true)) {
+            ColumnarRow row = new ColumnarRow();
+            for (EventBase event : events) {
+                BulkResultsColumnarOutputMapper.toRow(event, row);
+                writer.write(row);
+            }
+        }
+        long columnarBytes = fs.getFileStatus(file).getLen();
+        log.info("COLUMNAR: " + rows + " rows, " + columnarBytes + " bytes in " + (System.currentTimeMillis() - start) + "ms");
+        
+        for (SerializationFormat format : Arrays.asList(SerializationFormat.PROTOBUF, SerializationFormat.JSON)) {
+            start = System.currentTimeMillis();
+            long bytes = 0;
+            for (EventBase event : events) {
+                DefaultEventQueryResponse response = new DefaultEventQueryResponse();
+                response.setEvents(Collections.singletonList(event));
+                bytes += BulkResultsFileOutputMapper.serializeResponse(DefaultEventQueryResponse.class, response, format).getSize();
+            }
+            log.info(format + ": " + rows + " rows, " + bytes + " bytes in " + (System.currentTimeMillis() - start) + "ms");
+            
+            assertTrue(format + " was " + bytes + " bytes, columnar " + columnarBytes, columnarBytes * 2 < bytes);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package datawave.webservice.websocket;
 import static datawave.webservice.metrics.Constants.REQUEST_LOGIN_TIME_HEADER;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.Future;
 
 import javax.inject.Inject;
@@ -16,14 +18,21 @@ import javax.websocket.server.ServerEndpoint;
 
 import datawave.security.websocket.WebsocketSecurityConfigurator;
 import datawave.security.websocket.WebsocketSecurityInterceptor;
+import datawave.webservice.query.QueryParameters;
+import datawave.webservice.query.cache.QueryExpirationConfiguration;
+import datawave.webservice.query.cache.RunningQueryTimingImpl;
 import datawave.webservice.query.exception.QueryException;
 import datawave.webservice.query.runner.AsyncQueryStatusObserver;
 import datawave.webservice.query.runner.QueryExecutorBean;
+import datawave.webservice.query.result.event.EventBase;
 import datawave.webservice.result.BaseQueryResponse;
+import datawave.webservice.result.EventQueryResponseBase;
 import datawave.webservice.result.GenericResponse;
 import datawave.webservice.result.VoidResponse;
+import datawave.webservice.websocket.codec.BinaryQueryResponseEncoder;
 import datawave.webservice.websocket.codec.JsonQueryMessageDecoder;
 import datawave.webservice.websocket.codec.QueryResponseMessageJsonEncoder;
+import datawave.webservice.websocket.messages.AckMessage;
 import datawave.webservice.websocket.messages.CancelMessage;
 import datawave.webservice.websocket.messages.CreateQueryMessage;
 import datawave.webservice.websocket.messages.QueryMessage;
@@ -39,6 +48,13 @@ import org.slf4j.LoggerFactory;
  * {@link CancelMessage} while the query is in progress in order to cancel execution of the query. Note that if there is a problem creating the query, a
  * creation failure message is sent and the websocket is closed.
  * <p>
+ * Clients that negotiate the {@value BinaryQueryResponseEncoder#SUBPROTOCOL} sub-protocol receive binary messages encoded by
+ * {@link BinaryQueryResponseEncoder} instead of JSON, with event results sent a few events at a time rather than a page at a time. Such clients acknowledge the
+ * events they have received with an {@link AckMessage}, and no more than the acknowledgement window of events ({@value #ACK_WINDOW_PARAM} in the create
+ * message, {@value #DEFAULT_BINARY_ACK_WINDOW} by default) are sent ahead of the acknowledgements. A JSON client can ask for the same flow control by setting
+ * {@value #ACK_WINDOW_PARAM}, in which case a page is only sent once the events ahead of the acknowledgements are within the window. A query that waits longer
+ * than its page timeout for acknowledgements fails, so that a client which stops acknowledging does not hold the query open.
+ * <p>
  * Per the JSR-356 specification (section 2.1.1), since we have not configured the endpoint otherwise, there shall be one instance of this class per endpoint,
  * per peer.
  * <p>
@@ -46,6 +62,7 @@ import org.slf4j.LoggerFactory;
  * href="https://java.net/jira/browse/WEBSOCKET_SPEC-238">WEBSOCKET_SPEC-238</a> for more details.
  */
 @ServerEndpoint(value = "/{logic-name}", encoders = {QueryResponseMessageJsonEncoder.class}, decoders = {JsonQueryMessageDecoder.class},
+                subprotocols = {BinaryQueryResponseEncoder.SUBPROTOCOL},
                 configurator = WebsocketSecurityConfigurator.class // required to propagate security along to individual websocket notification calls
 )
 @Interceptors({WebsocketSecurityInterceptor.class})
@@ -54,12 +71,20 @@ public class QueryWebsocket {
     private static final String LOGIC_NAME = "logicName";
     private static final String ACTIVE_QUERY_FUTURE = "activeQueryFuture";
     private static final String ACTIVE_QUERY_ID = "activeQueryId";
+    private static final String ACTIVE_QUERY_OBSERVER = "activeQueryObserver";
+    
+    public static final String ACK_WINDOW_PARAM = "websocket.ack.window";
+    public static final int DEFAULT_BINARY_ACK_WINDOW = 1000;
+    private static final int MAX_EVENTS_PER_FRAME = 250;
     
     private Logger log = LoggerFactory.getLogger(getClass());
     
     @Inject
     private QueryExecutorBean queryExecutorBean;
     
+    @Inject
+    private QueryExpirationConfiguration queryExpirationConf;
+    
     @OnOpen
     public void openConnection(@PathParam("logic-name") String logicName, Session session) throws IOException {
         session.getUserProperties().put(LOGIC_NAME, logicName);
@@ -75,12 +100,36 @@ public class QueryWebsocket {
         switch (message.getType()) {
             case CREATE: {
                 if (session.getUserProperties().get(ACTIVE_QUERY_FUTURE) != null) {
-                    session.getAsyncRemote().sendObject(
-                                    new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Query already active. Only one query per websocket is allowed."));
+                    send(session, new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Query already active. Only one query per websocket is allowed."));
                 } else {
                     CreateQueryMessage cqm = (CreateQueryMessage) message;
                     String logicName = (String) session.getUserProperties().get(LOGIC_NAME);
-                    QueryObserver observer = new QueryObserver(log, session);
+                    boolean binary = BinaryQueryResponseEncoder.SUBPROTOCOL.equals(session.getNegotiatedSubprotocol());
+                    long ackWindow = binary ? DEFAULT_BINARY_ACK_WINDOW : 0;
+                    List<String> window = cqm.getParameters().remove(ACK_WINDOW_PARAM);
+                    if (window != null && !window.isEmpty()) {
+                        try {
+                            ackWindow = Long.parseLong(window.get(0));
+                        } catch (NumberFormatException e) {
+                            send(session, new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Invalid " + ACK_WINDOW_PARAM + ": " + window.get(0)));
+                            break;
+                        }
+                    }
+                    long ackTimeoutMs = 0;
+                    if (ackWindow > 0) {
+                        int pageTimeout = -1;
+                        List<String> timeout = cqm.getParameters().get(QueryParameters.QUERY_PAGETIMEOUT);
+                        if (timeout != null && !timeout.isEmpty()) {
+                            try {
+                                pageTimeout = Integer.parseInt(timeout.get(0));
+                            } catch (NumberFormatException e) {
+                                // the query create will reject it
+                            }
+                        }
+                        ackTimeoutMs = new RunningQueryTimingImpl(queryExpirationConf, pageTimeout).getMaxCallMs();
+                    }
+                    QueryObserver observer = new QueryObserver(log, session, binary ? new BinaryQueryResponseEncoder() : null, ackWindow, ackTimeoutMs);
+                    session.getUserProperties().put(ACTIVE_QUERY_OBSERVER, observer);
                     
                     Long startTime = System.nanoTime();
                     Long loginTime = null;
@@ -99,14 +148,44 @@ public class QueryWebsocket {
                 cancelActiveQuery(session);
             }
                 break;
+            case ACK: {
+                QueryObserver observer = (QueryObserver) session.getUserProperties().get(ACTIVE_QUERY_OBSERVER);
+                if (observer != null) {
+                    observer.acknowledge(((AckMessage) message).getCount());
+                }
+            }
+                break;
+        }
+    }
+    
+    /**
+     * Send a message outside of a query, in the encoding the client negotiated
+     */
+    private void send(Session session, QueryResponseMessage message) {
+        if (BinaryQueryResponseEncoder.SUBPROTOCOL.equals(session.getNegotiatedSubprotocol())) {
+            try {
+                session.getBasicRemote().sendBinary(new BinaryQueryResponseEncoder().encode(message));
+            } catch (IOException e) {
+                log.error("Unable to send " + message.getResponseType() + " message.", e);
+            }
+        } else {
+            session.getAsyncRemote().sendObject(message);
         }
     }
     
     protected void cancelActiveQuery(Session session) {
         Future<?> activeQuery = (Future<?>) session.getUserProperties().get(ACTIVE_QUERY_FUTURE);
-        if (activeQuery != null && !activeQuery.isDone()) {
+        boolean active = activeQuery != null && !activeQuery.isDone();
+        if (active) {
             // Attempt to cancel the async query call. This will cause the async call to return when it is between next calls.
             activeQuery.cancel(true);
+        }
+        QueryObserver observer = (QueryObserver) session.getUserProperties().get(ACTIVE_QUERY_OBSERVER);
+        if (observer != null) {
+            // release a query waiting on acknowledgements, after the cancel above so that the query ends as cancelled rather than failed
+            observer.cancel();
+        }
+        if (active) {
             // Attempt to cancel the actual query. This should cancel an active next call.
             String activeQueryId = (String) session.getUserProperties().get(ACTIVE_QUERY_ID);
             if (activeQueryId != null) {
@@ -122,28 +201,64 @@ public class QueryWebsocket {
     private static class QueryObserver implements AsyncQueryStatusObserver {
         private Logger log;
         private Session session;
+        private BinaryQueryResponseEncoder binaryEncoder;
+        private long ackWindow;
+        private long ackTimeoutMs;
         
-        public QueryObserver(Logger log, Session session) {
+        private final Object sendLock = new Object();
+        
+        // events sent, and acknowledged by the client, guarded by this
+        private long sent = 0;
+        private long acked = 0;
+        private boolean cancelled = false;
+        
+        public QueryObserver(Logger log, Session session, BinaryQueryResponseEncoder binaryEncoder, long ackWindow, long ackTimeoutMs) {
             this.log = log;
             this.session = session;
+            this.binaryEncoder = binaryEncoder;
+            this.ackWindow = ackWindow;
+            this.ackTimeoutMs = ackTimeoutMs;
         }
         
         @Override
         public void queryCreated(GenericResponse<String> createQueryResponse) {
             session.getUserProperties().put(ACTIVE_QUERY_ID, createQueryResponse.getResult());
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.CREATED, createQueryResponse.getResult()));
+            send(new QueryResponseMessage(ResponseType.CREATED, createQueryResponse.getResult()));
         }
         
         @Override
         public void queryResultsAvailable(BaseQueryResponse results) {
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.RESULTS, results));
+            List<EventBase> events = (results instanceof EventQueryResponseBase) ? ((EventQueryResponseBase) results).getEvents() : null;
+            if (events == null || events.isEmpty()) {
+                send(new QueryResponseMessage(ResponseType.RESULTS, results));
+            } else if (binaryEncoder == null) {
+                awaitCredit(events.size());
+                send(new QueryResponseMessage(ResponseType.RESULTS, results));
+                sent(events.size());
+            } else {
+                // events are streamed a frame at a time, as the client acknowledges them, rather than a page at a time
+                int offset = 0;
+                while (offset < events.size()) {
+                    int count = (int) Math.min(Math.min(events.size() - offset, MAX_EVENTS_PER_FRAME), awaitCredit(1));
+                    List<EventBase> frame = events.subList(offset, offset + count);
+                    synchronized (sendLock) {
+                        try {
+                            session.getBasicRemote().sendBinary(binaryEncoder.encodeEvents(frame));
+                        } catch (IOException e) {
+                            throw new RuntimeException("Unable to send results", e);
+                        }
+                    }
+                    sent(count);
+                    offset += count;
+                }
+            }
         }
         
         @Override
         public void queryCreateException(QueryException ex) {
             VoidResponse response = new VoidResponse();
             response.addException(ex);
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Query creation failed", response));
+            send(new QueryResponseMessage(ResponseType.CREATION_FAILURE, "Query creation failed", response));
             try {
                 session.close();
             } catch (IOException e) {
@@ -156,18 +271,20 @@ public class QueryWebsocket {
         public void queryException(QueryException ex) {
             session.getUserProperties().remove(ACTIVE_QUERY_ID);
             session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            session.getUserProperties().remove(ACTIVE_QUERY_OBSERVER);
             
             VoidResponse response = new VoidResponse();
             response.addException(ex);
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.ERROR, response));
+            send(new QueryResponseMessage(ResponseType.ERROR, response));
         }
         
         @Override
         public void queryFinished(String queryId) {
             session.getUserProperties().remove(ACTIVE_QUERY_ID);
             session.getUserProperties().remove(ACTIVE_QUERY_FUTURE);
+            session.getUserProperties().remove(ACTIVE_QUERY_OBSERVER);
             
-            session.getAsyncRemote().sendObject(new QueryResponseMessage(ResponseType.COMPLETED));
+            send(new QueryResponseMessage(ResponseType.COMPLETED));
             try {
                 session.close();
             } catch (IOException e) {
@@ -175,5 +292,70 @@ public class QueryWebsocket {
                 throw new RuntimeException(e);
             }
         }
+        
+        /**
+         * Record the total number of events the client has received, releasing a query waiting to send more
+         */
+        public synchronized void acknowledge(long count) {
+            if (count > acked) {
+                acked = count;
+                notifyAll();
+            }
+        }
+        
+        public synchronized void cancel() {
+            cancelled = true;
+            notifyAll();
+        }
+        
+        private synchronized void sent(int count) {
+            sent += count;
+        }
+        
+        /**
+         * Wait until the client has acknowledged enough events for {@code needed} more to be sent, or for any events to be sent if the window is smaller than
+         * {@code needed}.
+         * 
+         * @return the number of events that may be sent
+         * @throws IllegalStateException
+         *             if the client did not acknowledge enough events within the page timeout
+         */
+        private synchronized long awaitCredit(int needed) {
+            if (ackWindow <= 0) {
+                return Long.MAX_VALUE;
+            }
+            long required = Math.min(needed, ackWindow);
+            long deadline = System.currentTimeMillis() + ackTimeoutMs;
+            while (ackWindow - (sent - acked) < required) {
+                if (cancelled || !session.isOpen()) {
+                    throw new CancellationException("Query cancelled while waiting for acknowledgements");
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (ackTimeoutMs > 0 && remaining <= 0) {
+                    throw new IllegalStateException("Client did not acknowledge " + (sent - acked) + " events within " + ackTimeoutMs + "ms");
+                }
+                try {
+                    wait(ackTimeoutMs > 0 ? Math.min(remaining, 1000) : 1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted while waiting for acknowledgements");
+                }
+            }
+            return ackWindow - (sent - acked);
+        }
+        
+        private void send(QueryResponseMessage message) {
+            if (binaryEncoder == null) {
+                session.getAsyncRemote().sendObject(message);
+            } else {
+                synchronized (sendLock) {
+                    try {
+                        session.getBasicRemote().sendBinary(binaryEncoder.encode(message));
+                    } catch (IOException e) {
+                        log.error("Unable to send " + message.getResponseType() + " message.", e);
+                    }
+                }
+            }
+        }
     }
 }
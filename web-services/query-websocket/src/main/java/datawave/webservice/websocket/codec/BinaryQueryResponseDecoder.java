@@ -0,0 +1,209 @@
+package datawave.webservice.websocket.codec;
+
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.EVENT_DATATYPE;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.EVENT_FIELDS;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.EVENT_MARKINGS;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.EVENT_ROW;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.EVENT_TABLE;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.EVENT_UID;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FIELD_MARKINGS;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FIELD_NAME;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FIELD_TIMESTAMP;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FIELD_VALUE;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FIELD_VISIBILITY;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FRAME_EVENTS;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FRAME_MESSAGE;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FRAME_RESPONSE;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FRAME_STRINGS;
+import static datawave.webservice.websocket.codec.BinaryQueryResponseEncoder.FRAME_TYPE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import datawave.webservice.query.result.event.DefaultEvent;
+import datawave.webservice.query.result.event.DefaultField;
+import datawave.webservice.query.result.event.Metadata;
+import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
+
+/**
+ * Decodes the frames written by a {@link BinaryQueryResponseEncoder}, for Java clients of the {@value BinaryQueryResponseEncoder#SUBPROTOCOL} sub-protocol. A
+ * decoder holds the dictionary for one query, so every frame of the query must be passed to it in order.
+ */
+public class BinaryQueryResponseDecoder {
+    
+    private final List<String> dictionary = new ArrayList<>();
+    
+    /**
+     * A decoded frame
+     */
+    public static class Frame {
+        private ResponseType responseType;
+        private String message;
+        private final List<DefaultEvent> events = new ArrayList<>();
+        private byte[] response;
+        
+        public ResponseType getResponseType() {
+            return responseType;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        /**
+         * @return the events of a {@link ResponseType#RESULTS} frame
+         */
+        public List<DefaultEvent> getEvents() {
+            return events;
+        }
+        
+        /**
+         * @return the JSON encoded response of any other frame, or null
+         */
+        public byte[] getResponse() {
+            return response;
+        }
+    }
+    
+    public Frame decode(ByteBuffer buffer) throws IOException {
+        CodedInputStream in;
+        if (buffer.hasArray()) {
+            in = CodedInputStream.newInstance(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            in = CodedInputStream.newInstance(bytes);
+        }
+        
+        Frame frame = new Frame();
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case FRAME_TYPE:
+                    frame.responseType = ResponseType.values()[in.readUInt32()];
+                    break;
+                case FRAME_MESSAGE:
+                    frame.message = in.readString();
+                    break;
+                case FRAME_STRINGS:
+                    dictionary.add(in.readString());
+                    break;
+                case FRAME_EVENTS:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    frame.events.add(readEvent(in));
+                    in.popLimit(limit);
+                    break;
+                case FRAME_RESPONSE:
+                    frame.response = in.readBytes().toByteArray();
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return frame;
+    }
+    
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+    
+    private DefaultEvent readEvent(CodedInputStream in) throws IOException {
+        DefaultEvent event = new DefaultEvent();
+        Metadata metadata = new Metadata();
+        Map<String,String> markings = null;
+        List<DefaultField> fields = new ArrayList<>();
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case EVENT_DATATYPE:
+                    metadata.setDataType(string(in.readUInt32()));
+                    break;
+                case EVENT_ROW:
+                    metadata.setRow(in.readString());
+                    break;
+                case EVENT_UID:
+                    metadata.setInternalId(in.readString());
+                    break;
+                case EVENT_TABLE:
+                    metadata.setTable(string(in.readUInt32()));
+                    break;
+                case EVENT_MARKINGS:
+                    markings = readMarkings(in);
+                    break;
+                case EVENT_FIELDS:
+                    int fieldLimit = in.pushLimit(in.readRawVarint32());
+                    fields.add(readField(in, markings));
+                    in.popLimit(fieldLimit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        event.setMetadata(metadata);
+        if (markings != null) {
+            event.setMarkings(markings);
+        }
+        event.setFields(fields);
+        return event;
+    }
+    
+    private DefaultField readField(CodedInputStream in, Map<String,String> markings) throws IOException {
+        String name = null;
+        String visibility = null;
+        Long timestamp = null;
+        String value = null;
+        Map<String,String> fieldMarkings = markings;
+        while (!in.isAtEnd()) {
+            int tag = in.readTag();
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case FIELD_NAME:
+                    name = string(in.readUInt32());
+                    break;
+                case FIELD_VISIBILITY:
+                    visibility = string(in.readUInt32());
+                    break;
+                case FIELD_TIMESTAMP:
+                    timestamp = in.readUInt64();
+                    break;
+                case FIELD_VALUE:
+                    value = in.readString();
+                    break;
+                case FIELD_MARKINGS:
+                    fieldMarkings = readMarkings(in);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        DefaultField field = new DefaultField(name, visibility, timestamp, value);
+        if (fieldMarkings != null) {
+            field.setMarkings(fieldMarkings);
+        }
+        return field;
+    }
+    
+    private Map<String,String> readMarkings(CodedInputStream in) throws IOException {
+        Map<String,String> markings = new HashMap<>();
+        int limit = in.pushLimit(in.readRawVarint32());
+        while (!in.isAtEnd()) {
+            markings.put(string(in.readUInt32()), string(in.readUInt32()));
+        }
+        in.popLimit(limit);
+        return markings;
+    }
+    
+    private String string(int id) throws IOException {
+        if (id == 0) {
+            return null;
+        } else if (id > dictionary.size()) {
+            throw new IOException("Unknown dictionary id " + id + ", frames must be decoded in order");
+        }
+        return dictionary.get(id - 1);
+    }
+}
@@ -0,0 +1,278 @@
+package datawave.webservice.websocket.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.FieldBase;
+import datawave.webservice.query.result.event.Metadata;
+import datawave.webservice.websocket.messages.QueryResponseMessage;
+import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
+
+/**
+ * Encodes {@link QueryResponseMessage}s for the {@value #SUBPROTOCOL} websocket sub-protocol. Each message is sent as one binary websocket message holding a
+ * protobuf encoded {@code Frame}:
+ * 
+ * <pre>
+ * message Frame {
+ *     uint32 type = 1;             // the ResponseType ordinal
+ *     string message = 2;
+ *     repeated string strings = 3; // strings added to the dictionary, numbered from one more than the dictionary size
+ *     repeated Event events = 4;   // the events of an event query page
+ *     bytes response = 5;          // the JSON encoding of any other response
+ * }
+ * 
+ * message Event {
+ *     uint32 dataType = 1;         // a dictionary id
+ *     string row = 2;
+ *     string uid = 3;
+ *     repeated uint32 markings = 4 [packed=true]; // dictionary ids of marking name, value pairs
+ *     repeated Field fields = 5;
+ *     uint32 table = 6;            // a dictionary id
+ * }
+ * 
+ * message Field {
+ *     uint32 name = 1;             // a dictionary id
+ *     uint32 visibility = 2;       // a dictionary id
+ *     uint64 timestamp = 3;
+ *     string value = 4;
+ *     repeated uint32 markings = 5 [packed=true]; // only when they differ from those of the event
+ * }
+ * </pre>
+ * 
+ * Field names, visibilities, markings and data types repeat across a result set, so they are sent once per query as dictionary strings and referred to by id
+ * afterwards. An id of 0 is a null. An encoder holds the dictionary for one query, and is not thread safe. {@link BinaryQueryResponseDecoder} reads the frames.
+ */
+public class BinaryQueryResponseEncoder {
+    
+    public static final String SUBPROTOCOL = "datawave.binary.v1";
+    
+    static final int FRAME_TYPE = 1;
+    static final int FRAME_MESSAGE = 2;
+    static final int FRAME_STRINGS = 3;
+    static final int FRAME_EVENTS = 4;
+    static final int FRAME_RESPONSE = 5;
+    
+    static final int EVENT_DATATYPE = 1;
+    static final int EVENT_ROW = 2;
+    static final int EVENT_UID = 3;
+    static final int EVENT_MARKINGS = 4;
+    static final int EVENT_FIELDS = 5;
+    static final int EVENT_TABLE = 6;
+    
+    static final int FIELD_NAME = 1;
+    static final int FIELD_VISIBILITY = 2;
+    static final int FIELD_TIMESTAMP = 3;
+    static final int FIELD_VALUE = 4;
+    static final int FIELD_MARKINGS = 5;
+    
+    private final ObjectMapper mapper = QueryResponseMessageJsonEncoder.createMapper();
+    private final Map<String,Integer> dictionary = new HashMap<>();
+    private final List<String> added = new ArrayList<>();
+    
+    private final Buffer events = new Buffer();
+    private final Buffer event = new Buffer();
+    private final Buffer frame = new Buffer();
+    
+    /**
+     * Encode a message, with any response it holds as JSON
+     */
+    public ByteBuffer encode(QueryResponseMessage message) throws IOException {
+        byte[] response = null;
+        if (message.getBaseResponse() != null) {
+            response = mapper.writeValueAsBytes(message.getBaseResponse());
+        }
+        return encodeFrame(message.getResponseType(), message.getMessage(), response, false);
+    }
+    
+    /**
+     * Encode a {@link ResponseType#RESULTS} message holding the given events
+     */
+    public ByteBuffer encodeEvents(List<? extends EventBase> page) throws IOException {
+        events.reset();
+        CodedOutputStream eventsOut = CodedOutputStream.newInstance(events);
+        for (EventBase<?,?> e : page) {
+            writeEvent(e);
+            eventsOut.writeTag(FRAME_EVENTS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            eventsOut.writeRawVarint32(event.size());
+            eventsOut.writeRawBytes(event.array(), 0, event.size());
+        }
+        eventsOut.flush();
+        return encodeFrame(ResponseType.RESULTS, null, null, true);
+    }
+    
+    /**
+     * @return the number of strings in the dictionary
+     */
+    public int getDictionarySize() {
+        return dictionary.size();
+    }
+    
+    private ByteBuffer encodeFrame(ResponseType type, String message, byte[] response, boolean withEvents) throws IOException {
+        frame.reset();
+        CodedOutputStream out = CodedOutputStream.newInstance(frame);
+        out.writeUInt32(FRAME_TYPE, type.ordinal());
+        if (message != null) {
+            out.writeString(FRAME_MESSAGE, message);
+        }
+        // the strings come before the events that refer to them
+        for (String s : added) {
+            out.writeString(FRAME_STRINGS, s);
+        }
+        added.clear();
+        if (withEvents) {
+            out.writeRawBytes(events.array(), 0, events.size());
+        }
+        if (response != null) {
+            out.writeBytes(FRAME_RESPONSE, ByteString.copyFrom(response));
+        }
+        out.flush();
+        // copied, since the buffer is reused for the next frame while this one may still be being sent
+        return ByteBuffer.wrap(frame.toByteArray());
+    }
+    
+    private void writeEvent(EventBase<?,?> e) throws IOException {
+        event.reset();
+        CodedOutputStream out = CodedOutputStream.newInstance(event);
+        Metadata metadata = e.getMetadata();
+        if (metadata != null) {
+            writeId(out, EVENT_DATATYPE, metadata.getDataType());
+            if (metadata.getRow() != null) {
+                out.writeString(EVENT_ROW, metadata.getRow());
+            }
+            if (metadata.getInternalId() != null) {
+                out.writeString(EVENT_UID, metadata.getInternalId());
+            }
+            writeId(out, EVENT_TABLE, metadata.getTable());
+        }
+        
+        Map<String,String> eventMarkings = e.getMarkings();
+        if (eventMarkings != null && !eventMarkings.isEmpty()) {
+            writeMarkings(out, EVENT_MARKINGS, eventMarkings);
+        }
+        
+        List<? extends FieldBase<?>> fields = e.getFields();
+        if (fields != null) {
+            for (FieldBase<?> field : fields) {
+                int name = id(field.getName());
+                int visibility = id(field.getColumnVisibility());
+                Long timestamp = field.getTimestamp();
+                String value = field.getValueOfTypedValue() == null ? null : field.getValueString();
+                // field markings are usually those of the event, so they are only sent when they are not
+                Map<String,String> fieldMarkings = field.getMarkings();
+                if (fieldMarkings != null && (fieldMarkings.isEmpty() || fieldMarkings.equals(eventMarkings))) {
+                    fieldMarkings = null;
+                }
+                
+                int size = 0;
+                if (name != 0) {
+                    size += CodedOutputStream.computeUInt32Size(FIELD_NAME, name);
+                }
+                if (visibility != 0) {
+                    size += CodedOutputStream.computeUInt32Size(FIELD_VISIBILITY, visibility);
+                }
+                if (timestamp != null) {
+                    size += CodedOutputStream.computeUInt64Size(FIELD_TIMESTAMP, timestamp);
+                }
+                if (value != null) {
+                    size += CodedOutputStream.computeStringSize(FIELD_VALUE, value);
+                }
+                if (fieldMarkings != null) {
+                    size += computeMarkingsSize(FIELD_MARKINGS, fieldMarkings);
+                }
+                
+                out.writeTag(EVENT_FIELDS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                out.writeRawVarint32(size);
+                if (name != 0) {
+                    out.writeUInt32(FIELD_NAME, name);
+                }
+                if (visibility != 0) {
+                    out.writeUInt32(FIELD_VISIBILITY, visibility);
+                }
+                if (timestamp != null) {
+                    out.writeUInt64(FIELD_TIMESTAMP, timestamp);
+                }
+                if (value != null) {
+                    out.writeString(FIELD_VALUE, value);
+                }
+                if (fieldMarkings != null) {
+                    writeMarkings(out, FIELD_MARKINGS, fieldMarkings);
+                }
+            }
+        }
+        out.flush();
+    }
+    
+    /**
+     * Markings are written as packed dictionary ids of name, value pairs, sorted so that the same markings always encode the same way
+     */
+    private void writeMarkings(CodedOutputStream out, int fieldNumber, Map<String,String> markings) throws IOException {
+        Map<String,String> sorted = new TreeMap<>(markings);
+        out.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+        out.writeRawVarint32(computeMarkingsSize(sorted));
+        for (Map.Entry<String,String> marking : sorted.entrySet()) {
+            out.writeUInt32NoTag(id(marking.getKey()));
+            out.writeUInt32NoTag(id(marking.getValue()));
+        }
+    }
+    
+    private int computeMarkingsSize(int fieldNumber, Map<String,String> markings) {
+        int size = computeMarkingsSize(markings);
+        return CodedOutputStream.computeTagSize(fieldNumber) + CodedOutputStream.computeRawVarint32Size(size) + size;
+    }
+    
+    private int computeMarkingsSize(Map<String,String> markings) {
+        int size = 0;
+        for (Map.Entry<String,String> marking : markings.entrySet()) {
+            size += CodedOutputStream.computeUInt32SizeNoTag(id(marking.getKey()));
+            size += CodedOutputStream.computeUInt32SizeNoTag(id(marking.getValue()));
+        }
+        return size;
+    }
+    
+    private void writeId(CodedOutputStream out, int fieldNumber, String s) throws IOException {
+        int id = id(s);
+        if (id != 0) {
+            out.writeUInt32(fieldNumber, id);
+        }
+    }
+    
+    /**
+     * The dictionary id of a string, adding it to the dictionary (and the next frame) if it has not been sent yet
+     */
+    private int id(String s) {
+        if (s == null) {
+            return 0;
+        }
+        Integer id = dictionary.get(s);
+        if (id == null) {
+            id = dictionary.size() + 1;
+            dictionary.put(s, id);
+            added.add(s);
+        }
+        return id;
+    }
+    
+    /**
+     * A reusable output buffer whose contents can be read without copying
+     */
+    private static class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(4096);
+        }
+        
+        byte[] array() {
+            return buf;
+        }
+    }
+}
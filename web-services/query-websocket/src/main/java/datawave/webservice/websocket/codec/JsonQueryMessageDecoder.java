@@ -11,6 +11,7 @@ import javax.websocket.Decoder;
 import javax.websocket.EndpointConfig;
 import javax.ws.rs.core.MultivaluedMap;
 
+import datawave.webservice.websocket.messages.AckMessage;
 import datawave.webservice.websocket.messages.CancelMessage;
 import datawave.webservice.websocket.messages.CreateQueryMessage;
 import datawave.webservice.websocket.messages.QueryMessage;
@@ -33,10 +34,20 @@ public class JsonQueryMessageDecoder implements Decoder.Text<QueryMessage> {
         }
         if (map.size() == 1 && map.containsKey("cancel"))
             return new CancelMessage();
+        else if (map.size() == 1 && map.containsKey("ack"))
+            return decodeAck(s, map.getFirst("ack"));
         else
             return new CreateQueryMessage(map);
     }
     
+    private AckMessage decodeAck(String s, String count) throws DecodeException {
+        try {
+            return new AckMessage(Long.parseLong(count));
+        } catch (NumberFormatException e) {
+            throw new DecodeException(s, "Acknowledgement count must be a number", e);
+        }
+    }
+    
     private void addValueToMap(String key, JsonParser parser, MultivaluedMap<String,String> map) {
         boolean done = true; // By default we expect only a single value, but we could see an array.
         do {
@@ -0,0 +1,28 @@
+package datawave.webservice.websocket.messages;
+
+/**
+ * A query message for clients to send to acknowledge the results they have received, when the query was created with an acknowledgement window. The client
+ * should send a JSON message with a single property "ack" set to the total number of events it has received so far. For example,
+ * 
+ * <pre>
+ * <code>
+ * { "ack": 5000 }
+ * </code>
+ * </pre>
+ */
+public class AckMessage implements QueryMessage {
+    private long count;
+    
+    public AckMessage(long count) {
+        this.count = count;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    @Override
+    public Type getType() {
+        return Type.ACK;
+    }
+}
@@ -0,0 +1,150 @@
+package datawave.webservice.websocket.codec;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import datawave.webservice.query.result.event.DefaultEvent;
+import datawave.webservice.query.result.event.DefaultField;
+import datawave.webservice.query.result.event.EventBase;
+import datawave.webservice.query.result.event.Metadata;
+import datawave.webservice.result.DefaultEventQueryResponse;
+import datawave.webservice.result.VoidResponse;
+import datawave.webservice.websocket.messages.QueryResponseMessage;
+import datawave.webservice.websocket.messages.QueryResponseMessage.ResponseType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BinaryQueryResponseEncoderTest {
+    
+    private static final String[] FIELDS = {"NAME", "AGE", "CITY", "STATE", "PHONE", "EMAIL", "GEO", "LOAD_DATE"};
+    
+    private static List<EventBase> events(int start, int count) {
+        Map<String,String> markings = new HashMap<>();
+        markings.put("columnVisibility", "PUBLIC");
+        List<EventBase> events = new ArrayList<>();
+        for (int i = start; i < start + count; i++) {
+            Metadata metadata = new Metadata();
+            metadata.setDataType("csv");
+            metadata.setRow("20180101_" + (i % 10));
+            metadata.setInternalId("-abc.def." + i);
+            metadata.setTable("shard");
+            
+            List<DefaultField> fields = new ArrayList<>();
+            for (String field : FIELDS) {
+                DefaultField f = new DefaultField(field, "PUBLIC", 1514764800000L + i, field.toLowerCase() + " value " + i);
+                f.setMarkings(markings);
+                fields.add(f);
+            }
+            // a field with its own markings
+            DefaultField secret = new DefaultField("SECRET", "PRIVATE", 1514764800000L, "secret " + i);
+            secret.setMarkings(Collections.singletonMap("columnVisibility", "PRIVATE"));
+            fields.add(secret);
+            
+            DefaultEvent event = new DefaultEvent();
+            event.setMetadata(metadata);
+            event.setMarkings(markings);
+            event.setFields(fields);
+            events.add(event);
+        }
+        return events;
+    }
+    
+    @Test
+    public void testRoundTrip() throws Exception {
+        BinaryQueryResponseEncoder encoder = new BinaryQueryResponseEncoder();
+        BinaryQueryResponseDecoder decoder = new BinaryQueryResponseDecoder();
+        
+        BinaryQueryResponseDecoder.Frame created = decoder.decode(encoder.encode(new QueryResponseMessage(ResponseType.CREATED, "query-id")));
+        Assert.assertEquals(ResponseType.CREATED, created.getResponseType());
+        Assert.assertEquals("query-id", created.getMessage());
+        Assert.assertNull(created.getResponse());
+        
+        for (int page = 0; page < 3; page++) {
+            List<EventBase> events = events(page * 10, 10);
+            BinaryQueryResponseDecoder.Frame frame = decoder.decode(encoder.encodeEvents(events));
+            Assert.assertEquals(ResponseType.RESULTS, frame.getResponseType());
+            Assert.assertEquals(events.size(), frame.getEvents().size());
+            for (int i = 0; i < events.size(); i++) {
+                EventBase expected = events.get(i);
+                DefaultEvent actual = frame.getEvents().get(i);
+                Assert.assertEquals(expected.getMetadata(), actual.getMetadata());
+                Assert.assertEquals(expected.getMetadata().getTable(), actual.getMetadata().getTable());
+                Assert.assertEquals(expected.getMarkings(), actual.getMarkings());
+                Assert.assertEquals(expected.getFields().size(), actual.getFields().size());
+                for (int f = 0; f < actual.getFields().size(); f++) {
+                    DefaultField expectedField = (DefaultField) expected.getFields().get(f);
+                    DefaultField actualField = actual.getFields().get(f);
+                    Assert.assertEquals(expectedField.getName(), actualField.getName());
+                    Assert.assertEquals(expectedField.getColumnVisibility(), actualField.getColumnVisibility());
+                    Assert.assertEquals(expectedField.getTimestamp(), actualField.getTimestamp());
+                    Assert.assertEquals(expectedField.getValueString(), actualField.getValueString());
+                    Assert.assertEquals(expectedField.getMarkings(), actualField.getMarkings());
+                }
+            }
+        }
+        // every repeated string was only sent once: the field names, data type, table, marking name and two visibilities
+        Assert.assertEquals(encoder.getDictionarySize(), decoder.getDictionarySize());
+        Assert.assertEquals(FIELDS.length + 1 + 5, decoder.getDictionarySize());
+        
+        VoidResponse response = new VoidResponse();
+        response.addMessage("failed");
+        BinaryQueryResponseDecoder.Frame error = decoder.decode(encoder.encode(new QueryResponseMessage(ResponseType.ERROR, response)));
+        Assert.assertEquals(ResponseType.ERROR, error.getResponseType());
+        Assert.assertTrue(new String(error.getResponse(), "UTF-8").contains("failed"));
+    }
+    
+    @Test
+    public void testUnknownDictionaryId() throws Exception {
+        BinaryQueryResponseEncoder encoder = new BinaryQueryResponseEncoder();
+        encoder.encodeEvents(events(0, 1));
+        try {
+            // the dictionary was sent with the first frame, so the second can't be decoded on its own
+            new BinaryQueryResponseDecoder().decode(encoder.encodeEvents(events(1, 1)));
+            Assert.fail("Expected the frame to be rejected");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Unknown dictionary id"));
+        }
+    }
+    
+    @Test
+    public void testThroughputComparedWithJson() throws Exception {
+        int pages = 20;
+        int pageSize = 500;
+        List<List<EventBase>> results = new ArrayList<>();
+        for (int i = 0; i < pages; i++) {
+            results.add(events(i * pageSize, pageSize));
+        }
+        
+        QueryResponseMessageJsonEncoder jsonEncoder = new QueryResponseMessageJsonEncoder();
+        jsonEncoder.init(null);
+        long jsonBytes = 0;
+        long jsonStart = System.nanoTime();
+        for (List<EventBase> page : results) {
+            DefaultEventQueryResponse response = new DefaultEventQueryResponse();
+            response.setEvents(page);
+            StringWriter writer = new StringWriter();
+            jsonEncoder.encode(new QueryResponseMessage(ResponseType.RESULTS, response), writer);
+            jsonBytes += writer.toString().getBytes("UTF-8").length;
+        }
+        long jsonNanos = System.nanoTime() - jsonStart;
+        
+        BinaryQueryResponseEncoder binaryEncoder = new BinaryQueryResponseEncoder();
+        long binaryBytes = 0;
+        long binaryStart = System.nanoTime();
+        for (List<EventBase> page : results) {
+            ByteBuffer frame = binaryEncoder.encodeEvents(page);
+            binaryBytes += frame.remaining();
+        }
+        long binaryNanos = System.nanoTime() - binaryStart;
+        
+        String comparison = String.format("%d events: json %d bytes in %d ms, binary %d bytes in %d ms", pages * pageSize, jsonBytes, jsonNanos / 1000000,
+                        binaryBytes, binaryNanos / 1000000);
+        Assert.assertTrue(comparison, binaryBytes * 2 < jsonBytes);
+    }
+}
@@ -86,23 +86,7 @@ public class CacheableQueryRowReader {
             }
             if (columnToIndexMap.get("_column_markings_") != null) {
                 String columnMarkings = cachedRowSet.getString(columnToIndexMap.get("_column_markings_"));
-                Map<String,String> combinedColumnMarkings = parseColumnMarkings(columnMarkings, columnToIndexMap);
-                Map<String,Map<String,String>> columnMarkingsMap = new HashMap<>();
-                Map<String,String> columnVisibilityMap = new HashMap<>();
-                for (Map.Entry<String,String> entry : combinedColumnMarkings.entrySet()) {
-                    String columnName = entry.getKey();
-                    String combinedString = entry.getValue();
-                    int x = combinedString.lastIndexOf(":");
-                    if (x >= 0) {
-                        columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString.substring(0, x)));
-                        columnVisibilityMap.put(columnName, combinedString.substring(x + 1));
-                    } else {
-                        columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString));
-                        columnVisibilityMap.put(columnName, "");
-                    }
-                }
-                cqfc.setColumnMarkingsMap(columnMarkingsMap);
-                cqfc.setColumnColumnVisibilityMap(columnVisibilityMap);
+                setColumnMarkings(cqfc, parseColumnMarkings(columnMarkings, columnToIndexMap));
             }
             if (columnToIndexMap.get("_column_timestamps_") != null) {
                 String columnTimestamps = cachedRowSet.getString(columnToIndexMap.get("_column_timestamps_"));
@@ -116,6 +100,98 @@ public class CacheableQueryRowReader {
         return cqfc;
     }
     
+    /**
+     * Create a row from the columns of a row read from a {@code CachedResultsStore}. The row must hold all of its columns, as the column markings and
+     * timestamps refer to the row's variable columns numbered in name order after the fixed columns.
+     * 
+     * @param columns
+     *            the columns of the row, keyed by name
+     * @param fixedFieldsInEvent
+     *            the fixed columns to return as fields of the event
+     * @param projection
+     *            the variable columns to return, or null for all of them
+     * @return the row
+     */
+    public static CacheableQueryRow createRow(Map<String,String> columns, Set<String> fixedFieldsInEvent, Set<String> projection) {
+        
+        CacheableQueryRowImpl cqfc = new CacheableQueryRowImpl();
+        
+        Set<String> fixedColumnNames = CacheableQueryRowImpl.getFixedColumnSet();
+        Map<String,Integer> columnToIndexMap = new HashMap<>();
+        int columnNumber = fixedColumnNames.size() + 1;
+        for (String column : new TreeSet<>(columns.keySet())) {
+            if (!fixedColumnNames.contains(column) && columns.get(column) != null) {
+                columnToIndexMap.put(column, columnNumber++);
+            }
+        }
+        
+        Map<String,Set<String>> columnValues = new HashMap<>();
+        Set<String> variableColumnNames = new TreeSet<>();
+        long characters = 0;
+        for (Map.Entry<String,String> entry : columns.entrySet()) {
+            String columnLabel = entry.getKey();
+            String s = entry.getValue();
+            boolean fixed = fixedColumnNames.contains(columnLabel);
+            if (fixed ? !fixedFieldsInEvent.contains(columnLabel) : (projection != null && !projection.contains(columnLabel))) {
+                if (fixed && s != null) {
+                    characters += s.length();
+                }
+                continue;
+            }
+            characters += columnLabel.length();
+            variableColumnNames.add(columnLabel);
+            Set<String> columnValuesSet = new LinkedHashSet<>();
+            if (s != null) {
+                characters += s.length();
+                columnValuesSet.add(s);
+            }
+            columnValues.put(columnLabel, columnValuesSet);
+        }
+        
+        // set the the size of the values in characters...internally converted to approximate bytes
+        cqfc.setSizeInStoredCharacters(characters);
+        
+        cqfc.setVariableColumnNames(variableColumnNames);
+        cqfc.setColumnValues(columnValues);
+        
+        cqfc.setUser(columns.get("_user_"));
+        cqfc.setQueryId(columns.get("_queryId_"));
+        cqfc.setLogicName(columns.get("_logicName_"));
+        cqfc.setDataType(columns.get("_datatype_"));
+        cqfc.setEventId(columns.get("_eventId_"));
+        cqfc.setRow(columns.get("_row_"));
+        cqfc.setColFam(columns.get("_colf_"));
+        if (columns.get("_markings_") != null) {
+            cqfc.setMarkings(MarkingFunctions.Encoding.fromString(columns.get("_markings_")));
+        }
+        if (columns.get("_column_markings_") != null) {
+            setColumnMarkings(cqfc, parseColumnMarkings(columns.get("_column_markings_"), columnToIndexMap));
+        }
+        if (columns.get("_column_timestamps_") != null) {
+            cqfc.setColumnTimestampMap(parseColumnTimestamps(columns.get("_column_timestamps_"), columnToIndexMap));
+        }
+        return cqfc;
+    }
+    
+    private static void setColumnMarkings(CacheableQueryRowImpl cqfc, Map<String,String> combinedColumnMarkings) {
+        Map<String,Map<String,String>> columnMarkingsMap = new HashMap<>();
+        Map<String,String> columnVisibilityMap = new HashMap<>();
+        for (Map.Entry<String,String> entry : combinedColumnMarkings.entrySet()) {
+            String columnName = entry.getKey();
+            String combinedString = entry.getValue();
+            int x = combinedString.lastIndexOf(":");
+            if (x >= 0) {
+                columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString.substring(0, x)));
+                columnVisibilityMap.put(columnName, combinedString.substring(x + 1));
+            } else {
+                columnMarkingsMap.put(columnName, MarkingFunctions.Encoding.fromString(combinedString));
+                columnVisibilityMap.put(columnName, "");
+            }
+        }
+        cqfc.setColumnMarkingsMap(columnMarkingsMap);
+        cqfc.setColumnColumnVisibilityMap(columnVisibilityMap);
+    }
+    
     private static Map<String,String> parseColumnMarkings(String s, Map<String,Integer> columnToIndexMap) {
         
         Map<Integer,String> indexToColumnMap = new HashMap<>();
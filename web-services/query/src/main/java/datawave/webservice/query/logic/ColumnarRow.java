@@ -0,0 +1,68 @@
+package datawave.webservice.query.logic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A result as named columns of values, filled by a {@link ColumnarTransformer}. The values are the typed values of the result (numbers, dates, normalized
+ * types) rather than their string forms. A row is reset and reused for each result.
+ * <p>
+ * The markings of a row are those of the result as a whole, as {@link datawave.webservice.query.result.event.EventBase#getMarkings()} holds them, and cover
+ * every value in the row.
+ */
+public class ColumnarRow {
+    
+    private String row;
+    private String dataType;
+    private String uid;
+    private Map<String,String> markings = Collections.emptyMap();
+    private final Map<String,List<Object>> columns = new LinkedHashMap<>();
+    
+    public void reset(String row, String dataType, String uid) {
+        this.row = row;
+        this.dataType = dataType;
+        this.uid = uid;
+        this.markings = Collections.emptyMap();
+        this.columns.clear();
+    }
+    
+    /**
+     * Add a value to a column, which may hold several values. Null values are ignored.
+     */
+    public void add(String column, Object value) {
+        if (value != null) {
+            columns.computeIfAbsent(column, k -> new ArrayList<>(1)).add(value);
+        }
+    }
+    
+    public String getRow() {
+        return row;
+    }
+    
+    public String getDataType() {
+        return dataType;
+    }
+    
+    public String getUid() {
+        return uid;
+    }
+    
+    public Map<String,String> getMarkings() {
+        return markings;
+    }
+    
+    public void setMarkings(Map<String,String> markings) {
+        this.markings = (markings == null) ? Collections.emptyMap() : markings;
+    }
+    
+    public Map<String,List<Object>> getColumns() {
+        return columns;
+    }
+    
+    public boolean isEmpty() {
+        return columns.isEmpty();
+    }
+}
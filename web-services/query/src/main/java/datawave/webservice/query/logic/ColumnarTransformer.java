@@ -0,0 +1,20 @@
+package datawave.webservice.query.logic;
+
+import datawave.webservice.query.exception.EmptyObjectException;
+
+public interface ColumnarTransformer<I> {
+    
+    /**
+     * Transforms the input object straight into the columns of a row, without building the response object that {@link QueryLogicTransformer#transform}
+     * would return. Used by bulk outputs that only need the values.
+     * 
+     * @param input
+     *            the object to be transformed, should be left unchanged
+     * @param row
+     *            the row to reset and fill
+     * @throws EmptyObjectException
+     *             if the result is empty
+     */
+    void transformColumns(I input, ColumnarRow row) throws EmptyObjectException;
+    
+}
@@ -76,6 +76,9 @@ public class CredentialsCacheBean {
     @Inject
     private Instance<CachedDatawaveUserService> cachedDatawaveUserServiceInstance;
     
+    @Inject
+    private Instance<NearCacheDatawaveUserService> nearCacheInstance;
+    
     @Inject
     private AccumuloConnectionFactory accumuloConnectionFactory;
     
@@ -239,6 +242,22 @@ public class CredentialsCacheBean {
         return user;
     }
     
+    /**
+     * Reports the hit rate and load latency of the per-node {@link NearCacheDatawaveUserService}, if it is in use.
+     *
+     * @return the near cache statistics for this node
+     */
+    @GET
+    @Path("/nearCacheStats")
+    @Produces({"text/plain"})
+    @JmxManaged
+    public String nearCacheStats() {
+        if (nearCacheInstance.isUnsatisfied()) {
+            return "No near cache in use.";
+        }
+        return nearCacheInstance.get().getStats();
+    }
+    
     @SuppressWarnings("unused")
     @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
     // transactions not supported directly by this bean
@@ -0,0 +1,405 @@
+package datawave.security.cache;
+
+import datawave.configuration.RefreshableScope;
+import datawave.security.authorization.AuthorizationException;
+import datawave.security.authorization.CachedDatawaveUserService;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUserInfo;
+import datawave.security.authorization.DatawaveUserService;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import datawave.webservice.util.NotEqualPropertyExpressionInterpreter;
+import org.apache.deltaspike.core.api.config.ConfigProperty;
+import org.apache.deltaspike.core.api.exclude.Exclude;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Priority;
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.Alternative;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Inject;
+import javax.interceptor.Interceptor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * A per-node {@link CachedDatawaveUserService} that keeps recently used {@link DatawaveUser}s in memory in front of the highest priority other
+ * {@link CachedDatawaveUserService} or {@link DatawaveUserService}. This version will only be active if the system property {@code dw.security.use.nearcache}
+ * is set to {@code true}.
+ * <p>
+ * Concurrent lookups of a DN that is not cached share a single call to the delegate, so a login storm (or the logins following a
+ * {@link CredentialsCacheBean#flushAll()}) results in one remote lookup per DN rather than one per request. Entries are reloaded in the background once they
+ * pass {@code dw.security.nearcache.refreshAheadPercent} of their time to live, so users who are active keep being served from memory.
+ * <p>
+ * Evictions apply to this node and are passed on to the delegate. Other nodes keep their entries until they expire, which bounds how stale a user can be to
+ * {@code dw.security.nearcache.ttlSeconds}.
+ */
+@RefreshableScope
+@Alternative
+// Make this alternative active for the entire application, in front of the other user services, per the CDI 1.2 specification
+@Priority(Interceptor.Priority.APPLICATION + 500)
+// Exclude this bean if the system property dw.security.use.nearcache isn't defined to be true
+@Exclude(onExpression = "dw.security.use.nearcache!=true", interpretedBy = NotEqualPropertyExpressionInterpreter.class)
+public class NearCacheDatawaveUserService implements CachedDatawaveUserService {
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    
+    @Inject
+    @ConfigProperty(name = "dw.security.nearcache.ttlSeconds", defaultValue = "300")
+    private long ttlSeconds;
+    
+    @Inject
+    @ConfigProperty(name = "dw.security.nearcache.refreshAheadPercent", defaultValue = "75")
+    private int refreshAheadPercent;
+    
+    @Inject
+    @ConfigProperty(name = "dw.security.nearcache.maxEntries", defaultValue = "10000")
+    private int maxEntries;
+    
+    @Inject
+    private BeanManager beanManager;
+    
+    @Resource
+    private ManagedExecutorService managedExecutor;
+    
+    private DatawaveUserService delegateService;
+    private CachedDatawaveUserService delegateCachedService;
+    private CreationalContext<?> delegateContext;
+    private Executor executor;
+    
+    private final Map<SubjectIssuerDNPair,Entry> entries = new ConcurrentHashMap<>();
+    private final Map<SubjectIssuerDNPair,CompletableFuture<DatawaveUser>> loading = new ConcurrentHashMap<>();
+    // incremented by every eviction, so that loads which started before an eviction do not re-populate the cache
+    private final AtomicLong generation = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder sharedLoads = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder loadTimeNanos = new LongAdder();
+    private final AtomicLong maxLoadTimeNanos = new AtomicLong();
+    
+    public NearCacheDatawaveUserService() {}
+    
+    /**
+     * Creates a near cache outside of a CDI container
+     */
+    public NearCacheDatawaveUserService(DatawaveUserService delegateService, Executor executor, long ttlSeconds, int refreshAheadPercent, int maxEntries) {
+        this.delegateService = delegateService;
+        this.delegateCachedService = (delegateService instanceof CachedDatawaveUserService) ? (CachedDatawaveUserService) delegateService : null;
+        this.executor = executor;
+        this.ttlSeconds = ttlSeconds;
+        this.refreshAheadPercent = refreshAheadPercent;
+        this.maxEntries = maxEntries;
+    }
+    
+    @Override
+    public Collection<DatawaveUser> lookup(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        long now = currentTimeMillis();
+        Map<SubjectIssuerDNPair,DatawaveUser> results = new LinkedHashMap<>();
+        List<SubjectIssuerDNPair> missing = new ArrayList<>();
+        for (SubjectIssuerDNPair dn : dns) {
+            Entry entry = entries.get(dn);
+            if (entry != null && now < entry.expiresAt) {
+                hits.increment();
+                results.put(dn, entry.user);
+                if (now >= entry.refreshAt) {
+                    refresh(dn);
+                }
+            } else {
+                misses.increment();
+                // hold the position of the DN in the results
+                results.put(dn, null);
+                missing.add(dn);
+            }
+        }
+        if (!missing.isEmpty()) {
+            results.putAll(load(missing));
+        }
+        return results.values();
+    }
+    
+    @Override
+    public Collection<DatawaveUser> reload(Collection<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        long startGeneration = generation.get();
+        Collection<DatawaveUser> users = (delegateCachedService != null) ? delegateCachedService.reload(dns) : delegateService.lookup(dns);
+        users.forEach(u -> store(u.getDn(), u, startGeneration));
+        return users;
+    }
+    
+    @Override
+    public DatawaveUser list(String name) {
+        if (delegateCachedService != null) {
+            return delegateCachedService.list(name);
+        }
+        return entries.values().stream().map(e -> e.user).filter(u -> u.getName().equals(name)).findFirst().orElse(null);
+    }
+    
+    @Override
+    public Collection<? extends DatawaveUserInfo> listAll() {
+        if (delegateCachedService != null) {
+            return delegateCachedService.listAll();
+        }
+        return entries.values().stream().map(e -> new DatawaveUserInfo(e.user)).collect(Collectors.toList());
+    }
+    
+    @Override
+    public Collection<? extends DatawaveUserInfo> listMatching(String substring) {
+        if (delegateCachedService != null) {
+            return delegateCachedService.listMatching(substring);
+        }
+        return entries.values().stream().map(e -> e.user).filter(u -> u.getName().contains(substring)).map(DatawaveUserInfo::new)
+                        .collect(Collectors.toList());
+    }
+    
+    @Override
+    public String evict(String name) {
+        int evicted = evictLocal(u -> u.getName().equals(name));
+        return delegateCachedService != null ? delegateCachedService.evict(name) : "Evicted " + evicted + " user(s) matching " + name;
+    }
+    
+    @Override
+    public String evictMatching(String substring) {
+        int evicted = evictLocal(u -> u.getName().contains(substring));
+        return delegateCachedService != null ? delegateCachedService.evictMatching(substring) : "Evicted " + evicted + " user(s) matching " + substring;
+    }
+    
+    @Override
+    public String evictAll() {
+        int evicted = evictLocal(u -> true);
+        return delegateCachedService != null ? delegateCachedService.evictAll() : "Evicted " + evicted + " user(s)";
+    }
+    
+    /**
+     * @return the hit rate and load latency of this near cache
+     */
+    public String getStats() {
+        long hitCount = hits.sum();
+        long requests = hitCount + misses.sum();
+        long loadCount = loads.sum();
+        // @formatter:off
+        return String.format("entries=%d, hits=%d, misses=%d, hitRate=%.1f%%, sharedLoads=%d, loads=%d, loadFailures=%d, refreshes=%d, " +
+                        "averageLoadMs=%.1f, maxLoadMs=%.1f",
+                entries.size(), hitCount, requests - hitCount, requests == 0 ? 0.0 : 100.0 * hitCount / requests, sharedLoads.sum(), loadCount,
+                loadFailures.sum(), refreshes.sum(), loadCount == 0 ? 0.0 : loadTimeNanos.sum() / 1e6 / loadCount, maxLoadTimeNanos.get() / 1e6);
+        // @formatter:on
+    }
+    
+    /**
+     * Load the users for DNs that are not cached. DNs already being loaded by another caller wait for that load, and the remaining DNs are looked up in one
+     * call to the delegate.
+     */
+    private Map<SubjectIssuerDNPair,DatawaveUser> load(List<SubjectIssuerDNPair> dns) throws AuthorizationException {
+        Map<SubjectIssuerDNPair,CompletableFuture<DatawaveUser>> futures = new LinkedHashMap<>();
+        Map<SubjectIssuerDNPair,CompletableFuture<DatawaveUser>> owned = new LinkedHashMap<>();
+        for (SubjectIssuerDNPair dn : dns) {
+            CompletableFuture<DatawaveUser> future = new CompletableFuture<>();
+            CompletableFuture<DatawaveUser> existing = loading.putIfAbsent(dn, future);
+            if (existing == null) {
+                owned.put(dn, future);
+                futures.put(dn, future);
+            } else {
+                sharedLoads.increment();
+                futures.put(dn, existing);
+            }
+        }
+        
+        if (!owned.isEmpty()) {
+            fetch(owned);
+        }
+        
+        Map<SubjectIssuerDNPair,DatawaveUser> users = new LinkedHashMap<>();
+        for (Map.Entry<SubjectIssuerDNPair,CompletableFuture<DatawaveUser>> e : futures.entrySet()) {
+            try {
+                users.put(e.getKey(), e.getValue().get());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new AuthorizationException("Interrupted waiting for user " + e.getKey(), ie);
+            } catch (ExecutionException ee) {
+                if (ee.getCause() instanceof AuthorizationException) {
+                    throw (AuthorizationException) ee.getCause();
+                }
+                throw new AuthorizationException("Unable to lookup user " + e.getKey() + ": " + ee.getCause().getMessage(), ee.getCause());
+            }
+        }
+        return users;
+    }
+    
+    /**
+     * Reload a cached user in the background, unless it is already being loaded
+     */
+    private void refresh(SubjectIssuerDNPair dn) {
+        CompletableFuture<DatawaveUser> future = new CompletableFuture<>();
+        if (loading.putIfAbsent(dn, future) == null) {
+            refreshes.increment();
+            try {
+                executor.execute(() -> fetch(Collections.singletonMap(dn, future)));
+            } catch (RuntimeException e) {
+                // the cached entry is still good, a lookup after it expires will load it
+                log.warn("Unable to schedule a refresh of {}: {}", dn, e.getMessage());
+                loading.remove(dn, future);
+                future.completeExceptionally(e);
+            }
+        }
+    }
+    
+    /**
+     * Look up the users for DNs this caller is loading, and complete their futures
+     */
+    private void fetch(Map<SubjectIssuerDNPair,CompletableFuture<DatawaveUser>> owned) {
+        long startGeneration = generation.get();
+        long start = System.nanoTime();
+        try {
+            Collection<DatawaveUser> users = delegateService.lookup(owned.keySet());
+            recordLoad(System.nanoTime() - start);
+            for (DatawaveUser user : users) {
+                SubjectIssuerDNPair dn = user.getDn();
+                if (!owned.containsKey(dn) && owned.size() == 1 && users.size() == 1) {
+                    // the service returned the user under a different form of the DN, cache it under the one we are asked for
+                    dn = owned.keySet().iterator().next();
+                }
+                store(dn, user, startGeneration);
+                CompletableFuture<DatawaveUser> future = owned.get(dn);
+                if (future != null) {
+                    future.complete(user);
+                }
+            }
+            owned.forEach((dn, future) -> future.completeExceptionally(new AuthorizationException("No user found for " + dn)));
+        } catch (Exception e) {
+            recordLoad(System.nanoTime() - start);
+            loadFailures.increment();
+            owned.values().forEach(future -> future.completeExceptionally(e));
+        } finally {
+            owned.forEach(loading::remove);
+        }
+    }
+    
+    private void recordLoad(long nanos) {
+        loads.increment();
+        loadTimeNanos.add(nanos);
+        maxLoadTimeNanos.accumulateAndGet(nanos, Math::max);
+    }
+    
+    private void store(SubjectIssuerDNPair dn, DatawaveUser user, long startGeneration) {
+        if (generation.get() != startGeneration) {
+            // evicted while loading
+            return;
+        }
+        long now = currentTimeMillis();
+        long ttl = ttlSeconds * 1000L;
+        long expiresAt = now + ttl;
+        // don't hold a user past the expiration given by the service that created it
+        if (user.getExpirationTime() > now) {
+            expiresAt = Math.min(expiresAt, user.getExpirationTime());
+        }
+        entries.put(dn, new Entry(user, Math.min(expiresAt, now + ttl * refreshAheadPercent / 100), expiresAt));
+        if (entries.size() > maxEntries) {
+            trim(now);
+        }
+    }
+    
+    /**
+     * Remove expired entries, then the entries closest to expiring, until the cache is back under its maximum size
+     */
+    private synchronized void trim(long now) {
+        entries.values().removeIf(e -> now >= e.expiresAt);
+        int excess = entries.size() - maxEntries;
+        if (excess > 0) {
+            // @formatter:off
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().expiresAt))
+                    .limit(excess)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList())
+                    .forEach(entries::remove);
+            // @formatter:on
+        }
+    }
+    
+    private int evictLocal(Predicate<DatawaveUser> predicate) {
+        generation.incrementAndGet();
+        int size = entries.size();
+        entries.values().removeIf(e -> predicate.test(e.user));
+        return size - entries.size();
+    }
+    
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+    
+    @PostConstruct
+    protected void init() {
+        int priority = getClass().getAnnotation(Priority.class).value();
+        // @formatter:off
+        Comparator<Bean<?>> beanComparator = Comparator.comparing(
+            b -> b.getBeanClass().isAnnotationPresent(Priority.class)
+               ? b.getBeanClass().getAnnotation(Priority.class).value()
+               : Integer.MIN_VALUE);
+        
+        // only delegate to services behind this one, the test user service for example wraps whatever it finds in front of it
+        Predicate<Bean<?>> behind = b -> b.getBeanClass() != getClass()
+                && (!b.getBeanClass().isAnnotationPresent(Priority.class) || b.getBeanClass().getAnnotation(Priority.class).value() < priority);
+        
+        Bean<?> alternate = beanManager.getBeans(CachedDatawaveUserService.class).stream()
+                .filter(behind)
+                .sorted(beanComparator.reversed())
+                .findFirst().orElse(null);
+        
+        Bean<?> basicAlternate = beanManager.getBeans(DatawaveUserService.class).stream()
+                .filter(behind)
+                .sorted(beanComparator.reversed())
+                .findFirst().orElse(null);
+        // @formatter:on
+        
+        if (alternate == null && basicAlternate == null) {
+            throw new IllegalStateException("No delegate " + CachedDatawaveUserService.class + " or " + DatawaveUserService.class + " was found.");
+        } else if (alternate != null) {
+            delegateContext = beanManager.createCreationalContext(alternate);
+            delegateCachedService = (CachedDatawaveUserService) beanManager.getReference(alternate, alternate.getBeanClass(), delegateContext);
+            delegateService = delegateCachedService;
+        } else {
+            delegateContext = beanManager.createCreationalContext(basicAlternate);
+            delegateService = (DatawaveUserService) beanManager.getReference(basicAlternate, basicAlternate.getBeanClass(), delegateContext);
+        }
+        executor = managedExecutor;
+        log.info("Near cache of {} users in front of {}, ttl {}s", maxEntries, delegateService.getClass().getName(), ttlSeconds);
+    }
+    
+    @PreDestroy
+    protected void shutdown() {
+        if (delegateContext != null) {
+            delegateContext.release();
+        }
+    }
+    
+    private static class Entry {
+        private final DatawaveUser user;
+        private final long refreshAt;
+        private final long expiresAt;
+        
+        private Entry(DatawaveUser user, long refreshAt, long expiresAt) {
+            this.user = user;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package datawave.security.cache;
+
+import datawave.security.authorization.AuthorizationException;
+import datawave.security.authorization.DatawaveUser;
+import datawave.security.authorization.DatawaveUser.UserType;
+import datawave.security.authorization.DatawaveUserService;
+import datawave.security.authorization.SubjectIssuerDNPair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class NearCacheDatawaveUserServiceTest {
+    
+    private static final SubjectIssuerDNPair USER = SubjectIssuerDNPair.of("user1", "issuer1");
+    private static final SubjectIssuerDNPair SERVER = SubjectIssuerDNPair.of("server1", "issuer1");
+    
+    private AtomicInteger lookups;
+    private List<SubjectIssuerDNPair> lookedUp;
+    private CountDownLatch release;
+    private boolean fail;
+    private long now;
+    private ExecutorService threads;
+    
+    private NearCacheDatawaveUserService nearCache;
+    
+    @Before
+    public void setUp() {
+        lookups = new AtomicInteger();
+        lookedUp = Collections.synchronizedList(new ArrayList<>());
+        release = new CountDownLatch(0);
+        fail = false;
+        now = 1000000L;
+        threads = Executors.newFixedThreadPool(10);
+        
+        DatawaveUserService delegate = dns -> {
+            lookups.incrementAndGet();
+            lookedUp.addAll(dns);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new AuthorizationException("interrupted", e);
+            }
+            if (fail) {
+                throw new AuthorizationException("Unable to authenticate");
+            }
+            return dns.stream().map(dn -> new DatawaveUser(dn, UserType.USER, null, null, null, -1L, -1L)).collect(Collectors.toList());
+        };
+        
+        // refreshes run on the calling thread, a ttl of 100s that is refreshed after 50s
+        nearCache = new NearCacheDatawaveUserService(delegate, Runnable::run, 100, 50, 100) {
+            @Override
+            protected long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+    
+    @After
+    public void tearDown() {
+        threads.shutdownNow();
+    }
+    
+    @Test
+    public void testConcurrentMissesShareOneLookup() throws Exception {
+        release = new CountDownLatch(1);
+        List<Future<Collection<DatawaveUser>>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(threads.submit(() -> nearCache.lookup(Collections.singleton(USER))));
+        }
+        // let every request reach the cache before the lookup returns
+        Thread.sleep(200);
+        release.countDown();
+        
+        for (Future<Collection<DatawaveUser>> result : results) {
+            Collection<DatawaveUser> users = result.get(10, TimeUnit.SECONDS);
+            assertEquals(1, users.size());
+            assertEquals(USER, users.iterator().next().getDn());
+        }
+        assertEquals(1, lookups.get());
+    }
+    
+    @Test
+    public void testChainOrderAndPartialHits() throws Exception {
+        nearCache.lookup(Collections.singleton(SERVER));
+        assertEquals(1, lookups.get());
+        
+        Collection<DatawaveUser> users = nearCache.lookup(Arrays.asList(USER, SERVER));
+        assertEquals(Arrays.asList(USER, SERVER), users.stream().map(DatawaveUser::getDn).collect(Collectors.toList()));
+        // only the user that was not cached was looked up
+        assertEquals(2, lookups.get());
+        assertEquals(Arrays.asList(SERVER, USER), lookedUp);
+        
+        String stats = nearCache.getStats();
+        assertTrue(stats, stats.contains("hits=1, misses=2"));
+    }
+    
+    @Test
+    public void testRefreshAheadOfExpiry() throws Exception {
+        nearCache.lookup(Collections.singleton(USER));
+        assertEquals(1, lookups.get());
+        
+        now += 40000L;
+        nearCache.lookup(Collections.singleton(USER));
+        assertEquals(1, lookups.get());
+        
+        // past the refresh point, the cached user is returned and reloaded in the background
+        now += 20000L;
+        nearCache.lookup(Collections.singleton(USER));
+        assertEquals(2, lookups.get());
+        
+        // past the original expiry, but the refreshed entry is still good
+        now += 45000L;
+        nearCache.lookup(Collections.singleton(USER));
+        assertEquals(2, lookups.get());
+        
+        // nothing used it until it expired
+        now += 200000L;
+        nearCache.lookup(Collections.singleton(USER));
+        assertEquals(3, lookups.get());
+    }
+    
+    @Test
+    public void testEvictAll() throws Exception {
+        nearCache.lookup(Arrays.asList(USER, SERVER));
+        nearCache.lookup(Arrays.asList(USER, SERVER));
+        assertEquals(1, lookups.get());
+        
+        nearCache.evict("server1<issuer1>");
+        nearCache.lookup(Arrays.asList(USER, SERVER));
+        assertEquals(2, lookups.get());
+        
+        nearCache.evictAll();
+        nearCache.lookup(Arrays.asList(USER, SERVER));
+        assertEquals(3, lookups.get());
+    }
+    
+    @Test
+    public void testFailuresAreNotCached() throws Exception {
+        fail = true;
+        try {
+            nearCache.lookup(Collections.singleton(USER));
+            fail("Expected the lookup to fail");
+        } catch (AuthorizationException e) {
+            assertEquals("Unable to authenticate", e.getMessage());
+        }
+        
+        fail = false;
+        assertEquals(1, nearCache.lookup(Collections.singleton(USER)).size());
+        assertEquals(2, lookups.get());
+        assertTrue(nearCache.getStats(), nearCache.getStats().contains("loadFailures=1"));
+    }
+}